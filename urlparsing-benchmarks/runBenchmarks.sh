@@ -0,0 +1,19 @@
+#!/bin/bash
+#
+# Runs the JMH benchmarks, any arguments are passed on to JMH, e.g. a benchmark name regex like "NumberParsing"
+# or "-p maxLines=10000". Run "java -jar target/benchmarks.jar -h" for the full list of JMH options.
+#
+# JMH needs a java 8 or later JDK, even though the urlparsing module itself is built for java 6.
+
+if [ ! -f logentries.txt.gz ]; then
+    echo "Downloading benchmark data from AWS, this could take a while"
+    wget 'https://s3.amazonaws.com/indeed-open-source/logentries.txt.gz'
+fi
+
+mvn -f ../pom.xml -pl urlparsing-benchmarks -am clean package -DskipTests
+
+# throughput in ops/s with the gc.alloc.rate.norm allocation profiler
+java -jar target/benchmarks.jar -bm thrpt -tu s -prof gc "$@"
+
+# latency percentiles
+java -jar target/benchmarks.jar -bm sample -tu ns "$@"
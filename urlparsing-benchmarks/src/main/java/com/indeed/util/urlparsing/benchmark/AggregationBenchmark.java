@@ -0,0 +1,124 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.HyperLogLog;
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import com.indeed.util.urlparsing.QueryStringParserCallbackBuilder;
+import com.indeed.util.urlparsing.TopKCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts distinct "uid" values and the most frequent "q" values of the logentries.txt.gz corpus, one line per
+ * operation, with the sketches in urlparsing and with a HashSet and HashMap of Strings. Run with "-prof gc" to compare
+ * allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AggregationBenchmark {
+
+    private static final class Sketches {
+        final HyperLogLog uids = new HyperLogLog();
+        final TopKCounter queries = new TopKCounter(100);
+    }
+
+    private static final class Collections {
+        final Set<String> uids = new HashSet<String>();
+        final Map<String, Integer> queries = new HashMap<String, Integer>();
+    }
+
+    private static final QueryStringParserCallback<Sketches> sketchParser;
+
+    private static final QueryStringParserCallback<Collections> collectionParser;
+
+    static {
+        final QueryStringParserCallbackBuilder<Sketches> sketchBuilder = new QueryStringParserCallbackBuilder<Sketches>();
+        sketchBuilder.addCallback("uid", new QueryStringParserCallback<Sketches>() {
+            @Override
+            public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Sketches storage) {
+                storage.uids.add(queryString, valueStart, valueEnd);
+            }
+        });
+        sketchBuilder.addCallback("q", new QueryStringParserCallback<Sketches>() {
+            @Override
+            public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Sketches storage) {
+                storage.queries.add(queryString, valueStart, valueEnd);
+            }
+        });
+        sketchParser = sketchBuilder.buildCallback();
+
+        final QueryStringParserCallbackBuilder<Collections> collectionBuilder = new QueryStringParserCallbackBuilder<Collections>();
+        collectionBuilder.addCallback("uid", new QueryStringParserCallback<Collections>() {
+            @Override
+            public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Collections storage) {
+                storage.uids.add(queryString.substring(valueStart, valueEnd));
+            }
+        });
+        collectionBuilder.addCallback("q", new QueryStringParserCallback<Collections>() {
+            @Override
+            public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Collections storage) {
+                final String query = queryString.substring(valueStart, valueEnd);
+                final Integer count = storage.queries.get(query);
+                storage.queries.put(query, count == null ? 1 : count + 1);
+            }
+        });
+        collectionParser = collectionBuilder.buildCallback();
+    }
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    private String[] lines;
+
+    private int next;
+
+    private final Sketches sketches = new Sketches();
+
+    private final Collections collections = new Collections();
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = LogEntries.load(corpus, maxLines);
+    }
+
+    private String nextLine() {
+        final String line = lines[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        return line;
+    }
+
+    @Benchmark
+    public Object sketches() {
+        QueryStringParser.parseQueryString(nextLine(), sketchParser, sketches);
+        return sketches;
+    }
+
+    @Benchmark
+    public Object hashCollections() {
+        QueryStringParser.parseQueryString(nextLine(), collectionParser, collections);
+        return collections;
+    }
+}
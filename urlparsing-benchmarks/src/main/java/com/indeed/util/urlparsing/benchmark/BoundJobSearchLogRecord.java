@@ -0,0 +1,34 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.QueryStringKey;
+
+/**
+ * The fields of {@link JobSearchLogRecord}, filled in by a {@link com.indeed.util.urlparsing.QueryStringBinder}
+ */
+public class BoundJobSearchLogRecord {
+    @QueryStringKey("uid")
+    public final StringBuilder uid = new StringBuilder(16);
+
+    @QueryStringKey(value = "q", type = QueryStringKey.Type.URL_DECODED)
+    public final StringBuilder query = new StringBuilder(12);
+
+    @QueryStringKey(value = "l", type = QueryStringKey.Type.URL_DECODED)
+    public final StringBuilder location = new StringBuilder(12);
+
+    @QueryStringKey(value = "uid", type = QueryStringKey.Type.UID_TIMESTAMP)
+    public long timestamp;
+
+    @QueryStringKey("totCnt")
+    public int numResults;
+
+    @Override
+    public String toString() {
+        return "BoundJobSearchLogRecord{" +
+                "uid=" + uid +
+                ", query=" + query +
+                ", location=" + location +
+                ", timestamp=" + timestamp +
+                ", numResults=" + numResults +
+                '}';
+    }
+}
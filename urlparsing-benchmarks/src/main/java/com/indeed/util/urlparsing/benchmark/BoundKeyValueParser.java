@@ -0,0 +1,20 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.QueryStringBinder;
+
+/**
+ * Parses the same keys as {@link IndeedKeyValueParser} with a generated {@link QueryStringBinder} instead of hand
+ * written callbacks
+ */
+public class BoundKeyValueParser implements KeyValueParser {
+    private static final QueryStringBinder<BoundJobSearchLogRecord> binder = QueryStringBinder.create(BoundJobSearchLogRecord.class);
+
+    // reused across lines, parse() is not thread safe
+    private final BoundJobSearchLogRecord record = new BoundJobSearchLogRecord();
+
+    @Override
+    public BoundJobSearchLogRecord parse(String logentry) {
+        binder.parse(logentry, record);
+        return record;
+    }
+}
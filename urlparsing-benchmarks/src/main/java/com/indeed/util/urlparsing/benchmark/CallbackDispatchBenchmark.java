@@ -0,0 +1,112 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import com.indeed.util.urlparsing.QueryStringParserCallbackBuilder;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures only the key lookup done by the callback from QueryStringParserCallbackBuilder. The key value offsets of
+ * every line are found during setup, and each operation dispatches all pairs of one line.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CallbackDispatchBenchmark {
+
+    private static final QueryStringParserCallback<IntArrayList> offsetCollector = new QueryStringParserCallback<IntArrayList>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, IntArrayList storage) {
+            storage.add(keyStart);
+            storage.add(keyEnd);
+            storage.add(valueStart);
+            storage.add(valueEnd);
+        }
+    };
+
+    private static final QueryStringParserCallback<Blackhole> consumeValue = new QueryStringParserCallback<Blackhole>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Blackhole blackhole) {
+            blackhole.consume(valueStart);
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    /**
+     * Comma separated list of keys to register callbacks for
+     */
+    @Param({"uid,q,l,totCnt", "uid,q,l,totCnt,tk,sjc,ip,ua,rq,cb,co,lang"})
+    public String keys;
+
+    /**
+     * Use buildCompiledCallback() instead of buildCallback()
+     */
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    /**
+     * Match keys regardless of ASCII case
+     */
+    @Param({"false", "true"})
+    public boolean ignoreCase;
+
+    private String[] lines;
+
+    private int[][] offsets;
+
+    private int next;
+
+    private QueryStringParserCallback<Blackhole> callback;
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = LogEntries.load(corpus, maxLines);
+        offsets = new int[lines.length][];
+        final IntArrayList lineOffsets = new IntArrayList();
+        for (int i = 0; i < lines.length; i++) {
+            lineOffsets.clear();
+            QueryStringParser.parseQueryString(lines[i], offsetCollector, lineOffsets);
+            offsets[i] = lineOffsets.toIntArray();
+        }
+
+        final QueryStringParserCallbackBuilder<Blackhole> builder = new QueryStringParserCallbackBuilder<Blackhole>();
+        builder.setIgnoreCase(ignoreCase);
+        for (String key : keys.split(",")) {
+            builder.addCallback(key, consumeValue);
+        }
+        callback = compiled ? builder.buildCompiledCallback() : builder.buildCallback();
+    }
+
+    @Benchmark
+    public void dispatch(Blackhole blackhole) {
+        final String line = lines[next];
+        final int[] lineOffsets = offsets[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        for (int i = 0; i < lineOffsets.length; i += 4) {
+            callback.parseKeyValuePair(line, lineOffsets[i], lineOffsets[i + 1], lineOffsets[i + 2], lineOffsets[i + 3], blackhole);
+        }
+    }
+}
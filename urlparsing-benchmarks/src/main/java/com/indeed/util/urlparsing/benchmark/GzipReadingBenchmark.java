@@ -0,0 +1,159 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+import com.indeed.util.urlparsing.BlockedGzipOutputStream;
+import com.indeed.util.urlparsing.ByteQueryStringParserCallback;
+import com.indeed.util.urlparsing.GzipLogReader;
+import com.indeed.util.urlparsing.MappedLogReader;
+import com.indeed.util.urlparsing.ParallelLogParser;
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and parses a gzip compressed log file, one file per operation. The lines of the logentries.txt.gz corpus are
+ * repeated until there are maxLines, and written once as regular gzip and once with BlockedGzipOutputStream. Each
+ * line is parsed with the byte or String QueryStringParser, and the values of "totCnt" are summed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GzipReadingBenchmark {
+
+    private static final QueryStringParserCallback<long[]> sumTotCnt = new QueryStringParserCallback<long[]>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, long[] storage) {
+            if (keyEnd - keyStart == 6 && queryString.startsWith("totCnt", keyStart)) {
+                storage[0] += valueEnd - valueStart;
+            }
+        }
+    };
+
+    private static final ByteQueryStringParserCallback<long[]> sumTotCntBytes = new ByteQueryStringParserCallback<long[]>() {
+        @Override
+        public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, long[] storage) {
+            if (keyEnd - keyStart == 6 && queryString[keyStart] == 't' && queryString[keyStart + 3] == 'C') {
+                storage[0] += valueEnd - valueStart;
+            }
+        }
+    };
+
+    private static final Supplier<long[]> newSum = new Supplier<long[]>() {
+        @Override
+        public long[] get() {
+            return new long[1];
+        }
+    };
+
+    private static final ParallelLogParser.Combiner<long[]> addSums = new ParallelLogParser.Combiner<long[]>() {
+        @Override
+        public long[] combine(long[] left, long[] right) {
+            left[0] += right[0];
+            return left;
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("200000")
+    public int maxLines;
+
+    /**
+     * Threads for the blocked gzip benchmark, the pipelined reader always uses one thread besides the caller
+     */
+    @Param({"4"})
+    public int threads;
+
+    private File gzipFile;
+
+    private File blockedGzipFile;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() throws IOException {
+        final String[] lines = LogEntries.load(corpus, maxLines);
+        gzipFile = File.createTempFile("GzipReadingBenchmark", ".txt.gz");
+        gzipFile.deleteOnExit();
+        blockedGzipFile = File.createTempFile("GzipReadingBenchmark", ".blocked.txt.gz");
+        blockedGzipFile.deleteOnExit();
+        final OutputStream gzip = new GZIPOutputStream(new FileOutputStream(gzipFile), 1 << 16);
+        final OutputStream blockedGzip = new BlockedGzipOutputStream(new FileOutputStream(blockedGzipFile));
+        try {
+            for (int i = 0; i < maxLines; i++) {
+                final byte[] line = (lines[i % lines.length] + '\n').getBytes(Charsets.UTF_8);
+                gzip.write(line);
+                blockedGzip.write(line);
+            }
+        } finally {
+            Closeables.close(gzip, true);
+            Closeables.close(blockedGzip, true);
+        }
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long gzipInputStream() throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(gzipFile), 1 << 16), Charsets.UTF_8));
+        try {
+            final long[] sum = new long[1];
+            String line;
+            while ((line = reader.readLine()) != null) {
+                QueryStringParser.parseQueryString(line, sumTotCnt, sum);
+            }
+            return sum[0];
+        } finally {
+            Closeables.close(reader, true);
+        }
+    }
+
+    @Benchmark
+    public long gzipLogReader() throws IOException, InterruptedException {
+        final long[] sum = new long[1];
+        new GzipLogReader(executor).parseQueryStrings(gzipFile, sumTotCntBytes, sum);
+        return sum[0];
+    }
+
+    @Benchmark
+    public long blockedGzipParallel() throws IOException, InterruptedException {
+        // small chunks, the benchmark file is only a few MB
+        final ParallelLogParser parser = new ParallelLogParser(executor, 256 * 1024, new MappedLogReader());
+        return parser.parseBlockedGzipQueryStrings(ImmutableList.of(blockedGzipFile), newSum, sumTotCntBytes, addSums)[0];
+    }
+}
@@ -1,9 +1,12 @@
 package com.indeed.util.urlparsing.benchmark;
 
+import com.indeed.util.urlparsing.FilteredQueryStringParserCallback;
 import com.indeed.util.urlparsing.ParseUtils;
 import com.indeed.util.urlparsing.QueryStringParser;
 import com.indeed.util.urlparsing.QueryStringParserCallback;
 import com.indeed.util.urlparsing.QueryStringParserCallbackBuilder;
+import com.indeed.util.urlparsing.StoppableQueryStringParserCallback;
+import com.indeed.util.urlparsing.ValuePredicates;
 
 /**
  * @author: preetha
@@ -45,17 +48,61 @@ public class IndeedKeyValueParser implements  KeyValueParser {
     };
 
 
-    @Override
-    public void parse(String logentry) {
-        QueryStringParserCallbackBuilder<JobSearchLogRecord> builder = new QueryStringParserCallbackBuilder<JobSearchLogRecord>();
+    private static final QueryStringParserCallback<JobSearchLogRecord> jobSearchLogRecordParser;
+
+    private static final StoppableQueryStringParserCallback<JobSearchLogRecord> stoppableJobSearchLogRecordParser;
+
+    // rejects about 90% of the lines in logentries.txt.gz
+    static final int MIN_NUM_RESULTS = 90000;
+
+    private static final FilteredQueryStringParserCallback<JobSearchLogRecord> filteredJobSearchLogRecordParser;
+
+    static {
+        final QueryStringParserCallbackBuilder<JobSearchLogRecord> builder = new QueryStringParserCallbackBuilder<JobSearchLogRecord>();
         builder.addCallback("uid", uidParser);
         builder.addCallback("uid", timestampParser);
         builder.addCallback("q",  queryParser);
         builder.addCallback("l", locationParser);
         builder.addCallback("totCnt", intValueParser);
+        jobSearchLogRecordParser = builder.buildCallback();
+        stoppableJobSearchLogRecordParser = builder.buildStoppableCallback();
+        builder.addFilter("totCnt", ValuePredicates.atLeast(MIN_NUM_RESULTS));
+        filteredJobSearchLogRecordParser = builder.buildFilteredCallback();
+    }
+
+    // reused across lines, parse() is not thread safe
+    private final JobSearchLogRecord record = new JobSearchLogRecord();
+
+    private final boolean stopEarly;
+
+    public IndeedKeyValueParser() {
+        this(false);
+    }
+
+    /**
+     * @param stopEarly stop parsing a line once all keys have been seen
+     */
+    public IndeedKeyValueParser(boolean stopEarly) {
+        this.stopEarly = stopEarly;
+    }
+
+    @Override
+    public JobSearchLogRecord parse(String logentry) {
+        record.clear();
+        if (stopEarly) {
+            QueryStringParser.parseQueryString(logentry, stoppableJobSearchLogRecordParser, record);
+        } else {
+            QueryStringParser.parseQueryString(logentry, jobSearchLogRecordParser, record);
+        }
+        return record;
+    }
 
-        final QueryStringParserCallback<JobSearchLogRecord> jobSearchLogRecordParser = builder.buildCallback();
-        final JobSearchLogRecord record = new JobSearchLogRecord();
-        QueryStringParser.parseQueryString(logentry, jobSearchLogRecordParser, record);
+    /**
+     * @return the parsed record, or null if it has fewer than MIN_NUM_RESULTS results. The filter is tested before
+     * any callback is called.
+     */
+    public JobSearchLogRecord parseFiltered(String logentry) {
+        record.clear();
+        return QueryStringParser.parseQueryString(logentry, filteredJobSearchLogRecordParser, record) ? record : null;
     }
 }
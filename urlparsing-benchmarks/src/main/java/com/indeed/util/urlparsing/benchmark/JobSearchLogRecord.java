@@ -39,6 +39,14 @@ public class JobSearchLogRecord {
         this.numResults = numResults;
     }
 
+    public void clear() {
+        uid.setLength(0);
+        query.setLength(0);
+        location.setLength(0);
+        timestamp = 0;
+        numResults = 0;
+    }
+
     @Override
     public String toString() {
         return "JobSearchLogRecord{" +
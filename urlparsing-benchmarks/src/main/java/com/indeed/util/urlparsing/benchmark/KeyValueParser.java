@@ -0,0 +1,12 @@
+package com.indeed.util.urlparsing.benchmark;
+
+/**
+ * @author: preetha
+ */
+public interface KeyValueParser {
+
+    /**
+     * @return the parsed record, so that benchmarks can consume it
+     */
+    public Object parse(String line);
+}
@@ -0,0 +1,188 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.google.common.base.Charsets;
+import com.indeed.util.urlparsing.ByteQueryStringParser;
+import com.indeed.util.urlparsing.ByteQueryStringParserCallback;
+import com.indeed.util.urlparsing.QueryStringBatch;
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses one line of the logentries.txt.gz corpus per operation.
+ * Run with "-prof gc" to check gc.alloc.rate.norm, which should be 0 B/op for the QueryStringParser benchmarks.
+ *
+ * @author: preetha
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyValueParsingBenchmark {
+
+    private static final QueryStringParserCallback<Blackhole> consumeAllPairs = new QueryStringParserCallback<Blackhole>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Blackhole blackhole) {
+            blackhole.consume(keyStart);
+            blackhole.consume(valueEnd);
+        }
+    };
+
+    private static final ByteQueryStringParserCallback<Blackhole> consumeAllBytePairs = new ByteQueryStringParserCallback<Blackhole>() {
+        @Override
+        public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Blackhole blackhole) {
+            blackhole.consume(keyStart);
+            blackhole.consume(valueEnd);
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    private static final int BATCH_SIZE = 1024;
+
+    private String[] lines;
+
+    private byte[][] lineBytes;
+
+    private int next;
+
+    private final IndeedKeyValueParser indeedParser = new IndeedKeyValueParser();
+
+    private final IndeedKeyValueParser stoppingIndeedParser = new IndeedKeyValueParser(true);
+
+    private final BoundKeyValueParser boundParser = new BoundKeyValueParser();
+
+    private final StringSplitKeyValueParser stringSplitParser = new StringSplitKeyValueParser();
+
+    private final QueryStringBatch batch = new QueryStringBatch(BATCH_SIZE);
+
+    private final QueryStringBatch.StringColumn uids = batch.addStringColumn("uid", false);
+
+    private final QueryStringBatch.StringColumn queries = batch.addStringColumn("q", true);
+
+    private final QueryStringBatch.StringColumn locations = batch.addStringColumn("l", true);
+
+    private final QueryStringBatch.IntColumn numResults = batch.addIntColumn("totCnt");
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = LogEntries.load(corpus, maxLines);
+        lineBytes = new byte[lines.length][];
+        for (int i = 0; i < lines.length; i++) {
+            lineBytes[i] = lines[i].getBytes(Charsets.UTF_8);
+        }
+    }
+
+    private String nextLine() {
+        final String line = lines[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        return line;
+    }
+
+    /**
+     * Tokenizing only, every key value pair goes to a single callback
+     */
+    @Benchmark
+    public void parseQueryString(Blackhole blackhole) {
+        QueryStringParser.parseQueryString(nextLine(), consumeAllPairs, blackhole);
+    }
+
+    /**
+     * Tokenizing only, on the UTF-8 bytes of the line
+     */
+    @Benchmark
+    public void parseQueryStringBytes(Blackhole blackhole) {
+        final byte[] line = lineBytes[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        ByteQueryStringParser.parseQueryString(line, 0, line.length, consumeAllBytePairs, blackhole);
+    }
+
+    /**
+     * QueryStringParserCallbackBuilder dispatch to the uid, q, l and totCnt callbacks
+     */
+    @Benchmark
+    public Object indeedKeyValueParser() {
+        return indeedParser.parse(nextLine());
+    }
+
+    /**
+     * Same as indeedKeyValueParser, but stops parsing each line once all keys have been seen
+     */
+    @Benchmark
+    public Object indeedKeyValueParserStopEarly() {
+        return stoppingIndeedParser.parse(nextLine());
+    }
+
+    /**
+     * Only lines with at least IndeedKeyValueParser.MIN_NUM_RESULTS results, filtered on the raw totCnt value before
+     * the callbacks run
+     */
+    @Benchmark
+    public Object indeedKeyValueParserFiltered() {
+        return indeedParser.parseFiltered(nextLine());
+    }
+
+    /**
+     * Same lines as indeedKeyValueParserFiltered, filtered after every line has been parsed
+     */
+    @Benchmark
+    public Object indeedKeyValueParserFilteredAfterParsing() {
+        final JobSearchLogRecord record = indeedParser.parse(nextLine());
+        return record.getNumResults() >= IndeedKeyValueParser.MIN_NUM_RESULTS ? record : null;
+    }
+
+    /**
+     * The keys of indeedKeyValueParser bound to the fields of a record by a generated QueryStringBinder
+     */
+    @Benchmark
+    public Object boundKeyValueParser() {
+        return boundParser.parse(nextLine());
+    }
+
+    /**
+     * Parses BATCH_SIZE lines per invocation into the columns of a QueryStringBatch, so scores are per line
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long queryStringBatch() {
+        batch.clear();
+        while (!batch.isFull()) {
+            batch.add(nextLine());
+        }
+        long sum = 0;
+        final int[] values = numResults.getValues();
+        for (int i = 0; i < batch.size(); i++) {
+            sum += values[i];
+        }
+        return sum + uids.getChars().length() + queries.getChars().length() + locations.getChars().length();
+    }
+
+    /**
+     * Naive String.split and URLDecoder.decode baseline
+     */
+    @Benchmark
+    public Object stringSplitKeyValueParser() {
+        return stringSplitParser.parse(nextLine());
+    }
+}
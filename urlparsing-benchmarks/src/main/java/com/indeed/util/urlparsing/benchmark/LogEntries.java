@@ -0,0 +1,46 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Closeables;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads the logentries.txt.gz benchmark corpus into memory so that no reader I/O happens inside a measured method.
+ * The corpus is downloaded by runBenchmarks.sh.
+ */
+public final class LogEntries {
+    public static final String DEFAULT_PATH = "logentries.txt.gz";
+
+    private LogEntries() {
+    }
+
+    /**
+     * @param path gzipped file with one query string per line
+     * @param maxLines stop after this many lines, or read everything if <= 0
+     */
+    public static String[] load(String path, int maxLines) throws IOException {
+        final File file = new File(path);
+        if (!file.isFile()) {
+            throw new IllegalStateException(file.getAbsolutePath() + " does not exist, run runBenchmarks.sh to download it");
+        }
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), Charsets.UTF_8));
+        try {
+            final List<String> lines = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null && (maxLines <= 0 || lines.size() < maxLines)) {
+                lines.add(line);
+            }
+            return lines.toArray(new String[lines.size()]);
+        } finally {
+            Closeables.close(reader, true);
+        }
+    }
+}
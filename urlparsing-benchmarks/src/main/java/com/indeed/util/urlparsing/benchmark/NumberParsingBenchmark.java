@@ -0,0 +1,228 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.google.common.base.Charsets;
+import com.indeed.util.urlparsing.NumberParseResult;
+import com.indeed.util.urlparsing.ParseUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the number parsing methods in ParseUtils to their java.lang equivalents. Every value is embedded in a longer
+ * line ("value,padding") so that the ParseUtils methods have to respect the end offset, like they do inside a callback.
+ * The malformed benchmarks compare the cost of rejecting bad values by catching NumberFormatException to the tryParse
+ * methods.
+ *
+ * @author: preetha
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumberParsingBenchmark {
+    private static final int NUM_VALUES = 1 << 14;
+
+    private static final long SEED = 21906731123608L;
+
+    private static final String PADDING = ",padding";
+
+    private static final String UID_CHARS = "0123456789abcdefghijklmnopqrstuv";
+
+    private final String[] ints = new String[NUM_VALUES];
+    private final String[] negativeInts = new String[NUM_VALUES];
+    private final String[] longs = new String[NUM_VALUES];
+    private final String[] negativeLongs = new String[NUM_VALUES];
+    private final String[] floats = new String[NUM_VALUES];
+    private final String[] doubles = new String[NUM_VALUES];
+    private final String[] uids = new String[NUM_VALUES];
+    // ints with one digit replaced by a letter
+    private final String[] malformedInts = new String[NUM_VALUES];
+
+    // UTF-8 copies of longs and negativeInts, as ByteQueryStringParser callbacks see them
+    private final byte[][] longBytes = new byte[NUM_VALUES][];
+    private final byte[][] negativeIntBytes = new byte[NUM_VALUES][];
+    private final byte[][] floatBytes = new byte[NUM_VALUES][];
+
+    private final NumberParseResult result = new NumberParseResult();
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i < NUM_VALUES; i++) {
+            ints[i] = withPadding(Integer.toString(random.nextInt(Integer.MAX_VALUE)));
+            negativeInts[i] = withPadding(Integer.toString(-random.nextInt(Integer.MAX_VALUE)));
+            longs[i] = withPadding(Long.toString(random.nextLong() & Long.MAX_VALUE));
+            negativeLongs[i] = withPadding(Long.toString(-(random.nextLong() & Long.MAX_VALUE)));
+            floats[i] = withPadding(Float.toString(random.nextFloat() * random.nextInt(100000)));
+            doubles[i] = withPadding(Double.toString(random.nextDouble() * random.nextInt(100000)));
+            final StringBuilder uid = new StringBuilder(16);
+            for (int j = 0; j < 16; j++) {
+                uid.append(UID_CHARS.charAt(random.nextInt(UID_CHARS.length())));
+            }
+            uids[i] = uid.toString();
+            final char[] malformed = Integer.toString(random.nextInt(Integer.MAX_VALUE)).toCharArray();
+            malformed[random.nextInt(malformed.length)] = 'x';
+            malformedInts[i] = withPadding(new String(malformed));
+            longBytes[i] = longs[i].getBytes(Charsets.UTF_8);
+            negativeIntBytes[i] = negativeInts[i].getBytes(Charsets.UTF_8);
+            floatBytes[i] = floats[i].getBytes(Charsets.UTF_8);
+        }
+    }
+
+    private static String withPadding(String value) {
+        return value + PADDING;
+    }
+
+    // constant time, so that finding the value is not part of what is measured
+    private static int end(String line) {
+        return line.length() - PADDING.length();
+    }
+
+    private static int end(byte[] line) {
+        return line.length - PADDING.length();
+    }
+
+    private int nextIndex() {
+        final int index = next;
+        next = (next + 1) & (NUM_VALUES - 1);
+        return index;
+    }
+
+    @Benchmark
+    public int parseUnsignedInt() {
+        final String s = ints[nextIndex()];
+        return ParseUtils.parseUnsignedInt(s, 0, end(s));
+    }
+
+    @Benchmark
+    public int parseInt() {
+        final String s = negativeInts[nextIndex()];
+        return ParseUtils.parseInt(s, 0, end(s));
+    }
+
+    @Benchmark
+    public int parseSignedInt() {
+        final String s = negativeInts[nextIndex()];
+        return ParseUtils.parseSignedInt(s, 0, end(s));
+    }
+
+    @Benchmark
+    public int parseSignedIntBytes() {
+        final byte[] s = negativeIntBytes[nextIndex()];
+        return ParseUtils.parseSignedInt(s, 0, end(s));
+    }
+
+    @Benchmark
+    public int tryParseSignedInt() {
+        final String s = negativeInts[nextIndex()];
+        return ParseUtils.tryParseSignedInt(s, 0, end(s), result) ? result.intValue() : -1;
+    }
+
+    @Benchmark
+    public int javaParseInt() {
+        final String s = negativeInts[nextIndex()];
+        return Integer.parseInt(s.substring(0, end(s)));
+    }
+
+    @Benchmark
+    public long parseUnsignedLong() {
+        final String s = longs[nextIndex()];
+        return ParseUtils.parseUnsignedLong(s, 0, end(s));
+    }
+
+    @Benchmark
+    public long parseUnsignedLongBytes() {
+        final byte[] s = longBytes[nextIndex()];
+        return ParseUtils.parseUnsignedLong(s, 0, end(s));
+    }
+
+    @Benchmark
+    public long parseSignedLong() {
+        final String s = negativeLongs[nextIndex()];
+        return ParseUtils.parseSignedLong(s, 0, end(s));
+    }
+
+    @Benchmark
+    public long tryParseSignedLong() {
+        final String s = negativeLongs[nextIndex()];
+        return ParseUtils.tryParseSignedLong(s, 0, end(s), result) ? result.longValue() : -1;
+    }
+
+    @Benchmark
+    public long javaParseLong() {
+        final String s = negativeLongs[nextIndex()];
+        return Long.parseLong(s.substring(0, end(s)));
+    }
+
+    @Benchmark
+    public float parseFloat() {
+        final String s = floats[nextIndex()];
+        return ParseUtils.parseFloat(s, 0, end(s));
+    }
+
+    @Benchmark
+    public float parseFloatBytes() {
+        final byte[] s = floatBytes[nextIndex()];
+        return ParseUtils.parseFloat(s, 0, end(s));
+    }
+
+    @Benchmark
+    public float tryParseFloat() {
+        final String s = floats[nextIndex()];
+        return ParseUtils.tryParseFloat(s, 0, end(s), result) ? result.floatValue() : -1;
+    }
+
+    @Benchmark
+    public float javaParseFloat() {
+        final String s = floats[nextIndex()];
+        return Float.parseFloat(s.substring(0, end(s)));
+    }
+
+    @Benchmark
+    public double parseDouble() {
+        final String s = doubles[nextIndex()];
+        return ParseUtils.parseDouble(s, 0, end(s));
+    }
+
+    @Benchmark
+    public double javaParseDouble() {
+        final String s = doubles[nextIndex()];
+        return Double.parseDouble(s.substring(0, end(s)));
+    }
+
+    @Benchmark
+    public long parseTimestampFromUIDString() {
+        final String s = uids[nextIndex()];
+        return ParseUtils.parseTimestampFromUIDString(s, 0, s.length());
+    }
+
+    @Benchmark
+    public int parseSignedIntMalformed() {
+        final String s = malformedInts[nextIndex()];
+        try {
+            return ParseUtils.parseSignedInt(s, 0, end(s));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Benchmark
+    public int tryParseSignedIntMalformed() {
+        final String s = malformedInts[nextIndex()];
+        return ParseUtils.tryParseSignedInt(s, 0, end(s), result) ? result.intValue() : -1;
+    }
+}
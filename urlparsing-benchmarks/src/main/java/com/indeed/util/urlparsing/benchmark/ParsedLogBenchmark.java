@@ -0,0 +1,170 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Closeables;
+import com.indeed.util.urlparsing.ByteBufferQueryStringParserCallback;
+import com.indeed.util.urlparsing.ByteQueryStringParserCallback;
+import com.indeed.util.urlparsing.MappedLogReader;
+import com.indeed.util.urlparsing.NumberParseResult;
+import com.indeed.util.urlparsing.ParseUtils;
+import com.indeed.util.urlparsing.ParsedLogReader;
+import com.indeed.util.urlparsing.ParsedLogWriter;
+import com.indeed.util.urlparsing.ParsedRecordCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sums "totCnt" and the decoded length of "q" over a log file, one file per operation: parsing the plain text log
+ * with MappedLogReader from copied lines or in place, or reading the same log converted by ParsedLogWriter. The lines of the logentries.txt.gz corpus
+ * are repeated until there are maxLines.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParsedLogBenchmark {
+
+    private static final class Totals {
+        long totCnt;
+        long queryLength;
+        final NumberParseResult number = new NumberParseResult();
+        final byte[] decoded = new byte[1 << 16];
+    }
+
+    private static final ByteQueryStringParserCallback<Totals> textCallback = new ByteQueryStringParserCallback<Totals>() {
+        @Override
+        public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Totals storage) {
+            final int keyLength = keyEnd - keyStart;
+            if (keyLength == 6 && queryString[keyStart] == 't' && queryString[keyStart + 3] == 'C') {
+                if (ParseUtils.tryParseSignedLong(queryString, valueStart, valueEnd, storage.number)) {
+                    storage.totCnt += storage.number.longValue();
+                }
+            } else if (keyLength == 1 && queryString[keyStart] == 'q') {
+                storage.queryLength += ParseUtils.urlDecodeInto(queryString, valueStart, valueEnd, storage.decoded, 0);
+            }
+        }
+    };
+
+    private static final ByteBufferQueryStringParserCallback<Totals> inPlaceTextCallback = new ByteBufferQueryStringParserCallback<Totals>() {
+        @Override
+        public void parseKeyValuePair(ByteBuffer queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Totals storage) {
+            final int keyLength = keyEnd - keyStart;
+            if (keyLength == 6 && queryString.get(keyStart) == 't' && queryString.get(keyStart + 3) == 'C') {
+                if (ParseUtils.tryParseSignedLong(queryString, valueStart, valueEnd, storage.number)) {
+                    storage.totCnt += storage.number.longValue();
+                }
+            } else if (keyLength == 1 && queryString.get(keyStart) == 'q') {
+                storage.queryLength += ParseUtils.urlDecodeInto(queryString, valueStart, valueEnd, storage.decoded, 0);
+            }
+        }
+    };
+
+    private static final class ParsedCallback implements ParsedRecordCallback<Totals> {
+        private final int totCntId;
+
+        private final int queryId;
+
+        private ParsedCallback(ParsedLogReader reader) {
+            totCntId = reader.getKeyId("totCnt");
+            queryId = reader.getKeyId("q");
+        }
+
+        @Override
+        public void parseLong(int keyId, long value, Totals storage) {
+            if (keyId == totCntId) {
+                storage.totCnt += value;
+            }
+        }
+
+        @Override
+        public void parseString(int keyId, ByteBuffer buffer, int valueStart, int valueEnd, boolean decoded, Totals storage) {
+            if (keyId == queryId) {
+                storage.queryLength += valueEnd - valueStart;
+            }
+        }
+
+        @Override
+        public void endRecord(Totals storage) {
+        }
+    }
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("200000")
+    public int maxLines;
+
+    private File textFile;
+
+    private ParsedLogReader parsedLogReader;
+
+    private ParsedCallback parsedCallback;
+
+    @Setup
+    public void setUp() throws IOException {
+        final String[] lines = LogEntries.load(corpus, maxLines);
+        textFile = File.createTempFile("ParsedLogBenchmark", ".txt");
+        textFile.deleteOnExit();
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(textFile));
+        try {
+            for (int i = 0; i < maxLines; i++) {
+                out.write((lines[i % lines.length] + '\n').getBytes(Charsets.UTF_8));
+            }
+        } finally {
+            Closeables.close(out, true);
+        }
+        final File parsedFile = File.createTempFile("ParsedLogBenchmark", ".qsp");
+        parsedFile.deleteOnExit();
+        ParsedLogWriter.convert(ImmutableList.of(textFile), parsedFile, ImmutableSet.of("q"));
+        parsedLogReader = new ParsedLogReader(parsedFile);
+        parsedCallback = new ParsedCallback(parsedLogReader);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        parsedLogReader.close();
+    }
+
+    @Benchmark
+    public long mappedText() throws IOException {
+        final Totals totals = new Totals();
+        new MappedLogReader().parseQueryStrings(textFile, textCallback, totals);
+        return totals.totCnt + totals.queryLength;
+    }
+
+    @Benchmark
+    public long mappedTextInPlace() throws IOException {
+        final Totals totals = new Totals();
+        new MappedLogReader().parseQueryStrings(textFile, inPlaceTextCallback, totals);
+        return totals.totCnt + totals.queryLength;
+    }
+
+    @Benchmark
+    public long parsedLog() throws IOException {
+        final Totals totals = new Totals();
+        parsedLogReader.read(parsedCallback, totals);
+        return totals.totCnt + totals.queryLength;
+    }
+}
@@ -0,0 +1,129 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.PrefixQueryStringParserCallback;
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import com.indeed.util.urlparsing.QueryStringParserCallbackBuilder;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Like CallbackDispatchBenchmark, but for callbacks registered for key prefixes: the trie built by
+ * QueryStringParserCallbackBuilder.addPrefixCallback() compared to a single callback that tries every prefix with
+ * startsWith.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrefixDispatchBenchmark {
+
+    private static final QueryStringParserCallback<IntArrayList> offsetCollector = new QueryStringParserCallback<IntArrayList>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, IntArrayList storage) {
+            storage.add(keyStart);
+            storage.add(keyEnd);
+            storage.add(valueStart);
+            storage.add(valueEnd);
+        }
+    };
+
+    private static final PrefixQueryStringParserCallback<Blackhole> consumeValue = new PrefixQueryStringParserCallback<Blackhole>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int prefixLength, int valueStart, int valueEnd, Blackhole blackhole) {
+            blackhole.consume(prefixLength);
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    /**
+     * Number of prefixes "p0_" to "pN_" registered in addition to "x1" and "x2", which match keys in the corpus
+     */
+    @Param({"10", "200"})
+    public int numPrefixes;
+
+    private String[] lines;
+
+    private int[][] offsets;
+
+    private int next;
+
+    private QueryStringParserCallback<Blackhole> trieCallback;
+
+    private QueryStringParserCallback<Blackhole> startsWithCallback;
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = LogEntries.load(corpus, maxLines);
+        offsets = new int[lines.length][];
+        final IntArrayList lineOffsets = new IntArrayList();
+        for (int i = 0; i < lines.length; i++) {
+            lineOffsets.clear();
+            QueryStringParser.parseQueryString(lines[i], offsetCollector, lineOffsets);
+            offsets[i] = lineOffsets.toIntArray();
+        }
+
+        final String[] prefixes = new String[numPrefixes + 2];
+        for (int i = 0; i < numPrefixes; i++) {
+            prefixes[i] = "p" + i + "_";
+        }
+        prefixes[numPrefixes] = "x1";
+        prefixes[numPrefixes + 1] = "x2";
+
+        final QueryStringParserCallbackBuilder<Blackhole> builder = new QueryStringParserCallbackBuilder<Blackhole>();
+        for (String prefix : prefixes) {
+            builder.addPrefixCallback(prefix, consumeValue);
+        }
+        trieCallback = builder.buildCallback();
+        startsWithCallback = new QueryStringParserCallback<Blackhole>() {
+            @Override
+            public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Blackhole blackhole) {
+                for (String prefix : prefixes) {
+                    if (keyEnd - keyStart >= prefix.length() && queryString.startsWith(prefix, keyStart)) {
+                        consumeValue.parseKeyValuePair(queryString, keyStart, keyEnd, prefix.length(), valueStart, valueEnd, blackhole);
+                    }
+                }
+            }
+        };
+    }
+
+    private void dispatch(QueryStringParserCallback<Blackhole> callback, Blackhole blackhole) {
+        final String line = lines[next];
+        final int[] lineOffsets = offsets[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        for (int i = 0; i < lineOffsets.length; i += 4) {
+            callback.parseKeyValuePair(line, lineOffsets[i], lineOffsets[i + 1], lineOffsets[i + 2], lineOffsets[i + 3], blackhole);
+        }
+    }
+
+    @Benchmark
+    public void trie(Blackhole blackhole) {
+        dispatch(trieCallback, blackhole);
+    }
+
+    @Benchmark
+    public void startsWith(Blackhole blackhole) {
+        dispatch(startsWithCallback, blackhole);
+    }
+}
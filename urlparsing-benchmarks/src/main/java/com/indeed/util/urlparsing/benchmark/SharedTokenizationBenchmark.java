@@ -0,0 +1,105 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.ParsedQueryString;
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import com.indeed.util.urlparsing.QueryStringParserCallbackBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Three consumers, each with a callback for different keys, handle every line of the logentries.txt.gz corpus, one
+ * line per operation: either each consumer parses the line itself, or the line is tokenized once into a
+ * ParsedQueryString that is replayed to each consumer, or the consumers look up their keys in it.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SharedTokenizationBenchmark {
+
+    private static final String[][] CONSUMER_KEYS = {{"uid", "q"}, {"l", "totCnt"}, {"tk", "sjc", "ip"}};
+
+    private static final QueryStringParserCallback<Blackhole> consumeValue = new QueryStringParserCallback<Blackhole>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Blackhole blackhole) {
+            blackhole.consume(valueStart);
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    private String[] lines;
+
+    private int next;
+
+    private QueryStringParserCallback<Blackhole>[] consumers;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        lines = LogEntries.load(corpus, maxLines);
+        consumers = new QueryStringParserCallback[CONSUMER_KEYS.length];
+        for (int i = 0; i < CONSUMER_KEYS.length; i++) {
+            final QueryStringParserCallbackBuilder<Blackhole> builder = new QueryStringParserCallbackBuilder<Blackhole>();
+            for (String key : CONSUMER_KEYS[i]) {
+                builder.addCallback(key, consumeValue);
+            }
+            consumers[i] = builder.buildCallback();
+        }
+    }
+
+    private String nextLine() {
+        final String line = lines[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        return line;
+    }
+
+    @Benchmark
+    public void parseEach(Blackhole blackhole) {
+        final String line = nextLine();
+        for (QueryStringParserCallback<Blackhole> consumer : consumers) {
+            QueryStringParser.parseQueryString(line, consumer, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void parseOnceReplay(Blackhole blackhole) {
+        final ParsedQueryString parsed = ParsedQueryString.forCurrentThread().parse(nextLine());
+        for (QueryStringParserCallback<Blackhole> consumer : consumers) {
+            parsed.replay(consumer, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void parseOnceLookup(Blackhole blackhole) {
+        final ParsedQueryString parsed = ParsedQueryString.forCurrentThread().parse(nextLine());
+        for (String[] keys : CONSUMER_KEYS) {
+            for (String key : keys) {
+                final int index = parsed.indexOf(key);
+                if (index >= 0) {
+                    blackhole.consume(parsed.getValueStart(index));
+                }
+            }
+        }
+    }
+}
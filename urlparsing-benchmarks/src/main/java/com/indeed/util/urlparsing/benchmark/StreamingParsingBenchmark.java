@@ -0,0 +1,100 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.ByteQueryStringParserCallback;
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import com.indeed.util.urlparsing.StreamingQueryStringParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the lines of the logentries.txt.gz corpus joined by "&amp;" into one large form encoded body, one body per
+ * operation: as it is read with StreamingQueryStringParser, or by first reading all of it into a String like a
+ * servlet reading a POST body would.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StreamingParsingBenchmark {
+
+    private static final ByteQueryStringParserCallback<Blackhole> consumeByteValue = new ByteQueryStringParserCallback<Blackhole>() {
+        @Override
+        public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Blackhole blackhole) {
+            blackhole.consume(valueStart);
+        }
+    };
+
+    private static final QueryStringParserCallback<Blackhole> consumeValue = new QueryStringParserCallback<Blackhole>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Blackhole blackhole) {
+            blackhole.consume(valueStart);
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    @Param({"4096", "65536"})
+    public int bufferSize;
+
+    private byte[] body;
+
+    private StreamingQueryStringParser parser;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String line : LogEntries.load(corpus, maxLines)) {
+            if (out.size() > 0) {
+                out.write('&');
+            }
+            out.write(line.getBytes("UTF-8"));
+        }
+        body = out.toByteArray();
+        parser = new StreamingQueryStringParser(bufferSize);
+    }
+
+    @Benchmark
+    public long streaming(Blackhole blackhole) throws IOException {
+        return parser.parse(new ByteArrayInputStream(body), consumeByteValue, blackhole);
+    }
+
+    @Benchmark
+    public int readFully(Blackhole blackhole) throws IOException {
+        final InputStream in = new ByteArrayInputStream(body);
+        final Reader reader = new InputStreamReader(in, "UTF-8");
+        final StringBuilder sb = new StringBuilder();
+        final char[] chars = new char[bufferSize];
+        int read;
+        while ((read = reader.read(chars)) >= 0) {
+            sb.append(chars, 0, read);
+        }
+        final String queryString = sb.toString();
+        QueryStringParser.parseQueryString(queryString, consumeValue, blackhole);
+        return queryString.length();
+    }
+}
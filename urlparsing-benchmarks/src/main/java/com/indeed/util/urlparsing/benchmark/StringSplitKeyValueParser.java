@@ -15,7 +15,7 @@ public class StringSplitKeyValueParser implements KeyValueParser {
     private static final Logger LOGGER = Logger.getLogger(StringSplitKeyValueParser.class);
 
     @Override
-    public void parse(String log) {
+    public Map<String, String> parse(String log) {
         Map<String, String> query_pairs = new LinkedHashMap<String, String>();
         String[] pairs = log.split("&");
         try {
@@ -28,5 +28,6 @@ public class StringSplitKeyValueParser implements KeyValueParser {
         } catch(UnsupportedEncodingException ex) {
             LOGGER.error("Unable to url decode ",ex);
         }
+        return query_pairs;
     }
 }
@@ -0,0 +1,129 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.ParseUtils;
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Url decodes the values of the "q" and "l" keys from the logentries.txt.gz corpus, one value per operation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlDecodingBenchmark {
+
+    private static final QueryStringParserCallback<List<String>> valueCollector = new QueryStringParserCallback<List<String>>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, List<String> storage) {
+            final int keyLength = keyEnd - keyStart;
+            if (keyLength == 1 && (queryString.charAt(keyStart) == 'q' || queryString.charAt(keyStart) == 'l')) {
+                storage.add(queryString.substring(valueStart, valueEnd));
+            }
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    private String[] values;
+
+    private int next;
+
+    private final StringBuilder result = new StringBuilder();
+
+    private char[] chars;
+
+    @Setup
+    public void setUp() throws IOException {
+        final List<String> collected = new ArrayList<String>();
+        for (String line : LogEntries.load(corpus, maxLines)) {
+            QueryStringParser.parseQueryString(line, valueCollector, collected);
+        }
+        values = collected.toArray(new String[collected.size()]);
+        int maxLength = 0;
+        for (String value : values) {
+            maxLength = Math.max(maxLength, value.length());
+        }
+        chars = new char[maxLength];
+    }
+
+    private String nextValue() {
+        final String value = values[next];
+        next = next + 1 == values.length ? 0 : next + 1;
+        return value;
+    }
+
+    @Benchmark
+    public int urlDecodeInto() {
+        final String value = nextValue();
+        result.setLength(0);
+        ParseUtils.urlDecodeInto(value, 0, value.length(), result);
+        return result.length();
+    }
+
+    @Benchmark
+    public int urlDecodeIntoCharArray() {
+        final String value = nextValue();
+        return ParseUtils.urlDecodeInto(value, 0, value.length(), chars, 0);
+    }
+
+    /**
+     * Values without escapes are used as they are, like a callback that only needs a CharSequence would
+     */
+    @Benchmark
+    public int urlDecodeIntoCharArrayIfNeeded() {
+        final String value = nextValue();
+        if (!ParseUtils.needsUrlDecoding(value, 0, value.length())) {
+            return value.length();
+        }
+        return ParseUtils.urlDecodeInto(value, 0, value.length(), chars, 0);
+    }
+
+    /**
+     * Includes the cost of copying the value into the reused StringBuilder
+     */
+    @Benchmark
+    public int urlDecodeInplace() {
+        final String value = nextValue();
+        result.setLength(0);
+        result.append(value);
+        ParseUtils.urlDecodeInplace(result);
+        return result.length();
+    }
+
+    @Benchmark
+    public String javaUrlDecoder() throws UnsupportedEncodingException {
+        return URLDecoder.decode(nextValue(), "UTF-8");
+    }
+
+    @Benchmark
+    public char decodeHexPair() {
+        final String value = nextValue();
+        final int length = value.length();
+        return ParseUtils.decodeHexPair(value.charAt(0), value.charAt(length > 1 ? 1 : 0));
+    }
+}
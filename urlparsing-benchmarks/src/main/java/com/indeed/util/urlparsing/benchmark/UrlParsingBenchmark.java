@@ -0,0 +1,105 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import com.indeed.util.urlparsing.UrlComponents;
+import com.indeed.util.urlparsing.UrlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits referrer-like URLs into their components and parses their query, one URL per operation. The URLs are the
+ * query strings of the logentries.txt.gz corpus behind a scheme, host and path, and lines that java.net.URI rejects
+ * are left out so that every benchmark parses the same URLs.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlParsingBenchmark {
+
+    private static final QueryStringParserCallback<Blackhole> consumeValue = new QueryStringParserCallback<Blackhole>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Blackhole blackhole) {
+            blackhole.consume(valueStart);
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    private String[] urls;
+
+    private int next;
+
+    private final UrlComponents components = new UrlComponents();
+
+    @Setup
+    public void setUp() throws IOException {
+        final List<String> valid = new ArrayList<String>();
+        for (String line : LogEntries.load(corpus, maxLines)) {
+            final String url = "https://www.indeed.com:443/jobs?" + line + "#results";
+            try {
+                new URI(url);
+                valid.add(url);
+            } catch (URISyntaxException e) {
+                // not comparable
+            }
+        }
+        urls = valid.toArray(new String[valid.size()]);
+    }
+
+    private String nextUrl() {
+        final String url = urls[next];
+        next = next + 1 == urls.length ? 0 : next + 1;
+        return url;
+    }
+
+    @Benchmark
+    public void urlParser(Blackhole blackhole) {
+        UrlParser.parse(nextUrl(), components);
+        blackhole.consume(components.getStart(UrlComponents.Component.HOST));
+        blackhole.consume(components.getPort());
+        blackhole.consume(components.getEnd(UrlComponents.Component.PATH));
+        UrlParser.parseQueryString(components, consumeValue, blackhole);
+    }
+
+    /**
+     * Only finds the query, for callers that don't need the other components
+     */
+    @Benchmark
+    public void urlParserQueryOnly(Blackhole blackhole) {
+        UrlParser.parseQueryString(nextUrl(), consumeValue, blackhole);
+    }
+
+    @Benchmark
+    public void javaNetUri(Blackhole blackhole) throws URISyntaxException {
+        final URI uri = new URI(nextUrl());
+        blackhole.consume(uri.getHost());
+        blackhole.consume(uri.getPort());
+        blackhole.consume(uri.getRawPath());
+        QueryStringParser.parseQueryString(uri.getRawQuery(), consumeValue, blackhole);
+    }
+}
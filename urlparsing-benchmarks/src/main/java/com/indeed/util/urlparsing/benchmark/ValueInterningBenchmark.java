@@ -0,0 +1,109 @@
+package com.indeed.util.urlparsing.benchmark;
+
+import com.indeed.util.urlparsing.ParseUtils;
+import com.indeed.util.urlparsing.QueryStringParser;
+import com.indeed.util.urlparsing.QueryStringParserCallback;
+import com.indeed.util.urlparsing.ValueInterner;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns the location values of the logentries.txt.gz corpus into Strings, one value per operation: by url decoding
+ * into a StringBuilder like IndeedKeyValueParser and calling toString(), or by looking them up in a ValueInterner. The
+ * value offsets are found during setup.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueInterningBenchmark {
+
+    private static final QueryStringParserCallback<IntArrayList> locationCollector = new QueryStringParserCallback<IntArrayList>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, IntArrayList storage) {
+            if (keyEnd - keyStart == 1 && queryString.charAt(keyStart) == 'l') {
+                storage.add(valueStart);
+                storage.add(valueEnd);
+            }
+        }
+    };
+
+    @Param(LogEntries.DEFAULT_PATH)
+    public String corpus;
+
+    @Param("100000")
+    public int maxLines;
+
+    @Param("4096")
+    public int maxSize;
+
+    private String[] lines;
+
+    // line, value start and value end of every location
+    private int[] locations;
+
+    private int next;
+
+    private final StringBuilder location = new StringBuilder();
+
+    private ValueInterner interner;
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = LogEntries.load(corpus, maxLines);
+        final IntArrayList lineLocations = new IntArrayList();
+        final IntArrayList allLocations = new IntArrayList();
+        for (int i = 0; i < lines.length; i++) {
+            lineLocations.clear();
+            QueryStringParser.parseQueryString(lines[i], locationCollector, lineLocations);
+            for (int j = 0; j < lineLocations.size(); j += 2) {
+                allLocations.add(i);
+                allLocations.add(lineLocations.getInt(j));
+                allLocations.add(lineLocations.getInt(j + 1));
+            }
+        }
+        locations = allLocations.toIntArray();
+        interner = new ValueInterner(maxSize);
+    }
+
+    private int nextLocation() {
+        final int index = next;
+        next = next + 3 == locations.length ? 0 : next + 3;
+        return index;
+    }
+
+    @Benchmark
+    public String decode() {
+        final int index = nextLocation();
+        location.setLength(0);
+        ParseUtils.urlDecodeInto(lines[locations[index]], locations[index + 1], locations[index + 2], location);
+        return location.toString();
+    }
+
+    @Benchmark
+    public String intern() {
+        final int index = nextLocation();
+        return interner.intern(lines[locations[index]], locations[index + 1], locations[index + 2]);
+    }
+
+    @Benchmark
+    public int internId() {
+        final int index = nextLocation();
+        return interner.internId(lines[locations[index]], locations[index + 1], locations[index + 2]);
+    }
+}
@@ -0,0 +1,184 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes newline separated logs as a series of gzip members of about blockSize uncompressed bytes each, which can be
+ * inflated independently and in parallel by {@link ParallelLogParser#readBlockedGzip}. Blocks always end after a
+ * newline, so every line is inside one member, and a line longer than blockSize makes its block longer.
+ * <p>
+ * The output is a valid gzip file that gunzip and GZIPInputStream read like any other. Like in BGZF, the header of
+ * every member has an extra field with the length of the member, so the offsets of all members are found by reading
+ * only their headers. No other index is needed, and appending blocked gzip files to each other keeps the format.
+ * <p>
+ * {@link #flush()} doesn't end the current block. Not thread safe.
+ */
+public class BlockedGzipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    // header with FEXTRA set and one 8 byte extra field, see RFC 1952
+    static final int HEADER_LENGTH = 20;
+
+    static final int TRAILER_LENGTH = 8;
+
+    static final byte FLAGS = 4;
+
+    static final int EXTRA_LENGTH = 8;
+
+    // id of the extra field with the member length
+    static final byte SUBFIELD_ID1 = 'L';
+
+    static final byte SUBFIELD_ID2 = 'B';
+
+    private final OutputStream out;
+
+    private final int blockSize;
+
+    private final Deflater deflater;
+
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block;
+
+    private int length;
+
+    private byte[] member;
+
+    private boolean memberWritten;
+
+    private boolean closed;
+
+    public BlockedGzipOutputStream(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param out Stream the compressed members are written to, closed by {@link #close()}
+     * @param blockSize Uncompressed bytes per member
+     * @param level Compression level of {@link Deflater}
+     */
+    public BlockedGzipOutputStream(OutputStream out, int blockSize, int level) {
+        Preconditions.checkArgument(blockSize > 0, "blockSize must be positive");
+        this.out = out;
+        this.blockSize = blockSize;
+        deflater = new Deflater(level, true);
+        block = new byte[blockSize];
+        member = new byte[HEADER_LENGTH + blockSize / 2 + TRAILER_LENGTH];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (len > 0) {
+            if (length == block.length) {
+                // the block has no newline yet
+                block = Arrays.copyOf(block, 2 * block.length);
+            }
+            final int n = Math.min(len, block.length - length);
+            System.arraycopy(b, off, block, length, n);
+            length += n;
+            off += n;
+            len -= n;
+            if (length >= blockSize) {
+                writeCompleteLines();
+            }
+        }
+    }
+
+    private void writeCompleteLines() throws IOException {
+        int end = length;
+        while (end > 0 && block[end - 1] != '\n') {
+            end--;
+        }
+        if (end > 0) {
+            writeMember(end);
+            System.arraycopy(block, end, block, 0, length - end);
+            length -= end;
+        }
+    }
+
+    private void writeMember(int end) throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, end);
+        deflater.finish();
+        int memberLength = HEADER_LENGTH;
+        while (!deflater.finished()) {
+            if (memberLength == member.length) {
+                member = Arrays.copyOf(member, 2 * member.length);
+            }
+            memberLength += deflater.deflate(member, memberLength, member.length - memberLength);
+        }
+        if (memberLength + TRAILER_LENGTH > member.length) {
+            member = Arrays.copyOf(member, memberLength + TRAILER_LENGTH);
+        }
+        crc.reset();
+        crc.update(block, 0, end);
+        memberLength += TRAILER_LENGTH;
+
+        member[0] = (byte) 0x1f;
+        member[1] = (byte) 0x8b;
+        member[2] = Deflater.DEFLATED;
+        member[3] = FLAGS;
+        // no modification time, no extra flags, unknown OS
+        Arrays.fill(member, 4, 9, (byte) 0);
+        member[9] = (byte) 255;
+        writeShort(member, 10, EXTRA_LENGTH);
+        member[12] = SUBFIELD_ID1;
+        member[13] = SUBFIELD_ID2;
+        writeShort(member, 14, 4);
+        writeInt(member, 16, memberLength);
+        writeInt(member, memberLength - TRAILER_LENGTH, (int) crc.getValue());
+        writeInt(member, memberLength - 4, end);
+        out.write(member, 0, memberLength);
+        memberWritten = true;
+    }
+
+    private static void writeShort(byte[] b, int offset, int value) {
+        b[offset] = (byte) value;
+        b[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static void writeInt(byte[] b, int offset, int value) {
+        writeShort(b, offset, value);
+        writeShort(b, offset + 2, value >>> 16);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the last block and closes the underlying stream. Without any data a single empty member is written, since
+     * an empty file is not valid gzip.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (length > 0 || !memberWritten) {
+                writeMember(length);
+                length = 0;
+            }
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+}
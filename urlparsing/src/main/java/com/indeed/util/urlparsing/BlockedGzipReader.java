@@ -0,0 +1,204 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.io.Closeables;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads log files written by {@link BlockedGzipOutputStream}, inflating one member at a time into a reused buffer
+ * and finding the line boundaries in place. Lines are passed to a {@link MappedLogReader.LineCallback} with offsets
+ * into the inflated member. Used by {@link ParallelLogParser#readBlockedGzip} to read ranges of members in parallel.
+ * <p>
+ * Instances have no state and can be shared between threads.
+ */
+public class BlockedGzipReader {
+    /**
+     * @return true if the file is empty or starts with a member written by {@link BlockedGzipOutputStream}
+     */
+    public static boolean isBlockedGzip(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer header = ByteBuffer.allocate(BlockedGzipOutputStream.HEADER_LENGTH);
+            return channel.size() == 0 || (readHeader(channel, 0, header) && memberLength(header) > 0);
+        } finally {
+            Closeables.close(raf, true);
+        }
+    }
+
+    /**
+     * Reads the header of every member
+     *
+     * @return offsets where members start, followed by the file size
+     * @throws IOException if the file is not in the blocked gzip format
+     */
+    static long[] readIndex(FileChannel channel, File file) throws IOException {
+        final long size = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(BlockedGzipOutputStream.HEADER_LENGTH);
+        long[] offsets = new long[16];
+        int numMembers = 0;
+        long position = 0;
+        while (position < size) {
+            if (!readHeader(channel, position, header)) {
+                throw new IOException("No blocked gzip member at offset " + position + " in " + file);
+            }
+            final int memberLength = memberLength(header);
+            if (memberLength < BlockedGzipOutputStream.HEADER_LENGTH + BlockedGzipOutputStream.TRAILER_LENGTH || position + memberLength > size) {
+                throw new IOException("Invalid member length " + memberLength + " at offset " + position + " in " + file);
+            }
+            if (numMembers + 1 == offsets.length) {
+                final long[] grown = new long[2 * offsets.length];
+                System.arraycopy(offsets, 0, grown, 0, numMembers);
+                offsets = grown;
+            }
+            offsets[numMembers++] = position;
+            position += memberLength;
+        }
+        offsets[numMembers++] = size;
+        final long[] ret = new long[numMembers];
+        System.arraycopy(offsets, 0, ret, 0, numMembers);
+        return ret;
+    }
+
+    /**
+     * @return true if header now holds the header of a blocked gzip member
+     */
+    private static boolean readHeader(FileChannel channel, long position, ByteBuffer header) throws IOException {
+        header.clear();
+        while (header.hasRemaining()) {
+            if (channel.read(header, position + header.position()) < 0) {
+                return false;
+            }
+        }
+        return header.get(0) == (byte) 0x1f && header.get(1) == (byte) 0x8b && header.get(2) == 8
+                && header.get(3) == BlockedGzipOutputStream.FLAGS
+                && readShort(header.array(), 10) == BlockedGzipOutputStream.EXTRA_LENGTH
+                && header.get(12) == BlockedGzipOutputStream.SUBFIELD_ID1 && header.get(13) == BlockedGzipOutputStream.SUBFIELD_ID2
+                && readShort(header.array(), 14) == 4;
+    }
+
+    private static int memberLength(ByteBuffer header) {
+        return readInt(header.array(), 16);
+    }
+
+    private static int readShort(byte[] b, int offset) {
+        return (b[offset] & 0xff) | (b[offset + 1] & 0xff) << 8;
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return readShort(b, offset) | readShort(b, offset + 2) << 16;
+    }
+
+    /**
+     * Calls the callback for every line of the file, in order
+     *
+     * @return the number of lines read
+     * @throws IOException if the file can't be read or is not in the blocked gzip format
+     */
+    public <T> long read(File file, MappedLogReader.LineCallback<T> callback, T storage) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return read(raf.getChannel(), file, 0, raf.length(), callback, storage);
+        } finally {
+            Closeables.close(raf, true);
+        }
+    }
+
+    /**
+     * @see MappedLogReader#parseQueryStrings(File, ByteQueryStringParserCallback, Object)
+     */
+    public <T> long parseQueryStrings(File file, ByteQueryStringParserCallback<T> callback, T storage) throws IOException {
+        return read(file, new MappedLogReader.QueryStringLineCallback<T>(callback), storage);
+    }
+
+    /**
+     * Calls the callback for every line of the members in a range of the file
+     *
+     * @param start Offset of the first member to read
+     * @param end Offset just past the last member to read
+     * @return the number of lines read
+     */
+    <T> long read(FileChannel channel, File file, long start, long end, MappedLogReader.LineCallback<T> callback, T storage) throws IOException {
+        final Inflater inflater = new Inflater(true);
+        final CRC32 crc = new CRC32();
+        final ByteBuffer header = ByteBuffer.allocate(BlockedGzipOutputStream.HEADER_LENGTH);
+        byte[] compressed = new byte[0];
+        byte[] data = new byte[0];
+        ByteBuffer dataBuffer = ByteBuffer.wrap(data);
+        try {
+            long lines = 0;
+            long position = start;
+            while (position < end) {
+                if (!readHeader(channel, position, header)) {
+                    throw new IOException("No blocked gzip member at offset " + position + " in " + file);
+                }
+                final int memberLength = memberLength(header);
+                if (memberLength < BlockedGzipOutputStream.HEADER_LENGTH + BlockedGzipOutputStream.TRAILER_LENGTH || position + memberLength > end) {
+                    throw new IOException("Invalid member length " + memberLength + " at offset " + position + " in " + file);
+                }
+                if (memberLength > compressed.length) {
+                    compressed = new byte[Math.max(memberLength, 2 * compressed.length)];
+                }
+                final ByteBuffer compressedBuffer = ByteBuffer.wrap(compressed, 0, memberLength);
+                while (compressedBuffer.hasRemaining()) {
+                    if (channel.read(compressedBuffer, position + compressedBuffer.position()) < 0) {
+                        throw new IOException("Truncated member at offset " + position + " in " + file);
+                    }
+                }
+
+                final int size = readInt(compressed, memberLength - 4);
+                if (size < 0) {
+                    throw new IOException("Member at offset " + position + " in " + file + " is too large");
+                }
+                if (size > data.length) {
+                    data = new byte[Math.max(size, 2 * data.length)];
+                    dataBuffer = ByteBuffer.wrap(data);
+                }
+                inflater.reset();
+                inflater.setInput(compressed, BlockedGzipOutputStream.HEADER_LENGTH, memberLength - BlockedGzipOutputStream.HEADER_LENGTH - BlockedGzipOutputStream.TRAILER_LENGTH);
+                int inflated = 0;
+                try {
+                    while (inflated < size && !inflater.finished()) {
+                        final int n = inflater.inflate(data, inflated, size - inflated);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        inflated += n;
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt member at offset " + position + " in " + file, e);
+                }
+                crc.reset();
+                crc.update(data, 0, inflated);
+                if (inflated != size || (int) crc.getValue() != readInt(compressed, memberLength - BlockedGzipOutputStream.TRAILER_LENGTH)) {
+                    throw new IOException("Corrupt member at offset " + position + " in " + file);
+                }
+
+                // members end after a newline, except maybe the last one
+                int lineStart = 0;
+                for (int i = 0; i < size; i++) {
+                    if (data[i] == '\n') {
+                        MappedLogReader.emitLine(dataBuffer, lineStart, i, callback, storage);
+                        lines++;
+                        lineStart = i + 1;
+                    }
+                }
+                if (lineStart < size) {
+                    MappedLogReader.emitLine(dataBuffer, lineStart, size, callback, storage);
+                    lines++;
+                }
+                position += memberLength;
+            }
+            return lines;
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.indeed.util.urlparsing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ByteBuffer} equivalent of {@link ByteQueryStringParserCallback}, used by {@link ByteQueryStringParser} for
+ * buffers that may not be backed by an array, such as direct buffers or mapped files
+ */
+public interface ByteBufferQueryStringParserCallback<T> {
+    /**
+     * This callback is called for each key/value pair in the UTF-8 encoded query string. All indexes are absolute
+     * indexes into the buffer, to be read with {@link ByteBuffer#get(int)} or the ByteBuffer methods in
+     * {@link ParseUtils}. The position of the buffer is not meaningful and must not be relied upon.
+     *
+     * @param queryString Buffer holding the raw query string (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param keyStart Index into queryString where the key in this key/value begins (inclusive)
+     * @param keyEnd Index into queryString where the key in this key/value ends (exclusive)
+     * @param valueStart Index into queryString where the value in this key/value begins (inclusive)
+     * @param valueEnd Index into queryString where the value in this key/value ends (exclusive)
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     */
+    void parseKeyValuePair(ByteBuffer queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, T storage);
+}
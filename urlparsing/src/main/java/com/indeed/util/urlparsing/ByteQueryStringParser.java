@@ -0,0 +1,183 @@
+package com.indeed.util.urlparsing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Equivalent of {@link QueryStringParser} for UTF-8 encoded query strings that have not been decoded into a String,
+ * e.g. records read straight from a file. Like QueryStringParser it does not generate any garbage, and the callbacks
+ * get offsets into the original buffer. Use the byte[] methods in {@link ParseUtils} to parse the values, or the
+ * ByteBuffer methods for direct and mapped buffers.
+ */
+public class ByteQueryStringParser {
+    /**
+     * @param queryString Buffer holding the raw urlParams (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param offset index into queryString where the query string starts
+     * @param length number of bytes in the query string
+     * @param callback Callback which is called for each key/value pair
+     * @param storage Storage object, passed to each callback call
+     */
+    public static <T> void parseQueryString(byte[] queryString, int offset, int length, ByteQueryStringParserCallback<T> callback, T storage) {
+        parseQueryString(queryString, callback, storage, offset, offset + length, (byte) '&', (byte) '=');
+    }
+
+    /**
+     * Parses the bytes between the position and the limit of the buffer, without changing its position.
+     * Offsets given to the callback are indexes into {@link ByteBuffer#array()}, so the buffer must be backed by an
+     * accessible array.
+     *
+     * @param queryString Buffer holding the raw urlParams (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param callback Callback which is called for each key/value pair
+     * @param storage Storage object, passed to each callback call
+     * @throws IllegalArgumentException if the buffer is direct or read only, use
+     * {@link #parseQueryString(ByteBuffer, ByteBufferQueryStringParserCallback, Object)} for those
+     */
+    public static <T> void parseQueryString(ByteBuffer queryString, ByteQueryStringParserCallback<T> callback, T storage) {
+        if (!queryString.hasArray()) {
+            throw new IllegalArgumentException("ByteBuffer must be backed by an accessible array");
+        }
+        final int start = queryString.arrayOffset() + queryString.position();
+        parseQueryString(queryString.array(), start, queryString.remaining(), callback, storage);
+    }
+
+    /**
+     * Parses the bytes between the position and the limit of any buffer, including direct and mapped ones, without
+     * changing its position. The bytes are read in place with absolute gets, and the callback gets absolute indexes
+     * into the buffer.
+     *
+     * @param queryString Buffer holding the raw urlParams (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param callback Callback which is called for each key/value pair
+     * @param storage Storage object, passed to each callback call
+     */
+    public static <T> void parseQueryString(ByteBuffer queryString, ByteBufferQueryStringParserCallback<T> callback, T storage) {
+        parseQueryString(queryString, queryString.position(), queryString.remaining(), callback, storage);
+    }
+
+    /**
+     * See {@link #parseQueryString(ByteBuffer, ByteBufferQueryStringParserCallback, Object)}
+     *
+     * @param queryString Buffer holding the raw urlParams (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param offset absolute index into queryString where the query string starts
+     * @param length number of bytes in the query string
+     * @param callback Callback which is called for each key/value pair
+     * @param storage Storage object, passed to each callback call
+     */
+    public static <T> void parseQueryString(ByteBuffer queryString, int offset, int length, ByteBufferQueryStringParserCallback<T> callback, T storage) {
+        final int qsEnd = offset + length;
+        int kvPairStart = offset;
+        while (kvPairStart <= qsEnd) {
+            // find the first delimiter of either kind, like the byte[] version
+            int i = kvPairStart;
+            while (i < qsEnd) {
+                final byte c = queryString.get(i);
+                if (c == '&' || c == '=') {
+                    break;
+                }
+                i++;
+            }
+
+            if (i < qsEnd && queryString.get(i) == '=') {
+                final int equalPos = i;
+                i++;
+                while (i < qsEnd && queryString.get(i) != '&') {
+                    i++;
+                }
+                callback.parseKeyValuePair(queryString, kvPairStart, equalPos, equalPos + 1, i, storage);
+            } else {
+                // no = found in this key value pair, treat it as a key with an empty string value
+                callback.parseKeyValuePair(queryString, kvPairStart, i, i, i, storage);
+            }
+
+            kvPairStart = i + 1;
+        }
+    }
+
+    /**
+     * @param queryString Buffer holding the raw urlParams (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param callback Callback which is called for each key/value pair
+     * @param storage Storage object, passed to each callback call
+     * @param qsStart index into queryString param where queryString actually starts
+     * @param qsEnd index into queryString param where queryString actually ends
+     * @param pairDelim delimiter that occurs between keyvalue pairs, e.g. "&"
+     * @param kvDelim delimiter that occurs between a key and its value, e.g. "="
+     */
+    public static <T> void parseQueryString(byte[] queryString, ByteQueryStringParserCallback<T> callback, T storage, int qsStart, int qsEnd, byte[] pairDelim, byte[] kvDelim) {
+        if (pairDelim.length == 1 && kvDelim.length == 1) {
+            parseQueryString(queryString, callback, storage, qsStart, qsEnd, pairDelim[0], kvDelim[0]);
+            return;
+        }
+
+        int kvPairStart = qsStart;
+        while (kvPairStart <= qsEnd) {
+            // find where this key value pair ends
+            int kvPairEnd = indexOf(queryString, pairDelim, kvPairStart, qsEnd);
+            if (kvPairEnd < 0) {
+                // ends at the end of the string
+                kvPairEnd = qsEnd;
+            }
+
+            final int equalPos = indexOf(queryString, kvDelim, kvPairStart, kvPairEnd);
+            if (equalPos < 0) {
+                // no = found in this key value pair, treat it as a key with an empty string value
+                callback.parseKeyValuePair(queryString, kvPairStart, kvPairEnd, kvPairEnd, kvPairEnd, storage);
+            } else {
+                callback.parseKeyValuePair(queryString, kvPairStart, equalPos, equalPos + kvDelim.length, kvPairEnd, storage);
+            }
+
+            kvPairStart = kvPairEnd + pairDelim.length;
+        }
+    }
+
+    /**
+     * Single byte delimiters are found in one pass over the query string, see QueryStringParser
+     */
+    private static <T> void parseQueryString(byte[] queryString, ByteQueryStringParserCallback<T> callback, T storage, int qsStart, int qsEnd, byte pairDelim, byte kvDelim) {
+        int kvPairStart = qsStart;
+        while (kvPairStart <= qsEnd) {
+            // find the first delimiter of either kind
+            int i = kvPairStart;
+            while (i < qsEnd) {
+                final byte c = queryString[i];
+                if (c == pairDelim || c == kvDelim) {
+                    break;
+                }
+                i++;
+            }
+
+            if (i < qsEnd && queryString[i] == kvDelim) {
+                final int equalPos = i;
+                // the rest of the pair can only end at a pair delimiter
+                i++;
+                while (i < qsEnd && queryString[i] != pairDelim) {
+                    i++;
+                }
+                callback.parseKeyValuePair(queryString, kvPairStart, equalPos, equalPos + 1, i, storage);
+            } else {
+                // no = found in this key value pair, treat it as a key with an empty string value
+                callback.parseKeyValuePair(queryString, kvPairStart, i, i, i, storage);
+            }
+
+            kvPairStart = i + 1;
+        }
+    }
+
+    /**
+     * @return the index of the first occurrence of delim that starts at or after from and ends at or before to, -1 if none
+     */
+    private static int indexOf(byte[] buf, byte[] delim, int from, int to) {
+        final byte first = delim[0];
+        final int lastStart = to - delim.length;
+        for (int i = from; i <= lastStart; i++) {
+            if (buf[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < delim.length && buf[i + j] == delim[j]) {
+                j++;
+            }
+            if (j == delim.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
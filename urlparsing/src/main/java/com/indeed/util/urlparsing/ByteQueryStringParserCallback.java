@@ -0,0 +1,18 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Byte oriented equivalent of {@link QueryStringParserCallback}, used by {@link ByteQueryStringParser}
+ */
+public interface ByteQueryStringParserCallback<T> {
+    /**
+     * This callback is used by ByteQueryStringParser and is called for each key/value pair in the UTF-8 encoded query string
+     *
+     * @param queryString Buffer holding the raw query string (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param keyStart Index into queryString where the key in this key/value begins (inclusive)
+     * @param keyEnd Index into queryString where the key in this key/value ends (exclusive)
+     * @param valueStart Index into queryString where the value in this key/value begins (inclusive)
+     * @param valueEnd Index into queryString where the value in this key/value ends (exclusive)
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     */
+    void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, T storage);
+}
@@ -0,0 +1,161 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Reusable view of the chars from start to end of another CharSequence, e.g. a value in a query string, so it can be
+ * handed to APIs that take a CharSequence without calling substring(). The view doesn't copy anything, so it is only
+ * valid as long as the underlying CharSequence doesn't change. Not thread safe, keep one instance per thread and
+ * {@link #set} it for every value.
+ *
+ * hashCode() is the same as String.hashCode() of the same chars and equals() compares the chars of two slices, use
+ * {@link #contentEquals(CharSequence)} to compare to a String.
+ */
+public final class CharSequenceSlice implements CharSequence {
+    private CharSequence source = "";
+
+    private int start;
+
+    private int end;
+
+    public CharSequenceSlice() {
+    }
+
+    public CharSequenceSlice(CharSequence source, int start, int end) {
+        set(source, start, end);
+    }
+
+    /**
+     * Points this slice at the chars from start to end of source
+     *
+     * @return this slice
+     */
+    public CharSequenceSlice set(CharSequence source, int start, int end) {
+        if (start < 0 || end < start || end > source.length()) {
+            throw new IndexOutOfBoundsException("Invalid slice [" + start + ", " + end + ") of length " + source.length());
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of slice of length " + (end - start));
+        }
+        return source.charAt(start + index);
+    }
+
+    /**
+     * @return a new slice over the same source
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end < start || end > this.end - this.start) {
+            throw new IndexOutOfBoundsException("Invalid subsequence [" + start + ", " + end + ") of slice of length " + (this.end - this.start));
+        }
+        return new CharSequenceSlice(source, this.start + start, this.start + end);
+    }
+
+    public boolean contentEquals(CharSequence other) {
+        return contentEquals(source, start, end, other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CharSequenceSlice)) {
+            return false;
+        }
+        return contentEquals((CharSequenceSlice) o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode(source, start, end);
+    }
+
+    /**
+     * Copies the chars into a new String
+     */
+    @Override
+    public String toString() {
+        return source.subSequence(start, end).toString();
+    }
+
+    /**
+     * @return the same value as s.subSequence(start, end).toString().hashCode(), without creating the String
+     */
+    public static int hashCode(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * @return a 64 bit hash of the chars from start to end of s, well mixed enough for sketches like
+     * {@link HyperLogLog}. Equal char sequences have equal hashes, whether they are Strings, StringBuilders or slices.
+     */
+    public static long hash64(CharSequence s, int start, int end) {
+        // FNV-1a over the chars, followed by the MurmurHash3 finalizer so that every input bit affects every output bit
+        long h = 0xCBF29CE484222325L;
+        for (int i = start; i < end; i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return {@link #hash64(CharSequence, int, int)} of the slice
+     */
+    public long hash64() {
+        return hash64(source, start, end);
+    }
+
+    /**
+     * @return true if the chars from start to end of s are the same as the chars of other
+     */
+    public static boolean contentEquals(CharSequence s, int start, int end, CharSequence other) {
+        if (other.length() != end - start) {
+            return false;
+        }
+        if (s instanceof String) {
+            final String string = (String) s;
+            if (other instanceof String) {
+                return string.startsWith((String) other, start);
+            }
+        }
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) != other.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
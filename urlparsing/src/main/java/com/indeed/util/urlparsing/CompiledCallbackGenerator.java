@@ -0,0 +1,267 @@
+package com.indeed.util.urlparsing;
+
+import org.apache.log4j.Logger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the class behind {@link QueryStringParserCallbackBuilder#buildCompiledCallback()}. For the keys "uid" and
+ * "q" the generated parseKeyValuePair is equivalent to
+ * <pre>
+ * switch (keyEnd - keyStart) {
+ *     case 1:
+ *         if (queryString.charAt(keyStart) == 'q') {
+ *             callback1.parseKeyValuePair(queryString, keyStart, keyEnd, valueStart, valueEnd, storage);
+ *         }
+ *         return;
+ *     case 3:
+ *         switch (queryString.charAt(keyStart)) {
+ *             case 'u':
+ *                 if (queryString.charAt(keyStart + 1) == 'i' &amp;&amp; queryString.charAt(keyStart + 2) == 'd') {
+ *                     callback0.parseKeyValuePair(queryString, keyStart, keyEnd, valueStart, valueEnd, storage);
+ *                 }
+ *         }
+ *         return;
+ * }
+ * </pre>
+ * Each callback call is a separate call site, so its type profile only ever sees one class.
+ */
+final class CompiledCallbackGenerator {
+    private static final Logger log = Logger.getLogger(CompiledCallbackGenerator.class);
+
+    private static final String CALLBACK = "com/indeed/util/urlparsing/QueryStringParserCallback";
+    private static final String CALLBACK_DESC = "L" + CALLBACK + ";";
+    private static final String PARSE_DESC = "(Ljava/lang/String;IIIILjava/lang/Object;)V";
+
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    // locals of the generated parseKeyValuePair
+    private static final int THIS = 0;
+    private static final int QUERY_STRING = 1;
+    private static final int KEY_START = 2;
+    private static final int KEY_END = 3;
+    private static final int VALUE_START = 4;
+    private static final int VALUE_END = 5;
+    private static final int STORAGE = 6;
+    private static final int KEY_LENGTH = 7;
+
+    private CompiledCallbackGenerator() {
+    }
+
+    /**
+     * Each generated class gets its own loader, so that it can be unloaded along with the callback
+     */
+    static final class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * @return the compiled callback, or null if it could not be generated
+     */
+    static <T> QueryStringParserCallback<T> generate(Map<String, List<QueryStringParserCallback<T>>> callbacksByKey, boolean ignoreCase) {
+        final List<QueryStringParserCallback<T>> fieldValues = new ArrayList<QueryStringParserCallback<T>>();
+        // key length -> first char -> keys
+        final Map<Integer, Map<Character, List<String>>> keysByLength = new TreeMap<Integer, Map<Character, List<String>>>();
+        for (Map.Entry<String, List<QueryStringParserCallback<T>>> entry : callbacksByKey.entrySet()) {
+            final String key = entry.getKey();
+            Map<Character, List<String>> keysByFirstChar = keysByLength.get(key.length());
+            if (keysByFirstChar == null) {
+                keysByFirstChar = new TreeMap<Character, List<String>>();
+                keysByLength.put(key.length(), keysByFirstChar);
+            }
+            final Character firstChar = key.isEmpty() ? Character.valueOf((char) 0) : Character.valueOf(key.charAt(0));
+            List<String> keys = keysByFirstChar.get(firstChar);
+            if (keys == null) {
+                keys = new ArrayList<String>();
+                keysByFirstChar.put(firstChar, keys);
+            }
+            keys.add(key);
+        }
+
+        final String className = "com/indeed/util/urlparsing/generated/CompiledCallback" + classCounter.incrementAndGet();
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, "java/lang/Object", new String[] {CALLBACK});
+
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "parseKeyValuePair", PARSE_DESC, null, null);
+        mv.visitCode();
+        final Label done = new Label();
+        mv.visitVarInsn(Opcodes.ILOAD, KEY_END);
+        mv.visitVarInsn(Opcodes.ILOAD, KEY_START);
+        mv.visitInsn(Opcodes.ISUB);
+        mv.visitVarInsn(Opcodes.ISTORE, KEY_LENGTH);
+
+        final int[] lengths = new int[keysByLength.size()];
+        final Label[] lengthLabels = new Label[keysByLength.size()];
+        int l = 0;
+        for (Integer length : keysByLength.keySet()) {
+            lengths[l] = length;
+            lengthLabels[l++] = new Label();
+        }
+        mv.visitVarInsn(Opcodes.ILOAD, KEY_LENGTH);
+        mv.visitLookupSwitchInsn(done, lengths, lengthLabels);
+
+        l = 0;
+        for (Map.Entry<Integer, Map<Character, List<String>>> lengthEntry : keysByLength.entrySet()) {
+            mv.visitLabel(lengthLabels[l++]);
+            final int length = lengthEntry.getKey();
+            if (length == 0) {
+                visitCallbacks(mv, className, callbacksByKey.get(""), fieldValues);
+                mv.visitJumpInsn(Opcodes.GOTO, done);
+                continue;
+            }
+
+            final Map<Character, List<String>> keysByFirstChar = lengthEntry.getValue();
+            // the keys are case folded if case is ignored, so the upper case of a letter jumps to the same label
+            final Map<Integer, Label> switchLabels = new TreeMap<Integer, Label>();
+            final Label[] firstCharLabels = new Label[keysByFirstChar.size()];
+            int f = 0;
+            for (Character c : keysByFirstChar.keySet()) {
+                firstCharLabels[f] = new Label();
+                switchLabels.put((int) c, firstCharLabels[f]);
+                if (ignoreCase && isLowerCaseLetter(c)) {
+                    switchLabels.put(c - ('a' - 'A'), firstCharLabels[f]);
+                }
+                f++;
+            }
+            final int[] switchKeys = new int[switchLabels.size()];
+            final Label[] switchTargets = new Label[switchLabels.size()];
+            f = 0;
+            for (Map.Entry<Integer, Label> entry : switchLabels.entrySet()) {
+                switchKeys[f] = entry.getKey();
+                switchTargets[f++] = entry.getValue();
+            }
+            visitCharAt(mv, 0);
+            mv.visitLookupSwitchInsn(done, switchKeys, switchTargets);
+
+            f = 0;
+            for (List<String> keys : keysByFirstChar.values()) {
+                mv.visitLabel(firstCharLabels[f++]);
+                for (String key : keys) {
+                    final Label nextKey = new Label();
+                    for (int i = 1; i < length; i++) {
+                        visitCharAt(mv, i);
+                        if (ignoreCase && isLowerCaseLetter(key.charAt(i))) {
+                            // only a letter and its upper case are equal to the letter after setting 0x20
+                            visitInt(mv, 'a' - 'A');
+                            mv.visitInsn(Opcodes.IOR);
+                        }
+                        visitInt(mv, key.charAt(i));
+                        mv.visitJumpInsn(Opcodes.IF_ICMPNE, nextKey);
+                    }
+                    visitCallbacks(mv, className, callbacksByKey.get(key), fieldValues);
+                    mv.visitJumpInsn(Opcodes.GOTO, done);
+                    mv.visitLabel(nextKey);
+                }
+                mv.visitJumpInsn(Opcodes.GOTO, done);
+            }
+        }
+        mv.visitLabel(done);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        for (int i = 0; i < fieldValues.size(); i++) {
+            cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, field(i), CALLBACK_DESC, null, null).visitEnd();
+        }
+        visitConstructor(cw, className, fieldValues.size());
+        cw.visitEnd();
+
+        try {
+            final byte[] bytes = cw.toByteArray();
+            final Class<?> generated = new GeneratedClassLoader(CompiledCallbackGenerator.class.getClassLoader()).define(className.replace('/', '.'), bytes);
+            final Object instance = generated.getConstructor(Object[].class).newInstance(new Object[] {fieldValues.toArray()});
+            return (QueryStringParserCallback<T>) instance;
+        } catch (Exception e) {
+            // most likely the method is too large for the number of keys
+            log.warn("Unable to generate a compiled callback for " + callbacksByKey.size() + " keys", e);
+            return null;
+        }
+    }
+
+    private static boolean isLowerCaseLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static String field(int i) {
+        return "callback" + i;
+    }
+
+    /**
+     * Pushes queryString.charAt(keyStart + offset)
+     */
+    private static void visitCharAt(MethodVisitor mv, int offset) {
+        mv.visitVarInsn(Opcodes.ALOAD, QUERY_STRING);
+        mv.visitVarInsn(Opcodes.ILOAD, KEY_START);
+        if (offset > 0) {
+            visitInt(mv, offset);
+            mv.visitInsn(Opcodes.IADD);
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "charAt", "(I)C", false);
+    }
+
+    static void visitInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    /**
+     * Calls each callback from its own field, and so from its own call site
+     */
+    private static <T> void visitCallbacks(MethodVisitor mv, String className, List<QueryStringParserCallback<T>> callbacks, List<QueryStringParserCallback<T>> fieldValues) {
+        for (QueryStringParserCallback<T> callback : callbacks) {
+            final int field = fieldValues.size();
+            fieldValues.add(callback);
+            mv.visitVarInsn(Opcodes.ALOAD, THIS);
+            mv.visitFieldInsn(Opcodes.GETFIELD, className, field(field), CALLBACK_DESC);
+            mv.visitVarInsn(Opcodes.ALOAD, QUERY_STRING);
+            mv.visitVarInsn(Opcodes.ILOAD, KEY_START);
+            mv.visitVarInsn(Opcodes.ILOAD, KEY_END);
+            mv.visitVarInsn(Opcodes.ILOAD, VALUE_START);
+            mv.visitVarInsn(Opcodes.ILOAD, VALUE_END);
+            mv.visitVarInsn(Opcodes.ALOAD, STORAGE);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, CALLBACK, "parseKeyValuePair", PARSE_DESC, true);
+        }
+    }
+
+    /**
+     * public CompiledCallbackN(Object[] callbacks) assigns callbacks[i] to each field
+     */
+    private static void visitConstructor(ClassWriter cw, String className, int numFields) {
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        for (int i = 0; i < numFields; i++) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            visitInt(mv, i);
+            mv.visitInsn(Opcodes.AALOAD);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, CALLBACK);
+            mv.visitFieldInsn(Opcodes.PUTFIELD, className, field(i), CALLBACK_DESC);
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+}
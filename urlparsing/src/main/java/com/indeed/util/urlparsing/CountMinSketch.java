@@ -0,0 +1,113 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Estimates how often each value was added in a fixed depth x width table of counts (Cormode and Muthukrishnan, "An
+ * improved data stream summary: the count-min sketch and its applications", 2005). Estimates are never too low, and
+ * with probability 1 - 2^-depth too high by at most 2 * total / width.
+ * <p>
+ * Values are added by their {@link CharSequenceSlice#hash64}, so the long tail of rare values never costs more than
+ * the fixed table. Sketches with the same dimensions can be combined with {@link #merge}. Not thread safe.
+ */
+public final class CountMinSketch {
+    private final int depth;
+
+    private final int mask;
+
+    // row r is counts[r * width] until counts[(r + 1) * width]
+    private final long[] counts;
+
+    private long total;
+
+    /**
+     * @param depth number of rows, each with an independent hash
+     * @param width counts per row, rounded up to a power of two
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0 || width > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid dimensions " + depth + " x " + width);
+        }
+        final int roundedWidth = Integer.highestOneBit(width) == width ? width : Integer.highestOneBit(width) << 1;
+        if ((long) depth * roundedWidth > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many counts " + depth + " x " + roundedWidth);
+        }
+        this.depth = depth;
+        mask = roundedWidth - 1;
+        counts = new long[depth * roundedWidth];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the sum of all counts added
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Adds count occurrences of the chars of s from start to end
+     *
+     * @return the estimated count after adding
+     */
+    public long add(CharSequence s, int start, int end, long count) {
+        return addHash(CharSequenceSlice.hash64(s, start, end), count);
+    }
+
+    /**
+     * Adds count occurrences of a value by its 64 bit hash
+     *
+     * @return the estimated count after adding
+     */
+    public long addHash(long hash, long count) {
+        total += count;
+        // the row hashes are h1 + r * h2 (Kirsch and Mitzenmacher), two halves of the 64 bit hash are enough
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int r = 0; r < depth; r++) {
+            final int index = r * (mask + 1) + ((h1 + r * h2) & mask);
+            final long updated = counts[index] + count;
+            counts[index] = updated;
+            min = Math.min(min, updated);
+        }
+        return min;
+    }
+
+    /**
+     * @return the estimated number of times the chars of s from start to end were added
+     */
+    public long estimate(CharSequence s, int start, int end) {
+        return estimateHash(CharSequenceSlice.hash64(s, start, end));
+    }
+
+    public long estimateHash(long hash) {
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int r = 0; r < depth; r++) {
+            min = Math.min(min, counts[r * (mask + 1) + ((h1 + r * h2) & mask)]);
+        }
+        return min;
+    }
+
+    /**
+     * Adds the counts of other to this sketch
+     *
+     * @throws IllegalArgumentException if the dimensions differ
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.mask != mask) {
+            throw new IllegalArgumentException("Can't merge " + other.depth + " x " + other.getWidth() + " into " + depth + " x " + getWidth());
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+}
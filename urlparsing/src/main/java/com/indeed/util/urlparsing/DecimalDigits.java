@@ -0,0 +1,229 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Collects a decimal number one char at a time, so that the parse methods in {@link ParseUtils} for each kind of
+ * input only need a loop that feeds it chars, and share the conversion with {@link EiselLemire}. Up to
+ * 19 significant digits are kept in the mantissa, the rest only move the exponent.
+ * <p>
+ * The parse methods create one per call. Its methods are small enough to be inlined, so escape analysis keeps it in
+ * registers and parsing still doesn't allocate.
+ */
+final class DecimalDigits {
+    // the mantissa takes up to 19 significant digits, which always fit in an unsigned long
+    private static final long MAX_MANTISSA_BEFORE_DIGIT = 1000000000000000000L;
+
+    // anything larger is 0 or infinity anyway
+    private static final int MAX_EXPONENT = 100000;
+
+    private static final char[] NAN_CHARS = {'N', 'a', 'N'};
+
+    private static final char[] INFINITY_CHARS = {'I', 'n', 'f', 'i', 'n', 'i', 't', 'y'};
+
+    /**
+     * Returned by {@link #toBits(boolean)} for input that is not a number, see {@link #getStatus()}. Valid bits never
+     * have the sign bit set.
+     */
+    static final long INVALID = -2;
+
+    private static final int INTEGER = 0;
+    private static final int FRACTION = 1;
+    private static final int EXPONENT_START = 2;
+    private static final int EXPONENT = 3;
+    private static final int SPECIAL = 4;
+    private static final int INVALID_CHAR = 5;
+
+    // reject inputs that parseFloat accepts for compatibility, like a missing mantissa or exponent
+    private final boolean strict;
+
+    private int state = INTEGER;
+
+    private int length;
+
+    private boolean negative;
+
+    private boolean digitFound;
+
+    private long mantissa;
+
+    // set if a nonzero digit didn't fit in mantissa
+    private boolean truncated;
+
+    private int exponent;
+
+    // number of chars before the 'e', for the fallback
+    private int mantissaLength;
+
+    private boolean exponentDigitFound;
+
+    private boolean negativeExponent;
+
+    private int explicitExponent;
+
+    private char[] special;
+
+    private int specialLength;
+
+    DecimalDigits(boolean strict) {
+        this.strict = strict;
+    }
+
+    /**
+     * @param c the next char, or the next byte {@code & 0xFF}
+     * @return false if c can't be part of a number, later chars are ignored
+     */
+    boolean accept(int c) {
+        // split by state to keep every method small enough to be inlined
+        length++;
+        if (state <= FRACTION) {
+            final int digit = c - '0';
+            if (digit >= 0 && digit <= 9) {
+                addDigit(digit);
+                return true;
+            }
+            return acceptMantissaSymbol(c);
+        } else if (state <= EXPONENT) {
+            return acceptExponent(c);
+        } else if (state == SPECIAL) {
+            return acceptSpecial(c);
+        }
+        return false;
+    }
+
+    private boolean acceptMantissaSymbol(int c) {
+        if (c == '.') {
+            if (state == INTEGER) {
+                state = FRACTION;
+                return true;
+            }
+        } else if (c == 'e' || c == 'E') {
+            if (digitFound || !strict) {
+                state = EXPONENT_START;
+                mantissaLength = length - 1;
+                return true;
+            }
+        } else if (c == '-' || c == '+') {
+            if (length == 1) {
+                negative = c == '-';
+                return true;
+            }
+        } else if ((c == 'N' || c == 'I') && state == INTEGER && !digitFound) {
+            special = c == 'N' ? NAN_CHARS : INFINITY_CHARS;
+            specialLength = 1;
+            state = SPECIAL;
+            return true;
+        }
+        return invalidChar();
+    }
+
+    private boolean acceptExponent(int c) {
+        final int digit = c - '0';
+        if (digit >= 0 && digit <= 9) {
+            state = EXPONENT;
+            exponentDigitFound = true;
+            if (explicitExponent < MAX_EXPONENT) {
+                explicitExponent = explicitExponent * 10 + digit;
+            }
+            return true;
+        } else if ((c == '-' || c == '+') && state == EXPONENT_START) {
+            negativeExponent = c == '-';
+            state = EXPONENT;
+            return true;
+        }
+        return invalidChar();
+    }
+
+    private boolean acceptSpecial(int c) {
+        if (specialLength < special.length && c == special[specialLength]) {
+            specialLength++;
+            return true;
+        }
+        return invalidChar();
+    }
+
+    private boolean invalidChar() {
+        state = INVALID_CHAR;
+        return false;
+    }
+
+    private void addDigit(int digit) {
+        digitFound = true;
+        // leading zeros are not significant, so this counts significant digits. 19 digits may be negative as signed
+        if (mantissa >= 0 && mantissa < MAX_MANTISSA_BEFORE_DIGIT) {
+            mantissa = mantissa * 10 + digit;
+            if (state == FRACTION) {
+                exponent--;
+            }
+        } else {
+            truncated |= digit != 0;
+            if (state == INTEGER) {
+                exponent++;
+            }
+        }
+    }
+
+    /**
+     * @return the status after the last char, OK unless {@link #toBits(boolean)} returns {@link #INVALID}
+     */
+    NumberParseResult.Status getStatus() {
+        if (state == INVALID_CHAR || (state == SPECIAL && specialLength != special.length)) {
+            return NumberParseResult.Status.INVALID_CHAR;
+        } else if (length == 0) {
+            return NumberParseResult.Status.EMPTY;
+        } else if (strict && (state >= EXPONENT_START && state <= EXPONENT ? !exponentDigitFound : !digitFound && state != SPECIAL)) {
+            return NumberParseResult.Status.EMPTY;
+        }
+        return NumberParseResult.Status.OK;
+    }
+
+    /**
+     * @return the bits of the float or double without the sign, {@link EiselLemire#UNDECIDED} if the input has to be
+     * parsed with {@link #fallback}, or {@link #INVALID}
+     */
+    long toBits(boolean toFloat) {
+        if (getStatus() != NumberParseResult.Status.OK) {
+            return INVALID;
+        }
+        if (state == SPECIAL) {
+            final double value = special == NAN_CHARS ? Double.NaN : Double.POSITIVE_INFINITY;
+            return toFloat ? Float.floatToRawIntBits((float) value) : Double.doubleToRawLongBits(value);
+        }
+        final int decimalExponent = exponent + getExplicitExponent();
+        final long bits = toFloat ? EiselLemire.toFloatBits(mantissa, decimalExponent) : EiselLemire.toDoubleBits(mantissa, decimalExponent);
+        if (truncated && bits != EiselLemire.UNDECIDED) {
+            // the exact value is between mantissa and mantissa + 1, only safe if both round the same way
+            final long upperBits = toFloat ? EiselLemire.toFloatBits(mantissa + 1, decimalExponent) : EiselLemire.toDoubleBits(mantissa + 1, decimalExponent);
+            return bits == upperBits ? bits : EiselLemire.UNDECIDED;
+        }
+        return bits;
+    }
+
+    /**
+     * @return the signed value of bits returned by {@link #toBits(boolean)}
+     */
+    double toDecimal(long bits, boolean toFloat) {
+        final double value = toFloat ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return the number of chars before the exponent, the input up to there is what {@link #fallback} needs
+     */
+    int getMantissaLength() {
+        return state == EXPONENT_START || state == EXPONENT ? mantissaLength : length;
+    }
+
+    int getExplicitExponent() {
+        return negativeExponent ? -explicitExponent : explicitExponent;
+    }
+
+    /**
+     * Parses the rare inputs that {@link EiselLemire} can't round with the JDK. Static, so that the holder doesn't
+     * escape into the string concatenation.
+     *
+     * @param mantissa the first {@link #getMantissaLength()} chars of the input
+     */
+    static double fallback(String mantissa, int explicitExponent, boolean toFloat) {
+        final String decimal = mantissa + "e" + explicitExponent;
+        return toFloat ? Float.parseFloat(decimal) : Double.parseDouble(decimal);
+    }
+}
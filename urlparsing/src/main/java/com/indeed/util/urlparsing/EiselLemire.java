@@ -0,0 +1,157 @@
+package com.indeed.util.urlparsing;
+
+import java.math.BigInteger;
+
+/**
+ * Converts a decimal mantissa and exponent, w * 10^q, to the nearest double or float with the Eisel-Lemire algorithm
+ * (Daniel Lemire, "Number Parsing at a Gigabyte per Second", 2021), using a 128-bit approximation of 5^q instead of
+ * arbitrary precision arithmetic. Callers fall back to Double.parseDouble() for the rare inputs the approximation
+ * can't round correctly.
+ */
+final class EiselLemire {
+    private static final int SMALLEST_POWER_OF_TEN = -342;
+
+    private static final int LARGEST_POWER_OF_TEN = 308;
+
+    // 5^q normalized to 128 bits with the top bit set, high and low word for each q from SMALLEST_POWER_OF_TEN
+    private static final long[] POWERS_OF_FIVE = new long[2 * (LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1)];
+
+    static {
+        final BigInteger five = BigInteger.valueOf(5);
+        for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; q++) {
+            BigInteger power;
+            if (q >= 0) {
+                power = five.pow(q);
+            } else {
+                // rounded up reciprocal, with enough bits that truncating to 128 bits keeps the result exact enough
+                final BigInteger power5 = five.pow(-q);
+                final int z = power5.bitLength();
+                final int b = q >= -27 ? z + 127 : 2 * z + 128;
+                power = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+            }
+            power = power.bitLength() < 128 ? power.shiftLeft(128 - power.bitLength()) : power.shiftRight(power.bitLength() - 128);
+            final int index = 2 * (q - SMALLEST_POWER_OF_TEN);
+            POWERS_OF_FIVE[index] = power.shiftRight(64).longValue();
+            POWERS_OF_FIVE[index + 1] = power.longValue();
+        }
+    }
+
+    // exactly representable powers of ten, for the fast path
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    // returned if the result can't be determined without more precision
+    static final long UNDECIDED = -1;
+
+    private EiselLemire() {
+    }
+
+    /**
+     * @param w unsigned decimal mantissa
+     * @return the bits of the double nearest to w * 10^q without the sign, or {@link #UNDECIDED}
+     */
+    static long toDoubleBits(long w, int q) {
+        if (w >= 0 && w <= (1L << 53) && q >= -22 && q <= 22) {
+            // both w and 10^q are exact doubles, so a single correctly rounded operation gives the correct result
+            final double value = q < 0 ? w / DOUBLE_POWERS_OF_TEN[-q] : w * DOUBLE_POWERS_OF_TEN[q];
+            return Double.doubleToRawLongBits(value);
+        }
+        return toBits(w, q, 52, -1023, 0x7FF, -4, 23, -342, 308);
+    }
+
+    /**
+     * @param w unsigned decimal mantissa
+     * @return the bits of the float nearest to w * 10^q without the sign, or {@link #UNDECIDED}
+     */
+    static long toFloatBits(long w, int q) {
+        if (w >= 0 && w <= (1L << 24) && q >= -10 && q <= 10) {
+            final float value = q < 0 ? w / FLOAT_POWERS_OF_TEN[-q] : w * FLOAT_POWERS_OF_TEN[q];
+            return Float.floatToRawIntBits(value);
+        }
+        return toBits(w, q, 23, -127, 0xFF, -17, 10, -65, 38);
+    }
+
+    private static long toBits(
+            long w, int q, int mantissaBits, int minimumExponent, int infinitePower,
+            int minExponentRoundToEven, int maxExponentRoundToEven, int smallestPowerOfTen, int largestPowerOfTen
+    ) {
+        if (w == 0 || q < smallestPowerOfTen) {
+            return 0;
+        }
+        if (q > largestPowerOfTen) {
+            return (long) infinitePower << mantissaBits;
+        }
+        final int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+
+        // only the high bits of w * 5^q are needed, the low word of 5^q only matters if they might carry into them
+        final int index = 2 * (q - SMALLEST_POWER_OF_TEN);
+        long high = multiplyHigh(w, POWERS_OF_FIVE[index]);
+        long low = w * POWERS_OF_FIVE[index];
+        final long precisionMask = -1L >>> (mantissaBits + 3);
+        if ((high & precisionMask) == precisionMask) {
+            final long secondHigh = multiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+            low += secondHigh;
+            if (unsignedLess(low, secondHigh)) {
+                high++;
+            }
+            if (low == -1L && (q < -27 || q > 55)) {
+                return UNDECIDED;
+            }
+        }
+
+        final int upperBit = (int) (high >>> 63);
+        final int mantissaShift = upperBit + 64 - mantissaBits - 3;
+        long mantissa = high >>> mantissaShift;
+        int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperBit - lz - minimumExponent;
+        if (power2 <= 0) {
+            // subnormal
+            if (-power2 + 1 >= 64) {
+                return 0;
+            }
+            mantissa >>>= -power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power2 = mantissa < (1L << mantissaBits) ? 0 : 1;
+            return mantissa | (long) power2 << mantissaBits;
+        }
+        if (unsignedLess(low, 2) && q >= minExponentRoundToEven && q <= maxExponentRoundToEven && (mantissa & 3) == 1) {
+            // exactly halfway between two values, round to even instead of up
+            if (mantissa << mantissaShift == high) {
+                mantissa &= ~1L;
+            }
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << mantissaBits)) {
+            mantissa = 1L << mantissaBits;
+            power2++;
+        }
+        mantissa &= ~(1L << mantissaBits);
+        if (power2 >= infinitePower) {
+            return (long) infinitePower << mantissaBits;
+        }
+        return mantissa | (long) power2 << mantissaBits;
+    }
+
+    // high 64 bits of the unsigned 128 bit product
+    private static long multiplyHigh(long x, long y) {
+        final long x0 = x & 0xFFFFFFFFL;
+        final long x1 = x >>> 32;
+        final long y0 = y & 0xFFFFFFFFL;
+        final long y1 = y >>> 32;
+        final long t = x1 * y0 + ((x0 * y0) >>> 32);
+        final long u = (t & 0xFFFFFFFFL) + x0 * y1;
+        return x1 * y1 + (t >>> 32) + (u >>> 32);
+    }
+
+    private static boolean unsignedLess(long x, long y) {
+        return x + Long.MIN_VALUE < y + Long.MIN_VALUE;
+    }
+}
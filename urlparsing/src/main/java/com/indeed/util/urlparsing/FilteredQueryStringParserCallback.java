@@ -0,0 +1,121 @@
+package com.indeed.util.urlparsing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Callbacks that only run for query strings whose values pass a set of {@link ValuePredicate}s, built by
+ * {@link QueryStringParserCallbackBuilder#buildFilteredCallback()} and used with
+ * {@link QueryStringParser#parseQueryString(String, FilteredQueryStringParserCallback, Object)}.
+ * <p>
+ * The predicates are evaluated in a first pass over the query string that stops as soon as one of them fails, or once
+ * every filtered key has passed. Only query strings that pass are parsed a second time with the callbacks, so rejected
+ * lines never pay for url decoding or number parsing. Filtered keys are looked up in the same kind of perfect hash table
+ * as the callbacks, and match regardless of case and through aliases just like them. A query string without one of the
+ * filtered keys is rejected, and only the first occurrence of a repeated filtered key or one of its aliases is tested.
+ * No state is kept between calls, so this is thread safe if the callbacks are.
+ */
+public final class FilteredQueryStringParserCallback<T> {
+    // returned by the filter once every key has passed, stops the first pass
+    private static final long PASSED = -1;
+
+    // returned by the filter once a predicate has failed, stops the first pass
+    private static final long REJECTED = Long.MIN_VALUE;
+
+    private final QueryStringParserCallback<T> callback;
+
+    private final Filter filter;
+
+    /**
+     * @param predicatesByKey predicates by case folded, if case is ignored, key that is not an alias
+     * @param canonicalKeys the key each alias stands for
+     */
+    FilteredQueryStringParserCallback(QueryStringParserCallback<T> callback, Map<String, List<ValuePredicate>> predicatesByKey,
+                                      Map<String, String> canonicalKeys, boolean ignoreCase) {
+        if (predicatesByKey.size() > 63) {
+            throw new IllegalArgumentException("At most 63 keys can be filtered, got " + predicatesByKey.size());
+        }
+        this.callback = callback;
+        filter = new Filter(predicatesByKey, canonicalKeys, ignoreCase);
+    }
+
+    /**
+     * @return the callback that is called once a query string has passed the filters
+     */
+    public QueryStringParserCallback<T> getCallback() {
+        return callback;
+    }
+
+    /**
+     * @return true if the values in queryString between qsStart and qsEnd pass all predicates
+     */
+    public boolean matches(String queryString, int qsStart, int qsEnd, String pairDelim, String kvDelim) {
+        if (filter.predicates.length == 0) {
+            return true;
+        }
+        return QueryStringParser.parseWithState(queryString, filter, null, qsStart, qsEnd, pairDelim, kvDelim) == PASSED;
+    }
+
+    /**
+     * The state is the set of filtered keys that have passed so far, bit g for predicates[g]
+     */
+    private static final class Filter implements StoppableQueryStringParserCallback<Object> {
+        // the filtered keys and their aliases
+        private final QueryStringParserCallbackBuilder.KeyTable keys;
+
+        // index into predicates of keys.keys[k], the same for a key and its aliases
+        private final int[] groups;
+
+        private final ValuePredicate[][] predicates;
+
+        private final long allPassed;
+
+        private Filter(Map<String, List<ValuePredicate>> predicatesByKey, Map<String, String> canonicalKeys, boolean ignoreCase) {
+            final List<String> filteredKeys = new ArrayList<String>(predicatesByKey.keySet());
+            predicates = new ValuePredicate[filteredKeys.size()][];
+            for (int g = 0; g < predicates.length; g++) {
+                final List<ValuePredicate> keyPredicates = predicatesByKey.get(filteredKeys.get(g));
+                predicates[g] = keyPredicates.toArray(new ValuePredicate[keyPredicates.size()]);
+            }
+            final List<String> tableKeys = new ArrayList<String>(filteredKeys);
+            final List<Integer> tableGroups = new ArrayList<Integer>();
+            for (int g = 0; g < filteredKeys.size(); g++) {
+                tableGroups.add(g);
+            }
+            for (Map.Entry<String, String> alias : canonicalKeys.entrySet()) {
+                final int g = filteredKeys.indexOf(alias.getValue());
+                if (g >= 0) {
+                    tableKeys.add(alias.getKey());
+                    tableGroups.add(g);
+                }
+            }
+            keys = new QueryStringParserCallbackBuilder.KeyTable(tableKeys.toArray(new String[tableKeys.size()]), ignoreCase);
+            groups = new int[tableGroups.size()];
+            for (int k = 0; k < groups.length; k++) {
+                groups[k] = tableGroups.get(k);
+            }
+            allPassed = (1L << predicates.length) - 1;
+        }
+
+        @Override
+        public long parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Object storage, long state) {
+            final int k = keys.findKey(queryString, keyStart, keyEnd);
+            if (k < 0) {
+                return state;
+            }
+            final int g = groups[k];
+            final long bit = 1L << g;
+            if ((state & bit) != 0) {
+                return state;
+            }
+            for (ValuePredicate predicate : predicates[g]) {
+                if (!predicate.matches(queryString, valueStart, valueEnd)) {
+                    return REJECTED;
+                }
+            }
+            state |= bit;
+            return state == allPassed ? PASSED : state;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.Closeables;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads newline separated gzip compressed log files, inflating on a thread of the executor while the calling thread
+ * finds the lines and runs the callbacks. Inflated data is handed over in a ring of numBuffers reusable buffers of
+ * bufferSize bytes, so inflating and parsing overlap, and nothing is allocated per line. Lines are passed to a
+ * {@link MappedLogReader.LineCallback} in the same way as by {@link MappedLogReader}, with offsets into a ring buffer,
+ * or into a separate line buffer for lines that straddle two ring buffers.
+ * <p>
+ * Inflating is still done by one thread per file. Files written with {@link BlockedGzipOutputStream} can be inflated
+ * by many threads with {@link ParallelLogParser#readBlockedGzip}.
+ * <p>
+ * The executor is not shut down and needs one free thread per file being read. Instances have no state besides their
+ * settings and can be shared between threads.
+ */
+public class GzipLogReader {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    public static final int DEFAULT_NUM_BUFFERS = 4;
+
+    private static final int INFLATER_INPUT_SIZE = 64 * 1024;
+
+    private final ExecutorService executor;
+
+    private final int bufferSize;
+
+    private final int numBuffers;
+
+    public GzipLogReader(ExecutorService executor) {
+        this(executor, DEFAULT_BUFFER_SIZE, DEFAULT_NUM_BUFFERS);
+    }
+
+    /**
+     * @param executor Executor the files are inflated on
+     * @param bufferSize Size of each buffer in the ring
+     * @param numBuffers Number of buffers in the ring, at least 2 so that inflating and parsing can overlap
+     */
+    public GzipLogReader(ExecutorService executor, int bufferSize, int numBuffers) {
+        Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive");
+        Preconditions.checkArgument(numBuffers >= 2, "numBuffers must be at least 2");
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.numBuffers = numBuffers;
+    }
+
+    /**
+     * Calls the callback for every line of the files, in order
+     *
+     * @return the number of lines read
+     */
+    public <T> long read(Iterable<File> files, MappedLogReader.LineCallback<T> callback, T storage) throws IOException, InterruptedException {
+        final Ring ring = new Ring(bufferSize, numBuffers);
+        long lines = 0;
+        for (File file : files) {
+            lines += read(file, ring, callback, storage);
+        }
+        return lines;
+    }
+
+    /**
+     * Calls the callback for every line of the file, in order
+     *
+     * @return the number of lines read
+     */
+    public <T> long read(File file, MappedLogReader.LineCallback<T> callback, T storage) throws IOException, InterruptedException {
+        return read(file, new Ring(bufferSize, numBuffers), callback, storage);
+    }
+
+    /**
+     * Calls the callback for every line of the gzip compressed stream, in order. The stream is not closed.
+     *
+     * @return the number of lines read
+     */
+    public <T> long read(InputStream compressed, MappedLogReader.LineCallback<T> callback, T storage) throws IOException, InterruptedException {
+        return read(compressed, new Ring(bufferSize, numBuffers), callback, storage);
+    }
+
+    /**
+     * Parses every line of the files as a query string with {@link ByteQueryStringParser}, with offsets into the
+     * ring buffers
+     *
+     * @return the number of lines read
+     */
+    public <T> long parseQueryStrings(Iterable<File> files, ByteQueryStringParserCallback<T> callback, T storage) throws IOException, InterruptedException {
+        return read(files, new MappedLogReader.QueryStringLineCallback<T>(callback), storage);
+    }
+
+    /**
+     * @see #parseQueryStrings(Iterable, ByteQueryStringParserCallback, Object)
+     */
+    public <T> long parseQueryStrings(File file, ByteQueryStringParserCallback<T> callback, T storage) throws IOException, InterruptedException {
+        return read(file, new MappedLogReader.QueryStringLineCallback<T>(callback), storage);
+    }
+
+    private <T> long read(File file, Ring ring, MappedLogReader.LineCallback<T> callback, T storage) throws IOException, InterruptedException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            return read(in, ring, callback, storage);
+        } finally {
+            Closeables.close(in, true);
+        }
+    }
+
+    private <T> long read(InputStream compressed, final Ring ring, MappedLogReader.LineCallback<T> callback, T storage) throws IOException, InterruptedException {
+        // closing the GZIPInputStream releases its native inflater, but compressed belongs to the caller
+        final InputStream in = new GZIPInputStream(new BufferedInputStream(new NonClosingInputStream(compressed), INFLATER_INPUT_SIZE), INFLATER_INPUT_SIZE);
+        final Future<Void> inflater = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try {
+                    while (true) {
+                        final Block block = ring.free.take();
+                        block.length = readFully(in, block.data);
+                        if (block.length == 0) {
+                            ring.free.put(block);
+                            return null;
+                        }
+                        ring.filled.put(block);
+                        if (block.length < block.data.length) {
+                            return null;
+                        }
+                    }
+                } finally {
+                    // the filled queue has room for every block and the end marker
+                    ring.filled.offer(Block.END);
+                }
+            }
+        });
+
+        try {
+            long lines = 0;
+            // bytes of the unfinished line at the end of the previous block
+            byte[] carry = ring.carry;
+            int carryLength = 0;
+            while (true) {
+                final Block block = ring.filled.take();
+                if (block == Block.END) {
+                    break;
+                }
+                final byte[] data = block.data;
+                int lineStart = 0;
+                for (int i = 0; i < block.length; i++) {
+                    if (data[i] == '\n') {
+                        if (carryLength > 0) {
+                            carry = append(ring, carry, carryLength, data, 0, i);
+                            MappedLogReader.emitLine(ring.carryBuffer, 0, carryLength + i, callback, storage);
+                            carryLength = 0;
+                        } else {
+                            MappedLogReader.emitLine(block.buffer, lineStart, i, callback, storage);
+                        }
+                        lines++;
+                        lineStart = i + 1;
+                    }
+                }
+                if (lineStart < block.length) {
+                    carry = append(ring, carry, carryLength, data, lineStart, block.length);
+                    carryLength += block.length - lineStart;
+                }
+                ring.free.put(block);
+            }
+
+            // rethrows any exception of the inflater before the last line is passed on
+            getResult(inflater);
+            if (carryLength > 0) {
+                // last line has no trailing newline
+                MappedLogReader.emitLine(ring.carryBuffer, 0, carryLength, callback, storage);
+                lines++;
+            }
+            return lines;
+        } finally {
+            // no-op if the inflater completed, otherwise its next read fails once the stream is closed
+            inflater.cancel(true);
+            Closeables.close(in, true);
+        }
+    }
+
+    /**
+     * Appends data from start to end to the first carryLength bytes of carry, growing it if needed
+     *
+     * @return the carry buffer, which may be a new array
+     */
+    private static byte[] append(Ring ring, byte[] carry, int carryLength, byte[] data, int start, int end) {
+        final int length = carryLength + end - start;
+        if (length > carry.length) {
+            final byte[] grown = new byte[Math.max(length, 2 * carry.length)];
+            System.arraycopy(carry, 0, grown, 0, carryLength);
+            ring.setCarry(grown);
+            carry = grown;
+        }
+        System.arraycopy(data, start, carry, carryLength, end - start);
+        return carry;
+    }
+
+    /**
+     * @return number of bytes read, less than data.length only at the end of the stream
+     */
+    private static int readFully(InputStream in, byte[] data) throws IOException {
+        int length = 0;
+        while (length < data.length) {
+            final int read = in.read(data, length, data.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class Block {
+        static final Block END = new Block(0);
+
+        final byte[] data;
+
+        final ByteBuffer buffer;
+
+        int length;
+
+        Block(int size) {
+            data = new byte[size];
+            buffer = ByteBuffer.wrap(data);
+        }
+    }
+
+    /**
+     * Buffers of one read, reused for every file
+     */
+    private static final class Ring {
+        final BlockingQueue<Block> free;
+
+        final BlockingQueue<Block> filled;
+
+        byte[] carry = new byte[1024];
+
+        ByteBuffer carryBuffer = ByteBuffer.wrap(carry);
+
+        Ring(int bufferSize, int numBuffers) {
+            free = new ArrayBlockingQueue<Block>(numBuffers);
+            filled = new ArrayBlockingQueue<Block>(numBuffers + 1);
+            for (int i = 0; i < numBuffers; i++) {
+                free.add(new Block(bufferSize));
+            }
+        }
+
+        void setCarry(byte[] carry) {
+            this.carry = carry;
+            carryBuffer = ByteBuffer.wrap(carry);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.indeed.util.urlparsing;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMaps;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+/**
+ * Counts values exactly, keyed by their {@link CharSequenceSlice#hash64} instead of by String. Each distinct value
+ * costs two longs in an open addressing table, and no String is ever created for it. Two different values only share
+ * a count if their 64 bit hashes collide, which is unlikely below billions of distinct values.
+ * <p>
+ * Use it for counts per known value, e.g. to look up the count of a value with {@link #get}, or together with a
+ * {@link TopKCounter} to get exact counts for its top values. Counters can be combined with {@link #merge}. Not thread
+ * safe.
+ */
+public final class HashCounter {
+    private final Long2LongOpenHashMap counts;
+
+    private final Long2LongMap unmodifiableCounts;
+
+    private long total;
+
+    public HashCounter() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of distinct values the table is sized for initially
+     */
+    public HashCounter(int expectedSize) {
+        counts = new Long2LongOpenHashMap(expectedSize);
+        unmodifiableCounts = Long2LongMaps.unmodifiable(counts);
+    }
+
+    /**
+     * Adds one occurrence of the chars of s from start to end
+     *
+     * @return the count after adding
+     */
+    public long add(CharSequence s, int start, int end) {
+        return addHash(CharSequenceSlice.hash64(s, start, end), 1);
+    }
+
+    /**
+     * Adds count occurrences of a value by its 64 bit hash
+     *
+     * @return the count after adding
+     */
+    public long addHash(long hash, long count) {
+        total += count;
+        return counts.add(hash, count) + count;
+    }
+
+    /**
+     * @return the number of times the chars of s from start to end were added
+     */
+    public long get(CharSequence s, int start, int end) {
+        return counts.get(CharSequenceSlice.hash64(s, start, end));
+    }
+
+    public long getHash(long hash) {
+        return counts.get(hash);
+    }
+
+    /**
+     * @return the number of distinct values
+     */
+    public int size() {
+        return counts.size();
+    }
+
+    /**
+     * @return the sum of all counts
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return a read only view of the counts by hash
+     */
+    public Long2LongMap getCounts() {
+        return unmodifiableCounts;
+    }
+
+    /**
+     * Adds the counts of other to this counter
+     */
+    public void merge(HashCounter other) {
+        final ObjectIterator<Long2LongMap.Entry> iterator = other.counts.long2LongEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            final Long2LongMap.Entry entry = iterator.next();
+            counts.add(entry.getLongKey(), entry.getLongValue());
+        }
+        total += other.total;
+    }
+
+    public void clear() {
+        counts.clear();
+        total = 0;
+    }
+}
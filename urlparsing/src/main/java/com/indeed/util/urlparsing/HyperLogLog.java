@@ -0,0 +1,100 @@
+package com.indeed.util.urlparsing;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the number of distinct values added to it in 2^precision bytes, no matter how many values there are
+ * (Flajolet et al., "HyperLogLog: the analysis of a near-optimal cardinality estimation algorithm", 2007). The
+ * standard error is about 1.04 / sqrt(2^precision), e.g. 0.8% for the default precision of 14.
+ * <p>
+ * Values are added by their {@link CharSequenceSlice#hash64} straight from the query string, so no String is created.
+ * Counters filled by different threads, e.g. one per chunk of {@link ParallelLogParser}, can be combined with
+ * {@link #merge}. Not thread safe.
+ */
+public final class HyperLogLog {
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision log2 of the number of registers, from 4 to 18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        registers = new byte[1 << precision];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Adds the chars of s from start to end
+     */
+    public void add(CharSequence s, int start, int end) {
+        addHash(CharSequenceSlice.hash64(s, start, end));
+    }
+
+    /**
+     * Adds a value by its 64 bit hash, which has to be well mixed, like {@link CharSequenceSlice#hash64}
+     */
+    public void addHash(long hash) {
+        final int index = (int) (hash >>> (64 - precision));
+        // the sentinel bit caps the rank at 64 - precision + 1
+        final int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct values added
+     */
+    public long cardinality() {
+        final int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        final double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        final double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // linear counting is more accurate while many registers are still empty
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Adds the values of other to this counter, as if they had been added directly
+     *
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Can't merge precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+}
@@ -0,0 +1,206 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads newline separated log files by memory mapping them, and finds the line boundaries in place. Unlike
+ * BufferedReader.readLine() nothing is allocated per line, the callbacks are given offsets into the mapped region.
+ * <p>
+ * A MappedByteBuffer can hold at most 2GB, so larger files are mapped in windows of windowSize bytes. A line that
+ * straddles the end of a window is found again at the start of the next window, which is why no line may be longer
+ * than windowSize.
+ * <p>
+ * Instances have no state besides the window size and can be shared between threads.
+ */
+public class MappedLogReader {
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Called for each line with offsets into the mapped window. The line terminator ("\n" or "\r\n") is not included.
+     */
+    public interface LineCallback<T> {
+        /**
+         * @param buffer The mapped window, only use absolute gets as its position is not meaningful
+         * @param lineStart Index into buffer where the line begins (inclusive)
+         * @param lineEnd Index into buffer where the line ends (exclusive)
+         * @param storage Storage object, passed to each callback call
+         */
+        void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, T storage);
+    }
+
+    private final int windowSize;
+
+    public MappedLogReader() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize How many bytes to map at a time, also the maximum length of a line
+     */
+    public MappedLogReader(int windowSize) {
+        Preconditions.checkArgument(windowSize > 0, "windowSize must be positive");
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Calls the callback for every line of the files, in order
+     *
+     * @return the number of lines read
+     * @throws IOException if a file can't be mapped, or contains a line longer than the window size
+     */
+    public <T> long read(Iterable<File> files, LineCallback<T> callback, T storage) throws IOException {
+        long lines = 0;
+        for (File file : files) {
+            lines += read(file, callback, storage);
+        }
+        return lines;
+    }
+
+    /**
+     * Calls the callback for every line of the file, in order
+     *
+     * @return the number of lines read
+     * @throws IOException if the file can't be mapped, or contains a line longer than the window size
+     */
+    public <T> long read(File file, LineCallback<T> callback, T storage) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return read(raf.getChannel(), file, callback, storage);
+        } finally {
+            Closeables.close(raf, true);
+        }
+    }
+
+    private <T> long read(FileChannel channel, File file, LineCallback<T> callback, T storage) throws IOException {
+        return read(channel, file, 0, channel.size(), callback, storage);
+    }
+
+    /**
+     * Calls the callback for every line in a range of the file
+     *
+     * @param start Offset of the first byte to read, must be the start of a line
+     * @param end Offset just past the last byte to read, must be the end of a file or just past a newline
+     * @return the number of lines read
+     */
+    <T> long read(FileChannel channel, File file, long start, long end, LineCallback<T> callback, T storage) throws IOException {
+        long lines = 0;
+        long windowStart = start;
+        while (windowStart < end) {
+            final int size = (int) Math.min(windowSize, end - windowStart);
+            final boolean lastWindow = windowStart + size == end;
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+
+            int lineStart = 0;
+            for (int i = 0; i < size; i++) {
+                if (buffer.get(i) == '\n') {
+                    emitLine(buffer, lineStart, i, callback, storage);
+                    lines++;
+                    lineStart = i + 1;
+                }
+            }
+
+            if (lineStart < size) {
+                if (lastWindow) {
+                    // last line has no trailing newline
+                    emitLine(buffer, lineStart, size, callback, storage);
+                    lines++;
+                } else if (lineStart == 0) {
+                    throw new IOException("Line at offset " + windowStart + " in " + file + " is longer than the window size " + windowSize);
+                }
+            }
+            // the next window starts at the beginning of the unfinished line, if any
+            windowStart += lineStart < size && !lastWindow ? lineStart : size;
+        }
+        return lines;
+    }
+
+    static <T> void emitLine(ByteBuffer buffer, int lineStart, int lineEnd, LineCallback<T> callback, T storage) {
+        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        callback.parseLine(buffer, lineStart, lineEnd, storage);
+    }
+
+    /**
+     * Parses every line of the files as a query string with {@link ByteQueryStringParser}. The callback's offsets are
+     * into a reused line buffer rather than the mapped region, since a byte[] callback needs an array. Lines are copied
+     * there with a single bulk get, which allocates nothing once the buffer has grown to the longest line. Use
+     * {@link #parseQueryStrings(Iterable, ByteBufferQueryStringParserCallback, Object)} to avoid the copy.
+     *
+     * @return the number of lines read
+     */
+    public <T> long parseQueryStrings(Iterable<File> files, ByteQueryStringParserCallback<T> callback, T storage) throws IOException {
+        return read(files, new QueryStringLineCallback<T>(callback), storage);
+    }
+
+    /**
+     * @see #parseQueryStrings(Iterable, ByteQueryStringParserCallback, Object)
+     */
+    public <T> long parseQueryStrings(File file, ByteQueryStringParserCallback<T> callback, T storage) throws IOException {
+        return read(file, new QueryStringLineCallback<T>(callback), storage);
+    }
+
+    /**
+     * Parses every line of the files as a query string in place in the mapped region, the callback gets absolute
+     * indexes into the mapped window
+     *
+     * @return the number of lines read
+     */
+    public <T> long parseQueryStrings(Iterable<File> files, ByteBufferQueryStringParserCallback<T> callback, T storage) throws IOException {
+        return read(files, new BufferQueryStringLineCallback<T>(callback), storage);
+    }
+
+    /**
+     * @see #parseQueryStrings(Iterable, ByteBufferQueryStringParserCallback, Object)
+     */
+    public <T> long parseQueryStrings(File file, ByteBufferQueryStringParserCallback<T> callback, T storage) throws IOException {
+        return read(file, new BufferQueryStringLineCallback<T>(callback), storage);
+    }
+
+    static class BufferQueryStringLineCallback<T> implements LineCallback<T> {
+        private final ByteBufferQueryStringParserCallback<T> callback;
+
+        BufferQueryStringLineCallback(ByteBufferQueryStringParserCallback<T> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, T storage) {
+            ByteQueryStringParser.parseQueryString(buffer, lineStart, lineEnd - lineStart, callback, storage);
+        }
+    }
+
+    static class QueryStringLineCallback<T> implements LineCallback<T> {
+        private final ByteQueryStringParserCallback<T> callback;
+
+        private byte[] line = new byte[1024];
+
+        QueryStringLineCallback(ByteQueryStringParserCallback<T> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, T storage) {
+            if (buffer.hasArray()) {
+                // heap buffers of the gzip readers can be parsed in place
+                ByteQueryStringParser.parseQueryString(buffer.array(), buffer.arrayOffset() + lineStart, lineEnd - lineStart, callback, storage);
+                return;
+            }
+            final int length = lineEnd - lineStart;
+            if (length > line.length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            buffer.position(lineStart);
+            buffer.get(line, 0, length);
+            ByteQueryStringParser.parseQueryString(line, 0, length, callback, storage);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Reusable holder for the result of the tryParse methods in {@link ParseUtils}, which report malformed input through a
+ * status instead of throwing NumberFormatException. Not thread safe, use one instance per thread.
+ */
+public final class NumberParseResult {
+    public static enum Status {
+        OK,
+        // no digits to parse
+        EMPTY,
+        // a char that is not part of a number
+        INVALID_CHAR,
+        // the number does not fit in the requested type
+        OVERFLOW
+    }
+
+    private Status status = Status.EMPTY;
+
+    private long longValue;
+
+    private double doubleValue;
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isValid() {
+        return status == Status.OK;
+    }
+
+    /**
+     * @return the parsed value, only meaningful if {@link #isValid()}
+     */
+    public int intValue() {
+        return (int) longValue;
+    }
+
+    /**
+     * @return the parsed value, only meaningful if {@link #isValid()}
+     */
+    public long longValue() {
+        return longValue;
+    }
+
+    /**
+     * @return the parsed value, only meaningful if {@link #isValid()}
+     */
+    public float floatValue() {
+        return (float) doubleValue;
+    }
+
+    /**
+     * @return the parsed value, only meaningful if {@link #isValid()}
+     */
+    public double doubleValue() {
+        return doubleValue;
+    }
+
+    boolean setLong(long value) {
+        status = Status.OK;
+        longValue = value;
+        doubleValue = value;
+        return true;
+    }
+
+    boolean setDouble(double value) {
+        status = Status.OK;
+        longValue = (long) value;
+        doubleValue = value;
+        return true;
+    }
+
+    boolean setError(Status error) {
+        status = error;
+        longValue = 0;
+        doubleValue = 0;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return status == Status.OK ? Double.toString(doubleValue) : status.toString();
+    }
+}
@@ -0,0 +1,266 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Parses log files in parallel. Every file is split into chunks of about chunkSize bytes at newline boundaries, and
+ * each chunk is read by {@link MappedLogReader} on the executor. Every chunk gets its own storage object from the
+ * supplier, so callbacks need no synchronization, and the per-chunk results are merged in file order with the combiner.
+ * <p>
+ * Gzip compressed files written by {@link BlockedGzipOutputStream} are split into chunks of members of about chunkSize
+ * compressed bytes, and each chunk is inflated and read by {@link BlockedGzipReader}.
+ * <p>
+ * The executor is not shut down, it can be shared by many parsers.
+ */
+public class ParallelLogParser {
+    public static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+
+    /**
+     * Merges the storage objects of two chunks
+     */
+    public interface Combiner<T> {
+        /**
+         * @param left result of the earlier chunk
+         * @param right result of the later chunk
+         * @return the merged result, may be left or right after modifying it
+         */
+        T combine(T left, T right);
+    }
+
+    private final ExecutorService executor;
+
+    private final long chunkSize;
+
+    private final MappedLogReader reader;
+
+    private final BlockedGzipReader blockedGzipReader = new BlockedGzipReader();
+
+    public ParallelLogParser(ExecutorService executor) {
+        this(executor, DEFAULT_CHUNK_SIZE, new MappedLogReader());
+    }
+
+    /**
+     * @param executor Executor the chunks are parsed on
+     * @param chunkSize Approximate number of bytes per chunk
+     * @param reader Reader used for every chunk
+     */
+    public ParallelLogParser(ExecutorService executor, long chunkSize, MappedLogReader reader) {
+        Preconditions.checkArgument(chunkSize > 0, "chunkSize must be positive");
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.reader = reader;
+    }
+
+    /**
+     * Calls the callback for every line of the files. The callback is called concurrently from several threads, each
+     * with a different storage object.
+     *
+     * @return the combined storage of all chunks, or a fresh storage object if the files are empty
+     */
+    public <T> T read(Iterable<File> files, Supplier<T> storageSupplier, MappedLogReader.LineCallback<T> callback, Combiner<T> combiner) throws IOException, InterruptedException {
+        return parse(files, false, storageSupplier, Suppliers.ofInstance(callback), combiner);
+    }
+
+    /**
+     * Parses every line of the files as a query string with {@link ByteQueryStringParser}. The callback is called
+     * concurrently from several threads, each with a different storage object.
+     *
+     * @return the combined storage of all chunks, or a fresh storage object if the files are empty
+     */
+    public <T> T parseQueryStrings(Iterable<File> files, Supplier<T> storageSupplier, ByteQueryStringParserCallback<T> callback, Combiner<T> combiner) throws IOException, InterruptedException {
+        return parse(files, false, storageSupplier, queryStringLineCallbacks(callback), combiner);
+    }
+
+    /**
+     * @see #parseQueryStrings(Iterable, Supplier, ByteQueryStringParserCallback, Combiner)
+     */
+    public <T> T parseQueryStrings(File file, Supplier<T> storageSupplier, ByteQueryStringParserCallback<T> callback, Combiner<T> combiner) throws IOException, InterruptedException {
+        return parseQueryStrings(ImmutableList.of(file), storageSupplier, callback, combiner);
+    }
+
+    /**
+     * Parses every line of the files as a query string in place in the mapped region, see
+     * {@link MappedLogReader#parseQueryStrings(Iterable, ByteBufferQueryStringParserCallback, Object)}. The callback is
+     * called concurrently from several threads, each with a different storage object.
+     *
+     * @return the combined storage of all chunks, or a fresh storage object if the files are empty
+     */
+    public <T> T parseQueryStrings(Iterable<File> files, Supplier<T> storageSupplier, ByteBufferQueryStringParserCallback<T> callback, Combiner<T> combiner) throws IOException, InterruptedException {
+        final MappedLogReader.LineCallback<T> lineCallback = new MappedLogReader.BufferQueryStringLineCallback<T>(callback);
+        return parse(files, false, storageSupplier, Suppliers.ofInstance(lineCallback), combiner);
+    }
+
+    /**
+     * @see #parseQueryStrings(Iterable, Supplier, ByteBufferQueryStringParserCallback, Combiner)
+     */
+    public <T> T parseQueryStrings(File file, Supplier<T> storageSupplier, ByteBufferQueryStringParserCallback<T> callback, Combiner<T> combiner) throws IOException, InterruptedException {
+        return parseQueryStrings(ImmutableList.of(file), storageSupplier, callback, combiner);
+    }
+
+    /**
+     * Calls the callback for every line of files written by {@link BlockedGzipOutputStream}, inflating several members
+     * at the same time. The callback is called concurrently from several threads, each with a different storage object.
+     *
+     * @return the combined storage of all chunks, or a fresh storage object if the files are empty
+     * @throws IOException if a file can't be read or is not in the blocked gzip format
+     */
+    public <T> T readBlockedGzip(Iterable<File> files, Supplier<T> storageSupplier, MappedLogReader.LineCallback<T> callback, Combiner<T> combiner) throws IOException, InterruptedException {
+        return parse(files, true, storageSupplier, Suppliers.ofInstance(callback), combiner);
+    }
+
+    /**
+     * Parses every line of files written by {@link BlockedGzipOutputStream} as a query string with
+     * {@link ByteQueryStringParser}. The callback is called concurrently from several threads, each with a different
+     * storage object.
+     *
+     * @return the combined storage of all chunks, or a fresh storage object if the files are empty
+     * @throws IOException if a file can't be read or is not in the blocked gzip format
+     */
+    public <T> T parseBlockedGzipQueryStrings(Iterable<File> files, Supplier<T> storageSupplier, ByteQueryStringParserCallback<T> callback, Combiner<T> combiner) throws IOException, InterruptedException {
+        return parse(files, true, storageSupplier, queryStringLineCallbacks(callback), combiner);
+    }
+
+    private static <T> Supplier<MappedLogReader.LineCallback<T>> queryStringLineCallbacks(final ByteQueryStringParserCallback<T> callback) {
+        // the line callback holds a line buffer, so every chunk needs its own
+        return new Supplier<MappedLogReader.LineCallback<T>>() {
+            @Override
+            public MappedLogReader.LineCallback<T> get() {
+                return new MappedLogReader.QueryStringLineCallback<T>(callback);
+            }
+        };
+    }
+
+    private <T> T parse(Iterable<File> files, final boolean blockedGzip, final Supplier<T> storageSupplier, final Supplier<MappedLogReader.LineCallback<T>> callbackSupplier, Combiner<T> combiner) throws IOException, InterruptedException {
+        final List<RandomAccessFile> openFiles = new ArrayList<RandomAccessFile>();
+        final List<Future<T>> futures = new ArrayList<Future<T>>();
+        try {
+            for (final File file : files) {
+                final RandomAccessFile raf = new RandomAccessFile(file, "r");
+                openFiles.add(raf);
+                final FileChannel channel = raf.getChannel();
+                final long[] boundaries = blockedGzip ? splitMembers(BlockedGzipReader.readIndex(channel, file)) : split(channel);
+                for (int i = 0; i + 1 < boundaries.length; i++) {
+                    final long start = boundaries[i];
+                    final long end = boundaries[i + 1];
+                    futures.add(executor.submit(new Callable<T>() {
+                        @Override
+                        public T call() throws Exception {
+                            final T storage = storageSupplier.get();
+                            if (blockedGzip) {
+                                blockedGzipReader.read(channel, file, start, end, callbackSupplier.get(), storage);
+                            } else {
+                                reader.read(channel, file, start, end, callbackSupplier.get(), storage);
+                            }
+                            return storage;
+                        }
+                    }));
+                }
+            }
+
+            T result = null;
+            for (Future<T> future : futures) {
+                final T chunkResult = getResult(future);
+                result = result == null ? chunkResult : combiner.combine(result, chunkResult);
+            }
+            return result == null ? storageSupplier.get() : result;
+        } finally {
+            // no-op for futures that completed
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+            for (RandomAccessFile raf : openFiles) {
+                Closeables.close(raf, true);
+            }
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @param memberOffsets offsets where blocked gzip members start, followed by the file size
+     * @return offsets where chunks start, each at the start of a member, followed by the file size
+     */
+    private long[] splitMembers(long[] memberOffsets) {
+        final List<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(0L);
+        for (int i = 1; i + 1 < memberOffsets.length; i++) {
+            if (memberOffsets[i] - boundaries.get(boundaries.size() - 1) >= chunkSize) {
+                boundaries.add(memberOffsets[i]);
+            }
+        }
+        boundaries.add(memberOffsets[memberOffsets.length - 1]);
+        return toArray(boundaries);
+    }
+
+    /**
+     * @return offsets where chunks start, each just after a newline, followed by the file size
+     */
+    private long[] split(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final List<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(0L);
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = chunkSize;
+        while (position < size) {
+            final long lineStart = nextLineStart(channel, position, buffer);
+            if (lineStart >= size) {
+                break;
+            }
+            boundaries.add(lineStart);
+            position = lineStart + chunkSize;
+        }
+        boundaries.add(size);
+        return toArray(boundaries);
+    }
+
+    private static long[] toArray(List<Long> boundaries) {
+        final long[] ret = new long[boundaries.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = boundaries.get(i);
+        }
+        return ret;
+    }
+
+    /**
+     * @return the offset just after the first newline at or after position, or the file size if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+}
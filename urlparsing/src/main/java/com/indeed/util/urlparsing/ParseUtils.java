@@ -2,6 +2,7 @@ package com.indeed.util.urlparsing;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
@@ -44,7 +45,15 @@ public final class ParseUtils {
      */
     public static int parseUnsignedInt(CharSequence s, final int start, final int end) throws NumberFormatException {
         int ret = 0;
-        for (int i = start; i < end; i++) {
+        int i = start;
+        for (; end - i >= 8; i += 8) {
+            final long word = packEightChars(s, i);
+            if (!isEightDigits(word)) {
+                break;
+            }
+            ret = ret * 100000000 + parseEightDigits(word);
+        }
+        for (; i < end; i++) {
             final char c = s.charAt(i);
             if (c < '0' || c > '9') {
                 throw new NumberFormatException("Not a valid base-10 digit: " + c + " in " + s.subSequence(start, end));
@@ -79,7 +88,15 @@ public final class ParseUtils {
      */
     public static long parseUnsignedLong(CharSequence s, final int start, final int end) throws NumberFormatException {
         long ret = 0;
-        for (int i = start; i < end; i++) {
+        int i = start;
+        for (; end - i >= 8; i += 8) {
+            final long word = packEightChars(s, i);
+            if (!isEightDigits(word)) {
+                break;
+            }
+            ret = ret * 100000000 + parseEightDigits(word);
+        }
+        for (; i < end; i++) {
             final char c = s.charAt(i);
             if (c < '0' || c > '9') {
                 throw new NumberFormatException("Not a valid base-10 digit: " + c + " in " + s.subSequence(start, end));
@@ -90,199 +107,1246 @@ public final class ParseUtils {
         return ret;
     }
 
-    private static final char infinityChars[] = { 'I', 'n', 'f', 'i', 'n', 'i', 't', 'y' };
-    private static final char naNChars[] = { 'N', 'a', 'N' };
-
     /**
-     * Parses out a float value from the provided string, more specialized than Float.parseFloat(s.substring(start, end))
-     * but has significantly less overhead, no object creation and later garbage collection required
-     * Does not support parsing the strings "NaN", "Infinity","-Infinity" and HexFloatingPointLiterals
+     * Parses out a float value from the provided string, equivalent to Float.parseFloat(s.substring(start, end)),
+     * but has significantly less overhead, no object creation and later garbage collection required.
+     * Supports "NaN", "Infinity" and "-Infinity" but not HexFloatingPointLiterals. For compatibility, a missing mantissa
+     * such as in "e5" is parsed as 0.
      * @throws {@link NumberFormatException} if the input doesn't correspond to a float.
      */
     public static float parseFloat(String s, final int start, final int end) throws NumberFormatException {
-        int i = start;
-        final int sign;
-        if (s.charAt(i) == '-') {
-            // negative!
-            sign = -1;
-            i++;
-        } else {
-            sign = 1;
-        }
+        return parseFloat((CharSequence) s, start, end);
+    }
 
-        // keeping ret as a float causes problems, use a double for more precision
-        double ret = 0;
-        boolean decimalFound = false;
-        double mult = 1;
-        boolean isScientificNotation = false;
+    /**
+     * See {@link #parseFloat(String, int, int)}
+     */
+    public static float parseFloat(CharSequence s, final int start, final int end) throws NumberFormatException {
+        return (float) parseDecimal(s, start, end, true, null);
+    }
 
-        for (; i < end; i++) {
-            final char c = s.charAt(i);
+    /**
+     * Parses out a double value from the provided string, equivalent to Double.parseDouble(s.substring(start, end)),
+     * see {@link #parseFloat(String, int, int)}
+     * @throws {@link NumberFormatException} if the input doesn't correspond to a double.
+     */
+    public static double parseDouble(CharSequence s, final int start, final int end) throws NumberFormatException {
+        return parseDecimal(s, start, end, false, null);
+    }
 
-            if (c == 'E' || c == 'e') {
-                isScientificNotation = true;
-                break;
-            }
+    /**
+     * Collects the significant digits and the decimal exponent with {@link DecimalDigits}, which converts them with
+     * {@link EiselLemire}, rounding correctly without Math.pow() or arbitrary precision arithmetic.
+     *
+     * @param result null to throw NumberFormatException for invalid input, otherwise receives the value or the error
+     * @return the value, which is a float if toFloat is set
+     */
+    private static double parseDecimal(CharSequence s, final int start, final int end, final boolean toFloat, NumberParseResult result) {
+        final DecimalDigits digits = new DecimalDigits(result != null);
+        for (int i = start; i < end && digits.accept(s.charAt(i)); i++) {
+        }
+        final long bits = digits.toBits(toFloat);
+        if (bits == DecimalDigits.INVALID) {
+            return invalidDecimal(result, digits.getStatus(), s, start, end);
+        } else if (bits == EiselLemire.UNDECIDED) {
+            final String mantissa = s.subSequence(start, start + digits.getMantissaLength()).toString();
+            return validDecimal(result, DecimalDigits.fallback(mantissa, digits.getExplicitExponent(), toFloat));
+        }
+        return validDecimal(result, digits.toDecimal(bits, toFloat));
+    }
 
-            if (c == 'N' || c == 'I') {
-                final boolean isNanStart = (c == 'N');
-                final char[] charsToMatch = c == 'N' ? naNChars : infinityChars;
-                int j = 0;
-                while ( i < end && j < charsToMatch.length) {
-                    if (s.charAt(i) == charsToMatch[j]) {
-                        i++;
-                        j++;
-                    } else {
-                        throw new NumberFormatException("Unsupported format, unable to parse input string ");
-                    }
-                }
+    private static double validDecimal(NumberParseResult result, double value) {
+        if (result != null) {
+            result.setDouble(value);
+        }
+        return value;
+    }
 
-                if (i == end && j == charsToMatch.length) { //this means we matched either NaN or Infinity
-                     if (isNanStart) {
-                         return Float.NaN;
-                     } else if (sign == 1) {
-                         return Float.POSITIVE_INFINITY;
-                     }  else {
-                         return Float.NEGATIVE_INFINITY;
-                     }
-                }  else {
-                   throw new NumberFormatException("Unsupported format, unable to parse input string ");
-                }
+    private static double invalidDecimal(NumberParseResult result, NumberParseResult.Status status, CharSequence s, int start, int end) {
+        if (result == null) {
+            throw new NumberFormatException("Not a valid decimal number: " + s.subSequence(start, end));
+        }
+        result.setError(status);
+        return 0;
+    }
 
+    /**
+     * Parses out the timestamp portion of the uid Strings used in the logrepo
+     */
+    public static long parseTimestampFromUIDString(String s, final int start, final int end) {
+        long ret = 0;
+        for (int i = start; i < end && i < start + UID_TIMESTAMP_CHARS; i++) {
+            final int digit = uidDigit(s.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException(s.substring(start, end) + " is not a valid UID!");
             }
+            ret = (ret << 5) | digit;
+        }
+        return ret;
+    }
 
-            if (decimalFound) {
-                mult *= 10;
+    /**
+     * Like {@link #parseTimestampFromUIDString(String, int, int)}, but reports a malformed uid through result instead
+     * of throwing.
+     *
+     * @return true if a valid timestamp was parsed into result
+     */
+    public static boolean tryParseTimestampFromUIDString(CharSequence s, final int start, final int end, NumberParseResult result) {
+        if (start >= end) {
+            return result.setError(NumberParseResult.Status.EMPTY);
+        }
+        long ret = 0;
+        for (int i = start; i < end && i < start + UID_TIMESTAMP_CHARS; i++) {
+            final int digit = uidDigit(s.charAt(i));
+            if (digit < 0) {
+                return result.setError(NumberParseResult.Status.INVALID_CHAR);
             }
+            ret = (ret << 5) | digit;
+        }
+        return result.setLong(ret);
+    }
 
-            if (c >= '0' && c <= '9') {
-                final int val = c - '0';
-                ret = ret * 10 + val;
-            } else if (c == '.') {
-                decimalFound = true;
-            } else {
-                throw new NumberFormatException("Not a valid base-10 digit: " + c + " in " + s.substring(start, end));
-            }
+    // the timestamp is in the first 9 base 32 digits of a uid
+    private static final int UID_TIMESTAMP_CHARS = 9;
+
+    /**
+     * @return the value of a base 32 digit of a uid, or -1 if c is not one
+     */
+    private static int uidDigit(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'v') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'V') {
+            return c - 'A' + 10;
         }
+        return -1;
+    }
 
-        ret /= mult;
+    /**
+     * Parses out an int value from the provided UTF-8 bytes, equivalent to Integer.parseInt(new String(s, start, end - start)),
+     * but has significantly less overhead, no object creation and later garbage collection required.
+     *
+     * @throws {@link NumberFormatException} if it encounters any character that is not [-0-9].
+     */
+    public static int parseSignedInt(byte[] s, final int start, final int end) throws NumberFormatException {
+        if (s[start] == '-') {
+            // negative!
+            return -parseUnsignedInt(s, start + 1, end);
+        } else {
+            return  parseUnsignedInt(s, start, end);
+        }
+    }
 
-        if (isScientificNotation) {
-            int exponent = parseSignedInt(s, ++i, end);
-            ret *= Math.pow(10, exponent);
+    /**
+     * Parses out an int value from the provided UTF-8 bytes, equivalent to Integer.parseInt(new String(s, start, end - start)),
+     * but has significantly less overhead, no object creation and later garbage collection required.
+     *
+     * @throws {@link NumberFormatException} if it encounters any character that is not [0-9].
+     */
+    public static int parseUnsignedInt(byte[] s, final int start, final int end) throws NumberFormatException {
+        int ret = 0;
+        int i = start;
+        for (; end - i >= 8; i += 8) {
+            final long word = readEightBytes(s, i);
+            if (!isEightDigits(word)) {
+                break;
+            }
+            ret = ret * 100000000 + parseEightDigits(word);
+        }
+        for (; i < end; i++) {
+            final byte c = s[i];
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a valid base-10 digit: " + (char)(c & 0xFF) + " in " + asciiString(s, start, end));
+            }
+            final int val = c - '0';
+            ret = ret * 10 + val;
         }
+        return ret;
+    }
 
-        return (float)(ret * sign);
+    /**
+     * Parses out a long value from the provided UTF-8 bytes, equivalent to Long.parseLong(new String(s, start, end - start)),
+     * but has significantly less overhead, no object creation and later garbage collection required
+     *
+     * @throws {@link NumberFormatException} if it encounters any character that is not [-0-9].
+     */
+    public static long parseSignedLong(byte[] s, final int start, final int end) throws NumberFormatException {
+        if (s[start] == '-') {
+            // negative!
+            return -parseUnsignedLong(s, start + 1, end);
+        } else {
+            return  parseUnsignedLong(s, start, end);
+        }
     }
+
     /**
-     * Parses out the timestamp portion of the uid Strings used in the logrepo
+     * Parses out a long value from the provided UTF-8 bytes, equivalent to Long.parseLong(new String(s, start, end - start)),
+     * but has significantly less overhead, no object creation and later garbage collection required
+     *
+     * @throws {@link NumberFormatException} if it encounters any character that is not [0-9].
      */
-    public static long parseTimestampFromUIDString(String s, final int start, final int end) {
+    public static long parseUnsignedLong(byte[] s, final int start, final int end) throws NumberFormatException {
         long ret = 0;
-        for (int i = start; i < end && i < start + 9; i++) {
-            ret <<= 5;
-            char c = s.charAt(i);
-            if (c >= '0' && c <= '9') {
-                ret |= c - '0';
-            } else if (c >= 'a' && c <= 'v') {
-                ret |= c - 'a' + 10;
-            } else if (c >= 'A' && c <= 'V') {
-                ret |= c - 'A' + 10;
-            } else {
-                throw new IllegalArgumentException(s.substring(start, end) + " is not a valid UID!");
+        int i = start;
+        for (; end - i >= 8; i += 8) {
+            final long word = readEightBytes(s, i);
+            if (!isEightDigits(word)) {
+                break;
+            }
+            ret = ret * 100000000 + parseEightDigits(word);
+        }
+        for (; i < end; i++) {
+            final byte c = s[i];
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a valid base-10 digit: " + (char)(c & 0xFF) + " in " + asciiString(s, start, end));
             }
+            final int val = c - '0';
+            ret = ret * 10 + val;
         }
         return ret;
     }
 
-   /* URL decode @param input in place
-      The original encoded form will be replaced by the decoded form in the input
-    */
-    public static void urlDecodeInplace(StringBuilder input) {
-        urlDecodeInto(input, 0, input.length(), input, true);
+    /**
+     * Parses out a float value from the provided UTF-8 bytes, see {@link #parseFloat(String, int, int)}
+     * @throws {@link NumberFormatException} if the input doesn't correspond to a float.
+     */
+    public static float parseFloat(byte[] s, final int start, final int end) throws NumberFormatException {
+        return (float) parseDecimal(s, start, end, true, null);
     }
 
-    /* URL decode CharSequence @param input into result given start and end offsets
-       Assumes UTF-8 encoding
-       Avoids creating intermediate String objects unlike UrlDecoder in java.
+    /**
+     * Parses out a double value from the provided UTF-8 bytes, see {@link #parseDouble(CharSequence, int, int)}
+     * @throws {@link NumberFormatException} if the input doesn't correspond to a double.
      */
-    public static void urlDecodeInto(CharSequence input, int start, int end, StringBuilder result) {
-        urlDecodeInto(input, start, end, result, false);
+    public static double parseDouble(byte[] s, final int start, final int end) throws NumberFormatException {
+        return parseDecimal(s, start, end, false, null);
     }
 
+    // see parseDecimal(CharSequence, int, int, boolean, NumberParseResult)
+    private static double parseDecimal(byte[] s, final int start, final int end, final boolean toFloat, NumberParseResult result) {
+        final DecimalDigits digits = new DecimalDigits(result != null);
+        for (int i = start; i < end && digits.accept(s[i] & 0xFF); i++) {
+        }
+        final long bits = digits.toBits(toFloat);
+        if (bits == DecimalDigits.INVALID) {
+            return invalidDecimal(result, digits.getStatus(), s, start, end);
+        } else if (bits == EiselLemire.UNDECIDED) {
+            final String mantissa = asciiString(s, start, start + digits.getMantissaLength());
+            return validDecimal(result, DecimalDigits.fallback(mantissa, digits.getExplicitExponent(), toFloat));
+        }
+        return validDecimal(result, digits.toDecimal(bits, toFloat));
+    }
 
+    private static double invalidDecimal(NumberParseResult result, NumberParseResult.Status status, byte[] s, int start, int end) {
+        if (result == null) {
+            throw new NumberFormatException("Not a valid decimal number: " + asciiString(s, start, end));
+        }
+        result.setError(status);
+        return 0;
+    }
 
-    private static void urlDecodeInto(CharSequence input, int start, int end, StringBuilder result, boolean inplace) {
-        int writeHead = start;
-        for (int i = start; i < end; i++) {
-            char c = input.charAt(i);
-            if (c == '%' && i + 2 < end) {
-                char val = decodeHexPair(input.charAt(i+1), input.charAt(i+2));
-                if ((val&0xE0) == 0xC0) {
-                    if (i + 5 < end && input.charAt(i+3) == '%') {
-                        char val2 = decodeHexPair(input.charAt(i+4), input.charAt(i+5));
-                        if (val2 != INVALID_HEX && (val2&0xC0) == 0x80) {
-                            // zimmerm%C3%A4dchen
-                            c = (char)(((val&0x1F)<<6)|(val2&0x3F));
-                            i += 5;
-                        }
-                    }
-                } else if ((val&0xF0) == 0xE0) {
-                    if (i + 8 < end && input.charAt(i+3) == '%' && input.charAt(i+6) == '%') {
-                        char val2 = decodeHexPair(input.charAt(i+4), input.charAt(i+5));
-                        char val3 = decodeHexPair(input.charAt(i+7), input.charAt(i+8));
-                        if (val2 != INVALID_HEX && val3 != INVALID_HEX && (val2&0xC0) == 0x80 && (val3&0xC0) == 0x80) {
-                            // Technologist+%E2%80%93+Full+Time
-                            c = (char)(((val&0x0F)<<12)|((val2&0x3F)<<6)|(val3&0x3F));
-                            i += 8;
-                        }
-                    }
-                } else if ((val&0xF8) == 0xF0) {
-                    //these are code points > 0XFFFF, they need a surrogate pair to represent them
-                    if (i + 11 < end && input.charAt(i + 3) == '%' && input.charAt(i + 6) == '%' && input.charAt(i + 9) == '%') {
-                        char val2 = decodeHexPair(input.charAt(i + 4), input.charAt(i + 5));
-                        char val3 = decodeHexPair(input.charAt(i + 7), input.charAt(i + 8));
-                        char val4 = decodeHexPair(input.charAt(i + 10), input.charAt(i + 11));
-                        if (val2 != INVALID_HEX && val3 != INVALID_HEX && val4 != INVALID_HEX
-                                && (val2 & 0xC0) == 0x80 && (val3 & 0xC0) == 0x80 && (val4 & 0xC0) == 0x80) {
-                            final int codePoint =
-                                    (((val & 0x0F) << 15)
-                                            | ((val2 & 0x3F) << 12)
-                                            | ((val3 & 0x3F) << 6)
-                                            | (val4 & 0x3F));
-                            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
-                                c = (char) codePoint;
-                            } else {
-                                final int offset = codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT;
-                                final char highChar = (char) ((offset >>> 10) + Character.MIN_HIGH_SURROGATE);
-                                final char lowChar = (char) ((offset & 0x3ff) + Character.MIN_LOW_SURROGATE);
-                                if (!inplace) {
-                                    result.append(highChar);
-                                } else {
-                                    result.setCharAt(writeHead++, highChar);
-                                }
-                                c = lowChar; // let normal machinery take over here
-                            }
-                            i += 11;
-                        }
-                    }
-                } else if (val != INVALID_HEX) {
-                    c = val;
-                    i += 2;
-                }
-            } else if (c == '+') {
-                c = ' ';
+    /**
+     * Parses out the timestamp portion of the uid from the provided UTF-8 bytes, see {@link #parseTimestampFromUIDString(String, int, int)}
+     */
+    public static long parseTimestampFromUIDString(byte[] s, final int start, final int end) {
+        long ret = 0;
+        for (int i = start; i < end && i < start + UID_TIMESTAMP_CHARS; i++) {
+            final int digit = uidDigit(s[i]);
+            if (digit < 0) {
+                throw new IllegalArgumentException(asciiString(s, start, end) + " is not a valid UID!");
             }
+            ret = (ret << 5) | digit;
+        }
+        return ret;
+    }
 
-            if (!inplace) {
-                result.append(c);
-            } else {
-                result.setCharAt(writeHead++, c);
+    /**
+     * Like {@link #parseTimestampFromUIDString(byte[], int, int)}, but reports a malformed uid through result instead
+     * of throwing.
+     *
+     * @return true if a valid timestamp was parsed into result
+     */
+    public static boolean tryParseTimestampFromUIDString(byte[] s, final int start, final int end, NumberParseResult result) {
+        if (start >= end) {
+            return result.setError(NumberParseResult.Status.EMPTY);
+        }
+        long ret = 0;
+        for (int i = start; i < end && i < start + UID_TIMESTAMP_CHARS; i++) {
+            final int digit = uidDigit(s[i]);
+            if (digit < 0) {
+                return result.setError(NumberParseResult.Status.INVALID_CHAR);
             }
+            ret = (ret << 5) | digit;
         }
-        if (inplace) {
-            result.delete(writeHead, end);
+        return result.setLong(ret);
+    }
+
+    /**
+     * Like {@link #parseSignedInt(CharSequence, int, int)}, but reports malformed input through result instead of
+     * throwing, and detects values that do not fit in an int instead of silently wrapping around.
+     *
+     * @return true if a valid int was parsed into result, otherwise result holds the first problem found
+     */
+    public static boolean tryParseSignedInt(CharSequence s, final int start, final int end, NumberParseResult result) {
+        if (start < end && s.charAt(start) == '-') {
+            return tryParseDigits(s, start + 1, end, true, Integer.MIN_VALUE, result);
+        }
+        return tryParseDigits(s, start, end, false, -Integer.MAX_VALUE, result);
+    }
+
+    /**
+     * Like {@link #parseUnsignedInt(CharSequence, int, int)}, but reports malformed input and overflow through result
+     * instead of throwing or wrapping around.
+     *
+     * @return true if a valid int was parsed into result
+     */
+    public static boolean tryParseUnsignedInt(CharSequence s, final int start, final int end, NumberParseResult result) {
+        return tryParseDigits(s, start, end, false, -Integer.MAX_VALUE, result);
+    }
+
+    /**
+     * Like {@link #parseSignedLong(CharSequence, int, int)}, but reports malformed input and overflow through result
+     * instead of throwing or wrapping around.
+     *
+     * @return true if a valid long was parsed into result
+     */
+    public static boolean tryParseSignedLong(CharSequence s, final int start, final int end, NumberParseResult result) {
+        if (start < end && s.charAt(start) == '-') {
+            return tryParseDigits(s, start + 1, end, true, Long.MIN_VALUE, result);
+        }
+        return tryParseDigits(s, start, end, false, -Long.MAX_VALUE, result);
+    }
+
+    /**
+     * Like {@link #parseUnsignedLong(CharSequence, int, int)}, but reports malformed input and overflow through result
+     * instead of throwing or wrapping around.
+     *
+     * @return true if a valid long was parsed into result
+     */
+    public static boolean tryParseUnsignedLong(CharSequence s, final int start, final int end, NumberParseResult result) {
+        return tryParseDigits(s, start, end, false, -Long.MAX_VALUE, result);
+    }
+
+    // limit is the most negative allowed value, see appendDigit()
+    private static boolean tryParseDigits(CharSequence s, final int start, final int end, final boolean negative, final long limit, NumberParseResult result) {
+        if (start >= end) {
+            return result.setError(NumberParseResult.Status.EMPTY);
+        }
+        if (end - start <= maxSafeDigits(limit)) {
+            return safeDigitsResult(parseSafeDigits(s, start, end), negative, result);
+        }
+        long ret = 0;
+        for (int i = start; i < end && ret <= 0; i++) {
+            ret = appendDigit(ret, s.charAt(i), limit);
+        }
+        return digitsResult(ret, negative, result);
+    }
+
+    /**
+     * Like {@link #parseFloat(CharSequence, int, int)}, but reports malformed input through result instead of throwing.
+     * A missing mantissa is reported as an error rather than parsed as 0.
+     *
+     * @return true if a valid float was parsed into result
+     */
+    public static boolean tryParseFloat(CharSequence s, final int start, final int end, NumberParseResult result) {
+        parseDecimal(s, start, end, true, result);
+        return result.isValid();
+    }
+
+    /**
+     * Like {@link #parseDouble(CharSequence, int, int)}, but reports malformed input through result instead of throwing.
+     *
+     * @return true if a valid double was parsed into result
+     */
+    public static boolean tryParseDouble(CharSequence s, final int start, final int end, NumberParseResult result) {
+        parseDecimal(s, start, end, false, result);
+        return result.isValid();
+    }
+
+    /**
+     * Like {@link #parseSignedInt(byte[], int, int)}, but reports malformed input and overflow through result instead
+     * of throwing or wrapping around.
+     *
+     * @return true if a valid int was parsed into result
+     */
+    public static boolean tryParseSignedInt(byte[] s, final int start, final int end, NumberParseResult result) {
+        if (start < end && s[start] == '-') {
+            return tryParseDigits(s, start + 1, end, true, Integer.MIN_VALUE, result);
+        }
+        return tryParseDigits(s, start, end, false, -Integer.MAX_VALUE, result);
+    }
+
+    /**
+     * Like {@link #parseUnsignedInt(byte[], int, int)}, but reports malformed input and overflow through result
+     * instead of throwing or wrapping around.
+     *
+     * @return true if a valid int was parsed into result
+     */
+    public static boolean tryParseUnsignedInt(byte[] s, final int start, final int end, NumberParseResult result) {
+        return tryParseDigits(s, start, end, false, -Integer.MAX_VALUE, result);
+    }
+
+    /**
+     * Like {@link #parseSignedLong(byte[], int, int)}, but reports malformed input and overflow through result instead
+     * of throwing or wrapping around.
+     *
+     * @return true if a valid long was parsed into result
+     */
+    public static boolean tryParseSignedLong(byte[] s, final int start, final int end, NumberParseResult result) {
+        if (start < end && s[start] == '-') {
+            return tryParseDigits(s, start + 1, end, true, Long.MIN_VALUE, result);
+        }
+        return tryParseDigits(s, start, end, false, -Long.MAX_VALUE, result);
+    }
+
+    /**
+     * Like {@link #parseUnsignedLong(byte[], int, int)}, but reports malformed input and overflow through result
+     * instead of throwing or wrapping around.
+     *
+     * @return true if a valid long was parsed into result
+     */
+    public static boolean tryParseUnsignedLong(byte[] s, final int start, final int end, NumberParseResult result) {
+        return tryParseDigits(s, start, end, false, -Long.MAX_VALUE, result);
+    }
+
+    private static boolean tryParseDigits(byte[] s, final int start, final int end, final boolean negative, final long limit, NumberParseResult result) {
+        if (start >= end) {
+            return result.setError(NumberParseResult.Status.EMPTY);
+        }
+        if (end - start <= maxSafeDigits(limit)) {
+            return safeDigitsResult(parseSafeDigits(s, start, end), negative, result);
+        }
+        long ret = 0;
+        for (int i = start; i < end && ret <= 0; i++) {
+            ret = appendDigit(ret, s[i], limit);
+        }
+        return digitsResult(ret, negative, result);
+    }
+
+    /**
+     * Like {@link #parseFloat(byte[], int, int)}, but reports malformed input through result instead of throwing.
+     *
+     * @return true if a valid float was parsed into result
+     */
+    public static boolean tryParseFloat(byte[] s, final int start, final int end, NumberParseResult result) {
+        parseDecimal(s, start, end, true, result);
+        return result.isValid();
+    }
+
+    /**
+     * Like {@link #parseDouble(byte[], int, int)}, but reports malformed input through result instead of throwing.
+     *
+     * @return true if a valid double was parsed into result
+     */
+    public static boolean tryParseDouble(byte[] s, final int start, final int end, NumberParseResult result) {
+        parseDecimal(s, start, end, false, result);
+        return result.isValid();
+    }
+
+    /**
+     * Parses out an int value from the bytes of a buffer between the absolute indexes start and end, see
+     * {@link #parseSignedInt(byte[], int, int)}. Works for direct and mapped buffers, the position is not changed.
+     *
+     * @throws {@link NumberFormatException} if it encounters any character that is not [-0-9].
+     */
+    public static int parseSignedInt(ByteBuffer s, final int start, final int end) throws NumberFormatException {
+        if (s.get(start) == '-') {
+            return -parseUnsignedInt(s, start + 1, end);
+        } else {
+            return parseUnsignedInt(s, start, end);
+        }
+    }
+
+    /**
+     * See {@link #parseSignedInt(ByteBuffer, int, int)}
+     *
+     * @throws {@link NumberFormatException} if it encounters any character that is not [0-9].
+     */
+    public static int parseUnsignedInt(ByteBuffer s, final int start, final int end) throws NumberFormatException {
+        return (int) parseUnsignedLong(s, start, end);
+    }
+
+    /**
+     * See {@link #parseSignedInt(ByteBuffer, int, int)}
+     *
+     * @throws {@link NumberFormatException} if it encounters any character that is not [-0-9].
+     */
+    public static long parseSignedLong(ByteBuffer s, final int start, final int end) throws NumberFormatException {
+        if (s.get(start) == '-') {
+            return -parseUnsignedLong(s, start + 1, end);
+        } else {
+            return parseUnsignedLong(s, start, end);
+        }
+    }
+
+    /**
+     * See {@link #parseSignedInt(ByteBuffer, int, int)}
+     *
+     * @throws {@link NumberFormatException} if it encounters any character that is not [0-9].
+     */
+    public static long parseUnsignedLong(ByteBuffer s, final int start, final int end) throws NumberFormatException {
+        long ret = 0;
+        int i = start;
+        for (; end - i >= 8; i += 8) {
+            final long word = readEightBytes(s, i);
+            if (!isEightDigits(word)) {
+                break;
+            }
+            ret = ret * 100000000 + parseEightDigits(word);
+        }
+        for (; i < end; i++) {
+            final byte c = s.get(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a valid base-10 digit: " + (char)(c & 0xFF) + " in " + asciiString(s, start, end));
+            }
+            ret = ret * 10 + (c - '0');
+        }
+        return ret;
+    }
+
+    /**
+     * Parses out a float value from the bytes of a buffer between the absolute indexes start and end, see
+     * {@link #parseFloat(byte[], int, int)}
+     * @throws {@link NumberFormatException} if the input doesn't correspond to a float.
+     */
+    public static float parseFloat(ByteBuffer s, final int start, final int end) throws NumberFormatException {
+        return (float) parseDecimal(s, start, end, true, null);
+    }
+
+    /**
+     * See {@link #parseFloat(ByteBuffer, int, int)}
+     * @throws {@link NumberFormatException} if the input doesn't correspond to a double.
+     */
+    public static double parseDouble(ByteBuffer s, final int start, final int end) throws NumberFormatException {
+        return parseDecimal(s, start, end, false, null);
+    }
+
+    // see parseDecimal(CharSequence, int, int, boolean, NumberParseResult)
+    private static double parseDecimal(ByteBuffer s, final int start, final int end, final boolean toFloat, NumberParseResult result) {
+        final DecimalDigits digits = new DecimalDigits(result != null);
+        for (int i = start; i < end && digits.accept(s.get(i) & 0xFF); i++) {
+        }
+        final long bits = digits.toBits(toFloat);
+        if (bits == DecimalDigits.INVALID) {
+            return invalidDecimal(result, digits.getStatus(), s, start, end);
+        } else if (bits == EiselLemire.UNDECIDED) {
+            final String mantissa = asciiString(s, start, start + digits.getMantissaLength());
+            return validDecimal(result, DecimalDigits.fallback(mantissa, digits.getExplicitExponent(), toFloat));
+        }
+        return validDecimal(result, digits.toDecimal(bits, toFloat));
+    }
+
+    private static double invalidDecimal(NumberParseResult result, NumberParseResult.Status status, ByteBuffer s, int start, int end) {
+        if (result == null) {
+            throw new NumberFormatException("Not a valid decimal number: " + asciiString(s, start, end));
+        }
+        result.setError(status);
+        return 0;
+    }
+
+    /**
+     * See {@link #parseTimestampFromUIDString(String, int, int)}
+     */
+    public static long parseTimestampFromUIDString(ByteBuffer s, final int start, final int end) {
+        long ret = 0;
+        for (int i = start; i < end && i < start + UID_TIMESTAMP_CHARS; i++) {
+            final int digit = uidDigit(s.get(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException(asciiString(s, start, end) + " is not a valid UID!");
+            }
+            ret = (ret << 5) | digit;
+        }
+        return ret;
+    }
+
+    /**
+     * See {@link #tryParseTimestampFromUIDString(byte[], int, int, NumberParseResult)}
+     */
+    public static boolean tryParseTimestampFromUIDString(ByteBuffer s, final int start, final int end, NumberParseResult result) {
+        if (start >= end) {
+            return result.setError(NumberParseResult.Status.EMPTY);
+        }
+        long ret = 0;
+        for (int i = start; i < end && i < start + UID_TIMESTAMP_CHARS; i++) {
+            final int digit = uidDigit(s.get(i));
+            if (digit < 0) {
+                return result.setError(NumberParseResult.Status.INVALID_CHAR);
+            }
+            ret = (ret << 5) | digit;
+        }
+        return result.setLong(ret);
+    }
+
+    /**
+     * See {@link #tryParseSignedInt(byte[], int, int, NumberParseResult)}
+     */
+    public static boolean tryParseSignedInt(ByteBuffer s, final int start, final int end, NumberParseResult result) {
+        if (start < end && s.get(start) == '-') {
+            return tryParseDigits(s, start + 1, end, true, Integer.MIN_VALUE, result);
+        }
+        return tryParseDigits(s, start, end, false, -Integer.MAX_VALUE, result);
+    }
+
+    /**
+     * See {@link #tryParseUnsignedInt(byte[], int, int, NumberParseResult)}
+     */
+    public static boolean tryParseUnsignedInt(ByteBuffer s, final int start, final int end, NumberParseResult result) {
+        return tryParseDigits(s, start, end, false, -Integer.MAX_VALUE, result);
+    }
+
+    /**
+     * See {@link #tryParseSignedLong(byte[], int, int, NumberParseResult)}
+     */
+    public static boolean tryParseSignedLong(ByteBuffer s, final int start, final int end, NumberParseResult result) {
+        if (start < end && s.get(start) == '-') {
+            return tryParseDigits(s, start + 1, end, true, Long.MIN_VALUE, result);
+        }
+        return tryParseDigits(s, start, end, false, -Long.MAX_VALUE, result);
+    }
+
+    /**
+     * See {@link #tryParseUnsignedLong(byte[], int, int, NumberParseResult)}
+     */
+    public static boolean tryParseUnsignedLong(ByteBuffer s, final int start, final int end, NumberParseResult result) {
+        return tryParseDigits(s, start, end, false, -Long.MAX_VALUE, result);
+    }
+
+    private static boolean tryParseDigits(ByteBuffer s, final int start, final int end, final boolean negative, final long limit, NumberParseResult result) {
+        if (start >= end) {
+            return result.setError(NumberParseResult.Status.EMPTY);
+        }
+        if (end - start <= maxSafeDigits(limit)) {
+            return safeDigitsResult(parseSafeDigits(s, start, end), negative, result);
+        }
+        long ret = 0;
+        for (int i = start; i < end && ret <= 0; i++) {
+            ret = appendDigit(ret, s.get(i), limit);
+        }
+        return digitsResult(ret, negative, result);
+    }
+
+    /**
+     * See {@link #tryParseFloat(byte[], int, int, NumberParseResult)}
+     */
+    public static boolean tryParseFloat(ByteBuffer s, final int start, final int end, NumberParseResult result) {
+        parseDecimal(s, start, end, true, result);
+        return result.isValid();
+    }
+
+    /**
+     * See {@link #tryParseDouble(byte[], int, int, NumberParseResult)}
+     */
+    public static boolean tryParseDouble(ByteBuffer s, final int start, final int end, NumberParseResult result) {
+        parseDecimal(s, start, end, false, result);
+        return result.isValid();
+    }
+
+    // numbers with at most this many digits can't overflow
+    private static final int MAX_SAFE_INT_DIGITS = 9;
+    private static final int MAX_SAFE_LONG_DIGITS = 18;
+
+    // error codes returned instead of the (never positive) accumulated value
+    private static final long DIGITS_INVALID_CHAR = 1;
+    private static final long DIGITS_OVERFLOW = 2;
+
+    private static int maxSafeDigits(long limit) {
+        return limit < Integer.MIN_VALUE ? MAX_SAFE_LONG_DIGITS : MAX_SAFE_INT_DIGITS;
+    }
+
+    /**
+     * Accumulates negatively like Long.parseLong() so that the magnitude of MIN_VALUE fits.
+     *
+     * @return ret * 10 - the digit c, or DIGITS_INVALID_CHAR or DIGITS_OVERFLOW if that is not a number above limit
+     */
+    private static long appendDigit(long ret, int c, long limit) {
+        final int val = c - '0';
+        if (val < 0 || val > 9) {
+            return DIGITS_INVALID_CHAR;
+        }
+        if (ret < limit / 10) {
+            return DIGITS_OVERFLOW;
+        }
+        ret *= 10;
+        if (ret < limit + val) {
+            return DIGITS_OVERFLOW;
+        }
+        return ret - val;
+    }
+
+    private static boolean digitsResult(long ret, boolean negative, NumberParseResult result) {
+        if (ret == DIGITS_INVALID_CHAR) {
+            return result.setError(NumberParseResult.Status.INVALID_CHAR);
+        } else if (ret == DIGITS_OVERFLOW) {
+            return result.setError(NumberParseResult.Status.OVERFLOW);
+        }
+        return result.setLong(negative ? ret : -ret);
+    }
+
+    private static boolean safeDigitsResult(long value, boolean negative, NumberParseResult result) {
+        if (value < 0) {
+            return result.setError(NumberParseResult.Status.INVALID_CHAR);
+        }
+        return result.setLong(negative ? -value : value);
+    }
+
+    /**
+     * @return the value of the digits, or -1 if there is a char that is not a digit. Only for up to MAX_SAFE_LONG_DIGITS digits.
+     */
+    private static long parseSafeDigits(CharSequence s, final int start, final int end) {
+        long ret = 0;
+        int i = start;
+        for (; end - i >= 8 && ret >= 0; i += 8) {
+            ret = appendEightDigits(ret, packEightChars(s, i));
+        }
+        for (; i < end && ret >= 0; i++) {
+            ret = appendSafeDigit(ret, s.charAt(i));
+        }
+        return ret;
+    }
+
+    private static long parseSafeDigits(byte[] s, final int start, final int end) {
+        long ret = 0;
+        int i = start;
+        for (; end - i >= 8 && ret >= 0; i += 8) {
+            ret = appendEightDigits(ret, readEightBytes(s, i));
+        }
+        for (; i < end && ret >= 0; i++) {
+            ret = appendSafeDigit(ret, s[i]);
+        }
+        return ret;
+    }
+
+    private static long parseSafeDigits(ByteBuffer s, final int start, final int end) {
+        long ret = 0;
+        int i = start;
+        for (; end - i >= 8 && ret >= 0; i += 8) {
+            ret = appendEightDigits(ret, readEightBytes(s, i));
+        }
+        for (; i < end && ret >= 0; i++) {
+            ret = appendSafeDigit(ret, s.get(i));
+        }
+        return ret;
+    }
+
+    // ret * 10 plus the digit c, or -1 if c is not a digit
+    private static long appendSafeDigit(long ret, int c) {
+        final int val = c - '0';
+        return val < 0 || val > 9 ? -1 : ret * 10 + val;
+    }
+
+    private static long appendEightDigits(long ret, long word) {
+        return isEightDigits(word) ? ret * 100000000 + parseEightDigits(word) : -1;
+    }
+
+    /*
+     * SWAR (SIMD within a register) digit parsing: 8 ASCII chars are packed into a long with the first char in the
+     * lowest byte, then checked and converted with a few word sized operations instead of a branch per digit.
+     */
+
+    private static long readEightBytes(byte[] s, final int i) {
+        return (s[i] & 0xFFL)
+                | (s[i + 1] & 0xFFL) << 8
+                | (s[i + 2] & 0xFFL) << 16
+                | (s[i + 3] & 0xFFL) << 24
+                | (s[i + 4] & 0xFFL) << 32
+                | (s[i + 5] & 0xFFL) << 40
+                | (s[i + 6] & 0xFFL) << 48
+                | (s[i + 7] & 0xFFL) << 56;
+    }
+
+    // one bounds check and an unaligned load instead of eight, in either byte order
+    private static long readEightBytes(ByteBuffer s, final int i) {
+        final long word = s.getLong(i);
+        return s.order() == ByteOrder.LITTLE_ENDIAN ? word : Long.reverseBytes(word);
+    }
+
+    // chars above 0xFF can't be digits, they make the whole word invalid
+    private static long packEightChars(CharSequence s, final int i) {
+        final char c0 = s.charAt(i);
+        final char c1 = s.charAt(i + 1);
+        final char c2 = s.charAt(i + 2);
+        final char c3 = s.charAt(i + 3);
+        final char c4 = s.charAt(i + 4);
+        final char c5 = s.charAt(i + 5);
+        final char c6 = s.charAt(i + 6);
+        final char c7 = s.charAt(i + 7);
+        if ((c0 | c1 | c2 | c3 | c4 | c5 | c6 | c7) > 0xFF) {
+            return -1;
+        }
+        return c0
+                | (long) c1 << 8
+                | (long) c2 << 16
+                | (long) c3 << 24
+                | (long) c4 << 32
+                | (long) c5 << 40
+                | (long) c6 << 48
+                | (long) c7 << 56;
+    }
+
+    // every byte is in '0' - '9' if the high nibble is 3, and still is 3 after adding 6 to the low nibble
+    private static boolean isEightDigits(long word) {
+        return ((word & 0xF0F0F0F0F0F0F0F0L) | (((word + 0x0606060606060606L) & 0xF0F0F0F0F0F0F0F0L) >>> 4)) == 0x3333333333333333L;
+    }
+
+    // combines adjacent digits pairwise: 8 digits -> 4 two digit numbers -> 2 four digit numbers -> 1 eight digit number
+    private static int parseEightDigits(long word) {
+        long val = word - 0x3030303030303030L;
+        val = (val * 10 + (val >>> 8)) & 0x00FF00FF00FF00FFL;
+        val = (val * 100 + (val >>> 16)) & 0x0000FFFF0000FFFFL;
+        return (int) ((val * 10000 + (val >>> 32)) & 0xFFFFFFFFL);
+    }
+
+    // only used to build exception messages
+    private static String asciiString(byte[] s, int start, int end) {
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append((char)(s[i] & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    private static String asciiString(ByteBuffer s, int start, int end) {
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append((char)(s.get(i) & 0xFF));
+        }
+        return sb.toString();
+    }
+
+   /* URL decode @param input in place
+      The original encoded form will be replaced by the decoded form in the input
+    */
+    public static void urlDecodeInplace(StringBuilder input) {
+        if (needsUrlDecoding(input, 0, input.length())) {
+            urlDecodeInto(input, 0, input.length(), input, true);
+        }
+    }
+
+    /* URL decode CharSequence @param input into result given start and end offsets
+       Assumes UTF-8 encoding
+       Avoids creating intermediate String objects unlike UrlDecoder in java.
+     */
+    public static void urlDecodeInto(CharSequence input, int start, int end, StringBuilder result) {
+        if (needsUrlDecoding(input, start, end)) {
+            urlDecodeInto(input, start, end, result, false);
+        } else {
+            result.append(input, start, end);
+        }
+    }
+
+    /**
+     * URL decodes input between start and end into a new String, see
+     * {@link #urlDecodeInto(CharSequence, int, int, StringBuilder)}. Values without escapes are only copied once.
+     */
+    public static String urlDecode(CharSequence input, int start, int end) {
+        if (!needsUrlDecoding(input, start, end)) {
+            return input.subSequence(start, end).toString();
+        }
+        final char[] decoded = new char[end - start];
+        return new String(decoded, 0, urlDecodeInto(input, start, end, decoded, 0));
+    }
+
+    /**
+     * @return true if input contains a '%' or '+' between start and end. Otherwise url decoding returns the input
+     * unchanged and callers can use the original range as is.
+     */
+    public static boolean needsUrlDecoding(CharSequence input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final char c = input.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * URL decodes input into dest, see {@link #urlDecodeInto(CharSequence, int, int, StringBuilder)}. The decoded
+     * form is never longer than the input, so dest needs room for end - start chars after destOffset.
+     *
+     * @return the number of chars written to dest
+     */
+    public static int urlDecodeInto(CharSequence input, int start, int end, char[] dest, int destOffset) {
+        int writeHead = destOffset;
+        int i = start;
+        while (i < end) {
+            final char c = input.charAt(i);
+            if (c != '%' && c != '+') {
+                dest[writeHead++] = c;
+                i++;
+                continue;
+            }
+            final long decoded = decodeCodePointAt(input, i, end);
+            final int codePoint = (int) decoded;
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                dest[writeHead++] = (char) codePoint;
+            } else {
+                writeHead += Character.toChars(codePoint, dest, writeHead);
+            }
+            i += (int) (decoded >>> 32);
+        }
+        return writeHead - destOffset;
+    }
+
+    private static void urlDecodeInto(CharSequence input, int start, int end, StringBuilder result, boolean inplace) {
+        int writeHead = start;
+        int i = start;
+        while (i < end) {
+            char c = input.charAt(i);
+            if (c != '%' && c != '+') {
+                i++;
+            } else {
+                final long decoded = decodeCodePointAt(input, i, end);
+                final int codePoint = (int) decoded;
+                i += (int) (decoded >>> 32);
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    c = (char) codePoint;
+                } else {
+                    // code points > 0XFFFF need a surrogate pair to represent them
+                    final int offset = codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT;
+                    final char highChar = (char) ((offset >>> 10) + Character.MIN_HIGH_SURROGATE);
+                    if (!inplace) {
+                        result.append(highChar);
+                    } else {
+                        result.setCharAt(writeHead++, highChar);
+                    }
+                    c = (char) ((offset & 0x3ff) + Character.MIN_LOW_SURROGATE); // let normal machinery take over here
+                }
+            }
+
+            if (!inplace) {
+                result.append(c);
+            } else {
+                result.setCharAt(writeHead++, c);
+            }
+        }
+        if (inplace) {
+            result.delete(writeHead, end);
+        }
+    }
+
+    /*
+     Decodes the '%' or '+' at index i of a url encoded input.
+     Returns the code point in the low 32 bits and the number of input chars consumed in the high 32 bits.
+     Percent encoded UTF-8 sequences are combined into one code point, e.g. zimmerm%C3%A4dchen or Technologist+%E2%80%93+Full+Time.
+     A lone escaped byte that can't start a sequence is taken as a latin-1 char, a malformed escape or sequence leaves the '%' as-is.
+     */
+    private static long decodeCodePointAt(CharSequence input, int i, int end) {
+        if (input.charAt(i) == '+') {
+            return (1L << 32) | ' ';
+        }
+        if (i + 2 >= end) {
+            return (1L << 32) | '%';
+        }
+        final char val = decodeHexPair(input.charAt(i + 1), input.charAt(i + 2));
+        final int continuationBytes;
+        int codePoint;
+        if (val == INVALID_HEX) {
+            return (1L << 32) | '%';
+        } else if ((val & 0xE0) == 0xC0) {
+            continuationBytes = 1;
+            codePoint = val & 0x1F;
+        } else if ((val & 0xF0) == 0xE0) {
+            continuationBytes = 2;
+            codePoint = val & 0x0F;
+        } else if ((val & 0xF8) == 0xF0) {
+            continuationBytes = 3;
+            codePoint = val & 0x07;
+        } else {
+            return (3L << 32) | val;
+        }
+        int next = i + 3;
+        for (int k = 0; k < continuationBytes; k++) {
+            if (next + 2 >= end || input.charAt(next) != '%') {
+                return (1L << 32) | '%';
+            }
+            final char cont = decodeHexPair(input.charAt(next + 1), input.charAt(next + 2));
+            if (cont == INVALID_HEX || (cont & 0xC0) != 0x80) {
+                return (1L << 32) | '%';
+            }
+            codePoint = (codePoint << 6) | (cont & 0x3F);
+            next += 3;
+        }
+        if (codePoint > Character.MAX_CODE_POINT) {
+            return (1L << 32) | '%';
+        }
+        return ((long) (next - i) << 32) | codePoint;
+    }
+
+    /* URL decode the UTF-8 bytes in @param input into result given start and end offsets
+       Both percent encoded and raw UTF-8 multi-byte sequences are decoded, so it works on records read straight from disk.
+       Like the CharSequence version, malformed escapes are copied as-is. Malformed raw bytes are replaced by U+FFFD.
+     */
+    public static void urlDecodeInto(byte[] input, int start, int end, StringBuilder result) {
+        int i = start;
+        while (i < end) {
+            final byte b = input[i];
+            if (b >= 0 && b != '%' && b != '+') {
+                result.append((char) b);
+                i++;
+                continue;
+            }
+            final long decoded = decodeCodePointAt(input, i, end);
+            result.appendCodePoint((int) decoded);
+            i += (int) (decoded >>> 32);
+        }
+    }
+
+    /**
+     * URL decodes the UTF-8 input into dest, see {@link #urlDecodeInto(byte[], int, int, StringBuilder)}. Every input
+     * byte decodes to at most one char, so dest needs room for end - start chars after destOffset.
+     *
+     * @return the number of chars written to dest
+     */
+    public static int urlDecodeInto(byte[] input, int start, int end, char[] dest, int destOffset) {
+        int writeHead = destOffset;
+        int i = start;
+        while (i < end) {
+            final byte b = input[i];
+            if (b >= 0 && b != '%' && b != '+') {
+                dest[writeHead++] = (char) b;
+                i++;
+                continue;
+            }
+            final long decoded = decodeCodePointAt(input, i, end);
+            writeHead += Character.toChars((int) decoded, dest, writeHead);
+            i += (int) (decoded >>> 32);
+        }
+        return writeHead - destOffset;
+    }
+
+    /**
+     * Decodes only the percent escapes and '+' in input, without interpreting the result as UTF-8, so dest holds the
+     * UTF-8 encoded value. dest needs room for end - start bytes after destOffset and may be input itself, with
+     * destOffset <= start, to decode in place.
+     *
+     * @return the number of bytes written to dest
+     */
+    public static int urlDecodeInto(byte[] input, int start, int end, byte[] dest, int destOffset) {
+        int writeHead = destOffset;
+        int i = start;
+        while (i < end) {
+            final byte b = input[i];
+            if (b != '%' && b != '+') {
+                dest[writeHead++] = b;
+                i++;
+                continue;
+            }
+            final int decoded = decodedByteAt(input, i, end);
+            dest[writeHead++] = (byte) decoded;
+            i += decoded >>> 8;
+        }
+        return writeHead - destOffset;
+    }
+
+    /**
+     * @return true if input contains a '%' or '+' between start and end. Otherwise
+     * {@link #urlDecodeInto(byte[], int, int, byte[], int)} would copy the input unchanged, though raw UTF-8 bytes still
+     * need decoding to get chars.
+     */
+    public static boolean needsUrlDecoding(byte[] input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final byte b = input[i];
+            if (b == '%' || b == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * URL decodes the UTF-8 bytes of a buffer between the absolute indexes start and end into result, see
+     * {@link #urlDecodeInto(byte[], int, int, StringBuilder)}. Works for direct and mapped buffers, the position is not
+     * changed.
+     */
+    public static void urlDecodeInto(ByteBuffer input, int start, int end, StringBuilder result) {
+        int i = start;
+        while (i < end) {
+            final byte b = input.get(i);
+            if (b >= 0 && b != '%' && b != '+') {
+                result.append((char) b);
+                i++;
+                continue;
+            }
+            final long decoded = decodeCodePointAt(input, i, end);
+            result.appendCodePoint((int) decoded);
+            i += (int) (decoded >>> 32);
+        }
+    }
+
+    /**
+     * See {@link #urlDecodeInto(byte[], int, int, char[], int)}
+     *
+     * @return the number of chars written to dest
+     */
+    public static int urlDecodeInto(ByteBuffer input, int start, int end, char[] dest, int destOffset) {
+        int writeHead = destOffset;
+        int i = start;
+        while (i < end) {
+            final byte b = input.get(i);
+            if (b >= 0 && b != '%' && b != '+') {
+                dest[writeHead++] = (char) b;
+                i++;
+                continue;
+            }
+            final long decoded = decodeCodePointAt(input, i, end);
+            writeHead += Character.toChars((int) decoded, dest, writeHead);
+            i += (int) (decoded >>> 32);
+        }
+        return writeHead - destOffset;
+    }
+
+    /**
+     * See {@link #urlDecodeInto(byte[], int, int, byte[], int)}
+     *
+     * @return the number of bytes written to dest
+     */
+    public static int urlDecodeInto(ByteBuffer input, int start, int end, byte[] dest, int destOffset) {
+        int writeHead = destOffset;
+        int i = start;
+        while (i < end) {
+            final byte b = input.get(i);
+            if (b != '%' && b != '+') {
+                dest[writeHead++] = b;
+                i++;
+                continue;
+            }
+            final int decoded = decodedByteAt(input, i, end);
+            dest[writeHead++] = (byte) decoded;
+            i += decoded >>> 8;
+        }
+        return writeHead - destOffset;
+    }
+
+    /**
+     * See {@link #needsUrlDecoding(byte[], int, int)}
+     */
+    public static boolean needsUrlDecoding(ByteBuffer input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final byte b = input.get(i);
+            if (b == '%' || b == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     Decodes the code point at index i of url encoded UTF-8 bytes.
+     Returns the code point in the low 32 bits and the number of input bytes consumed in the high 32 bits.
+     */
+    private static long decodeCodePointAt(byte[] input, int i, int end) {
+        final int first = decodedByteAt(input, i, end);
+        final int continuationBytes = utf8ContinuationBytes(first & 0xFF);
+        int codePoint = utf8LeadingBits(first & 0xFF);
+        int next = i + (first >>> 8);
+        for (int k = 0; k < continuationBytes && codePoint >= 0; k++) {
+            final int cont = next < end ? decodedByteAt(input, next, end) : -1;
+            codePoint = appendUtf8ContinuationByte(codePoint, cont);
+            next += cont >>> 8;
+        }
+        return decodedCodePoint(first, continuationBytes, codePoint, next - i);
+    }
+
+    // see decodeCodePointAt(byte[], int, int)
+    private static long decodeCodePointAt(ByteBuffer input, int i, int end) {
+        final int first = decodedByteAt(input, i, end);
+        final int continuationBytes = utf8ContinuationBytes(first & 0xFF);
+        int codePoint = utf8LeadingBits(first & 0xFF);
+        int next = i + (first >>> 8);
+        for (int k = 0; k < continuationBytes && codePoint >= 0; k++) {
+            final int cont = next < end ? decodedByteAt(input, next, end) : -1;
+            codePoint = appendUtf8ContinuationByte(codePoint, cont);
+            next += cont >>> 8;
+        }
+        return decodedCodePoint(first, continuationBytes, codePoint, next - i);
+    }
+
+    // -1 if val can't start a UTF-8 sequence
+    private static int utf8ContinuationBytes(int val) {
+        if (val < 0x80) {
+            return 0;
+        } else if ((val & 0xE0) == 0xC0) {
+            return 1;
+        } else if ((val & 0xF0) == 0xE0) {
+            return 2;
+        } else if ((val & 0xF8) == 0xF0) {
+            return 3;
+        }
+        return -1;
+    }
+
+    private static int utf8LeadingBits(int val) {
+        if (val < 0x80) {
+            return val;
+        } else if ((val & 0xE0) == 0xC0) {
+            return val & 0x1F;
+        } else if ((val & 0xF0) == 0xE0) {
+            return val & 0x0F;
+        }
+        return val & 0x07;
+    }
+
+    // cont is a decodedByteAt() result, or -1 past the end. Returns -1 if it is not a continuation byte
+    private static int appendUtf8ContinuationByte(int codePoint, int cont) {
+        if (cont < 0 || (cont & 0xC0) != 0x80) {
+            return -1;
+        }
+        return (codePoint << 6) | (cont & 0x3F);
+    }
+
+    /*
+     The result of decodeCodePointAt(), given the decodedByteAt() result of the first byte and the code point, or -1 if
+     the continuation bytes were not valid.
+     */
+    private static long decodedCodePoint(int first, int continuationBytes, int codePoint, int consumed) {
+        final int val = first & 0xFF;
+        final int width = first >>> 8;
+        if (continuationBytes == 0) {
+            return ((long) width << 32) | val;
+        } else if (continuationBytes > 0 && codePoint >= 0 && codePoint <= Character.MAX_CODE_POINT) {
+            return ((long) consumed << 32) | codePoint;
+        } else if (width > 1 && continuationBytes < 0) {
+            // same as the CharSequence version, a lone escaped byte is taken as a latin-1 char
+            return ((long) width << 32) | val;
+        } else if (width > 1) {
+            // not a valid sequence, keep the % and let the rest of the escape be copied as-is
+            return (1L << 32) | '%';
+        } else {
+            return (1L << 32) | '\uFFFD';
+        }
+    }
+
+    /*
+     Returns the byte at index i of a url encoded input, decoding %XX escapes and '+'.
+     The low 8 bits hold the byte value and the remaining bits hold the number of input bytes consumed.
+     */
+    private static int decodedByteAt(byte[] input, int i, int end) {
+        final byte b = input[i];
+        if (b == '%' && i + 2 < end) {
+            final char val = decodeHexPair((char) input[i + 1], (char) input[i + 2]);
+            if (val != INVALID_HEX) {
+                return (3 << 8) | val;
+            }
+        } else if (b == '+') {
+            return (1 << 8) | ' ';
+        }
+        return (1 << 8) | (b & 0xFF);
+    }
+
+    // see decodedByteAt(byte[], int, int)
+    private static int decodedByteAt(ByteBuffer input, int i, int end) {
+        final byte b = input.get(i);
+        if (b == '%' && i + 2 < end) {
+            final char val = decodeHexPair((char) input.get(i + 1), (char) input.get(i + 2));
+            if (val != INVALID_HEX) {
+                return (3 << 8) | val;
+            }
+        } else if (b == '+') {
+            return (1 << 8) | ' ';
         }
+        return (1 << 8) | (b & 0xFF);
     }
 
     public static final char INVALID_HEX = (char)256;
@@ -0,0 +1,246 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Reads files written by {@link ParsedLogWriter} by memory mapping them. Records are passed to a
+ * {@link ParsedRecordCallback} straight from the mapped file, with key ids, numbers that are already parsed and
+ * offsets of the other values, so reading does no tokenizing, url decoding or number parsing and allocates nothing
+ * per record. Values of url decoded keys are only available decoded and numbers only as longs, so records can't be
+ * replayed to a {@link ByteQueryStringParserCallback} as the original query strings, port such callbacks to
+ * ParsedRecordCallback instead.
+ * <p>
+ * Like {@link MappedLogReader}, files are mapped in windows, so no record may be longer than the window size. The key
+ * dictionary is read when the file is opened. Reads can run concurrently, but the reader has to be closed after all of
+ * them.
+ */
+public class ParsedLogReader implements Closeable {
+    private final File file;
+
+    private final RandomAccessFile raf;
+
+    private final int windowSize;
+
+    private final long dataEnd;
+
+    private final long numRecords;
+
+    private final List<String> keys;
+
+    private final Object2IntOpenHashMap<String> keyIds = new Object2IntOpenHashMap<String>();
+
+    public ParsedLogReader(File file) throws IOException {
+        this(file, MappedLogReader.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize How many bytes to map at a time, also the maximum length of a record
+     * @throws IOException if the file can't be read or was not written by {@link ParsedLogWriter}
+     */
+    public ParsedLogReader(File file, int windowSize) throws IOException {
+        Preconditions.checkArgument(windowSize > 0, "windowSize must be positive");
+        this.file = file;
+        this.windowSize = windowSize;
+        raf = new RandomAccessFile(file, "r");
+        boolean threw = true;
+        try {
+            final long size = raf.length();
+            if (size < ParsedLogWriter.HEADER_LENGTH + ParsedLogWriter.FOOTER_LENGTH) {
+                throw new IOException(file + " is too short to be a parsed log");
+            }
+            raf.seek(0);
+            final int magic = raf.readInt();
+            final int version = raf.readInt();
+            raf.seek(size - ParsedLogWriter.FOOTER_LENGTH);
+            dataEnd = raf.readLong();
+            numRecords = raf.readLong();
+            if (magic != ParsedLogWriter.MAGIC || raf.readInt() != ParsedLogWriter.MAGIC) {
+                throw new IOException(file + " is not a parsed log");
+            }
+            if (version != ParsedLogWriter.VERSION) {
+                throw new IOException("Unsupported version " + version + " of " + file);
+            }
+            if (dataEnd < ParsedLogWriter.HEADER_LENGTH || dataEnd > size - ParsedLogWriter.FOOTER_LENGTH) {
+                throw new IOException("Invalid dictionary offset " + dataEnd + " in " + file);
+            }
+
+            final byte[] dictionary = new byte[(int) (size - ParsedLogWriter.FOOTER_LENGTH - dataEnd)];
+            raf.seek(dataEnd);
+            raf.readFully(dictionary);
+            final Decoder decoder = new Decoder(ByteBuffer.wrap(dictionary), 0, dictionary.length);
+            final int numKeys = decoder.readLength();
+            final String[] keyStrings = new String[numKeys];
+            keyIds.defaultReturnValue(-1);
+            for (int i = 0; i < numKeys; i++) {
+                final int length = decoder.readLength();
+                if (length > dictionary.length - decoder.position) {
+                    throw new IOException("Invalid key length " + length + " in " + file);
+                }
+                keyStrings[i] = new String(dictionary, decoder.position, length, Charsets.UTF_8);
+                decoder.position += length;
+                keyIds.put(keyStrings[i], i);
+            }
+            keys = ImmutableList.copyOf(keyStrings);
+            threw = false;
+        } finally {
+            if (threw) {
+                Closeables.close(raf, true);
+            }
+        }
+    }
+
+    /**
+     * @return all keys of the file, the index of a key is its id
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the id that key has in callbacks, or -1 if no record has the key
+     */
+    public int getKeyId(String key) {
+        return keyIds.getInt(key);
+    }
+
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Calls the callback for every pair of every record, in order
+     *
+     * @return the number of records read
+     * @throws IOException if reading fails, the file is corrupt, or a record is longer than the window size
+     */
+    public <T> long read(ParsedRecordCallback<T> callback, T storage) throws IOException {
+        final FileChannel channel = raf.getChannel();
+        long records = 0;
+        long windowStart = ParsedLogWriter.HEADER_LENGTH;
+        while (windowStart < dataEnd) {
+            final int size = (int) Math.min(windowSize, dataEnd - windowStart);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+            final Decoder decoder = new Decoder(buffer, 0, size);
+            while (decoder.position < size) {
+                final int recordStart = decoder.position;
+                if (!decoder.hasVarint()) {
+                    break;
+                }
+                final int length = decoder.readLength();
+                if (length > size - decoder.position) {
+                    decoder.position = recordStart;
+                    break;
+                }
+                decodeRecord(buffer, decoder, decoder.position + length, callback, storage);
+                records++;
+            }
+            if (decoder.position < size && windowStart + size == dataEnd) {
+                throw new IOException("Truncated record at offset " + (windowStart + decoder.position) + " in " + file);
+            }
+            if (decoder.position == 0) {
+                throw new IOException("Record at offset " + windowStart + " in " + file + " is longer than the window size " + windowSize);
+            }
+            // the next window starts at the beginning of the unfinished record, if any
+            windowStart += decoder.position;
+        }
+        return records;
+    }
+
+    private <T> void decodeRecord(ByteBuffer buffer, Decoder decoder, int recordEnd, ParsedRecordCallback<T> callback, T storage) throws IOException {
+        while (decoder.position < recordEnd) {
+            final long header = decoder.readVarint();
+            final long keyId = header >>> ParsedLogWriter.TYPE_BITS;
+            if (keyId >= keys.size()) {
+                throw new IOException("Invalid key id " + keyId + " in " + file);
+            }
+            final int type = (int) header & ((1 << ParsedLogWriter.TYPE_BITS) - 1);
+            if (type == ParsedLogWriter.TYPE_LONG) {
+                final long zigzag = decoder.readVarint();
+                callback.parseLong((int) keyId, (zigzag >>> 1) ^ -(zigzag & 1), storage);
+            } else {
+                final int length = decoder.readLength();
+                final int valueStart = decoder.position;
+                if (length > recordEnd - valueStart) {
+                    throw new IOException("Invalid value length " + length + " in " + file);
+                }
+                decoder.position += length;
+                callback.parseString((int) keyId, buffer, valueStart, valueStart + length, type == ParsedLogWriter.TYPE_DECODED_STRING, storage);
+            }
+        }
+        if (decoder.position != recordEnd) {
+            throw new IOException("Corrupt record in " + file);
+        }
+        callback.endRecord(storage);
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    /**
+     * Reads varints from a buffer with absolute gets
+     */
+    private static final class Decoder {
+        private final ByteBuffer buffer;
+
+        private final int limit;
+
+        int position;
+
+        Decoder(ByteBuffer buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        /**
+         * @return true if a whole varint starts at position
+         */
+        boolean hasVarint() {
+            for (int i = position; i < limit && i < position + 10; i++) {
+                if (buffer.get(i) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position == limit) {
+                    throw new IOException("Truncated varint");
+                }
+                final byte b = buffer.get(position++);
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readLength() throws IOException {
+            final long length = readVarint();
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid length " + length);
+            }
+            return (int) length;
+        }
+    }
+
+}
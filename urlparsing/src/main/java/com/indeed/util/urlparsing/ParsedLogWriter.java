@@ -0,0 +1,409 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Closeables;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes query string logs in a binary format that {@link ParsedLogReader} reads back without parsing anything, for
+ * logs that are processed many times. Every line becomes a record of its pairs in order. Keys are replaced by ids
+ * into a dictionary of all keys of the file, values that are decimal integers are stored as numbers, and the values of
+ * urlDecodedKeys are stored url decoded. All other values are stored as they are. All numbers in the format, including
+ * lengths and key ids, are varints.
+ * <pre>
+ * file       = magic version record* dictionary dictionaryOffset numRecords magic
+ * record     = recordLength pair*
+ * pair       = (keyId &lt;&lt; 2 | type) (zigzagLong | length bytes)
+ * dictionary = numKeys (length bytes)*
+ * </pre>
+ * Use {@link #LINE_CALLBACK} to convert logs read by {@link MappedLogReader} or {@link GzipLogReader}, or
+ * {@link #convert} for plain text files. Not thread safe.
+ */
+public class ParsedLogWriter implements Closeable {
+    static final int MAGIC = 0x51535043;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_LENGTH = 8;
+
+    // dictionary offset, number of records and magic
+    static final int FOOTER_LENGTH = 20;
+
+    static final int TYPE_STRING = 0;
+
+    static final int TYPE_DECODED_STRING = 1;
+
+    static final int TYPE_LONG = 2;
+
+    static final int TYPE_BITS = 2;
+
+    /**
+     * Writes every line to the writer passed as storage
+     */
+    public static final MappedLogReader.LineCallback<ParsedLogWriter> LINE_CALLBACK = new MappedLogReader.LineCallback<ParsedLogWriter>() {
+        @Override
+        public void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, ParsedLogWriter writer) {
+            try {
+                writer.write(buffer, lineStart, lineEnd);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to write record", e);
+            }
+        }
+    };
+
+    private final ByteQueryStringParserCallback<ParsedLogWriter> pairEncoder = new ByteQueryStringParserCallback<ParsedLogWriter>() {
+        @Override
+        public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, ParsedLogWriter writer) {
+            writer.encodePair(queryString, keyStart, keyEnd, valueStart, valueEnd);
+        }
+    };
+
+    private final ByteBufferQueryStringParserCallback<ParsedLogWriter> bufferPairEncoder = new ByteBufferQueryStringParserCallback<ParsedLogWriter>() {
+        @Override
+        public void parseKeyValuePair(ByteBuffer queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, ParsedLogWriter writer) {
+            writer.encodePair(queryString, keyStart, keyEnd, valueStart, valueEnd);
+        }
+    };
+
+    private final OutputStream out;
+
+    private final Set<String> urlDecodedKeys;
+
+    // hash of the UTF-8 key -> key id, collisions are detected by comparing to keys
+    private final Long2IntOpenHashMap keyIds = new Long2IntOpenHashMap();
+
+    private final List<byte[]> keys = new ArrayList<byte[]>();
+
+    private boolean[] decodeKey = new boolean[16];
+
+    private final NumberParseResult number = new NumberParseResult();
+
+    private byte[] record = new byte[1024];
+
+    private int recordLength;
+
+    private final byte[] varint = new byte[10];
+
+    private long position;
+
+    private long numRecords;
+
+    private boolean closed;
+
+    public ParsedLogWriter(OutputStream out) {
+        this(out, ImmutableSet.<String>of());
+    }
+
+    /**
+     * @param out Stream the records are written to, closed by {@link #close()}
+     * @param urlDecodedKeys Keys whose values are stored url decoded
+     */
+    public ParsedLogWriter(OutputStream out, Set<String> urlDecodedKeys) {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.urlDecodedKeys = ImmutableSet.copyOf(urlDecodedKeys);
+        keyIds.defaultReturnValue(-1);
+    }
+
+    /**
+     * Converts plain text log files with one query string per line into one file
+     *
+     * @return the number of records written
+     */
+    public static long convert(Iterable<File> logs, File out, Set<String> urlDecodedKeys) throws IOException {
+        final ParsedLogWriter writer = new ParsedLogWriter(new FileOutputStream(out), urlDecodedKeys);
+        boolean threw = true;
+        try {
+            new MappedLogReader().read(logs, LINE_CALLBACK, writer);
+            threw = false;
+        } finally {
+            Closeables.close(writer, threw);
+        }
+        return writer.numRecords;
+    }
+
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Writes the record of one UTF-8 encoded query string
+     */
+    public void write(byte[] queryString, int start, int end) throws IOException {
+        startRecord();
+        ByteQueryStringParser.parseQueryString(queryString, start, end - start, pairEncoder, this);
+        finishRecord();
+    }
+
+    /**
+     * Writes the record of the UTF-8 encoded query string between the absolute indexes lineStart and lineEnd in buffer.
+     * Direct and mapped buffers are read in place, only their position is changed.
+     */
+    public void write(ByteBuffer buffer, int lineStart, int lineEnd) throws IOException {
+        if (buffer.hasArray()) {
+            write(buffer.array(), buffer.arrayOffset() + lineStart, buffer.arrayOffset() + lineEnd);
+            return;
+        }
+        startRecord();
+        ByteQueryStringParser.parseQueryString(buffer, lineStart, lineEnd - lineStart, bufferPairEncoder, this);
+        finishRecord();
+    }
+
+    private void startRecord() throws IOException {
+        if (closed) {
+            throw new IOException("Writer closed");
+        }
+        if (position == 0) {
+            writeInt(MAGIC);
+            writeInt(VERSION);
+        }
+        recordLength = 0;
+    }
+
+    private void finishRecord() throws IOException {
+        writeVarint(recordLength);
+        out.write(record, 0, recordLength);
+        position += recordLength;
+        numRecords++;
+    }
+
+    public void write(String queryString) throws IOException {
+        final byte[] bytes = queryString.getBytes(Charsets.UTF_8);
+        write(bytes, 0, bytes.length);
+    }
+
+    private void encodePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+        final int keyId = keyId(queryString, keyStart, keyEnd);
+        if (isCanonicalLong(queryString, valueStart, valueEnd)) {
+            appendLong(keyId);
+        } else if (decodeKey[keyId] && ParseUtils.needsUrlDecoding(queryString, valueStart, valueEnd)) {
+            final int valueOffset = startDecodedValue(keyId, valueEnd - valueStart);
+            finishDecodedValue(valueOffset, ParseUtils.urlDecodeInto(queryString, valueStart, valueEnd, record, valueOffset));
+        } else {
+            appendStringHeader(keyId, valueEnd - valueStart);
+            System.arraycopy(queryString, valueStart, record, recordLength, valueEnd - valueStart);
+            recordLength += valueEnd - valueStart;
+        }
+    }
+
+    // see encodePair(byte[], int, int, int, int)
+    private void encodePair(ByteBuffer queryString, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+        final int keyId = keyId(queryString, keyStart, keyEnd);
+        if (isCanonicalLong(queryString, valueStart, valueEnd)) {
+            appendLong(keyId);
+        } else if (decodeKey[keyId] && ParseUtils.needsUrlDecoding(queryString, valueStart, valueEnd)) {
+            final int valueOffset = startDecodedValue(keyId, valueEnd - valueStart);
+            finishDecodedValue(valueOffset, ParseUtils.urlDecodeInto(queryString, valueStart, valueEnd, record, valueOffset));
+        } else {
+            appendStringHeader(keyId, valueEnd - valueStart);
+            // one bulk copy, the callers only use absolute gets so the position can be moved
+            queryString.position(valueStart);
+            queryString.get(record, recordLength, valueEnd - valueStart);
+            recordLength += valueEnd - valueStart;
+        }
+    }
+
+    private void appendLong(int keyId) {
+        appendVarint(((long) keyId << TYPE_BITS) | TYPE_LONG);
+        final long value = number.longValue();
+        appendVarint((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Decoding never makes the value longer, so the value is decoded into the record, leaving room for the length in
+     * front, and moved into place by {@link #finishDecodedValue}
+     *
+     * @return where in record to decode the value to
+     */
+    private int startDecodedValue(int keyId, int length) {
+        appendVarint(((long) keyId << TYPE_BITS) | TYPE_DECODED_STRING);
+        ensureCapacity(recordLength + 5 + length);
+        return recordLength + 5;
+    }
+
+    private void finishDecodedValue(int valueOffset, int decodedLength) {
+        appendVarint(decodedLength);
+        System.arraycopy(record, valueOffset, record, recordLength, decodedLength);
+        recordLength += decodedLength;
+    }
+
+    // also makes room for the value
+    private void appendStringHeader(int keyId, int length) {
+        appendVarint(((long) keyId << TYPE_BITS) | (decodeKey[keyId] ? TYPE_DECODED_STRING : TYPE_STRING));
+        appendVarint(length);
+        ensureCapacity(recordLength + length);
+    }
+
+    /**
+     * @return true if the value is a long written the way Long.toString writes it, so nothing is lost by storing it as
+     * a number. The parsed value is in {@link #number}.
+     */
+    private boolean isCanonicalLong(byte[] s, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        final int firstDigit = s[start] == '-' ? start + 1 : start;
+        if (firstDigit == end || (s[firstDigit] == '0' && (end - start > 1))) {
+            return false;
+        }
+        return ParseUtils.tryParseSignedLong(s, start, end, number);
+    }
+
+    private boolean isCanonicalLong(ByteBuffer s, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        final int firstDigit = s.get(start) == '-' ? start + 1 : start;
+        if (firstDigit == end || (s.get(firstDigit) == '0' && (end - start > 1))) {
+            return false;
+        }
+        return ParseUtils.tryParseSignedLong(s, start, end, number);
+    }
+
+    private int keyId(byte[] s, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ (s[i] & 0xff)) * 0x100000001b3L;
+        }
+        final int id = keyIds.get(hash);
+        if (id >= 0) {
+            final byte[] key = keys.get(id);
+            if (key.length != end - start || !equals(key, s, start)) {
+                throw new IllegalStateException("Hash collision between keys " + new String(key, Charsets.UTF_8) + " and " + new String(s, start, end - start, Charsets.UTF_8));
+            }
+            return id;
+        }
+        return addKey(hash, Arrays.copyOfRange(s, start, end));
+    }
+
+    private int keyId(ByteBuffer s, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ (s.get(i) & 0xff)) * 0x100000001b3L;
+        }
+        final int id = keyIds.get(hash);
+        if (id >= 0 && equals(keys.get(id), s, start, end)) {
+            return id;
+        }
+        final byte[] key = new byte[end - start];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = s.get(start + i);
+        }
+        if (id >= 0) {
+            throw new IllegalStateException("Hash collision between keys " + new String(keys.get(id), Charsets.UTF_8) + " and " + new String(key, Charsets.UTF_8));
+        }
+        return addKey(hash, key);
+    }
+
+    private int addKey(long hash, byte[] key) {
+        final int newId = keys.size();
+        keys.add(key);
+        keyIds.put(hash, newId);
+        if (newId == decodeKey.length) {
+            decodeKey = Arrays.copyOf(decodeKey, 2 * decodeKey.length);
+        }
+        decodeKey[newId] = urlDecodedKeys.contains(new String(key, Charsets.UTF_8));
+        return newId;
+    }
+
+    private static boolean equals(byte[] key, byte[] s, int start) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != s[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(byte[] key, ByteBuffer s, int start, int end) {
+        if (key.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != s.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > record.length) {
+            record = Arrays.copyOf(record, Math.max(capacity, 2 * record.length));
+        }
+    }
+
+    private void appendVarint(long value) {
+        ensureCapacity(recordLength + 10);
+        recordLength = putVarint(record, recordLength, value);
+    }
+
+    private static int putVarint(byte[] b, int offset, long value) {
+        while ((value & ~0x7fL) != 0) {
+            b[offset++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        b[offset++] = (byte) value;
+        return offset;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        final int length = putVarint(varint, 0, value);
+        out.write(varint, 0, length);
+        position += length;
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+        position += 4;
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    /**
+     * Writes the key dictionary and closes the underlying stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (position == 0) {
+                writeInt(MAGIC);
+                writeInt(VERSION);
+            }
+            final long dictionaryOffset = position;
+            writeVarint(keys.size());
+            for (byte[] key : keys) {
+                writeVarint(key.length);
+                out.write(key);
+                position += key.length;
+            }
+            writeLong(dictionaryOffset);
+            writeLong(numRecords);
+            writeInt(MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+}
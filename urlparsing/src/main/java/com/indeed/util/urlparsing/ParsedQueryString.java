@@ -0,0 +1,234 @@
+package com.indeed.util.urlparsing;
+
+import java.util.Arrays;
+
+/**
+ * A query string tokenized once into the offsets of its pairs, so that several consumers of the same line can share
+ * the work of {@link QueryStringParser}. Each pair has its key start, key end, value start and value end in one int[],
+ * and the String.hashCode() of its key. Keys are looked up with {@link #indexOf(String)} in a hash table that is built
+ * on the first lookup, and all pairs can be replayed to any {@link QueryStringParserCallback}.
+ * <pre>
+ * final ParsedQueryString parsed = ParsedQueryString.forCurrentThread().parse(logentry);
+ * final int totCnt = parsed.indexOf("totCnt");
+ * if (totCnt >= 0) {
+ *     numResults = ParseUtils.parseUnsignedInt(parsed.getQueryString(), parsed.getValueStart(totCnt), parsed.getValueEnd(totCnt));
+ * }
+ * parsed.replay(searchCallback, searchRecord);
+ * parsed.replay(clickCallback, clickRecord);
+ * </pre>
+ * Arrays grow to the largest query string parsed and are reused, so parsing allocates nothing after warm-up. Not thread
+ * safe, use {@link #forCurrentThread()} or one instance per thread.
+ */
+public final class ParsedQueryString {
+    private static final ThreadLocal<ParsedQueryString> THREAD_LOCAL = new ThreadLocal<ParsedQueryString>() {
+        @Override
+        protected ParsedQueryString initialValue() {
+            return new ParsedQueryString();
+        }
+    };
+
+    private static final QueryStringParserCallback<ParsedQueryString> collector = new QueryStringParserCallback<ParsedQueryString>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, ParsedQueryString parsed) {
+            parsed.add(keyStart, keyEnd, valueStart, valueEnd);
+        }
+    };
+
+    private String queryString = "";
+
+    // keyStart, keyEnd, valueStart, valueEnd of each pair
+    private int[] offsets = new int[4 * 16];
+
+    private int[] keyHashes = new int[16];
+
+    // index of the next pair with the same key, or -1
+    private int[] nextWithKey = new int[16];
+
+    private int size;
+
+    // open addressing table of the first pair index + 1 of every distinct key, 0 for empty slots
+    private int[] table = new int[32];
+
+    private boolean indexed;
+
+    /**
+     * @return an instance owned by the current thread. It is shared by all code on the thread, so it is only valid
+     * until the next call to parse on the same thread, including from callbacks it replays to.
+     */
+    public static ParsedQueryString forCurrentThread() {
+        return THREAD_LOCAL.get();
+    }
+
+    /**
+     * Tokenizes the query string with "&amp;" and "=" as delimiters, replacing the pairs of the previous query string
+     *
+     * @return this
+     */
+    public ParsedQueryString parse(String queryString) {
+        return parse(queryString, 0, queryString.length(), "&", "=");
+    }
+
+    /**
+     * @see QueryStringParser#parseQueryString(String, QueryStringParserCallback, Object, int, int, String, String)
+     * @return this
+     */
+    public ParsedQueryString parse(String queryString, int qsStart, int qsEnd, String pairDelim, String kvDelim) {
+        this.queryString = queryString;
+        size = 0;
+        indexed = false;
+        QueryStringParser.parseQueryString(queryString, collector, this, qsStart, qsEnd, pairDelim, kvDelim);
+        return this;
+    }
+
+    private void add(int keyStart, int keyEnd, int valueStart, int valueEnd) {
+        if (size == keyHashes.length) {
+            offsets = Arrays.copyOf(offsets, 8 * size);
+            keyHashes = Arrays.copyOf(keyHashes, 2 * size);
+            nextWithKey = Arrays.copyOf(nextWithKey, 2 * size);
+        }
+        final int i = 4 * size;
+        offsets[i] = keyStart;
+        offsets[i + 1] = keyEnd;
+        offsets[i + 2] = valueStart;
+        offsets[i + 3] = valueEnd;
+        keyHashes[size] = CharSequenceSlice.hashCode(queryString, keyStart, keyEnd);
+        size++;
+    }
+
+    public String getQueryString() {
+        return queryString;
+    }
+
+    /**
+     * @return the number of pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getKeyStart(int index) {
+        return offsets[4 * checkIndex(index)];
+    }
+
+    public int getKeyEnd(int index) {
+        return offsets[4 * checkIndex(index) + 1];
+    }
+
+    public int getValueStart(int index) {
+        return offsets[4 * checkIndex(index) + 2];
+    }
+
+    public int getValueEnd(int index) {
+        return offsets[4 * checkIndex(index) + 3];
+    }
+
+    /**
+     * @return String.hashCode() of the key of the pair
+     */
+    public int getKeyHash(int index) {
+        return keyHashes[checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size + " pairs");
+        }
+        return index;
+    }
+
+    /**
+     * @return index of the first pair with the key, or -1 if there is none
+     */
+    public int indexOf(String key) {
+        if (!indexed) {
+            buildIndex();
+        }
+        final int hash = key.hashCode();
+        final int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            final int index = table[slot] - 1;
+            if (keyHashes[index] == hash && CharSequenceSlice.contentEquals(queryString, offsets[4 * index], offsets[4 * index + 1], key)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the next pair after index with the same key, or -1 if there is none
+     */
+    public int nextIndexOf(int index) {
+        if (!indexed) {
+            buildIndex();
+        }
+        return nextWithKey[checkIndex(index)];
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Points slice at the value of the first pair with the key, without copying it
+     *
+     * @return slice, or null if there is no pair with the key
+     */
+    public CharSequenceSlice get(String key, CharSequenceSlice slice) {
+        final int index = indexOf(key);
+        return index < 0 ? null : slice.set(queryString, offsets[4 * index + 2], offsets[4 * index + 3]);
+    }
+
+    private void buildIndex() {
+        if (table.length < 2 * size) {
+            table = new int[Integer.highestOneBit(2 * size - 1) << 1];
+        } else {
+            Arrays.fill(table, 0);
+        }
+        final int mask = table.length - 1;
+        for (int index = 0; index < size; index++) {
+            nextWithKey[index] = -1;
+            final int hash = keyHashes[index];
+            int slot = mix(hash) & mask;
+            while (true) {
+                if (table[slot] == 0) {
+                    table[slot] = index + 1;
+                    break;
+                }
+                int other = table[slot] - 1;
+                if (keyHashes[other] == hash && sameKey(other, index)) {
+                    // append to the pairs with the same key, duplicates are rare so the list is short
+                    while (nextWithKey[other] >= 0) {
+                        other = nextWithKey[other];
+                    }
+                    nextWithKey[other] = index;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        indexed = true;
+    }
+
+    private boolean sameKey(int index1, int index2) {
+        final int start1 = offsets[4 * index1];
+        final int start2 = offsets[4 * index2];
+        final int length = offsets[4 * index1 + 1] - start1;
+        return length == offsets[4 * index2 + 1] - start2 && queryString.regionMatches(start1, queryString, start2, length);
+    }
+
+    /**
+     * String.hashCode() has poor low bits for short keys
+     */
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Calls the callback for every pair, in order, like {@link QueryStringParser} would
+     */
+    public <T> void replay(QueryStringParserCallback<T> callback, T storage) {
+        for (int i = 0; i < 4 * size; i += 4) {
+            callback.parseKeyValuePair(queryString, offsets[i], offsets[i + 1], offsets[i + 2], offsets[i + 3], storage);
+        }
+    }
+}
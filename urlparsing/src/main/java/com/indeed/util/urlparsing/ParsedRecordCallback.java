@@ -0,0 +1,37 @@
+package com.indeed.util.urlparsing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Callback for the pairs of records read by {@link ParsedLogReader}. Keys are given as ids into the key dictionary of
+ * the file, see {@link ParsedLogReader#getKeyId}, so callbacks can dispatch on an int instead of comparing keys.
+ */
+public interface ParsedRecordCallback<T> {
+    /**
+     * Called for values that were decimal integers when the file was written
+     *
+     * @param keyId Id of the key of this pair
+     * @param value The parsed value
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     */
+    void parseLong(int keyId, long value, T storage);
+
+    /**
+     * Called for all other values, including empty ones
+     *
+     * @param keyId Id of the key of this pair
+     * @param buffer The mapped file, only use absolute gets as its position is not meaningful
+     * @param valueStart Index into buffer where the UTF-8 encoded value begins (inclusive)
+     * @param valueEnd Index into buffer where the value ends (exclusive)
+     * @param decoded true if the value was url decoded when the file was written
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     */
+    void parseString(int keyId, ByteBuffer buffer, int valueStart, int valueEnd, boolean decoded, T storage);
+
+    /**
+     * Called after the last pair of every record, i.e. of every line of the original log
+     *
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     */
+    void endRecord(T storage);
+}
@@ -0,0 +1,14 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Callback for each segment of a URL path, see {@link UrlParser#parsePathSegments}
+ */
+public interface PathSegmentCallback<T> {
+    /**
+     * @param url The url the path is part of
+     * @param segmentStart Index into url where the segment begins (inclusive)
+     * @param segmentEnd Index into url where the segment ends (exclusive)
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     */
+    void parsePathSegment(String url, int segmentStart, int segmentEnd, T storage);
+}
@@ -0,0 +1,17 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Callback for every key starting with a prefix, see {@link QueryStringParserCallbackBuilder#addPrefixCallback}
+ */
+public interface PrefixQueryStringParserCallback<T> {
+    /**
+     * @param queryString The raw queryString (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param keyStart Index into queryString where the key in this key/value begins (inclusive)
+     * @param keyEnd Index into queryString where the key in this key/value ends (exclusive)
+     * @param prefixLength Length of the registered prefix the key matched, the rest of the key starts at keyStart + prefixLength
+     * @param valueStart Index into queryString where the value in this key/value begins (inclusive)
+     * @param valueEnd Index into queryString where the value in this key/value ends (exclusive)
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     */
+    void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int prefixLength, int valueStart, int valueEnd, T storage);
+}
@@ -0,0 +1,112 @@
+package com.indeed.util.urlparsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dispatches to the callbacks registered for exact keys, then walks a char trie of the registered prefixes along the
+ * key and calls the callbacks of every prefix on the way, shortest first. The trie is stored in flat arrays, and
+ * matching takes one step per char of the key no matter how many prefixes are registered. If case is ignored, the trie
+ * holds case folded prefixes and each char of the key is folded before it is looked up.
+ */
+final class PrefixTrieCallback<T> implements QueryStringParserCallback<T> {
+    // null if there are no exact keys
+    private final QueryStringParserCallback<T> exact;
+
+    // the children of node n are childNodes[firstChild[n]] until childNodes[firstChild[n + 1]], sorted by childChars
+    private final int[] firstChild;
+
+    private final char[] childChars;
+
+    private final int[] childNodes;
+
+    // the callbacks of the prefix ending at node n are callbacks[callbackStart[n]] until callbacks[callbackStart[n + 1]]
+    private final int[] callbackStart;
+
+    // callbacks, uses objects due to generic array creation issues
+    private final Object[] callbacks;
+
+    private final boolean ignoreCase;
+
+    private static final class Node {
+        private final Map<Character, Node> children = new TreeMap<Character, Node>();
+
+        private final List<Object> callbacks = new ArrayList<Object>();
+    }
+
+    PrefixTrieCallback(QueryStringParserCallback<T> exact, Map<String, List<PrefixQueryStringParserCallback<T>>> callbacksByPrefix, boolean ignoreCase) {
+        this.exact = exact;
+        this.ignoreCase = ignoreCase;
+        final Node root = new Node();
+        int numNodes = 1;
+        int numCallbacks = 0;
+        for (Map.Entry<String, List<PrefixQueryStringParserCallback<T>>> entry : callbacksByPrefix.entrySet()) {
+            Node node = root;
+            for (int i = 0; i < entry.getKey().length(); i++) {
+                final Character c = ignoreCase ? QueryStringParserCallbackBuilder.foldCase(entry.getKey().charAt(i)) : entry.getKey().charAt(i);
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                    numNodes++;
+                }
+                node = child;
+            }
+            node.callbacks.addAll(entry.getValue());
+            numCallbacks += entry.getValue().size();
+        }
+
+        // number the nodes breadth first, so that the children of each node are consecutive
+        firstChild = new int[numNodes + 1];
+        childChars = new char[numNodes - 1];
+        childNodes = new int[numNodes - 1];
+        callbackStart = new int[numNodes + 1];
+        callbacks = new Object[numCallbacks];
+        final List<Node> nodes = new ArrayList<Node>(numNodes);
+        nodes.add(root);
+        int numChildren = 0;
+        int c = 0;
+        for (int n = 0; n < numNodes; n++) {
+            final Node node = nodes.get(n);
+            firstChild[n] = numChildren;
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                childChars[numChildren] = child.getKey();
+                childNodes[numChildren++] = nodes.size();
+                nodes.add(child.getValue());
+            }
+            callbackStart[n] = c;
+            for (Object callback : node.callbacks) {
+                callbacks[c++] = callback;
+            }
+        }
+        firstChild[numNodes] = numChildren;
+        callbackStart[numNodes] = c;
+    }
+
+    @Override
+    public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, T storage) {
+        if (exact != null) {
+            exact.parseKeyValuePair(queryString, keyStart, keyEnd, valueStart, valueEnd, storage);
+        }
+        int node = 0;
+        for (int i = keyStart; ; i++) {
+            final int end = callbackStart[node + 1];
+            for (int j = callbackStart[node]; j < end; j++) {
+                final PrefixQueryStringParserCallback<T> callback = (PrefixQueryStringParserCallback<T>) callbacks[j];
+                callback.parseKeyValuePair(queryString, keyStart, keyEnd, i - keyStart, valueStart, valueEnd, storage);
+            }
+            if (i == keyEnd) {
+                return;
+            }
+            final char c = ignoreCase ? QueryStringParserCallbackBuilder.foldCase(queryString.charAt(i)) : queryString.charAt(i);
+            final int child = Arrays.binarySearch(childChars, firstChild[node], firstChild[node + 1], c);
+            if (child < 0) {
+                return;
+            }
+            node = childNodes[child];
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.indeed.util.urlparsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses up to a fixed number of query strings into columns, one primitive array per numeric key and one char buffer
+ * with row offsets per string key, instead of into one object per line. Each column has a presence bitmap with a bit
+ * per row, set if the key was found and its value could be parsed. Missing values are 0 in numeric columns and empty
+ * in string columns, so sums can run over a whole column without checking the bitmap.
+ * <pre>
+ * final QueryStringBatch batch = new QueryStringBatch(4096);
+ * final QueryStringBatch.IntColumn numResults = batch.addIntColumn("totCnt");
+ * final QueryStringBatch.StringColumn query = batch.addStringColumn("q", true);
+ * for (int i = 0; i &lt; lines.length; i += batch.size()) {
+ *     batch.clear();
+ *     batch.parse(lines, i, lines.length - i);
+ *     final int[] values = numResults.getValues();
+ *     ...
+ * }
+ * </pre>
+ * The arrays are allocated once and reused by every batch, so they are only valid until the next call to clear().
+ * Not thread safe.
+ */
+public final class QueryStringBatch {
+    private final int capacity;
+
+    private final List<Column> columns = new ArrayList<Column>();
+
+    private final QueryStringParserCallbackBuilder<QueryStringBatch> builder = new QueryStringParserCallbackBuilder<QueryStringBatch>();
+
+    private QueryStringParserCallback<QueryStringBatch> callback;
+
+    private int size;
+
+    /**
+     * @param capacity the maximum number of rows in a batch
+     */
+    public QueryStringBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public IntColumn addIntColumn(String key) {
+        return addColumn(key, new IntColumn(capacity));
+    }
+
+    public LongColumn addLongColumn(String key) {
+        return addColumn(key, new LongColumn(capacity));
+    }
+
+    public FloatColumn addFloatColumn(String key) {
+        return addColumn(key, new FloatColumn(capacity));
+    }
+
+    /**
+     * @param urlDecode store the url decoded value instead of the raw value
+     */
+    public StringColumn addStringColumn(String key, boolean urlDecode) {
+        return addColumn(key, new StringColumn(capacity, urlDecode));
+    }
+
+    private <C extends Column> C addColumn(String key, C column) {
+        if (callback != null) {
+            throw new IllegalStateException("Columns must be added before the first line is parsed");
+        }
+        columns.add(column);
+        builder.addCallback(key, column);
+        return column;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of rows parsed since the last call to clear()
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Removes all rows, keeping the column buffers
+     */
+    public void clear() {
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).clear(size);
+        }
+        size = 0;
+    }
+
+    /**
+     * Parses queryString into the next row
+     *
+     * @return false if the batch is full and the line was not parsed
+     */
+    public boolean add(String queryString) {
+        if (size == capacity) {
+            return false;
+        }
+        if (callback == null) {
+            callback = builder.buildCompiledCallback();
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).startRow(size);
+        }
+        QueryStringParser.parseQueryString(queryString, callback, this);
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).endRow(size);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Parses lines[offset], lines[offset + 1], ... into the next rows, until length lines are parsed or the batch is full
+     *
+     * @return the number of lines parsed
+     */
+    public int parse(String[] lines, int offset, int length) {
+        final int count = Math.min(length, capacity - size);
+        for (int i = 0; i < count; i++) {
+            add(lines[offset + i]);
+        }
+        return count;
+    }
+
+    /**
+     * Stores the values of one key. Each column is the callback for its key, so the compiled callback calls it from
+     * its own call site.
+     */
+    public abstract static class Column implements QueryStringParserCallback<QueryStringBatch> {
+        private final long[] presence;
+
+        private Column(int capacity) {
+            presence = new long[(capacity + 63) >>> 6];
+        }
+
+        /**
+         * @return one bit per row, row r is bit (r &amp; 63) of word r &gt;&gt;&gt; 6
+         */
+        public long[] getPresence() {
+            return presence;
+        }
+
+        public boolean isPresent(int row) {
+            return (presence[row >>> 6] & (1L << row)) != 0;
+        }
+
+        final void setPresent(int row) {
+            presence[row >>> 6] |= 1L << row;
+        }
+
+        final void setMissing(int row) {
+            presence[row >>> 6] &= ~(1L << row);
+        }
+
+        void clear(int size) {
+            Arrays.fill(presence, 0, (size + 63) >>> 6, 0L);
+        }
+
+        abstract void startRow(int row);
+
+        void endRow(int row) {
+        }
+    }
+
+    public static final class IntColumn extends Column {
+        private final int[] values;
+
+        private final NumberParseResult result = new NumberParseResult();
+
+        private IntColumn(int capacity) {
+            super(capacity);
+            values = new int[capacity];
+        }
+
+        /**
+         * @return the values of all rows, only the first size() are valid
+         */
+        public int[] getValues() {
+            return values;
+        }
+
+        public int get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void startRow(int row) {
+            values[row] = 0;
+        }
+
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, QueryStringBatch storage) {
+            final int row = storage.size;
+            if (ParseUtils.tryParseSignedInt(queryString, valueStart, valueEnd, result)) {
+                values[row] = result.intValue();
+                setPresent(row);
+            } else {
+                values[row] = 0;
+                setMissing(row);
+            }
+        }
+    }
+
+    public static final class LongColumn extends Column {
+        private final long[] values;
+
+        private final NumberParseResult result = new NumberParseResult();
+
+        private LongColumn(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+
+        /**
+         * @return the values of all rows, only the first size() are valid
+         */
+        public long[] getValues() {
+            return values;
+        }
+
+        public long get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void startRow(int row) {
+            values[row] = 0;
+        }
+
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, QueryStringBatch storage) {
+            final int row = storage.size;
+            if (ParseUtils.tryParseSignedLong(queryString, valueStart, valueEnd, result)) {
+                values[row] = result.longValue();
+                setPresent(row);
+            } else {
+                values[row] = 0;
+                setMissing(row);
+            }
+        }
+    }
+
+    public static final class FloatColumn extends Column {
+        private final float[] values;
+
+        private final NumberParseResult result = new NumberParseResult();
+
+        private FloatColumn(int capacity) {
+            super(capacity);
+            values = new float[capacity];
+        }
+
+        /**
+         * @return the values of all rows, only the first size() are valid
+         */
+        public float[] getValues() {
+            return values;
+        }
+
+        public float get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void startRow(int row) {
+            values[row] = 0;
+        }
+
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, QueryStringBatch storage) {
+            final int row = storage.size;
+            if (ParseUtils.tryParseFloat(queryString, valueStart, valueEnd, result)) {
+                values[row] = result.floatValue();
+                setPresent(row);
+            } else {
+                values[row] = 0;
+                setMissing(row);
+            }
+        }
+    }
+
+    /**
+     * The values of all rows are concatenated in one buffer, row r is getChars() from getOffsets()[r] to
+     * getOffsets()[r + 1]
+     */
+    public static final class StringColumn extends Column {
+        private final boolean urlDecode;
+
+        private final StringBuilder chars = new StringBuilder();
+
+        private final int[] offsets;
+
+        private StringColumn(int capacity, boolean urlDecode) {
+            super(capacity);
+            this.urlDecode = urlDecode;
+            offsets = new int[capacity + 1];
+        }
+
+        public CharSequence getChars() {
+            return chars;
+        }
+
+        /**
+         * @return size() + 1 offsets into getChars()
+         */
+        public int[] getOffsets() {
+            return offsets;
+        }
+
+        public int getStart(int row) {
+            return offsets[row];
+        }
+
+        public int getEnd(int row) {
+            return offsets[row + 1];
+        }
+
+        /**
+         * Points slice at the value of row, without copying it
+         *
+         * @return slice
+         */
+        public CharSequenceSlice get(int row, CharSequenceSlice slice) {
+            return slice.set(chars, offsets[row], offsets[row + 1]);
+        }
+
+        @Override
+        void clear(int size) {
+            super.clear(size);
+            chars.setLength(0);
+        }
+
+        @Override
+        void startRow(int row) {
+            offsets[row] = chars.length();
+        }
+
+        @Override
+        void endRow(int row) {
+            offsets[row + 1] = chars.length();
+        }
+
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, QueryStringBatch storage) {
+            final int row = storage.size;
+            // a repeated key replaces the earlier value
+            chars.setLength(offsets[row]);
+            if (urlDecode) {
+                ParseUtils.urlDecodeInto(queryString, valueStart, valueEnd, chars);
+            } else {
+                chars.append(queryString, valueStart, valueEnd);
+            }
+            setPresent(row);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Parses query strings directly into the fields of a reused record, whose public fields are annotated with
+ * {@link QueryStringKey}:
+ * <pre>
+ * public class SearchRecord {
+ *     &#64;QueryStringKey(value = "uid", type = QueryStringKey.Type.UID_TIMESTAMP)
+ *     public long timestamp;
+ *     &#64;QueryStringKey(value = "q", type = QueryStringKey.Type.URL_DECODED)
+ *     public final StringBuilder query = new StringBuilder();
+ *     &#64;QueryStringKey("totCnt")
+ *     public int numResults;
+ * }
+ *
+ * final QueryStringBinder&lt;SearchRecord&gt; binder = QueryStringBinder.create(SearchRecord.class);
+ * binder.parse(line, record);
+ * </pre>
+ * {@link #create} generates a class per field that parses the value and assigns the field, and dispatches to them
+ * through {@link QueryStringParserCallbackBuilder#buildCompiledCallback()}, so no reflection is used and no garbage is
+ * created while parsing, except for String fields. Numeric values that are empty, can't be parsed or overflow leave the field
+ * at 0. Not thread safe, each binder keeps the scratch state for parsing numbers, so create one binder per thread.
+ */
+public abstract class QueryStringBinder<T> {
+    private final QueryStringParserCallback<T> callback;
+
+    protected QueryStringBinder(QueryStringParserCallback<T> callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Generates a binder for the annotated fields of recordClass. Generating the classes is expensive, so create a
+     * binder once per thread and keep it.
+     *
+     * @throws IllegalArgumentException if recordClass or one of its annotated fields is not public, or a field's type
+     * is not supported
+     */
+    public static <T> QueryStringBinder<T> create(Class<T> recordClass) {
+        return QueryStringBinderGenerator.generate(recordClass);
+    }
+
+    /**
+     * @return a callback that stores values in the annotated fields without resetting the record first, for use with
+     * {@link QueryStringParser} directly or as part of another callback
+     */
+    public QueryStringParserCallback<T> getCallback() {
+        return callback;
+    }
+
+    /**
+     * Sets numeric fields to 0 and String fields to null, and empties StringBuilder and CharSequenceSlice fields
+     */
+    public abstract void reset(T record);
+
+    /**
+     * Resets record and stores the values of the annotated keys in queryString in it
+     */
+    public void parse(String queryString, T record) {
+        reset(record);
+        QueryStringParser.parseQueryString(queryString, callback, record);
+    }
+
+    /**
+     * Like {@link #parse(String, Object)}, for the part of queryString between start and end with custom delimiters
+     */
+    public void parse(String queryString, int start, int end, String pairDelim, String kvDelim, T record) {
+        reset(record);
+        QueryStringParser.parseQueryString(queryString, callback, record, start, end, pairDelim, kvDelim);
+    }
+}
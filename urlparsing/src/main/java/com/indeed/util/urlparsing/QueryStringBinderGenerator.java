@@ -0,0 +1,318 @@
+package com.indeed.util.urlparsing;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the classes behind {@link QueryStringBinder#create(Class)}. For an int field "count" bound to the key
+ * "cnt" the generated setter is equivalent to
+ * <pre>
+ * private final NumberParseResult result = new NumberParseResult();
+ *
+ * public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Object storage) {
+ *     if (valueStart != valueEnd) {
+ *         if (ParseUtils.tryParseSignedInt(queryString, valueStart, valueEnd, result)) {
+ *             ((Record) storage).count = result.intValue();
+ *         }
+ *     }
+ * }
+ * </pre>
+ * and the setters are registered for their keys with {@link QueryStringParserCallbackBuilder#buildCompiledCallback()}.
+ * A subclass of QueryStringBinder implements reset() with one assignment per field. Every call generates new setters,
+ * so each binder has its own NumberParseResult.
+ */
+final class QueryStringBinderGenerator {
+    private static final String PACKAGE = "com/indeed/util/urlparsing/generated/";
+    private static final String CALLBACK = "com/indeed/util/urlparsing/QueryStringParserCallback";
+    private static final String BINDER = "com/indeed/util/urlparsing/QueryStringBinder";
+    private static final String PARSE_UTILS = "com/indeed/util/urlparsing/ParseUtils";
+    private static final String SLICE = "com/indeed/util/urlparsing/CharSequenceSlice";
+    private static final String PARSE_DESC = "(Ljava/lang/String;IIIILjava/lang/Object;)V";
+    private static final String RANGE_DESC = "(Ljava/lang/CharSequence;II)";
+    private static final String RESULT_TYPE = "com/indeed/util/urlparsing/NumberParseResult";
+    private static final String RESULT_DESC = "L" + RESULT_TYPE + ";";
+
+    // field of the generated setters for numbers, binders are used by a single thread
+    private static final String RESULT_FIELD = "result";
+
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    // locals of the generated parseKeyValuePair
+    private static final int QUERY_STRING = 1;
+    private static final int VALUE_START = 4;
+    private static final int VALUE_END = 5;
+    private static final int STORAGE = 6;
+    private static final int BUILDER = 7;
+    private static final int RESULT = 7;
+
+    // locals of the generated reset
+    private static final int RECORD = 1;
+
+    private QueryStringBinderGenerator() {
+    }
+
+    static <T> QueryStringBinder<T> generate(Class<T> recordClass) {
+        if (!Modifier.isPublic(recordClass.getModifiers())) {
+            throw new IllegalArgumentException(recordClass.getName() + " must be public");
+        }
+        final List<Field> fields = new ArrayList<Field>();
+        for (Field field : recordClass.getFields()) {
+            final QueryStringKey key = field.getAnnotation(QueryStringKey.class);
+            if (key != null) {
+                validate(field, key);
+                fields.add(field);
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException(recordClass.getName() + " has no public fields annotated with @QueryStringKey");
+        }
+
+        final ClassLoader parent = recordClass.getClassLoader() != null ? recordClass.getClassLoader() : QueryStringBinderGenerator.class.getClassLoader();
+        final CompiledCallbackGenerator.GeneratedClassLoader loader = new CompiledCallbackGenerator.GeneratedClassLoader(parent);
+        final String recordName = Type.getInternalName(recordClass);
+        try {
+            final QueryStringParserCallbackBuilder<T> builder = new QueryStringParserCallbackBuilder<T>();
+            for (Field field : fields) {
+                final String className = PACKAGE + "FieldSetter" + classCounter.incrementAndGet();
+                final Class<?> setter = loader.define(className.replace('/', '.'), generateSetter(className, recordName, field));
+                builder.addCallback(field.getAnnotation(QueryStringKey.class).value(), (QueryStringParserCallback<T>) setter.newInstance());
+            }
+            final String className = PACKAGE + "Binder" + classCounter.incrementAndGet();
+            final Class<?> binder = loader.define(className.replace('/', '.'), generateBinder(className, recordName, fields));
+            return (QueryStringBinder<T>) binder.getConstructor(QueryStringParserCallback.class).newInstance(builder.buildCompiledCallback());
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to generate a binder for " + recordClass.getName(), e);
+        }
+    }
+
+    private static void validate(Field field, QueryStringKey key) {
+        final String name = field.getDeclaringClass().getName() + "." + field.getName();
+        final Class<?> type = field.getType();
+        if (Modifier.isStatic(field.getModifiers())) {
+            throw new IllegalArgumentException(name + " must not be static");
+        }
+        if (!Modifier.isPublic(field.getDeclaringClass().getModifiers())) {
+            throw new IllegalArgumentException(field.getDeclaringClass().getName() + " must be public");
+        }
+        final boolean reused = type == StringBuilder.class || type == CharSequenceSlice.class;
+        if (!reused && Modifier.isFinal(field.getModifiers())) {
+            throw new IllegalArgumentException(name + " must not be final");
+        }
+        final boolean supported;
+        switch (key.type()) {
+            case DEFAULT:
+                supported = reused || type == int.class || type == long.class || type == float.class || type == double.class || type == String.class;
+                break;
+            case URL_DECODED:
+                supported = type == String.class || type == StringBuilder.class;
+                break;
+            case UID_TIMESTAMP:
+                supported = type == long.class;
+                break;
+            default:
+                supported = false;
+        }
+        if (!supported) {
+            throw new IllegalArgumentException(name + " of type " + type.getName() + " can't be bound as " + key.type());
+        }
+    }
+
+    private static byte[] generateSetter(String className, String recordName, Field field) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, "java/lang/Object", new String[] {CALLBACK});
+        final Class<?> type = field.getType();
+        final QueryStringKey.Type keyType = field.getAnnotation(QueryStringKey.class).type();
+        if (type.isPrimitive()) {
+            visitResultConstructor(cw, className);
+        } else {
+            visitDefaultConstructor(cw, "java/lang/Object", "()V");
+        }
+
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "parseKeyValuePair", PARSE_DESC, null, null);
+        mv.visitCode();
+        final String owner = Type.getInternalName(field.getDeclaringClass());
+        final String desc = Type.getDescriptor(type);
+        final Label done = new Label();
+        if (type == StringBuilder.class) {
+            visitGetRecord(mv, recordName);
+            mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.getName(), desc);
+            mv.visitVarInsn(Opcodes.ASTORE, BUILDER);
+            mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+            mv.visitInsn(Opcodes.ICONST_0);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "setLength", "(I)V", false);
+            if (keyType == QueryStringKey.Type.URL_DECODED) {
+                visitValue(mv);
+                mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, PARSE_UTILS, "urlDecodeInto", "(Ljava/lang/CharSequence;IILjava/lang/StringBuilder;)V", false);
+            } else {
+                mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+                visitValue(mv);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", RANGE_DESC + "Ljava/lang/StringBuilder;", false);
+                mv.visitInsn(Opcodes.POP);
+            }
+        } else if (type == CharSequenceSlice.class) {
+            visitGetRecord(mv, recordName);
+            mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.getName(), desc);
+            visitValue(mv);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SLICE, "set", RANGE_DESC + "L" + SLICE + ";", false);
+            mv.visitInsn(Opcodes.POP);
+        } else if (type == String.class) {
+            visitGetRecord(mv, recordName);
+            if (keyType == QueryStringKey.Type.URL_DECODED) {
+                visitValue(mv);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, PARSE_UTILS, "urlDecode", RANGE_DESC + "Ljava/lang/String;", false);
+            } else {
+                mv.visitVarInsn(Opcodes.ALOAD, QUERY_STRING);
+                mv.visitVarInsn(Opcodes.ILOAD, VALUE_START);
+                mv.visitVarInsn(Opcodes.ILOAD, VALUE_END);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "substring", "(II)Ljava/lang/String;", false);
+            }
+            mv.visitFieldInsn(Opcodes.PUTFIELD, owner, field.getName(), desc);
+        } else {
+            // numbers and uids: empty, malformed and overflowing values leave the field as it is
+            mv.visitVarInsn(Opcodes.ILOAD, VALUE_START);
+            mv.visitVarInsn(Opcodes.ILOAD, VALUE_END);
+            mv.visitJumpInsn(Opcodes.IF_ICMPEQ, done);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, className, RESULT_FIELD, RESULT_DESC);
+            mv.visitVarInsn(Opcodes.ASTORE, RESULT);
+            visitValue(mv);
+            mv.visitVarInsn(Opcodes.ALOAD, RESULT);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, PARSE_UTILS, tryParseMethod(type, keyType), RANGE_DESC.replace(")", RESULT_DESC + ")") + "Z", false);
+            mv.visitJumpInsn(Opcodes.IFEQ, done);
+            visitGetRecord(mv, recordName);
+            mv.visitVarInsn(Opcodes.ALOAD, RESULT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RESULT_TYPE, type.getName() + "Value", "()" + desc, false);
+            mv.visitFieldInsn(Opcodes.PUTFIELD, owner, field.getName(), desc);
+        }
+        mv.visitLabel(done);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static String tryParseMethod(Class<?> type, QueryStringKey.Type keyType) {
+        if (keyType == QueryStringKey.Type.UID_TIMESTAMP) {
+            return "tryParseTimestampFromUIDString";
+        } else if (type == int.class) {
+            return "tryParseSignedInt";
+        } else if (type == long.class) {
+            return "tryParseSignedLong";
+        } else if (type == float.class) {
+            return "tryParseFloat";
+        } else {
+            return "tryParseDouble";
+        }
+    }
+
+    /**
+     * Pushes (RecordClass) storage
+     */
+    private static void visitGetRecord(MethodVisitor mv, String recordName) {
+        mv.visitVarInsn(Opcodes.ALOAD, STORAGE);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, recordName);
+    }
+
+    /**
+     * Pushes queryString, valueStart, valueEnd
+     */
+    private static void visitValue(MethodVisitor mv) {
+        mv.visitVarInsn(Opcodes.ALOAD, QUERY_STRING);
+        mv.visitVarInsn(Opcodes.ILOAD, VALUE_START);
+        mv.visitVarInsn(Opcodes.ILOAD, VALUE_END);
+    }
+
+    private static byte[] generateBinder(String className, String recordName, List<Field> fields) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, BINDER, null);
+        visitDefaultConstructor(cw, BINDER, "(L" + CALLBACK + ";)V");
+
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "reset", "(Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        for (Field field : fields) {
+            final Class<?> type = field.getType();
+            final String owner = Type.getInternalName(field.getDeclaringClass());
+            final String desc = Type.getDescriptor(type);
+            mv.visitVarInsn(Opcodes.ALOAD, RECORD);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, recordName);
+            if (type == StringBuilder.class) {
+                mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.getName(), desc);
+                mv.visitInsn(Opcodes.ICONST_0);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "setLength", "(I)V", false);
+                continue;
+            }
+            if (type == CharSequenceSlice.class) {
+                mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.getName(), desc);
+                mv.visitLdcInsn("");
+                mv.visitInsn(Opcodes.ICONST_0);
+                mv.visitInsn(Opcodes.ICONST_0);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SLICE, "set", RANGE_DESC + "L" + SLICE + ";", false);
+                mv.visitInsn(Opcodes.POP);
+                continue;
+            }
+            if (type == int.class) {
+                mv.visitInsn(Opcodes.ICONST_0);
+            } else if (type == long.class) {
+                mv.visitInsn(Opcodes.LCONST_0);
+            } else if (type == float.class) {
+                mv.visitInsn(Opcodes.FCONST_0);
+            } else if (type == double.class) {
+                mv.visitInsn(Opcodes.DCONST_0);
+            } else {
+                mv.visitInsn(Opcodes.ACONST_NULL);
+            }
+            mv.visitFieldInsn(Opcodes.PUTFIELD, owner, field.getName(), desc);
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * A final field with the NumberParseResult of the setter, and a public constructor that initializes it
+     */
+    private static void visitResultConstructor(ClassWriter cw, String className) {
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, RESULT_FIELD, RESULT_DESC, null, null).visitEnd();
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitTypeInsn(Opcodes.NEW, RESULT_TYPE);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, RESULT_TYPE, "<init>", "()V", false);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, className, RESULT_FIELD, RESULT_DESC);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * A public constructor that passes its arguments, none or a single reference, on to the superclass constructor
+     */
+    private static void visitDefaultConstructor(ClassWriter cw, String superName, String desc) {
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", desc, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        if (!"()V".equals(desc)) {
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+        }
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", desc, false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+}
@@ -0,0 +1,33 @@
+package com.indeed.util.urlparsing;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a public field of a record class to the value of a query string key, see {@link QueryStringBinder}.
+ * <p>
+ * Supported field types are int, long, float, double, String, StringBuilder and {@link CharSequenceSlice}. Numbers
+ * are parsed with {@link ParseUtils}, Strings are copied, and StringBuilder and CharSequenceSlice fields are reused,
+ * so they should be final and must not be null.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface QueryStringKey {
+    enum Type {
+        /** the value as it appears in the query string, or the number it contains */
+        DEFAULT,
+        /** the url decoded value, for String and StringBuilder fields */
+        URL_DECODED,
+        /** the timestamp in a UID, see {@link ParseUtils#parseTimestampFromUIDString}, for long fields */
+        UID_TIMESTAMP
+    }
+
+    /**
+     * @return the key whose value is stored in the field
+     */
+    String value();
+
+    Type type() default Type.DEFAULT;
+}
@@ -14,7 +14,7 @@ public class QueryStringParser {
      * @param storage Storage object, passed to each callback call
      */
     public static <T> void parseQueryString(String queryString, QueryStringParserCallback<T> callback, T storage) {
-        parseQueryString(queryString, callback, storage, 0, queryString.length(), "&", "=");
+        parseQueryString(queryString, callback, storage, 0, queryString.length(), '&', '=');
     }
 
     /**
@@ -27,6 +27,11 @@ public class QueryStringParser {
      * @param kvDelim String delimeted that occurs between a key and its value, e.g. "="
      */
     public static <T> void parseQueryString(String queryString, QueryStringParserCallback<T> callback, T storage, int qsStart, int qsEnd, String pairDelim, String kvDelim) {
+        if (pairDelim.length() == 1 && kvDelim.length() == 1) {
+            parseQueryString(queryString, callback, storage, qsStart, qsEnd, pairDelim.charAt(0), kvDelim.charAt(0));
+            return;
+        }
+
         int kvPairStart = qsStart;
         while (kvPairStart <= qsEnd) {
             // find where this key value pair ends
@@ -47,4 +52,127 @@ public class QueryStringParser {
             kvPairStart = kvPairEnd + pairDelim.length();
         }
     }
+
+    /**
+     * Single char delimiters are found in one pass over the query string, instead of separately searching for the end of
+     * the pair and then for the key value delimiter.
+     */
+    private static <T> void parseQueryString(String queryString, QueryStringParserCallback<T> callback, T storage, int qsStart, int qsEnd, char pairDelim, char kvDelim) {
+        int kvPairStart = qsStart;
+        while (kvPairStart <= qsEnd) {
+            // find the first delimiter of either kind
+            int i = kvPairStart;
+            while (i < qsEnd) {
+                final char c = queryString.charAt(i);
+                if (c == pairDelim || c == kvDelim) {
+                    break;
+                }
+                i++;
+            }
+
+            if (i < qsEnd && queryString.charAt(i) == kvDelim) {
+                final int equalPos = i;
+                // the rest of the pair can only end at a pair delimiter
+                i++;
+                while (i < qsEnd && queryString.charAt(i) != pairDelim) {
+                    i++;
+                }
+                callback.parseKeyValuePair(queryString, kvPairStart, equalPos, equalPos + 1, i, storage);
+            } else {
+                // no = found in this key value pair, treat it as a key with an empty string value
+                callback.parseKeyValuePair(queryString, kvPairStart, i, i, i, storage);
+            }
+
+            kvPairStart = i + 1;
+        }
+    }
+
+    /**
+     * Like {@link #parseQueryString(String, QueryStringParserCallback, Object)}, but stops as soon as the callback
+     * returns a negative state.
+     *
+     * @param queryString The raw urlParams string (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param callback Callback which is called for each key/value pair until it returns a negative state
+     * @param storage Storage object, passed to each callback call
+     */
+    public static <T> void parseQueryString(String queryString, StoppableQueryStringParserCallback<T> callback, T storage) {
+        parseQueryString(queryString, callback, storage, 0, queryString.length(), "&", "=");
+    }
+
+    /**
+     * Like {@link #parseQueryString(String, QueryStringParserCallback, Object, int, int, String, String)}, but stops as
+     * soon as the callback returns a negative state.
+     */
+    public static <T> void parseQueryString(String queryString, StoppableQueryStringParserCallback<T> callback, T storage, int qsStart, int qsEnd, String pairDelim, String kvDelim) {
+        parseWithState(queryString, callback, storage, qsStart, qsEnd, pairDelim, kvDelim);
+    }
+
+    /**
+     * Parses queryString with a filtered callback, see {@link QueryStringParserCallbackBuilder#buildFilteredCallback()}
+     *
+     * @return true if the query string passed the filters and the callbacks were called
+     */
+    public static <T> boolean parseQueryString(String queryString, FilteredQueryStringParserCallback<T> callback, T storage) {
+        return parseQueryString(queryString, callback, storage, 0, queryString.length(), "&", "=");
+    }
+
+    /**
+     * Like {@link #parseQueryString(String, QueryStringParserCallback, Object, int, int, String, String)}, but only
+     * calls the callbacks if the query string passes the filters of callback
+     *
+     * @return true if the query string passed the filters and the callbacks were called
+     */
+    public static <T> boolean parseQueryString(String queryString, FilteredQueryStringParserCallback<T> callback, T storage, int qsStart, int qsEnd, String pairDelim, String kvDelim) {
+        if (!callback.matches(queryString, qsStart, qsEnd, pairDelim, kvDelim)) {
+            return false;
+        }
+        parseQueryString(queryString, callback.getCallback(), storage, qsStart, qsEnd, pairDelim, kvDelim);
+        return true;
+    }
+
+    /**
+     * @return the state returned by the last call to callback, 0 if it was never called
+     */
+    static <T> long parseWithState(String queryString, StoppableQueryStringParserCallback<T> callback, T storage, int qsStart, int qsEnd, String pairDelim, String kvDelim) {
+        final boolean singleChars = pairDelim.length() == 1 && kvDelim.length() == 1;
+        long state = 0;
+        int kvPairStart = qsStart;
+        while (kvPairStart <= qsEnd && state >= 0) {
+            final int kvPairEnd;
+            final int equalPos;
+            if (singleChars) {
+                final char pairChar = pairDelim.charAt(0);
+                final char kvChar = kvDelim.charAt(0);
+                int i = kvPairStart;
+                while (i < qsEnd && queryString.charAt(i) != pairChar && queryString.charAt(i) != kvChar) {
+                    i++;
+                }
+                if (i < qsEnd && queryString.charAt(i) == kvChar) {
+                    equalPos = i;
+                    i++;
+                    while (i < qsEnd && queryString.charAt(i) != pairChar) {
+                        i++;
+                    }
+                } else {
+                    equalPos = -1;
+                }
+                kvPairEnd = i;
+            } else {
+                final int pairDelimPos = queryString.indexOf(pairDelim, kvPairStart);
+                kvPairEnd = pairDelimPos < 0 || pairDelimPos > qsEnd ? qsEnd : pairDelimPos;
+                final int kvDelimPos = queryString.indexOf(kvDelim, kvPairStart);
+                equalPos = kvDelimPos > kvPairEnd ? -1 : kvDelimPos;
+            }
+
+            if (equalPos < 0) {
+                // no = found in this key value pair, treat it as a key with an empty string value
+                state = callback.parseKeyValuePair(queryString, kvPairStart, kvPairEnd, kvPairEnd, kvPairEnd, storage, state);
+            } else {
+                state = callback.parseKeyValuePair(queryString, kvPairStart, equalPos, equalPos + kvDelim.length(), kvPairEnd, storage, state);
+            }
+
+            kvPairStart = kvPairEnd + pairDelim.length();
+        }
+        return state;
+    }
 }
@@ -1,9 +1,12 @@
 // $Id$
 package com.indeed.util.urlparsing;
 
-import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 /**
  * Class for building a more complicated and efficient URLParamCallback that calls other callbacks registered for specific keys.  The
@@ -13,6 +16,13 @@ import java.util.Collection;
  * @author preetha
  */
 public class QueryStringParserCallbackBuilder<T> {
+    private static final long SEED = 0x5DEECE66DL;
+
+    // attempts to find a perfect hash multiplier before doubling the table size
+    private static final int ATTEMPTS_PER_SIZE = 64;
+
+    private static final int MAX_TABLE_BITS = 24;
+
     private static class KeyCallbackPair<T> {
         private final String key;
 
@@ -34,70 +44,397 @@ public class QueryStringParserCallbackBuilder<T> {
 
     public ArrayList<KeyCallbackPair<T>> callbacks = new ArrayList<KeyCallbackPair<T>>();
 
+    private final Map<String, List<ValuePredicate>> filters = new LinkedHashMap<String, List<ValuePredicate>>();
+
+    private final Map<String, List<PrefixQueryStringParserCallback<T>>> prefixCallbacks = new LinkedHashMap<String, List<PrefixQueryStringParserCallback<T>>>();
+
+    // alias -> key it stands for
+    private final Map<String, String> aliases = new LinkedHashMap<String, String>();
+
+    private boolean ignoreCase;
+
     public void addCallback(String key, QueryStringParserCallback<T> callback) {
         callbacks.add(new KeyCallbackPair<T>(key, callback));
     }
 
+    /**
+     * Registers callback for every key that starts with prefix, e.g. "utm_" for "utm_source" and "utm_medium", or
+     * "jk" for "jk0" to "jk49". The callback is told the length of the matched prefix. Keys are matched against all
+     * prefixes in a single walk over a trie, so many prefixes cost no more than a few. A key that matches several
+     * prefixes calls each of their callbacks, shortest prefix first, after any callbacks for the exact key.
+     */
+    public void addPrefixCallback(String prefix, PrefixQueryStringParserCallback<T> callback) {
+        List<PrefixQueryStringParserCallback<T>> callbacks = prefixCallbacks.get(prefix);
+        if (callbacks == null) {
+            callbacks = new ArrayList<PrefixQueryStringParserCallback<T>>();
+            prefixCallbacks.put(prefix, callbacks);
+        }
+        callbacks.add(callback);
+    }
+
+    /**
+     * Adds a predicate on the raw value of key that a query string has to pass before any callback is called. Filters
+     * only apply to the callback built by {@link #buildFilteredCallback()}.
+     */
+    public void addFilter(String key, ValuePredicate predicate) {
+        List<ValuePredicate> keyFilters = filters.get(key);
+        if (keyFilters == null) {
+            keyFilters = new ArrayList<ValuePredicate>();
+            filters.put(key, keyFilters);
+        }
+        keyFilters.add(predicate);
+    }
+
+    /**
+     * Matches keys and prefixes regardless of ASCII case, e.g. "Q", "q" all call the callbacks for "q". Case is folded
+     * while hashing and comparing the key, so no lower case copy of the key is created. The same applies to filters.
+     */
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Makes alias call the callbacks registered for key, e.g. a legacy "query" for "q". An alias and its key count as
+     * the same key for {@link #buildStoppableCallback()}, so parsing can stop once either of them has been seen, and
+     * for filters, so a filter on key also tests the value of alias.
+     */
+    public void addAlias(String alias, String key) {
+        if (alias.equals(key)) {
+            throw new IllegalArgumentException("Key can't be an alias of itself: " + key);
+        }
+        aliases.put(alias, key);
+    }
+
     public QueryStringParserCallback<T> buildCallback() {
-        return new CompositeCallback<T>(callbacks);
+        return withPrefixes(new CompositeCallback<T>(callbacksByKey(), canonicalKeys(), ignoreCase));
+    }
+
+    /**
+     * Like {@link #buildCallback()}, but parsing stops once every registered key has been seen, so any later repeats of
+     * a key are ignored. Early exit only applies if at most 63 distinct keys are registered.
+     *
+     * @throws IllegalStateException if prefix callbacks are registered, since any later key could match them
+     */
+    public StoppableQueryStringParserCallback<T> buildStoppableCallback() {
+        if (!prefixCallbacks.isEmpty()) {
+            throw new IllegalStateException("Parsing can't stop early with prefix callbacks");
+        }
+        return new CompositeCallback<T>(callbacksByKey(), canonicalKeys(), ignoreCase);
+    }
+
+    /**
+     * Like {@link #buildCallback()}, but generates a class with the registered keys compiled into comparisons on the
+     * key length and chars. Every key gets its own call site for its callbacks, so the JIT can inline them instead of
+     * going through a single megamorphic call. Generating the class takes much longer than building the hash table of
+     * buildCallback(), so only use this for callbacks that live for a long time.
+     * Falls back to buildCallback() if there are too many keys to fit in one method.
+     */
+    public QueryStringParserCallback<T> buildCompiledCallback() {
+        final Map<String, List<QueryStringParserCallback<T>>> callbacksByKey = callbacksByKey();
+        final QueryStringParserCallback<T> compiled = CompiledCallbackGenerator.generate(callbacksByKey, ignoreCase);
+        return withPrefixes(compiled != null ? compiled : new CompositeCallback<T>(callbacksByKey, canonicalKeys(), ignoreCase));
+    }
+
+    /**
+     * @return exact if there are no prefix callbacks, otherwise a callback that calls exact and the prefix callbacks
+     */
+    private QueryStringParserCallback<T> withPrefixes(QueryStringParserCallback<T> exact) {
+        if (prefixCallbacks.isEmpty()) {
+            return exact;
+        }
+        return new PrefixTrieCallback<T>(callbacks.isEmpty() ? null : exact, prefixCallbacks, ignoreCase);
+    }
+
+    /**
+     * Like {@link #buildCallback()}, but the callbacks are only called for query strings that pass every filter added
+     * with {@link #addFilter}, see {@link FilteredQueryStringParserCallback}. At most 63 keys can be filtered, a key
+     * and its aliases count as one.
+     */
+    public FilteredQueryStringParserCallback<T> buildFilteredCallback() {
+        final Map<String, String> canonicalKeys = canonicalKeys();
+        final Map<String, List<ValuePredicate>> predicatesByKey = new LinkedHashMap<String, List<ValuePredicate>>();
+        for (Map.Entry<String, List<ValuePredicate>> filter : filters.entrySet()) {
+            final String normalized = normalize(filter.getKey());
+            final String key = canonicalKeys.containsKey(normalized) ? canonicalKeys.get(normalized) : normalized;
+            List<ValuePredicate> keyPredicates = predicatesByKey.get(key);
+            if (keyPredicates == null) {
+                keyPredicates = new ArrayList<ValuePredicate>();
+                predicatesByKey.put(key, keyPredicates);
+            }
+            keyPredicates.addAll(filter.getValue());
+        }
+        return new FilteredQueryStringParserCallback<T>(buildCallback(), predicatesByKey, canonicalKeys, ignoreCase);
+    }
+
+    /**
+     * @return the registered callbacks grouped by key, both in registration order. Keys are case folded if case is
+     * ignored, and each alias has the callbacks of its key after any registered for the alias itself.
+     */
+    private Map<String, List<QueryStringParserCallback<T>>> callbacksByKey() {
+        final Map<String, List<QueryStringParserCallback<T>>> callbacksByKey = new LinkedHashMap<String, List<QueryStringParserCallback<T>>>();
+        for (KeyCallbackPair<T> keyCallbackPair : callbacks) {
+            final String key = normalize(keyCallbackPair.getKey());
+            List<QueryStringParserCallback<T>> keyCallbacks = callbacksByKey.get(key);
+            if (keyCallbacks == null) {
+                keyCallbacks = new ArrayList<QueryStringParserCallback<T>>();
+                callbacksByKey.put(key, keyCallbacks);
+            }
+            keyCallbacks.add(keyCallbackPair.getCallback());
+        }
+        final Map<String, List<QueryStringParserCallback<T>>> aliasCallbacks = new LinkedHashMap<String, List<QueryStringParserCallback<T>>>();
+        for (Map.Entry<String, String> alias : canonicalKeys().entrySet()) {
+            final List<QueryStringParserCallback<T>> keyCallbacks = callbacksByKey.get(alias.getValue());
+            if (keyCallbacks != null) {
+                final List<QueryStringParserCallback<T>> combined = new ArrayList<QueryStringParserCallback<T>>();
+                if (callbacksByKey.containsKey(alias.getKey())) {
+                    combined.addAll(callbacksByKey.get(alias.getKey()));
+                }
+                combined.addAll(keyCallbacks);
+                aliasCallbacks.put(alias.getKey(), combined);
+            }
+        }
+        callbacksByKey.putAll(aliasCallbacks);
+        return callbacksByKey;
+    }
+
+    /**
+     * @return the key each alias stands for, following aliases of aliases, with keys case folded if case is ignored
+     */
+    private Map<String, String> canonicalKeys() {
+        final Map<String, String> normalized = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, String> alias : aliases.entrySet()) {
+            // with case ignored "Q" is not an alias of "q" but the same key
+            if (!normalize(alias.getKey()).equals(normalize(alias.getValue()))) {
+                normalized.put(normalize(alias.getKey()), normalize(alias.getValue()));
+            }
+        }
+        final Map<String, String> canonicalKeys = new LinkedHashMap<String, String>();
+        for (String alias : normalized.keySet()) {
+            String key = normalized.get(alias);
+            int hops = 0;
+            while (normalized.containsKey(key)) {
+                if (++hops > normalized.size()) {
+                    throw new IllegalStateException("Aliases form a cycle: " + alias);
+                }
+                key = normalized.get(key);
+            }
+            canonicalKeys.put(alias, key);
+        }
+        return canonicalKeys;
+    }
+
+    private String normalize(String key) {
+        return ignoreCase ? foldCase(key) : key;
+    }
+
+    /**
+     * @return c in lower case if it is an upper case ASCII letter, otherwise c
+     */
+    static char foldCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    static String foldCase(String key) {
+        final char[] chars = key.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = foldCase(chars[i]);
+        }
+        return new String(chars);
     }
 
-    private static class CompositeCallback<T> implements QueryStringParserCallback<T> {
-        // map from hash of the targeted param key to the slot where it resides
-        private final Int2IntOpenHashMap slotMap;
+    /**
+     * Collision free hash table from a fixed set of keys to their index, built once for those keys. Keys whose length no
+     * key in the table has are rejected before hashing, most keys in a query string are not registered so that miss
+     * path has to be cheap.
+     */
+    static class KeyTable {
+        // keys are case folded and compared to case folded keys
+        private final boolean ignoreCase;
+
+        // bit n is set if a key of length n is in the table, lengths >= 63 share the last bit
+        private final long keyLengths;
+
+        private final int hashMultiplier;
 
-        // handles hash collisions and multiple callbacks for the same key
-        private final int[] nextSlot;
+        private final int shift;
 
-        private final String[] keys;
+        // map from slot of the hashed key to its index in keys, -1 for empty slots
+        private final int[] table;
+
+        final String[] keys;
+
+        /**
+         * @param keys distinct keys, already case folded if case is ignored
+         */
+        KeyTable(String[] keys, boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            this.keys = keys;
+            long lengths = 0;
+            for (String key : keys) {
+                lengths |= lengthBit(key.length());
+            }
+            keyLengths = lengths;
+
+            // search for a multiplier that puts every key in its own slot, growing the table if that takes too long
+            final Random random = new Random(SEED);
+            int bits = 1;
+            while ((1 << bits) < keys.length * 2) {
+                bits++;
+            }
+            int multiplier = 0;
+            int[] candidate = null;
+            while (candidate == null) {
+                for (int attempt = 0; attempt < ATTEMPTS_PER_SIZE && candidate == null; attempt++) {
+                    multiplier = random.nextInt() | 1;
+                    candidate = buildTable(keys, multiplier, bits);
+                }
+                if (candidate == null && ++bits > MAX_TABLE_BITS) {
+                    throw new IllegalStateException("Unable to build a perfect hash table for " + keys.length + " keys");
+                }
+            }
+            table = candidate;
+            hashMultiplier = multiplier;
+            shift = 32 - bits;
+        }
+
+        /**
+         * @return the table, or null if two keys land in the same slot
+         */
+        private static int[] buildTable(String[] keys, int multiplier, int bits) {
+            final int[] table = new int[1 << bits];
+            Arrays.fill(table, -1);
+            for (int k = 0; k < keys.length; k++) {
+                final int slot = hash(keys[k], 0, keys[k].length(), multiplier, false) >>> (32 - bits);
+                if (table[slot] != -1) {
+                    return null;
+                }
+                table[slot] = k;
+            }
+            return table;
+        }
+
+        /**
+         * @return index into keys of the key, or -1 if it is not in the table
+         */
+        final int findKey(String queryString, int keyStart, int keyEnd) {
+            final int length = keyEnd - keyStart;
+            if ((keyLengths & lengthBit(length)) == 0) {
+                return -1;
+            }
+            final int k = table[hash(queryString, keyStart, keyEnd, hashMultiplier, ignoreCase) >>> shift];
+            if (k < 0) {
+                return -1;
+            }
+            final String currentKey = keys[k];
+            if (currentKey.length() != length) {
+                return -1;
+            }
+            if (!ignoreCase) {
+                return queryString.startsWith(currentKey, keyStart) ? k : -1; // equiv to keys[k].equals(key)
+            }
+            for (int i = 0; i < length; i++) {
+                if (foldCase(queryString.charAt(keyStart + i)) != currentKey.charAt(i)) {
+                    return -1;
+                }
+            }
+            return k;
+        }
+
+        private static long lengthBit(int length) {
+            return 1L << Math.min(length, 63);
+        }
+
+        private static int hash(String string, int start, int end, int multiplier, boolean ignoreCase) {
+            // starting from the length separates keys that only differ by trailing '\0' chars
+            int ret = end - start;
+            if (ignoreCase) {
+                for (int i = start; i < end; i++) {
+                    ret = (ret + foldCase(string.charAt(i))) * multiplier;
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    ret = (ret + string.charAt(i)) * multiplier;
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Dispatches to the registered callbacks through a {@link KeyTable} of the registered keys
+     */
+    private static class CompositeCallback<T> extends KeyTable implements QueryStringParserCallback<T>, StoppableQueryStringParserCallback<T> {
+        // false if there are too many keys to track in the bits of the state, then parsing never stops early
+        private final boolean trackSeenKeys;
+
+        // state value once all keys have been seen, only meaningful if trackSeenKeys
+        private final long allKeysSeen;
+
+        // bit that is set in the state once keys[i] has been seen, aliases share the bit of their key
+        private final long[] seenBits;
+
+        // callbacks for keys[i] are callbacks[callbackStart[i]] until callbacks[callbackStart[i + 1]]
+        private final int[] callbackStart;
 
         // callbacks, uses objects due to generic array creation issues
         private final Object[] callbacks;
 
-        public CompositeCallback(Collection<KeyCallbackPair<T>> keyCallbackPairs) {
-            slotMap = new Int2IntOpenHashMap(keyCallbackPairs.size());
-            nextSlot = new int[keyCallbackPairs.size()];
-            keys = new String[keyCallbackPairs.size()];
-            callbacks = new Object[keyCallbackPairs.size()];
-
+        public CompositeCallback(Map<String, List<QueryStringParserCallback<T>>> callbacksByKey, Map<String, String> canonicalKeys, boolean ignoreCase) {
+            super(callbacksByKey.keySet().toArray(new String[callbacksByKey.size()]), ignoreCase);
+            callbackStart = new int[keys.length + 1];
+            int numCallbacks = 0;
+            for (List<QueryStringParserCallback<T>> keyCallbacks : callbacksByKey.values()) {
+                numCallbacks += keyCallbacks.size();
+            }
+            callbacks = new Object[numCallbacks];
             int i = 0;
-            for (KeyCallbackPair<T> keyCallbackPair : keyCallbackPairs) {
-                String key = keyCallbackPair.getKey();
-                int hash = hash(key, 0, key.length());
-                if (slotMap.containsKey(hash))  {
-                    nextSlot[i] = slotMap.get(hash);
-                } else {
-                    nextSlot[i] = -1;
+            for (int k = 0; k < keys.length; k++) {
+                callbackStart[k] = i;
+                for (QueryStringParserCallback<T> callback : callbacksByKey.get(keys[k])) {
+                    callbacks[i++] = callback;
+                }
+            }
+            callbackStart[keys.length] = i;
+
+            final Map<String, Integer> groups = new LinkedHashMap<String, Integer>();
+            for (String key : keys) {
+                final String canonical = canonicalKeys.containsKey(key) ? canonicalKeys.get(key) : key;
+                if (!groups.containsKey(canonical)) {
+                    groups.put(canonical, groups.size());
                 }
-                slotMap.put(hash, i);
-                keys[i] = key;
-                callbacks[i] = keyCallbackPair.getCallback();
-                i++;
             }
+            seenBits = new long[keys.length];
+            for (int k = 0; k < keys.length; k++) {
+                final int group = groups.get(canonicalKeys.containsKey(keys[k]) ? canonicalKeys.get(keys[k]) : keys[k]);
+                seenBits[k] = group < 63 ? 1L << group : 0;
+            }
+            trackSeenKeys = groups.size() < 64;
+            allKeysSeen = trackSeenKeys ? (1L << groups.size()) - 1 : 0;
         }
 
         public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, T storage) {
-            // equiv to String key = queryString.substring(keyStart, keyEnd);
-            int length = keyEnd-keyStart;
-            int hash = hash(queryString, keyStart, keyEnd); // equiv to key.hashCode();
-            Integer slot = slotMap.get(hash);
-            while (slot != null && slot != -1) {
-                String currentKey = keys[slot];
-                if (currentKey.length() == length && queryString.startsWith(currentKey, keyStart)) { // equiv to keys[slot].equals(key)
-                    // call the callback
-                    QueryStringParserCallback<T> callback = (QueryStringParserCallback<T>)callbacks[slot];
-                    callback.parseKeyValuePair(queryString, keyStart, keyEnd, valueStart, valueEnd, storage);
-                }
-                slot = nextSlot[slot];
+            final int k = findKey(queryString, keyStart, keyEnd);
+            if (k >= 0) {
+                callCallbacks(k, queryString, keyStart, keyEnd, valueStart, valueEnd, storage);
             }
         }
 
-        private static int hash(String string, int start, int end) {
-            int ret = 0;
-            for (int i = start; i < end; i++) {
-                ret = 31 * ret + string.charAt(i);
+        public long parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, T storage, long state) {
+            final int k = findKey(queryString, keyStart, keyEnd);
+            if (k < 0) {
+                return state;
+            }
+            callCallbacks(k, queryString, keyStart, keyEnd, valueStart, valueEnd, storage);
+            final long seen = state | seenBits[k];
+            return trackSeenKeys && seen == allKeysSeen ? -1 : seen;
+        }
+
+        private void callCallbacks(int k, String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, T storage) {
+            final int end = callbackStart[k + 1];
+            for (int i = callbackStart[k]; i < end; i++) {
+                final QueryStringParserCallback<T> callback = (QueryStringParserCallback<T>)callbacks[i];
+                callback.parseKeyValuePair(queryString, keyStart, keyEnd, valueStart, valueEnd, storage);
             }
-            return ret;
         }
     }
-}
\ No newline at end of file
+}
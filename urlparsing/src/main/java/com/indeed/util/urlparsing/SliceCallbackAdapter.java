@@ -0,0 +1,24 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Passes the pairs found by {@link QueryStringParser} to a {@link SliceQueryStringParserCallback}, reusing the same two
+ * slices for every pair so no garbage is created. Can be used anywhere a QueryStringParserCallback can, including
+ * {@link QueryStringParserCallbackBuilder#addCallback}. Because of the reused slices it is not thread safe, create one
+ * adapter per thread.
+ */
+public final class SliceCallbackAdapter<T> implements QueryStringParserCallback<T> {
+    private final SliceQueryStringParserCallback<T> callback;
+
+    private final CharSequenceSlice key = new CharSequenceSlice();
+
+    private final CharSequenceSlice value = new CharSequenceSlice();
+
+    public SliceCallbackAdapter(SliceQueryStringParserCallback<T> callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, T storage) {
+        callback.parseKeyValuePair(key.set(queryString, keyStart, keyEnd), value.set(queryString, valueStart, valueEnd), storage);
+    }
+}
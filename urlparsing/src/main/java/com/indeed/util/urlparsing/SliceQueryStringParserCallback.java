@@ -0,0 +1,14 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Callback that gets the key and value of each pair as a {@link CharSequenceSlice} instead of offsets, use
+ * {@link SliceCallbackAdapter} to parse with it.
+ */
+public interface SliceQueryStringParserCallback<T> {
+    /**
+     * @param key The key of this key/value pair, only valid until the callback returns
+     * @param value The value of this key/value pair, only valid until the callback returns
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     */
+    void parseKeyValuePair(CharSequenceSlice key, CharSequenceSlice value, T storage);
+}
@@ -0,0 +1,20 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Callback that can stop {@link QueryStringParser} before the end of the query string, e.g. once every key it is
+ * interested in has been seen. The parser passes the value returned for the previous pair back in as state, so
+ * callbacks can track progress through a query string without keeping any state of their own.
+ */
+public interface StoppableQueryStringParserCallback<T> {
+    /**
+     * @param queryString The raw queryString (e.g. "key1=value1&key2=value2&key3=value3&key4=value4")
+     * @param keyStart Index into queryString where the key in this key/value begins (inclusive)
+     * @param keyEnd Index into queryString where the key in this key/value ends (exclusive)
+     * @param valueStart Index into queryString where the value in this key/value begins (inclusive)
+     * @param valueEnd Index into queryString where the value in this key/value ends (exclusive)
+     * @param storage Object where to store parsed values, specific to each callback implementation
+     * @param state Value returned by the call for the previous pair, 0 for the first pair
+     * @return state for the next pair, or a negative value to stop parsing
+     */
+    long parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, T storage, long state);
+}
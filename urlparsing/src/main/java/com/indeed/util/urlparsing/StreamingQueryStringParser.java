@@ -0,0 +1,222 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Parses query strings of any length, e.g. form encoded POST bodies or concatenated query strings, as they are read
+ * from a stream, without first reading them into one String. Data is read into a fixed size buffer, and the callback
+ * is called for every pair as soon as it is complete. The unfinished pair at the end of the buffer is moved to its
+ * start before reading more, so memory use doesn't depend on the length of the input. Every pair together with the
+ * delimiter after it has to fit into the buffer.
+ * <p>
+ * Byte input is parsed like {@link ByteQueryStringParser} does, and the callbacks get offsets into the internal buffer,
+ * which are only valid until the callback returns. Char input is passed to a {@link SliceQueryStringParserCallback}
+ * as slices of the internal buffer. Unlike {@link QueryStringParser}, an empty pair after the last delimiter, e.g.
+ * after a trailing "&amp;", is not passed to the callback.
+ * <p>
+ * Instances reuse their buffers and are not thread safe, keep one per thread. The byte and char buffers are allocated
+ * on first use, so a parser that only reads one kind of input only holds one buffer.
+ */
+public final class StreamingQueryStringParser {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final char pairDelim;
+
+    private final char kvDelim;
+
+    private final int bufferSize;
+
+    // allocated by the first parse of byte input
+    private byte[] bytes;
+
+    private ByteBuffer byteBuffer;
+
+    // allocated by the first parse of char input
+    private char[] chars;
+
+    private CharBuffer charBuffer;
+
+    private final CharSequenceSlice key = new CharSequenceSlice();
+
+    private final CharSequenceSlice value = new CharSequenceSlice();
+
+    public StreamingQueryStringParser() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize size of the read buffer, more than the maximum length of a pair
+     */
+    public StreamingQueryStringParser(int bufferSize) {
+        this(bufferSize, '&', '=');
+    }
+
+    /**
+     * @param bufferSize size of the read buffer, more than the maximum length of a pair
+     * @param pairDelim delimiter that occurs between keyvalue pairs, ASCII so that it can be found in UTF-8 bytes
+     * @param kvDelim delimiter that occurs between a key and its value, ASCII so that it can be found in UTF-8 bytes
+     */
+    public StreamingQueryStringParser(int bufferSize, char pairDelim, char kvDelim) {
+        Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive");
+        Preconditions.checkArgument(pairDelim < 0x80 && kvDelim < 0x80 && pairDelim != kvDelim, "Delimiters must be distinct ASCII chars");
+        this.pairDelim = pairDelim;
+        this.kvDelim = kvDelim;
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Parses everything that can be read from the blocking channel, without closing it
+     *
+     * @return the number of pairs parsed
+     * @throws IOException if reading fails, or a pair doesn't fit into the buffer
+     */
+    public <T> long parse(ReadableByteChannel channel, ByteQueryStringParserCallback<T> callback, T storage) throws IOException {
+        return parse(channel, null, callback, storage);
+    }
+
+    /**
+     * Parses everything that can be read from the stream, without closing it
+     *
+     * @return the number of pairs parsed
+     * @throws IOException if reading fails, or a pair doesn't fit into the buffer
+     */
+    public <T> long parse(InputStream in, ByteQueryStringParserCallback<T> callback, T storage) throws IOException {
+        return parse(null, in, callback, storage);
+    }
+
+    private <T> long parse(ReadableByteChannel channel, InputStream in, ByteQueryStringParserCallback<T> callback, T storage) throws IOException {
+        if (bytes == null) {
+            bytes = new byte[bufferSize];
+            byteBuffer = ByteBuffer.wrap(bytes);
+        }
+        final byte pairDelim = (byte) this.pairDelim;
+        long pairs = 0;
+        long consumed = 0;
+        int pairStart = 0;
+        int filled = 0;
+        while (true) {
+            final int read;
+            if (channel != null) {
+                byteBuffer.limit(bytes.length);
+                byteBuffer.position(filled);
+                read = channel.read(byteBuffer);
+            } else {
+                read = in.read(bytes, filled, bytes.length - filled);
+            }
+            if (read < 0) {
+                break;
+            }
+
+            final int end = filled + read;
+            for (int i = filled; i < end; i++) {
+                if (bytes[i] == pairDelim) {
+                    emitPair(pairStart, i, callback, storage);
+                    pairs++;
+                    pairStart = i + 1;
+                }
+            }
+            filled = end;
+
+            if (filled == bytes.length) {
+                if (pairStart == 0) {
+                    throw new IOException("Pair at offset " + consumed + " doesn't fit into the buffer size " + bytes.length);
+                }
+                // carry the unfinished pair over to the start of the buffer
+                System.arraycopy(bytes, pairStart, bytes, 0, filled - pairStart);
+                consumed += pairStart;
+                filled -= pairStart;
+                pairStart = 0;
+            }
+        }
+        if (pairStart < filled) {
+            emitPair(pairStart, filled, callback, storage);
+            pairs++;
+        }
+        return pairs;
+    }
+
+    private <T> void emitPair(int pairStart, int pairEnd, ByteQueryStringParserCallback<T> callback, T storage) {
+        final byte kvDelim = (byte) this.kvDelim;
+        for (int i = pairStart; i < pairEnd; i++) {
+            if (bytes[i] == kvDelim) {
+                callback.parseKeyValuePair(bytes, pairStart, i, i + 1, pairEnd, storage);
+                return;
+            }
+        }
+        // no = found in this key value pair, treat it as a key with an empty string value
+        callback.parseKeyValuePair(bytes, pairStart, pairEnd, pairEnd, pairEnd, storage);
+    }
+
+    /**
+     * Parses everything that can be read from the reader, without closing it. The slices passed to the callback are
+     * reused and only valid until it returns.
+     *
+     * @return the number of pairs parsed
+     * @throws IOException if reading fails, or a pair doesn't fit into the buffer
+     */
+    public <T> long parse(Reader reader, SliceQueryStringParserCallback<T> callback, T storage) throws IOException {
+        if (chars == null) {
+            chars = new char[bufferSize];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        long pairs = 0;
+        long consumed = 0;
+        int pairStart = 0;
+        int filled = 0;
+        while (true) {
+            final int read = reader.read(chars, filled, chars.length - filled);
+            if (read < 0) {
+                break;
+            }
+
+            final int end = filled + read;
+            for (int i = filled; i < end; i++) {
+                if (chars[i] == pairDelim) {
+                    emitPair(pairStart, i, callback, storage);
+                    pairs++;
+                    pairStart = i + 1;
+                }
+            }
+            filled = end;
+
+            if (filled == chars.length) {
+                if (pairStart == 0) {
+                    throw new IOException("Pair at offset " + consumed + " doesn't fit into the buffer size " + chars.length);
+                }
+                System.arraycopy(chars, pairStart, chars, 0, filled - pairStart);
+                consumed += pairStart;
+                filled -= pairStart;
+                pairStart = 0;
+            }
+        }
+        if (pairStart < filled) {
+            emitPair(pairStart, filled, callback, storage);
+            pairs++;
+        }
+        return pairs;
+    }
+
+    private <T> void emitPair(int pairStart, int pairEnd, SliceQueryStringParserCallback<T> callback, T storage) {
+        int valueStart = pairEnd;
+        int keyEnd = pairEnd;
+        for (int i = pairStart; i < pairEnd; i++) {
+            if (chars[i] == kvDelim) {
+                keyEnd = i;
+                valueStart = i + 1;
+                break;
+            }
+        }
+        callback.parseKeyValuePair(key.set(charBuffer, pairStart, keyEnd), value.set(charBuffer, valueStart, pairEnd), storage);
+    }
+}
@@ -0,0 +1,217 @@
+package com.indeed.util.urlparsing;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the k most frequent values in bounded memory. All values are counted in a {@link CountMinSketch}, and a value
+ * only becomes a String once its estimated count is higher than the lowest count of the current top k, so the long
+ * tail of rare values never creates garbage. Counts are the sketch's estimates, which can be too high but never too
+ * low.
+ * <pre>
+ * final TopKCounter topQueries = new TopKCounter(100);
+ * ...
+ *     topQueries.add(queryString, valueStart, valueEnd);
+ * </pre>
+ * Counters with the same parameters can be combined with {@link #merge}. Not thread safe.
+ */
+public final class TopKCounter {
+    private static final int DEFAULT_DEPTH = 5;
+
+    // sketch counts per top value, so that errors are small compared to the counts of the top values
+    private static final int DEFAULT_WIDTH_PER_VALUE = 256;
+
+    private static final Comparator<Entry> BY_COUNT_DESCENDING = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            return e1.count > e2.count ? -1 : e1.count < e2.count ? 1 : 0;
+        }
+    };
+
+    private final int k;
+
+    private final CountMinSketch sketch;
+
+    // min heap on counts of the current top values
+    private final long[] hashes;
+
+    private final long[] counts;
+
+    private final String[] values;
+
+    private int size;
+
+    // hash -> index in the heap
+    private final Long2IntOpenHashMap positions;
+
+    public TopKCounter(int k) {
+        this(k, DEFAULT_DEPTH, Math.max(1024, k * DEFAULT_WIDTH_PER_VALUE));
+    }
+
+    /**
+     * @param depth depth of the underlying {@link CountMinSketch}
+     * @param width width of the underlying {@link CountMinSketch}
+     */
+    public TopKCounter(int k, int depth, int width) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        sketch = new CountMinSketch(depth, width);
+        hashes = new long[k];
+        counts = new long[k];
+        values = new String[k];
+        positions = new Long2IntOpenHashMap(2 * k);
+        positions.defaultReturnValue(-1);
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @return the sketch that all values are counted in
+     */
+    public CountMinSketch getSketch() {
+        return sketch;
+    }
+
+    /**
+     * Adds one occurrence of the chars of s from start to end
+     */
+    public void add(CharSequence s, int start, int end) {
+        add(s, start, end, 1);
+    }
+
+    public void add(CharSequence s, int start, int end, long count) {
+        final long hash = CharSequenceSlice.hash64(s, start, end);
+        offer(hash, sketch.addHash(hash, count), s, start, end);
+    }
+
+    private void offer(long hash, long count, CharSequence s, int start, int end) {
+        final int position = positions.get(hash);
+        if (position >= 0) {
+            // counts only grow, so the value can only move down
+            counts[position] = count;
+            siftDown(position);
+        } else if (size < k) {
+            set(size, hash, count, s.subSequence(start, end).toString());
+            siftUp(size++);
+        } else if (count > counts[0]) {
+            positions.remove(hashes[0]);
+            set(0, hash, count, s.subSequence(start, end).toString());
+            siftDown(0);
+        }
+    }
+
+    private void set(int position, long hash, long count, String value) {
+        hashes[position] = hash;
+        counts[position] = count;
+        values[position] = value;
+        positions.put(hash, position);
+    }
+
+    private void swap(int i, int j) {
+        final long hash = hashes[i];
+        final long count = counts[i];
+        final String value = values[i];
+        set(i, hashes[j], counts[j], values[j]);
+        set(j, hash, count, value);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            final int left = 2 * position + 1;
+            if (left >= size) {
+                return;
+            }
+            final int smallest = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+            if (counts[position] <= counts[smallest]) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    /**
+     * @return up to k values with their estimated counts, most frequent first
+     */
+    public List<Entry> getTopK() {
+        final List<Entry> entries = new ArrayList<Entry>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(values[i], counts[i]));
+        }
+        Collections.sort(entries, BY_COUNT_DESCENDING);
+        return entries;
+    }
+
+    /**
+     * Adds the counts of other to this counter. The top values of both are counted again in the merged sketch.
+     *
+     * @throws IllegalArgumentException if k or the sketch dimensions differ
+     */
+    public void merge(TopKCounter other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Can't merge top " + other.k + " into top " + k);
+        }
+        sketch.merge(other.sketch);
+        final List<String> candidates = new ArrayList<String>(size + other.size);
+        final LongOpenHashSet candidateHashes = new LongOpenHashSet(size + other.size);
+        for (int i = 0; i < size; i++) {
+            candidates.add(values[i]);
+            candidateHashes.add(hashes[i]);
+        }
+        for (int i = 0; i < other.size; i++) {
+            if (candidateHashes.add(other.hashes[i])) {
+                candidates.add(other.values[i]);
+            }
+        }
+        positions.clear();
+        size = 0;
+        for (String value : candidates) {
+            final long hash = CharSequenceSlice.hash64(value, 0, value.length());
+            offer(hash, sketch.estimateHash(hash), value, 0, value.length());
+        }
+    }
+
+    public static final class Entry {
+        private final String value;
+
+        private final long count;
+
+        private Entry(String value, long count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return value + "=" + count;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.indeed.util.urlparsing;
+
+import java.util.Arrays;
+
+/**
+ * Offsets of the components of a URL found by {@link UrlParser}, reused from URL to URL. For
+ * "http://user@example.com:8080/a/b?q=1#top" the components are
+ * <pre>
+ * SCHEME    http
+ * USER_INFO user
+ * HOST      example.com
+ * PORT      8080
+ * PATH      /a/b
+ * QUERY     q=1
+ * FRAGMENT  top
+ * </pre>
+ * Delimiters are not part of any component. Components that are not in the URL have start and end -1, so an empty
+ * query ("http://example.com/?") can be told apart from a missing one. The path is always present, but may be empty.
+ */
+public final class UrlComponents {
+    public enum Component {
+        SCHEME, USER_INFO, HOST, PORT, PATH, QUERY, FRAGMENT
+    }
+
+    private static final int NUM_COMPONENTS = Component.values().length;
+
+    private String url;
+
+    // start and end of each component, by ordinal
+    private final int[] offsets = new int[2 * NUM_COMPONENTS];
+
+    private int port;
+
+    public UrlComponents() {
+        reset(null);
+    }
+
+    void reset(String url) {
+        this.url = url;
+        Arrays.fill(offsets, -1);
+        port = -1;
+    }
+
+    void set(Component component, int start, int end) {
+        offsets[2 * component.ordinal()] = start;
+        offsets[2 * component.ordinal() + 1] = end;
+    }
+
+    void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * @return the url the offsets point into
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean has(Component component) {
+        return offsets[2 * component.ordinal()] >= 0;
+    }
+
+    /**
+     * @return index into getUrl() where the component begins (inclusive), or -1 if it is missing
+     */
+    public int getStart(Component component) {
+        return offsets[2 * component.ordinal()];
+    }
+
+    /**
+     * @return index into getUrl() where the component ends (exclusive), or -1 if it is missing
+     */
+    public int getEnd(Component component) {
+        return offsets[2 * component.ordinal() + 1];
+    }
+
+    /**
+     * @return the port number, or -1 if the URL has no port or it is not a number from 0 to 65535
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Points slice at the component without copying it
+     *
+     * @return slice, or null if the component is missing
+     */
+    public CharSequenceSlice get(Component component, CharSequenceSlice slice) {
+        return has(component) ? slice.set(url, getStart(component), getEnd(component)) : null;
+    }
+
+    /**
+     * @return a copy of the component, or null if it is missing
+     */
+    public String toString(Component component) {
+        return has(component) ? url.substring(getStart(component), getEnd(component)) : null;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("UrlComponents{");
+        for (Component component : Component.values()) {
+            if (has(component)) {
+                if (sb.length() > "UrlComponents{".length()) {
+                    sb.append(", ");
+                }
+                sb.append(component).append('=').append(toString(component));
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
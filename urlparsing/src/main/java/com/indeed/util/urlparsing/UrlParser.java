@@ -0,0 +1,210 @@
+package com.indeed.util.urlparsing;
+
+import com.indeed.util.urlparsing.UrlComponents.Component;
+
+/**
+ * Splits URLs into scheme, user info, host, port, path, query and fragment (RFC 3986) by finding their offsets, without
+ * creating any objects. Meant for referrers and other URLs found in logs, so it is lenient: any string is accepted and
+ * split as far as it makes sense, e.g. "example.com/a?b" has no scheme or host, only a path and a query, and a port
+ * that is not a number is found but {@link UrlComponents#getPort()} returns -1. Nothing is decoded or validated.
+ * <pre>
+ * final UrlComponents components = new UrlComponents();
+ * ...
+ *     UrlParser.parse(referrer, components);
+ *     UrlParser.parseQueryString(components, callback, storage);
+ * </pre>
+ */
+public final class UrlParser {
+    private UrlParser() {
+    }
+
+    public static void parse(String url, UrlComponents components) {
+        parse(url, 0, url.length(), components);
+    }
+
+    /**
+     * Finds the components of the URL in url from start to end. Leading and trailing spaces and control chars are
+     * skipped.
+     */
+    public static void parse(String url, int start, int end, UrlComponents components) {
+        components.reset(url);
+        while (start < end && url.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && url.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        // fragment and query first, so that '?' and '#' in them can't end up in the other components
+        int hierarchicalEnd = end;
+        final int fragmentDelim = indexOf(url, '#', start, end);
+        if (fragmentDelim >= 0) {
+            components.set(Component.FRAGMENT, fragmentDelim + 1, end);
+            hierarchicalEnd = fragmentDelim;
+        }
+        final int queryDelim = indexOf(url, '?', start, hierarchicalEnd);
+        if (queryDelim >= 0) {
+            components.set(Component.QUERY, queryDelim + 1, hierarchicalEnd);
+            hierarchicalEnd = queryDelim;
+        }
+
+        int i = start;
+        final int schemeEnd = findSchemeEnd(url, start, hierarchicalEnd);
+        if (schemeEnd >= 0) {
+            components.set(Component.SCHEME, start, schemeEnd);
+            i = schemeEnd + 1;
+        }
+
+        if (i + 1 < hierarchicalEnd && url.charAt(i) == '/' && url.charAt(i + 1) == '/') {
+            final int authorityStart = i + 2;
+            int authorityEnd = indexOf(url, '/', authorityStart, hierarchicalEnd);
+            if (authorityEnd < 0) {
+                authorityEnd = hierarchicalEnd;
+            }
+            parseAuthority(url, authorityStart, authorityEnd, components);
+            i = authorityEnd;
+        }
+        components.set(Component.PATH, i, hierarchicalEnd);
+    }
+
+    /**
+     * @return index of the ':' after the scheme, or -1 if url doesn't start with a scheme
+     */
+    private static int findSchemeEnd(String url, int start, int end) {
+        if (start >= end || !isAsciiLetter(url.charAt(start))) {
+            return -1;
+        }
+        for (int i = start + 1; i < end; i++) {
+            final char c = url.charAt(i);
+            if (c == ':') {
+                return i;
+            }
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-' && c != '.') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static void parseAuthority(String url, int start, int end, UrlComponents components) {
+        // the user info ends at the last '@', since some clients don't escape '@' in passwords
+        int hostStart = start;
+        for (int i = end - 1; i >= start; i--) {
+            if (url.charAt(i) == '@') {
+                components.set(Component.USER_INFO, start, i);
+                hostStart = i + 1;
+                break;
+            }
+        }
+
+        int hostEnd = end;
+        int portDelim = -1;
+        if (hostStart < end && url.charAt(hostStart) == '[') {
+            // IPv6 literal, the host includes the brackets like in java.net.URI
+            final int bracket = indexOf(url, ']', hostStart, end);
+            if (bracket >= 0) {
+                hostEnd = bracket + 1;
+                if (hostEnd < end && url.charAt(hostEnd) == ':') {
+                    portDelim = hostEnd;
+                }
+            }
+        } else {
+            portDelim = indexOf(url, ':', hostStart, end);
+            if (portDelim >= 0) {
+                hostEnd = portDelim;
+            }
+        }
+        components.set(Component.HOST, hostStart, hostEnd);
+        if (portDelim >= 0) {
+            components.set(Component.PORT, portDelim + 1, end);
+            components.setPort(parsePort(url, portDelim + 1, end));
+        }
+    }
+
+    private static int parsePort(String url, int start, int end) {
+        if (start == end || end - start > 5) {
+            return -1;
+        }
+        int port = 0;
+        for (int i = start; i < end; i++) {
+            final char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            port = port * 10 + (c - '0');
+        }
+        return port <= 65535 ? port : -1;
+    }
+
+    /**
+     * Passes the query of a URL parsed into components to the callback, with "&amp;" and "=" as delimiters
+     *
+     * @return false if the URL has no query
+     */
+    public static <T> boolean parseQueryString(UrlComponents components, QueryStringParserCallback<T> callback, T storage) {
+        if (!components.has(Component.QUERY)) {
+            return false;
+        }
+        QueryStringParser.parseQueryString(components.getUrl(), callback, storage, components.getStart(Component.QUERY), components.getEnd(Component.QUERY), "&", "=");
+        return true;
+    }
+
+    /**
+     * Passes the query of url to the callback, with "&amp;" and "=" as delimiters. Only looks for the '?' and '#'
+     * around the query, so this is cheaper than {@link #parse} when nothing else is needed.
+     *
+     * @return false if url has no query
+     */
+    public static <T> boolean parseQueryString(String url, QueryStringParserCallback<T> callback, T storage) {
+        int end = indexOf(url, '#', 0, url.length());
+        if (end < 0) {
+            end = url.length();
+        }
+        final int queryDelim = indexOf(url, '?', 0, end);
+        if (queryDelim < 0) {
+            return false;
+        }
+        QueryStringParser.parseQueryString(url, callback, storage, queryDelim + 1, end, "&", "=");
+        return true;
+    }
+
+    /**
+     * Passes each '/' separated segment of the path of a URL parsed into components to the callback. The '/' that
+     * starts an absolute path doesn't start an empty segment, so "/a//b/" has the segments "a", "", "b" and "", and an
+     * empty path or "/" has one empty segment.
+     */
+    public static <T> void parsePathSegments(UrlComponents components, PathSegmentCallback<T> callback, T storage) {
+        final String url = components.getUrl();
+        int segmentStart = components.getStart(Component.PATH);
+        final int pathEnd = components.getEnd(Component.PATH);
+        if (segmentStart < pathEnd && url.charAt(segmentStart) == '/') {
+            segmentStart++;
+        }
+        while (true) {
+            final int segmentEnd = indexOf(url, '/', segmentStart, pathEnd);
+            if (segmentEnd < 0) {
+                callback.parsePathSegment(url, segmentStart, pathEnd, storage);
+                return;
+            }
+            callback.parsePathSegment(url, segmentStart, segmentEnd, storage);
+            segmentStart = segmentEnd + 1;
+        }
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * @return the index of the first c from start to end, or -1. Unlike String.indexOf it doesn't look past end, which
+     * matters for URLs in the middle of a long line.
+     */
+    private static int indexOf(String s, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
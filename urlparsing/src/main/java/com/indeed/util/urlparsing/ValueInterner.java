@@ -0,0 +1,232 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded symbol table for values with few distinct forms, like locations or countries. Values are looked up by their
+ * raw, still encoded chars or bytes, and a hit returns the canonical decoded String or its id without decoding or
+ * allocating anything. Only a miss decodes the value and creates Strings for it.
+ * <pre>
+ * private static final ValueInterner locations = new ValueInterner(4096);
+ * ...
+ *     storage.location = locations.intern(queryString, valueStart, valueEnd);
+ * </pre>
+ * The table holds at most maxSize values in buckets of {@value #WAYS}. When a bucket is full, the value to replace is
+ * chosen by CLOCK: a value that was looked up since the hand last passed it gets another round. Lookups don't lock, so
+ * one interner can be shared by all threads of a {@link ParallelLogParser}.
+ */
+public final class ValueInterner {
+    static final int WAYS = 8;
+
+    private static final class Entry {
+        private final int hash;
+
+        // exactly one of rawChars and rawBytes is set, depending on how the value was looked up
+        private final String rawChars;
+
+        private final byte[] rawBytes;
+
+        private final String value;
+
+        private final int id;
+
+        // racy on purpose, a lost update only changes which value is replaced next
+        private boolean referenced;
+
+        private Entry(int hash, String rawChars, byte[] rawBytes, String value, int id) {
+            this.hash = hash;
+            this.rawChars = rawChars;
+            this.rawBytes = rawBytes;
+            this.value = value;
+            this.id = id;
+        }
+
+        private boolean matches(int hash, CharSequence s, int start, int end) {
+            return this.hash == hash && rawChars != null && CharSequenceSlice.contentEquals(s, start, end, rawChars);
+        }
+
+        private boolean matches(int hash, byte[] s, int start, int end) {
+            if (this.hash != hash || rawBytes == null || rawBytes.length != end - start) {
+                return false;
+            }
+            for (int i = start; i < end; i++) {
+                if (s[i] != rawBytes[i - start]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final boolean urlDecode;
+
+    private final AtomicReferenceArray<Entry> entries;
+
+    // CLOCK hand per bucket, racy like Entry.referenced
+    private final int[] hands;
+
+    private final int bucketMask;
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Url decodes values on a miss
+     *
+     * @param maxSize maximum number of values, rounded up to a power of two of at least {@value #WAYS}
+     */
+    public ValueInterner(int maxSize) {
+        this(maxSize, true);
+    }
+
+    /**
+     * @param maxSize maximum number of values, rounded up to a power of two of at least {@value #WAYS}
+     * @param urlDecode whether values are url decoded, otherwise the raw value is interned as is
+     */
+    public ValueInterner(int maxSize, boolean urlDecode) {
+        Preconditions.checkArgument(maxSize > 0 && maxSize <= 1 << 30, "maxSize must be between 1 and 2^30");
+        final int capacity = Math.max(WAYS, Integer.highestOneBit(maxSize - 1) << 1);
+        this.urlDecode = urlDecode;
+        entries = new AtomicReferenceArray<Entry>(capacity);
+        hands = new int[capacity / WAYS];
+        bucketMask = hands.length - 1;
+    }
+
+    /**
+     * @return the canonical String for the chars of s from start to end, decoded unless url decoding is disabled
+     */
+    public String intern(CharSequence s, int start, int end) {
+        return lookup(s, start, end).value;
+    }
+
+    /**
+     * @return the canonical String for the UTF-8 bytes of s from start to end, decoded unless url decoding is disabled
+     */
+    public String intern(byte[] s, int start, int end) {
+        return lookup(s, start, end).value;
+    }
+
+    /**
+     * @return the id of the chars of s from start to end, from 0 to {@link #getMaxSize()} - 1. An id belongs to its value
+     * until the value is evicted, after which it can be given to another value, see {@link #getEvictions()}. A new
+     * value that several threads look up at the same time can end up with more than one id.
+     */
+    public int internId(CharSequence s, int start, int end) {
+        return lookup(s, start, end).id;
+    }
+
+    /**
+     * @see #internId(CharSequence, int, int)
+     */
+    public int internId(byte[] s, int start, int end) {
+        return lookup(s, start, end).id;
+    }
+
+    /**
+     * @return the value that currently has the id, or null if there is none
+     */
+    public String getValue(int id) {
+        final Entry entry = entries.get(id);
+        return entry == null ? null : entry.value;
+    }
+
+    public int getMaxSize() {
+        return entries.length();
+    }
+
+    /**
+     * @return the number of values that were replaced by other values. Ids are stable as long as this is 0.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private Entry lookup(CharSequence s, int start, int end) {
+        final int hash = CharSequenceSlice.hashCode(s, start, end);
+        final int bucketStart = bucket(hash) * WAYS;
+        for (int i = bucketStart; i < bucketStart + WAYS; i++) {
+            final Entry entry = entries.get(i);
+            if (entry != null && entry.matches(hash, s, start, end)) {
+                return hit(entry);
+            }
+        }
+        final String raw = s.subSequence(start, end).toString();
+        final String value = urlDecode ? ParseUtils.urlDecode(raw, 0, raw.length()) : raw;
+        return insert(bucketStart, hash, raw, null, value);
+    }
+
+    private Entry lookup(byte[] s, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + s[i];
+        }
+        final int bucketStart = bucket(hash) * WAYS;
+        for (int i = bucketStart; i < bucketStart + WAYS; i++) {
+            final Entry entry = entries.get(i);
+            if (entry != null && entry.matches(hash, s, start, end)) {
+                return hit(entry);
+            }
+        }
+        final byte[] raw = new byte[end - start];
+        System.arraycopy(s, start, raw, 0, raw.length);
+        final String value;
+        if (urlDecode) {
+            final char[] decoded = new char[raw.length];
+            value = new String(decoded, 0, ParseUtils.urlDecodeInto(raw, 0, raw.length, decoded, 0));
+        } else {
+            value = new String(raw, Charsets.UTF_8);
+        }
+        return insert(bucketStart, hash, null, raw, value);
+    }
+
+    private int bucket(int hash) {
+        // the low bits of String hash codes of short values are poorly distributed
+        final int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & bucketMask;
+    }
+
+    private static Entry hit(Entry entry) {
+        // only write when needed, so that hot values don't keep dirtying their cache line
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry;
+    }
+
+    private Entry insert(int bucketStart, int hash, String rawChars, byte[] rawBytes, String value) {
+        for (int i = bucketStart; i < bucketStart + WAYS; i++) {
+            if (entries.get(i) == null) {
+                final Entry entry = new Entry(hash, rawChars, rawBytes, value, i);
+                if (entries.compareAndSet(i, null, entry)) {
+                    return entry;
+                }
+            }
+        }
+        // two rounds of the hand find an unreferenced value unless other threads keep looking them up
+        final int bucket = bucketStart / WAYS;
+        int hand = hands[bucket];
+        int i = bucketStart;
+        for (int n = 0; n < 2 * WAYS; n++) {
+            i = bucketStart + (hand++ & (WAYS - 1));
+            final Entry old = entries.get(i);
+            if (old.referenced) {
+                old.referenced = false;
+            } else {
+                final Entry entry = new Entry(hash, rawChars, rawBytes, value, i);
+                if (entries.compareAndSet(i, old, entry)) {
+                    hands[bucket] = hand;
+                    evictions.incrementAndGet();
+                    return entry;
+                }
+            }
+        }
+        final Entry entry = new Entry(hash, rawChars, rawBytes, value, i);
+        entries.set(i, entry);
+        hands[bucket] = hand;
+        evictions.incrementAndGet();
+        return entry;
+    }
+}
@@ -0,0 +1,14 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Tests the raw, not url decoded, value of a key, see {@link QueryStringParserCallbackBuilder#addFilter}.
+ * {@link ValuePredicates} has implementations for numeric ranges, exact and prefix matches.
+ */
+public interface ValuePredicate {
+    /**
+     * @param queryString The raw queryString
+     * @param valueStart Index into queryString where the value begins (inclusive)
+     * @param valueEnd Index into queryString where the value ends (exclusive)
+     */
+    boolean matches(String queryString, int valueStart, int valueEnd);
+}
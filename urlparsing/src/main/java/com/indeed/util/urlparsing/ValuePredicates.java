@@ -0,0 +1,76 @@
+package com.indeed.util.urlparsing;
+
+/**
+ * Common {@link ValuePredicate}s. They compare the raw value as it appears in the query string, so strings passed to
+ * them have to be url encoded the same way, e.g. "new+york" rather than "new york". All of them are thread safe.
+ */
+public final class ValuePredicates {
+    private ValuePredicates() {
+    }
+
+    /**
+     * @return a predicate matching integer values between min and max, inclusive. Empty, malformed and overflowing
+     * values don't match.
+     */
+    public static ValuePredicate longRange(final long min, final long max) {
+        return new ValuePredicate() {
+            @Override
+            public boolean matches(String queryString, int valueStart, int valueEnd) {
+                final boolean negative = valueStart < valueEnd && queryString.charAt(valueStart) == '-';
+                final int digitsStart = negative ? valueStart + 1 : valueStart;
+                if (digitsStart == valueEnd) {
+                    return false;
+                }
+                // one pass that validates and accumulates negatively like ParseUtils.tryParseSignedLong, so that
+                // Long.MIN_VALUE fits and overflow is caught before it happens
+                final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+                final long multmin = limit / 10;
+                long negated = 0;
+                for (int i = digitsStart; i < valueEnd; i++) {
+                    final int digit = queryString.charAt(i) - '0';
+                    if (digit < 0 || digit > 9 || negated < multmin) {
+                        return false;
+                    }
+                    negated *= 10;
+                    if (negated < limit + digit) {
+                        return false;
+                    }
+                    negated -= digit;
+                }
+                final long value = negative ? negated : -negated;
+                return value >= min && value <= max;
+            }
+        };
+    }
+
+    /**
+     * @return a predicate matching integer values greater than or equal to min
+     */
+    public static ValuePredicate atLeast(long min) {
+        return longRange(min, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return a predicate matching values equal to value
+     */
+    public static ValuePredicate equalTo(final String value) {
+        return new ValuePredicate() {
+            @Override
+            public boolean matches(String queryString, int valueStart, int valueEnd) {
+                return valueEnd - valueStart == value.length() && queryString.startsWith(value, valueStart);
+            }
+        };
+    }
+
+    /**
+     * @return a predicate matching values that start with prefix
+     */
+    public static ValuePredicate startsWith(final String prefix) {
+        return new ValuePredicate() {
+            @Override
+            public boolean matches(String queryString, int valueStart, int valueEnd) {
+                return valueEnd - valueStart >= prefix.length() && queryString.startsWith(prefix, valueStart);
+            }
+        };
+    }
+}
@@ -0,0 +1,229 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class TestBlockedGzip {
+
+    private static final MappedLogReader.LineCallback<List<String>> lineCollector = new MappedLogReader.LineCallback<List<String>>() {
+        @Override
+        public void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, List<String> storage) {
+            final byte[] bytes = new byte[lineEnd - lineStart];
+            for (int i = lineStart; i < lineEnd; i++) {
+                bytes[i - lineStart] = buffer.get(i);
+            }
+            storage.add(new String(bytes, Charsets.UTF_8));
+        }
+    };
+
+    private static final Supplier<List<String>> newList = new Supplier<List<String>>() {
+        @Override
+        public List<String> get() {
+            return new ArrayList<String>();
+        }
+    };
+
+    private static final ParallelLogParser.Combiner<List<String>> concat = new ParallelLogParser.Combiner<List<String>>() {
+        @Override
+        public List<String> combine(List<String> left, List<String> right) {
+            left.addAll(right);
+            return left;
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static File writeBlockedGzip(String contents, int blockSize) throws IOException {
+        final File file = File.createTempFile("TestBlockedGzip", ".txt.gz");
+        file.deleteOnExit();
+        final OutputStream out = new BlockedGzipOutputStream(new FileOutputStream(file), blockSize, 6);
+        final byte[] bytes = contents.getBytes(Charsets.UTF_8);
+        // writes of different sizes, so that lines straddle writes
+        for (int i = 0, n = 1; i < bytes.length; i += n, n = n % 7 + 1) {
+            out.write(bytes, i, Math.min(n, bytes.length - i));
+        }
+        out.close();
+        return file;
+    }
+
+    private static String gunzip(File file) throws IOException {
+        final InputStream in = new GZIPInputStream(new FileInputStream(file));
+        try {
+            return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String contents(List<String> lines, boolean trailingNewline) {
+        final StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(line);
+        }
+        return trailingNewline ? sb.append('\n').toString() : sb.toString();
+    }
+
+    private static List<String> lines(int numLines) {
+        final List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < numLines; i++) {
+            lines.add("q=java&totCnt=" + i + (i % 50 == 0 ? "&long=" + Integer.toHexString(i).hashCode() + "0123456789abcdefghijklmnopqrstuvwxyz" : ""));
+        }
+        return lines;
+    }
+
+    @Test
+    public void testReadableAsGzip() throws IOException {
+        final String contents = contents(lines(1000), true) + "zimmermädchen";
+        final File file = writeBlockedGzip(contents, 256);
+        assertEquals(contents, gunzip(file));
+        assertTrue(BlockedGzipReader.isBlockedGzip(file));
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final long[] index = BlockedGzipReader.readIndex(raf.getChannel(), file);
+            assertTrue(index.length > 20);
+            assertEquals(0, index[0]);
+            assertEquals(file.length(), index[index.length - 1]);
+        } finally {
+            raf.close();
+        }
+
+        // an empty stream is a single empty member, not an empty file
+        final File empty = writeBlockedGzip("", 256);
+        assertTrue(empty.length() > 0);
+        assertEquals("", gunzip(empty));
+        assertTrue(BlockedGzipReader.isBlockedGzip(empty));
+    }
+
+    @Test
+    public void testReadLines() throws IOException {
+        for (int blockSize : new int[] {1, 10, 256, 1 << 20}) {
+            for (boolean trailingNewline : new boolean[] {false, true}) {
+                final List<String> expected = lines(300);
+                final File file = writeBlockedGzip(contents(expected, trailingNewline), blockSize);
+                final List<String> lines = new ArrayList<String>();
+                assertEquals(expected.size(), new BlockedGzipReader().read(file, lineCollector, lines));
+                assertEquals(expected, lines);
+            }
+        }
+        final List<String> lines = new ArrayList<String>();
+        assertEquals(0, new BlockedGzipReader().read(writeBlockedGzip("", 16), lineCollector, lines));
+        assertEquals(ImmutableList.of("a=b", ""), readAll(writeBlockedGzip("a=b\r\n\n", 2)));
+    }
+
+    private static List<String> readAll(File file) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        new BlockedGzipReader().read(file, lineCollector, lines);
+        return lines;
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        final List<String> expected = lines(5000);
+        final File file = writeBlockedGzip(contents(expected, true), 512);
+        for (long chunkSize : new long[] {1, 1000, 1 << 20}) {
+            final ParallelLogParser parser = new ParallelLogParser(executor, chunkSize, new MappedLogReader());
+            assertEquals(expected, parser.readBlockedGzip(ImmutableList.of(file), newList, lineCollector, concat));
+        }
+
+        final long[] totals = new ParallelLogParser(executor, 1000, new MappedLogReader()).parseBlockedGzipQueryStrings(
+                ImmutableList.of(file, writeBlockedGzip("", 512), file), new Supplier<long[]>() {
+                    @Override
+                    public long[] get() {
+                        return new long[1];
+                    }
+                }, new ByteQueryStringParserCallback<long[]>() {
+                    @Override
+                    public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, long[] storage) {
+                        if (keyEnd - keyStart == 6 && queryString[keyStart] == 't') {
+                            storage[0] += ParseUtils.parseUnsignedInt(queryString, valueStart, valueEnd);
+                        }
+                    }
+                }, new ParallelLogParser.Combiner<long[]>() {
+                    @Override
+                    public long[] combine(long[] left, long[] right) {
+                        left[0] += right[0];
+                        return left;
+                    }
+                });
+        assertEquals(2L * 4999 * 5000 / 2, totals[0]);
+    }
+
+    @Test
+    public void testNotBlocked() throws Exception {
+        final File file = File.createTempFile("TestBlockedGzip", ".txt.gz");
+        file.deleteOnExit();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final OutputStream out = new GZIPOutputStream(bytes);
+        out.write("a=1\n".getBytes(Charsets.UTF_8));
+        out.close();
+        Files.write(bytes.toByteArray(), file);
+        assertFalse(BlockedGzipReader.isBlockedGzip(file));
+        try {
+            new ParallelLogParser(executor).readBlockedGzip(ImmutableList.of(file), newList, lineCollector, concat);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCorruptMember() throws Exception {
+        final File file = writeBlockedGzip(contents(lines(100), true), 1 << 20);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(BlockedGzipOutputStream.HEADER_LENGTH + 10);
+            final int b = raf.read();
+            raf.seek(BlockedGzipOutputStream.HEADER_LENGTH + 10);
+            raf.write(b ^ 0x55);
+        } finally {
+            raf.close();
+        }
+        try {
+            readAll(file);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static junit.framework.Assert.assertEquals;
+
+public class TestByteQueryStringParser {
+
+    private static final class PairCollector implements ByteQueryStringParserCallback<StringBuilder> {
+        @Override
+        public void parseKeyValuePair(byte[] qs, int keyStart, int keyEnd, int valueStart, int valueEnd, StringBuilder storage) {
+            if (storage.length() > 0) {
+                storage.append('|');
+            }
+            storage.append(new String(qs, keyStart, keyEnd - keyStart, Charsets.UTF_8));
+            storage.append(':');
+            storage.append(new String(qs, valueStart, valueEnd - valueStart, Charsets.UTF_8));
+        }
+    }
+
+    private static String parse(String input) {
+        final byte[] bytes = input.getBytes(Charsets.UTF_8);
+        final StringBuilder fromBytes = new StringBuilder();
+        ByteQueryStringParser.parseQueryString(bytes, 0, bytes.length, new PairCollector(), fromBytes);
+        return fromBytes.toString();
+    }
+
+    @Test
+    public void testAllKeysParsing() {
+        assertEquals(":|:|a:b|35lk:sadjlkj|xxx:|yyy:|blah:blah=blah|:|:|:", parse("&&a=b&35lk=sadjlkj&xxx&yyy&blah=blah=blah&&&"));
+        assertEquals("a:b|x7x:|q:zimmermädchen", parse("a=b&x7x&q=zimmermädchen"));
+    }
+
+    @Test
+    public void testSameOffsetsAsStringParser() {
+        final String input = "a=b&x7x&x&x35lk=sadjlkj&blah=blah=blah&x=y&&";
+        final StringBuilder fromString = new StringBuilder();
+        QueryStringParser.parseQueryString(input, new QueryStringParserCallback<StringBuilder>() {
+            @Override
+            public void parseKeyValuePair(String qs, int keyStart, int keyEnd, int valueStart, int valueEnd, StringBuilder storage) {
+                if (storage.length() > 0) {
+                    storage.append('|');
+                }
+                storage.append(qs, keyStart, keyEnd).append(':').append(qs, valueStart, valueEnd);
+            }
+        }, fromString);
+        assertEquals(fromString.toString(), parse(input));
+    }
+
+    @Test
+    public void testOffsetAndLength() {
+        final byte[] bytes = "GET /jobs?q=java&l=austin HTTP/1.1".getBytes(Charsets.UTF_8);
+        final StringBuilder sb = new StringBuilder();
+        ByteQueryStringParser.parseQueryString(bytes, 10, 15, new PairCollector(), sb);
+        assertEquals("q:java|l:austin", sb.toString());
+    }
+
+    @Test
+    public void testByteBuffer() {
+        final byte[] bytes = "xxq=java&l=austinxx".getBytes(Charsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, 15).slice();
+        final StringBuilder sb = new StringBuilder();
+        ByteQueryStringParser.parseQueryString(buffer, new PairCollector(), sb);
+        assertEquals("q:java|l:austin", sb.toString());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDirectByteBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+        ByteQueryStringParser.parseQueryString(buffer, new PairCollector(), new StringBuilder());
+    }
+
+    @Test
+    public void testDirectByteBufferCallback() {
+        final String input = "xx&&a=b&35lk=sadjlkj&xxx&q=zimmermädchen&blah=blah=blah&&xx";
+        final byte[] bytes = input.getBytes(Charsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.position(2).limit(bytes.length - 2);
+        final StringBuilder fromBuffer = new StringBuilder();
+        ByteQueryStringParser.parseQueryString(buffer, new ByteBufferQueryStringParserCallback<StringBuilder>() {
+            @Override
+            public void parseKeyValuePair(ByteBuffer qs, int keyStart, int keyEnd, int valueStart, int valueEnd, StringBuilder storage) {
+                // indexes are absolute, so they work with the byte[] offsets
+                if (storage.length() > 0) {
+                    storage.append('|');
+                }
+                storage.append(keyStart).append(':');
+                ParseUtils.urlDecodeInto(qs, keyStart, keyEnd, storage);
+                storage.append(':');
+                ParseUtils.urlDecodeInto(qs, valueStart, valueEnd, storage);
+            }
+        }, fromBuffer);
+        assertEquals(2, buffer.position());
+
+        final StringBuilder fromBytes = new StringBuilder();
+        ByteQueryStringParser.parseQueryString(bytes, 2, bytes.length - 4, new ByteQueryStringParserCallback<StringBuilder>() {
+            @Override
+            public void parseKeyValuePair(byte[] qs, int keyStart, int keyEnd, int valueStart, int valueEnd, StringBuilder storage) {
+                if (storage.length() > 0) {
+                    storage.append('|');
+                }
+                storage.append(keyStart).append(':');
+                ParseUtils.urlDecodeInto(qs, keyStart, keyEnd, storage);
+                storage.append(':');
+                ParseUtils.urlDecodeInto(qs, valueStart, valueEnd, storage);
+            }
+        }, fromBytes);
+        assertEquals(fromBytes.toString(), fromBuffer.toString());
+        assertEquals("2::|3::|4:a:b|8:35lk:sadjlkj|21:xxx:|25:q:zimmermädchen|42:blah:blah=blah|57::|58::", fromBuffer.toString());
+    }
+
+    @Test
+    public void testCustomDelimiter() {
+        final byte[] bytes = "a%3Djspls%26re%3D22%26pe%3D547".getBytes(Charsets.UTF_8);
+        final StringBuilder sb = new StringBuilder();
+        ByteQueryStringParser.parseQueryString(bytes, new PairCollector(), sb, 0, bytes.length,
+                "%26".getBytes(Charsets.UTF_8), "%3D".getBytes(Charsets.UTF_8));
+        assertEquals("a:jspls|re:22|pe:547", sb.toString());
+    }
+}
@@ -0,0 +1,80 @@
+package com.indeed.util.urlparsing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class TestCharSequenceSlice {
+
+    @Test
+    public void testSlice() {
+        final String s = "q=software+engineer&l=austin";
+        final CharSequenceSlice slice = new CharSequenceSlice(s, 2, 19);
+        assertEquals(17, slice.length());
+        assertEquals('s', slice.charAt(0));
+        assertEquals("software+engineer", slice.toString());
+        assertEquals("engineer", slice.subSequence(9, 17).toString());
+        assertEquals("software+engineer".hashCode(), slice.hashCode());
+        assertTrue(slice.contentEquals("software+engineer"));
+        assertTrue(slice.contentEquals(new StringBuilder("software+engineer")));
+        assertFalse(slice.contentEquals("software+engineers"));
+        assertFalse(slice.contentEquals("software engineer"));
+        assertTrue(Pattern.compile("\\+engineer$").matcher(slice).find());
+
+        assertEquals(new CharSequenceSlice("xsoftware+engineer", 1, 18), slice);
+        assertFalse(slice.equals(new CharSequenceSlice(s, 2, 18)));
+
+        slice.set(s, 22, 28);
+        assertEquals("austin", slice.toString());
+        slice.set(s, 28, 28);
+        assertEquals(0, slice.length());
+        assertEquals("".hashCode(), slice.hashCode());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCharAtOutOfSlice() {
+        new CharSequenceSlice("abcdef", 1, 3).charAt(2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSetOutOfBounds() {
+        new CharSequenceSlice().set("abc", 2, 4);
+    }
+
+    @Test
+    public void testHelpers() {
+        final String s = "a=b&key=value";
+        assertEquals("key".hashCode(), CharSequenceSlice.hashCode(s, 4, 7));
+        assertEquals("key".hashCode(), CharSequenceSlice.hashCode(new StringBuilder(s), 4, 7));
+        assertTrue(CharSequenceSlice.contentEquals(s, 8, 13, "value"));
+        assertTrue(CharSequenceSlice.contentEquals(new StringBuilder(s), 8, 13, "value"));
+        assertFalse(CharSequenceSlice.contentEquals(s, 8, 13, "valuf"));
+        assertFalse(CharSequenceSlice.contentEquals(s, 8, 12, "value"));
+        assertEquals(CharSequenceSlice.hash64("value", 0, 5), CharSequenceSlice.hash64(s, 8, 13));
+        assertEquals(CharSequenceSlice.hash64("value", 0, 5), new CharSequenceSlice(new StringBuilder(s), 8, 13).hash64());
+        assertFalse(CharSequenceSlice.hash64("value", 0, 5) == CharSequenceSlice.hash64("valuf", 0, 5));
+        assertFalse(CharSequenceSlice.hash64("", 0, 0) == CharSequenceSlice.hash64("\0", 0, 1));
+    }
+
+    @Test
+    public void testSliceCallbackAdapter() {
+        final QueryStringParserCallbackBuilder<List<String>> builder = new QueryStringParserCallbackBuilder<List<String>>();
+        final SliceCallbackAdapter<List<String>> adapter = new SliceCallbackAdapter<List<String>>(new SliceQueryStringParserCallback<List<String>>() {
+            @Override
+            public void parseKeyValuePair(CharSequenceSlice key, CharSequenceSlice value, List<String> storage) {
+                storage.add(key + ":" + value + ":" + value.contentEquals("engineer"));
+            }
+        });
+        builder.addCallback("q", adapter);
+        builder.addCallback("l", adapter);
+        final List<String> pairs = new ArrayList<String>();
+        QueryStringParser.parseQueryString("q=engineer&x=1&l=austin", builder.buildCallback(), pairs);
+        assertEquals("[q:engineer:true, l:austin:false]", pairs.toString());
+    }
+}
@@ -0,0 +1,162 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.fail;
+
+public class TestGzipLogReader {
+
+    private static final MappedLogReader.LineCallback<List<String>> lineCollector = new MappedLogReader.LineCallback<List<String>>() {
+        @Override
+        public void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, List<String> storage) {
+            final byte[] bytes = new byte[lineEnd - lineStart];
+            for (int i = lineStart; i < lineEnd; i++) {
+                bytes[i - lineStart] = buffer.get(i);
+            }
+            storage.add(new String(bytes, Charsets.UTF_8));
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] gzip(String contents) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final OutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(contents.getBytes(Charsets.UTF_8));
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    private static List<String> readLines(GzipLogReader reader, byte[] compressed) throws Exception {
+        final List<String> lines = new ArrayList<String>();
+        final long count = reader.read(new ByteArrayInputStream(compressed), lineCollector, lines);
+        assertEquals(lines.size(), count);
+        return lines;
+    }
+
+    @Test
+    public void testReadLines() throws Exception {
+        final byte[] compressed = gzip("a=b&c=d\r\n\nq=zimmermädchen\nlast=1");
+        assertEquals(ImmutableList.of("a=b&c=d", "", "q=zimmermädchen", "last=1"), readLines(new GzipLogReader(executor), compressed));
+        assertEquals(ImmutableList.<String>of(), readLines(new GzipLogReader(executor), gzip("")));
+    }
+
+    @Test
+    public void testSmallBuffers() throws Exception {
+        final StringBuilder contents = new StringBuilder();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            // some lines are longer than a buffer, and some "\r\n" straddle buffers
+            final String line = "k=" + i + "&v=" + (i % 13 == 0 ? "0123456789012345678901234567890123456789" : Integer.toString(i * 31));
+            expected.add(line);
+            contents.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        final byte[] compressed = gzip(contents.toString());
+        for (int bufferSize = 1; bufferSize <= 33; bufferSize += 4) {
+            assertEquals(expected, readLines(new GzipLogReader(executor, bufferSize, 2), compressed));
+        }
+        assertEquals(expected, readLines(new GzipLogReader(executor, 1024, 8), compressed));
+    }
+
+    @Test
+    public void testMultipleFiles() throws Exception {
+        final List<File> files = new ArrayList<File>();
+        for (String contents : new String[] {"totCnt=1\ntotCnt=2\n", "", "totCnt=3"}) {
+            final File file = File.createTempFile("TestGzipLogReader", ".txt.gz");
+            file.deleteOnExit();
+            final OutputStream out = new FileOutputStream(file);
+            out.write(gzip(contents));
+            out.close();
+            files.add(file);
+        }
+        final int[] sum = new int[1];
+        final long lines = new GzipLogReader(executor, 4, 2).parseQueryStrings(files, new ByteQueryStringParserCallback<int[]>() {
+            @Override
+            public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, int[] storage) {
+                storage[0] += ParseUtils.parseUnsignedInt(queryString, valueStart, valueEnd);
+            }
+        }, sum);
+        assertEquals(3, lines);
+        assertEquals(6, sum[0]);
+    }
+
+    @Test
+    public void testStreamNotClosed() throws Exception {
+        final boolean[] closed = new boolean[1];
+        final ByteArrayInputStream in = new ByteArrayInputStream(gzip("a=1\nb=2\n")) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        final List<String> lines = new ArrayList<String>();
+        assertEquals(2, new GzipLogReader(executor).read(in, lineCollector, lines));
+        assertEquals(ImmutableList.of("a=1", "b=2"), lines);
+        assertFalse(closed[0]);
+    }
+
+    @Test
+    public void testCorruptInput() throws Exception {
+        final byte[] compressed = gzip("a=1\nb=2\nc=3\n");
+        final byte[] truncated = new byte[compressed.length - 6];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        final List<String> lines = new ArrayList<String>();
+        try {
+            new GzipLogReader(executor).read(new ByteArrayInputStream(truncated), lineCollector, lines);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCallbackFailure() throws Exception {
+        final StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            contents.append("k=").append(i).append('\n');
+        }
+        final GzipLogReader reader = new GzipLogReader(executor, 64, 2);
+        try {
+            reader.read(new ByteArrayInputStream(gzip(contents.toString())), new MappedLogReader.LineCallback<Void>() {
+                @Override
+                public void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, Void storage) {
+                    throw new IllegalStateException("failed");
+                }
+            }, null);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        // the inflater was stopped, so the thread is free for the next file
+        assertEquals(ImmutableList.of("a"), readLines(reader, gzip("a")));
+    }
+}
@@ -0,0 +1,53 @@
+package com.indeed.util.urlparsing;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class TestHyperLogLog {
+
+    private static void assertWithin(long expected, long actual, double relativeError) {
+        assertTrue("expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * relativeError);
+    }
+
+    @Test
+    public void testCardinality() {
+        final HyperLogLog hll = new HyperLogLog();
+        assertEquals(0, hll.cardinality());
+        final String s = "uid=";
+        for (int i = 0; i < 1000; i++) {
+            final String line = s + "u" + i;
+            // duplicates don't count
+            hll.add(line, 4, line.length());
+            hll.add(new StringBuilder(line), 4, line.length());
+        }
+        assertWithin(1000, hll.cardinality(), 0.02);
+        for (int i = 1000; i < 200000; i++) {
+            final String value = "u" + i;
+            hll.add(value, 0, value.length());
+        }
+        assertWithin(200000, hll.cardinality(), 0.03);
+    }
+
+    @Test
+    public void testMerge() {
+        final HyperLogLog a = new HyperLogLog(12);
+        final HyperLogLog b = new HyperLogLog(12);
+        for (int i = 0; i < 50000; i++) {
+            final String value = Integer.toString(i);
+            a.add(value, 0, value.length());
+            final String other = Integer.toString(i + 25000);
+            b.add(other, 0, other.length());
+        }
+        a.merge(b);
+        assertWithin(75000, a.cardinality(), 0.06);
+        a.clear();
+        assertEquals(0, a.cardinality());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HyperLogLog(10).merge(new HyperLogLog(11));
+    }
+}
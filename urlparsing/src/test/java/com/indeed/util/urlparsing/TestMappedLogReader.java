@@ -0,0 +1,110 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class TestMappedLogReader {
+
+    private static final MappedLogReader.LineCallback<List<String>> lineCollector = new MappedLogReader.LineCallback<List<String>>() {
+        @Override
+        public void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, List<String> storage) {
+            final byte[] bytes = new byte[lineEnd - lineStart];
+            for (int i = lineStart; i < lineEnd; i++) {
+                bytes[i - lineStart] = buffer.get(i);
+            }
+            storage.add(new String(bytes, Charsets.UTF_8));
+        }
+    };
+
+    private static File writeTempFile(String contents) throws IOException {
+        final File file = File.createTempFile("TestMappedLogReader", ".txt");
+        file.deleteOnExit();
+        Files.write(contents.getBytes(Charsets.UTF_8), file);
+        return file;
+    }
+
+    private static List<String> readLines(MappedLogReader reader, File file) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        final long count = reader.read(file, lineCollector, lines);
+        assertEquals(lines.size(), count);
+        return lines;
+    }
+
+    @Test
+    public void testReadLines() throws IOException {
+        final File file = writeTempFile("a=b&c=d\r\n\nq=zimmermädchen\nlast=1");
+        assertEquals(ImmutableList.of("a=b&c=d", "", "q=zimmermädchen", "last=1"), readLines(new MappedLogReader(), file));
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        assertEquals(ImmutableList.<String>of(), readLines(new MappedLogReader(), writeTempFile("")));
+    }
+
+    @Test
+    public void testSmallWindows() throws IOException {
+        final StringBuilder contents = new StringBuilder();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            final String line = "k=" + i + "&v=" + (i * 31);
+            expected.add(line);
+            contents.append(line).append('\n');
+        }
+        final File file = writeTempFile(contents.toString());
+        // every window boundary falls in the middle of a line
+        assertEquals(expected, readLines(new MappedLogReader(13), file));
+        assertEquals(expected, readLines(new MappedLogReader(16), file));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLineLongerThanWindow() throws IOException {
+        readLines(new MappedLogReader(4), writeTempFile("a=b\nlonger=line\n"));
+    }
+
+    @Test
+    public void testParseQueryStrings() throws IOException {
+        final File first = writeTempFile("totCnt=10&q=java\ntotCnt=20\n");
+        final File second = writeTempFile("x=y&totCnt=12");
+        final int[] total = new int[1];
+        final long lines = new MappedLogReader(20).parseQueryStrings(ImmutableList.of(first, second), new ByteQueryStringParserCallback<int[]>() {
+            @Override
+            public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, int[] storage) {
+                if (keyEnd - keyStart == 6 && queryString[keyStart] == 't') {
+                    storage[0] += ParseUtils.parseUnsignedInt(queryString, valueStart, valueEnd);
+                }
+            }
+        }, total);
+        assertEquals(3, lines);
+        assertEquals(42, total[0]);
+    }
+
+    @Test
+    public void testParseQueryStringsInPlace() throws IOException {
+        final File first = writeTempFile("totCnt=10&q=java\ntotCnt=20\n");
+        final File second = writeTempFile("x=y&totCnt=12");
+        final int[] total = new int[1];
+        final long lines = new MappedLogReader(20).parseQueryStrings(ImmutableList.of(first, second), new ByteBufferQueryStringParserCallback<int[]>() {
+            @Override
+            public void parseKeyValuePair(ByteBuffer queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, int[] storage) {
+                // the mapped window itself, not a copy
+                assertTrue(queryString.isDirect());
+                if (keyEnd - keyStart == 6 && queryString.get(keyStart) == 't') {
+                    storage[0] += ParseUtils.parseUnsignedInt(queryString, valueStart, valueEnd);
+                }
+            }
+        }, total);
+        assertEquals(3, lines);
+        assertEquals(42, total[0]);
+    }
+}
@@ -0,0 +1,134 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static junit.framework.Assert.assertEquals;
+
+public class TestParallelLogParser {
+
+    private static final class Totals {
+        long lines;
+        long totCnt;
+    }
+
+    private static final Supplier<Totals> newTotals = new Supplier<Totals>() {
+        @Override
+        public Totals get() {
+            return new Totals();
+        }
+    };
+
+    private static final ParallelLogParser.Combiner<Totals> addTotals = new ParallelLogParser.Combiner<Totals>() {
+        @Override
+        public Totals combine(Totals left, Totals right) {
+            left.lines += right.lines;
+            left.totCnt += right.totCnt;
+            return left;
+        }
+    };
+
+    private static final ByteQueryStringParserCallback<Totals> totCntParser = new ByteQueryStringParserCallback<Totals>() {
+        @Override
+        public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Totals storage) {
+            if (keyEnd - keyStart == 6 && queryString[keyStart] == 't') {
+                storage.lines++;
+                storage.totCnt += ParseUtils.parseUnsignedInt(queryString, valueStart, valueEnd);
+            }
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static File writeLines(int numLines, boolean trailingNewline) throws IOException {
+        final StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < numLines; i++) {
+            if (i > 0) {
+                contents.append('\n');
+            }
+            contents.append("q=java&totCnt=").append(i).append("&l=austin");
+        }
+        if (trailingNewline) {
+            contents.append('\n');
+        }
+        final File file = File.createTempFile("TestParallelLogParser", ".txt");
+        file.deleteOnExit();
+        Files.write(contents.toString().getBytes(Charsets.UTF_8), file);
+        return file;
+    }
+
+    @Test
+    public void testParseQueryStrings() throws Exception {
+        final File file = writeLines(1000, true);
+        for (long chunkSize : new long[] {1, 17, 100, 1 << 20}) {
+            final ParallelLogParser parser = new ParallelLogParser(executor, chunkSize, new MappedLogReader(64));
+            final Totals totals = parser.parseQueryStrings(file, newTotals, totCntParser, addTotals);
+            assertEquals(1000, totals.lines);
+            assertEquals(999 * 1000 / 2, totals.totCnt);
+        }
+    }
+
+    @Test
+    public void testParseQueryStringsInPlace() throws Exception {
+        final File file = writeLines(1000, true);
+        final ParallelLogParser parser = new ParallelLogParser(executor, 100, new MappedLogReader(64));
+        final Totals totals = parser.parseQueryStrings(file, newTotals, new ByteBufferQueryStringParserCallback<Totals>() {
+            @Override
+            public void parseKeyValuePair(ByteBuffer queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Totals storage) {
+                if (keyEnd - keyStart == 6 && queryString.get(keyStart) == 't') {
+                    storage.lines++;
+                    storage.totCnt += ParseUtils.parseUnsignedInt(queryString, valueStart, valueEnd);
+                }
+            }
+        }, addTotals);
+        assertEquals(1000, totals.lines);
+        assertEquals(999 * 1000 / 2, totals.totCnt);
+    }
+
+    @Test
+    public void testMultipleFiles() throws Exception {
+        final ParallelLogParser parser = new ParallelLogParser(executor, 50, new MappedLogReader());
+        final Totals totals = parser.parseQueryStrings(ImmutableList.of(writeLines(10, false), writeLines(0, false), writeLines(20, true)),
+                newTotals, totCntParser, addTotals);
+        assertEquals(30, totals.lines);
+        assertEquals(45 + 190, totals.totCnt);
+    }
+
+    @Test
+    public void testReadLines() throws Exception {
+        final ParallelLogParser parser = new ParallelLogParser(executor, 100, new MappedLogReader());
+        final Totals totals = parser.read(ImmutableList.of(writeLines(100, false)), newTotals, new MappedLogReader.LineCallback<Totals>() {
+            @Override
+            public void parseLine(ByteBuffer buffer, int lineStart, int lineEnd, Totals storage) {
+                storage.lines++;
+            }
+        }, addTotals);
+        assertEquals(100, totals.lines);
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailure() throws Exception {
+        new ParallelLogParser(executor, 100, new MappedLogReader(8)).parseQueryStrings(writeLines(10, true), newTotals, totCntParser, addTotals);
+    }
+}
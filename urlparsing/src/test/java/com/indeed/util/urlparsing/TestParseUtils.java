@@ -1,5 +1,6 @@
 package com.indeed.util.urlparsing;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 
 import org.junit.Test;
@@ -7,9 +8,14 @@ import org.junit.Test;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Random;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 /**
  * @author: preetha
@@ -46,6 +52,275 @@ public class TestParseUtils {
         }
     }
 
+    @Test
+    public void testParseBytes() {
+        for (int k = 0; k < NUM_TRIALS; k++) {
+            final int i = random.nextInt();
+            final byte[] intBytes = bytes(Integer.toString(i));
+            assertEquals(i, ParseUtils.parseSignedInt(intBytes, 0, intBytes.length));
+            final long l = random.nextLong();
+            final byte[] longBytes = bytes(Long.toString(l));
+            assertEquals(l, ParseUtils.parseSignedLong(longBytes, 0, longBytes.length));
+            final float f = Float.intBitsToFloat(random.nextInt());
+            if (!Float.isNaN(f)) {
+                final byte[] floatBytes = bytes(Float.toString(f));
+                assertEquals(f, ParseUtils.parseFloat(floatBytes, 0, floatBytes.length));
+            }
+        }
+        final byte[] withPadding = bytes("totCnt=1234&ts=1391100000000&x=-1.5e2&uid=18dlpjv5o16ru1h2");
+        assertEquals(1234, ParseUtils.parseUnsignedInt(withPadding, 7, 11));
+        assertEquals(1391100000000L, ParseUtils.parseUnsignedLong(withPadding, 15, 28));
+        assertEquals(-150f, ParseUtils.parseFloat(withPadding, 31, 37));
+        assertEquals(ParseUtils.parseTimestampFromUIDString("18dlpjv5o16ru1h2", 0, 16), ParseUtils.parseTimestampFromUIDString(withPadding, 42, 58));
+        assertEquals(Float.NEGATIVE_INFINITY, ParseUtils.parseFloat(bytes("-Infinity"), 0, 9));
+    }
+
+    @Test
+    public void testParseByteBuffer() {
+        final NumberParseResult result = new NumberParseResult();
+        final String line = "totCnt=1234&ts=1391100000000&x=-1.5e2&uid=18dlpjv5o16ru1h2&big=99999999999&e=1e";
+        final ByteBuffer heap = ByteBuffer.wrap(bytes(line));
+        final ByteBuffer direct = directBuffer(bytes(line));
+        final ByteBuffer littleEndian = directBuffer(bytes(line)).order(ByteOrder.LITTLE_ENDIAN);
+        for (ByteBuffer buffer : new ByteBuffer[] {heap, direct, littleEndian}) {
+            assertEquals(1234, ParseUtils.parseUnsignedInt(buffer, 7, 11));
+            assertEquals(-1234, ParseUtils.parseSignedInt(bytesBuffer(buffer, "-1234"), 0, 5));
+            assertEquals(1391100000000L, ParseUtils.parseUnsignedLong(buffer, 15, 28));
+            assertEquals(1391100000000L, ParseUtils.parseSignedLong(buffer, 15, 28));
+            assertEquals(-150f, ParseUtils.parseFloat(buffer, 31, 37));
+            assertEquals(-150.0, ParseUtils.parseDouble(buffer, 31, 37));
+            assertEquals(ParseUtils.parseTimestampFromUIDString("18dlpjv5o16ru1h2", 0, 16), ParseUtils.parseTimestampFromUIDString(buffer, 42, 58));
+
+            assertTrue(ParseUtils.tryParseUnsignedLong(buffer, 15, 28, result));
+            assertEquals(1391100000000L, result.longValue());
+            assertTrue(ParseUtils.tryParseSignedInt(buffer, 7, 11, result));
+            assertEquals(1234, result.intValue());
+            assertFalse(ParseUtils.tryParseUnsignedInt(buffer, 63, 74, result));
+            assertEquals(NumberParseResult.Status.OVERFLOW, result.getStatus());
+            assertTrue(ParseUtils.tryParseSignedLong(buffer, 63, 74, result));
+            assertEquals(99999999999L, result.longValue());
+            assertFalse(ParseUtils.tryParseSignedLong(buffer, 7, 12, result));
+            assertEquals(NumberParseResult.Status.INVALID_CHAR, result.getStatus());
+            assertTrue(ParseUtils.tryParseFloat(buffer, 31, 37, result));
+            assertEquals(-150f, result.floatValue());
+            assertTrue(ParseUtils.tryParseDouble(buffer, 31, 37, result));
+            assertEquals(-150.0, result.doubleValue());
+            assertFalse(ParseUtils.tryParseDouble(buffer, 77, 79, result));
+            assertEquals(NumberParseResult.Status.EMPTY, result.getStatus());
+            assertTrue(ParseUtils.tryParseTimestampFromUIDString(buffer, 42, 58, result));
+            assertEquals(ParseUtils.parseTimestampFromUIDString(buffer, 42, 58), result.longValue());
+            assertFalse(ParseUtils.tryParseTimestampFromUIDString(buffer, 29, 37, result));
+            assertEquals(NumberParseResult.Status.INVALID_CHAR, result.getStatus());
+            assertEquals(0, buffer.position());
+        }
+        try {
+            ParseUtils.parseUnsignedLong(direct, 7, 12);
+            fail();
+        } catch (NumberFormatException expected) {
+        }
+        for (int k = 0; k < NUM_TRIALS; k++) {
+            final long l = random.nextLong();
+            final byte[] longBytes = bytes(Long.toString(l));
+            final ByteBuffer buffer = directBuffer(longBytes);
+            assertEquals(l, ParseUtils.parseSignedLong(buffer, 0, longBytes.length));
+            assertTrue(ParseUtils.tryParseSignedLong(buffer, 0, longBytes.length, result));
+            assertEquals(l, result.longValue());
+            final double d = Double.longBitsToDouble(random.nextLong());
+            if (!Double.isNaN(d)) {
+                final byte[] doubleBytes = bytes(Double.toString(d));
+                assertEquals(d, ParseUtils.parseDouble(directBuffer(doubleBytes), 0, doubleBytes.length));
+            }
+        }
+    }
+
+    private static ByteBuffer bytesBuffer(ByteBuffer like, String s) {
+        final ByteBuffer buffer = like.isDirect() ? directBuffer(bytes(s)) : ByteBuffer.wrap(bytes(s));
+        return buffer.order(like.order());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseBadBytes() {
+        ParseUtils.parseUnsignedLong(bytes("12a4"), 0, 4);
+    }
+
+    @Test
+    public void testTryParse() {
+        final NumberParseResult result = new NumberParseResult();
+        for (int k = 0; k < NUM_TRIALS; k++) {
+            final int i = random.nextInt();
+            final String intString = Integer.toString(i);
+            assertTrue(ParseUtils.tryParseSignedInt(intString, 0, intString.length(), result));
+            assertEquals(i, result.intValue());
+            final byte[] intBytes = bytes(intString);
+            assertTrue(ParseUtils.tryParseSignedInt(intBytes, 0, intBytes.length, result));
+            assertEquals(i, result.intValue());
+            final long l = random.nextLong();
+            final String longString = Long.toString(l);
+            assertTrue(ParseUtils.tryParseSignedLong(longString, 0, longString.length(), result));
+            assertEquals(l, result.longValue());
+            final byte[] longBytes = bytes(longString);
+            assertTrue(ParseUtils.tryParseSignedLong(longBytes, 0, longBytes.length, result));
+            assertEquals(l, result.longValue());
+            final float f = Float.intBitsToFloat(random.nextInt());
+            if (!Float.isNaN(f)) {
+                final String floatString = Float.toString(f);
+                assertTrue(ParseUtils.tryParseFloat(floatString, 0, floatString.length(), result));
+                assertEquals(f, result.floatValue());
+                final byte[] floatBytes = bytes(floatString);
+                assertTrue(ParseUtils.tryParseFloat(floatBytes, 0, floatBytes.length, result));
+                assertEquals(f, result.floatValue());
+            }
+        }
+
+        assertTryParseInt("2147483647", NumberParseResult.Status.OK);
+        assertTryParseInt("-2147483648", NumberParseResult.Status.OK);
+        assertTryParseInt("2147483648", NumberParseResult.Status.OVERFLOW);
+        assertTryParseInt("-2147483649", NumberParseResult.Status.OVERFLOW);
+        assertTryParseInt("99999999999999999999999", NumberParseResult.Status.OVERFLOW);
+        assertTryParseInt("12a4", NumberParseResult.Status.INVALID_CHAR);
+        assertTryParseInt("", NumberParseResult.Status.EMPTY);
+        assertTryParseInt("-", NumberParseResult.Status.EMPTY);
+
+        assertTrue(ParseUtils.tryParseSignedLong("-9223372036854775808", 0, 20, result));
+        assertEquals(Long.MIN_VALUE, result.longValue());
+        assertFalse(ParseUtils.tryParseSignedLong("9223372036854775808", 0, 19, result));
+        assertEquals(NumberParseResult.Status.OVERFLOW, result.getStatus());
+        assertFalse(ParseUtils.tryParseUnsignedLong(bytes("-1"), 0, 2, result));
+        assertEquals(NumberParseResult.Status.INVALID_CHAR, result.getStatus());
+
+        final String padded = "x=-1.5e2&y=NaN&z=1.5e&w=1..5";
+        assertTrue(ParseUtils.tryParseFloat(padded, 2, 8, result));
+        assertEquals(-150f, result.floatValue());
+        assertTrue(ParseUtils.tryParseFloat(padded, 11, 14, result));
+        assertTrue(Float.isNaN(result.floatValue()));
+        assertFalse(ParseUtils.tryParseFloat(padded, 17, 21, result));
+        assertEquals(NumberParseResult.Status.EMPTY, result.getStatus());
+        assertFalse(ParseUtils.tryParseFloat(padded, 24, 28, result));
+        assertEquals(NumberParseResult.Status.INVALID_CHAR, result.getStatus());
+        assertFalse(ParseUtils.tryParseFloat(bytes("Infinit"), 0, 7, result));
+        assertEquals(NumberParseResult.Status.INVALID_CHAR, result.getStatus());
+
+        final String uids = "uid=18dlpjv5o16ru1h2&bad=18dl!jv5o&e=";
+        final long timestamp = ParseUtils.parseTimestampFromUIDString("18dlpjv5o16ru1h2", 0, 16);
+        assertTrue(ParseUtils.tryParseTimestampFromUIDString(uids, 4, 20, result));
+        assertEquals(timestamp, result.longValue());
+        assertTrue(ParseUtils.tryParseTimestampFromUIDString(bytes(uids), 4, 20, result));
+        assertEquals(timestamp, result.longValue());
+        assertFalse(ParseUtils.tryParseTimestampFromUIDString(uids, 25, 34, result));
+        assertEquals(NumberParseResult.Status.INVALID_CHAR, result.getStatus());
+        assertFalse(ParseUtils.tryParseTimestampFromUIDString(bytes(uids), 25, 34, result));
+        assertEquals(NumberParseResult.Status.INVALID_CHAR, result.getStatus());
+        assertFalse(ParseUtils.tryParseTimestampFromUIDString(uids, 37, 37, result));
+        assertEquals(NumberParseResult.Status.EMPTY, result.getStatus());
+    }
+
+    private static void assertTryParseInt(String s, NumberParseResult.Status expected) {
+        final NumberParseResult result = new NumberParseResult();
+        assertEquals(s, expected == NumberParseResult.Status.OK, ParseUtils.tryParseSignedInt(s, 0, s.length(), result));
+        assertEquals(s, expected, result.getStatus());
+        final byte[] b = bytes(s);
+        assertEquals(s, expected == NumberParseResult.Status.OK, ParseUtils.tryParseSignedInt(b, 0, b.length, result));
+        assertEquals(s, expected, result.getStatus());
+        if (expected == NumberParseResult.Status.OK) {
+            assertEquals(s, Integer.parseInt(s), result.intValue());
+        }
+    }
+
+    @Test
+    public void testParseDigitsAtEveryPosition() {
+        // covers both the 8 digits at a time path and the remaining digits
+        final NumberParseResult result = new NumberParseResult();
+        final char[] badChars = {'/', ':', ' ', '\u0130', '\u0660'};
+        for (int length = 1; length <= 19; length++) {
+            final StringBuilder sb = new StringBuilder("x=");
+            for (int i = 0; i < length; i++) {
+                sb.append((char) ('1' + i % 9));
+            }
+            sb.append("&y");
+            final String s = sb.toString();
+            final long expected = Long.parseLong(s.substring(2, 2 + length));
+            assertEquals(expected, ParseUtils.parseUnsignedLong(s, 2, 2 + length));
+            assertEquals(expected, ParseUtils.parseUnsignedLong(bytes(s), 2, 2 + length));
+            assertEquals((int) expected, ParseUtils.parseUnsignedInt(s, 2, 2 + length));
+            assertEquals((int) expected, ParseUtils.parseUnsignedInt(bytes(s), 2, 2 + length));
+            assertTrue(ParseUtils.tryParseSignedLong(s, 2, 2 + length, result));
+            assertEquals(expected, result.longValue());
+
+            for (int bad = 0; bad < length; bad++) {
+                for (char badChar : badChars) {
+                    final char[] chars = s.toCharArray();
+                    chars[2 + bad] = badChar;
+                    final String badString = new String(chars);
+                    assertFalse(ParseUtils.tryParseSignedLong(badString, 2, 2 + length, result));
+                    assertEquals(NumberParseResult.Status.INVALID_CHAR, result.getStatus());
+                    try {
+                        ParseUtils.parseUnsignedLong(badString, 2, 2 + length);
+                        fail(badString);
+                    } catch (NumberFormatException expectedException) {
+                    }
+                    if (badChar < 0x80) {
+                        assertFalse(ParseUtils.tryParseSignedLong(bytes(badString), 2, 2 + length, result));
+                        try {
+                            ParseUtils.parseUnsignedInt(bytes(badString), 2, 2 + length);
+                            fail(badString);
+                        } catch (NumberFormatException expectedException) {
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParseDouble() {
+        final String[] hardCases = {
+                "9007199254740993", "9007199254740992.999999999999999999999", "2.2250738585072011e-308", "2.2250738585072012e-308",
+                "4.9e-324", "2.4703282292062327e-324", "2.4703282292062328e-324", "1.7976931348623157e308", "1.7976931348623159e308",
+                "1e23", "8.98846567431158e307", "0.1", "0.30000000000000004", "123456789012345678901234567890", "1e-400", "1e400",
+                "1.00000005960464477550", "1.0000000596046447755", "3.4028235e38", "3.4028236e38", "1.4e-45", "7.006492321624086e-46",
+                "0.000000000000000000000000000000000000000001401298464324817", "-0", "+1.5", ".5", "5.", "00000.00012345e+3"
+        };
+        for (String s : hardCases) {
+            assertParsesLikeJava(s);
+        }
+        for (int k = 0; k < NUM_TRIALS; k++) {
+            assertParsesLikeJava(Double.toString(Double.longBitsToDouble(random.nextLong())));
+            assertParsesLikeJava(Float.toString(Float.intBitsToFloat(random.nextInt())));
+            // random digits with more digits than fit in the mantissa, and exponents across the whole range
+            final StringBuilder sb = new StringBuilder();
+            if (random.nextBoolean()) {
+                sb.append('-');
+            }
+            final int digits = 1 + random.nextInt(30);
+            final int decimalPoint = random.nextInt(digits + 1);
+            for (int i = 0; i < digits; i++) {
+                if (i == decimalPoint) {
+                    sb.append('.');
+                }
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean()) {
+                sb.append('e').append(random.nextInt(700) - 350);
+            }
+            assertParsesLikeJava(sb.toString());
+        }
+    }
+
+    private static void assertParsesLikeJava(String s) {
+        final byte[] b = bytes("x=" + s + "&");
+        final NumberParseResult result = new NumberParseResult();
+        final double expectedDouble = Double.parseDouble(s);
+        assertEquals(s, expectedDouble, ParseUtils.parseDouble(s, 0, s.length()));
+        assertEquals(s, expectedDouble, ParseUtils.parseDouble(b, 2, b.length - 1));
+        assertTrue(s, ParseUtils.tryParseDouble(s, 0, s.length(), result));
+        assertEquals(s, expectedDouble, result.doubleValue());
+        final float expectedFloat = Float.parseFloat(s);
+        assertEquals(s, expectedFloat, ParseUtils.parseFloat(s, 0, s.length()));
+        assertEquals(s, expectedFloat, ParseUtils.parseFloat(b, 2, b.length - 1));
+        assertTrue(s, ParseUtils.tryParseFloat(b, 2, b.length - 1, result));
+        assertEquals(s, expectedFloat, result.floatValue());
+    }
+
     @Test
     public void testScientificNotation() {
         String expFloat = "123e-2";
@@ -109,16 +384,66 @@ public class TestParseUtils {
         decodesTo("Technologist+%E2%80%93+Full+Time", "Technologist – Full Time");
     }
 
+    @Test
+    public void testUrlDecodeRawUtf8Bytes() {
+        // raw (not percent encoded) multi-byte characters are decoded as UTF-8 as well
+        bytesDecodeTo("zimmermädchen+%E2%80%93+\uD852\uDF62", "zimmermädchen – \uD852\uDF62");
+        bytesDecodeTo("q=%F0%A4%AD%A2\uD852\uDF62", "q=\uD852\uDF62\uD852\uDF62");
+        // truncated raw sequence
+        final byte[] truncated = { 'a', (byte) 0xC3 };
+        final StringBuilder sb = new StringBuilder();
+        ParseUtils.urlDecodeInto(truncated, 0, truncated.length, sb);
+        assertEquals("a\uFFFD", sb.toString());
+    }
+
+    @Test
+    public void testNeedsUrlDecoding() {
+        assertFalse(ParseUtils.needsUrlDecoding("q=software+engineer", 0, 10));
+        assertTrue(ParseUtils.needsUrlDecoding("q=software+engineer", 0, 11));
+        assertTrue(ParseUtils.needsUrlDecoding("l=austin%2C+tx", 2, 14));
+        assertFalse(ParseUtils.needsUrlDecoding(bytes("l=austin"), 0, 8));
+        assertFalse(ParseUtils.needsUrlDecoding("", 0, 0));
+    }
+
+    @Test
+    public void testUrlDecodeRandomInput() {
+        // every decoding target has to agree with urlDecodeInto(CharSequence, int, int, StringBuilder), also for garbage
+        final String[] pieces = {"%", "+", "a", "%C3", "%A4", "%E2", "%80", "%F0", "%F4", "%9F", "%8F", "%FF", "%4", "%zz", "\u00e4"};
+        for (int k = 0; k < NUM_TRIALS; k++) {
+            final StringBuilder input = new StringBuilder();
+            final int length = random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                input.append(pieces[random.nextInt(pieces.length)]);
+            }
+            final String s = input.toString();
+            final StringBuilder expected = new StringBuilder();
+            ParseUtils.urlDecodeInto(s, 0, s.length(), expected);
+            final char[] chars = new char[s.length()];
+            assertEquals(s, expected.toString(), new String(chars, 0, ParseUtils.urlDecodeInto(s, 0, s.length(), chars, 0)));
+            final StringBuilder inplace = new StringBuilder(s);
+            ParseUtils.urlDecodeInplace(inplace);
+            assertEquals(s, expected.toString(), inplace.toString());
+            // the UTF-8 targets have their own rules for malformed input, but must agree with each other
+            final byte[] b = bytes(s);
+            final StringBuilder fromBytes = new StringBuilder();
+            ParseUtils.urlDecodeInto(b, 0, b.length, fromBytes);
+            final StringBuilder fromBuffer = new StringBuilder();
+            ParseUtils.urlDecodeInto(directBuffer(b), 0, b.length, fromBuffer);
+            assertEquals(s, fromBytes.toString(), fromBuffer.toString());
+        }
+    }
+
     @Test
     public void testMixedMultiByteUrlDecode() throws UnsupportedEncodingException {
         //tests four byte utf-8 chars by themselves, and mixed with other types
-        String[] inputs = new String[] {"\uD852\uDF62", "\uD800\uDD91", "aaa\uD800\uDD91ä", "\uD800\uDD94+zimmerm%C3%61dchen","\uD800\uDC00","\uD834\uDD61"} ;
-        //Includes code points  U+10000, U+24B62, U+10191 that need a surrogate pair to represent them
+        String[] inputs = new String[] {"\uD852\uDF62", "\uD800\uDD91", "aaa\uD800\uDD91ä", "\uD800\uDD94+zimmerm%C3%61dchen","\uD800\uDC00","\uD834\uDD61", "\uDBC0\uDC00"} ;
+        //Includes code points  U+10000, U+24B62, U+10191, U+100000 that need a surrogate pair to represent them
 
         for (String s : inputs) {
             testEncodeAndDecode(s, false, null);
             final StringBuilder inplaceBuilder = new StringBuilder(URLEncoder.encode(s, "UTF-8"));
             testEncodeAndDecode(s, true, inplaceBuilder);
+            bytesDecodeTo(URLEncoder.encode(s, "UTF-8"), s);
         }
 
         //create a long string concatenating the above test input strings
@@ -149,13 +474,59 @@ public class TestParseUtils {
         assertEquals(actualDecoded, s);
     }
 
+    private static byte[] bytes(String s) {
+        return s.getBytes(Charsets.UTF_8);
+    }
+
+    private static void bytesDecodeTo(String from, String to) {
+        final byte[] bytes = bytes(from);
+        final StringBuilder sb = new StringBuilder(bytes.length);
+        ParseUtils.urlDecodeInto(bytes, 0, bytes.length, sb);
+        assertEquals(to, sb.toString());
+        // surrounded by other bytes, to check the offsets
+        final byte[] padded = bytes("&" + from + "&");
+        final char[] chars = new char[padded.length + 1];
+        final int charLength = ParseUtils.urlDecodeInto(padded, 1, padded.length - 1, chars, 1);
+        assertEquals(to, new String(chars, 1, charLength));
+        assertEquals(from.indexOf('%') >= 0 || from.indexOf('+') >= 0, ParseUtils.needsUrlDecoding(padded, 1, padded.length - 1));
+        // and the same from a direct buffer
+        final ByteBuffer buffer = directBuffer(padded);
+        final StringBuilder fromBuffer = new StringBuilder();
+        ParseUtils.urlDecodeInto(buffer, 1, padded.length - 1, fromBuffer);
+        assertEquals(to, fromBuffer.toString());
+        assertEquals(to, new String(chars, 1, ParseUtils.urlDecodeInto(buffer, 1, padded.length - 1, chars, 1)));
+        final byte[] decodedBytes = new byte[padded.length];
+        assertEquals(ParseUtils.urlDecodeInto(padded, 1, padded.length - 1, decodedBytes, 0), ParseUtils.urlDecodeInto(buffer, 1, padded.length - 1, new byte[padded.length], 0));
+        assertEquals(ParseUtils.needsUrlDecoding(padded, 1, padded.length - 1), ParseUtils.needsUrlDecoding(buffer, 1, padded.length - 1));
+        assertEquals(0, buffer.position());
+    }
+
+    private static ByteBuffer directBuffer(byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.clear();
+        return buffer;
+    }
+
     private static void decodesTo(String from, String to) {
+        bytesDecodeTo(from, to);
         StringBuilder sb = new StringBuilder(from.length());
         ParseUtils.urlDecodeInto(from, 0, from.length(), sb);
         assertEquals(to, sb.toString());
         StringBuilder sb2 = new StringBuilder(from);
         ParseUtils.urlDecodeInplace(sb2);
         assertEquals(to, sb2.toString());
+        final String padded = "&" + from + "&";
+        final char[] chars = new char[padded.length() + 1];
+        final int length = ParseUtils.urlDecodeInto(padded, 1, padded.length() - 1, chars, 1);
+        assertEquals(to, new String(chars, 1, length));
+        // the byte[] target decodes to the UTF-8 bytes of the decoded value, in place here. Malformed sequences are
+        // copied as bytes instead of being kept as escapes
+        if (to.indexOf('%') < 0) {
+            final byte[] bytes = bytes(padded);
+            final int byteLength = ParseUtils.urlDecodeInto(bytes, 1, bytes.length - 1, bytes, 0);
+            assertEquals(to, new String(bytes, 0, byteLength, Charsets.UTF_8));
+        }
     }
 
 
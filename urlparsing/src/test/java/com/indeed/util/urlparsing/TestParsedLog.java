@@ -0,0 +1,237 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class TestParsedLog {
+
+    private static final List<String> LINES = ImmutableList.of(
+            "q=software+engineer&l=Austin%2C+TX&totCnt=123&start=-10",
+            "uid=1a2b3c4d5e6f7g8h&totCnt=0&zero=007&neg=-0&big=9223372036854775808&min=-9223372036854775808",
+            "",
+            "flag&=empty&q=zimmerm%C3%A4dchen&q=&l=&",
+            "lang=én&q=java");
+
+    /**
+     * Collects records as lists of "key=value" with a type prefix
+     */
+    private static final class RecordCollector implements ParsedRecordCallback<List<List<String>>> {
+        private final ParsedLogReader reader;
+
+        private List<String> record = new ArrayList<String>();
+
+        private RecordCollector(ParsedLogReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public void parseLong(int keyId, long value, List<List<String>> storage) {
+            record.add("long " + reader.getKeys().get(keyId) + "=" + value);
+        }
+
+        @Override
+        public void parseString(int keyId, ByteBuffer buffer, int valueStart, int valueEnd, boolean decoded, List<List<String>> storage) {
+            final byte[] bytes = new byte[valueEnd - valueStart];
+            for (int i = valueStart; i < valueEnd; i++) {
+                bytes[i - valueStart] = buffer.get(i);
+            }
+            record.add((decoded ? "decoded " : "string ") + reader.getKeys().get(keyId) + "=" + new String(bytes, Charsets.UTF_8));
+        }
+
+        @Override
+        public void endRecord(List<List<String>> storage) {
+            storage.add(record);
+            record = new ArrayList<String>();
+        }
+    }
+
+    /**
+     * Collects the pairs of all records as "key|value"
+     */
+    private static final class PairCollector implements ParsedRecordCallback<List<String>> {
+        private final ParsedLogReader reader;
+
+        private PairCollector(ParsedLogReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public void parseLong(int keyId, long value, List<String> storage) {
+            storage.add(reader.getKeys().get(keyId) + "|" + value);
+        }
+
+        @Override
+        public void parseString(int keyId, ByteBuffer buffer, int valueStart, int valueEnd, boolean decoded, List<String> storage) {
+            final byte[] bytes = new byte[valueEnd - valueStart];
+            for (int i = valueStart; i < valueEnd; i++) {
+                bytes[i - valueStart] = buffer.get(i);
+            }
+            storage.add(reader.getKeys().get(keyId) + "|" + new String(bytes, Charsets.UTF_8));
+        }
+
+        @Override
+        public void endRecord(List<String> storage) {
+        }
+    }
+
+    private static File write(List<String> lines, Set<String> urlDecodedKeys) throws IOException {
+        final File file = File.createTempFile("TestParsedLog", ".qsp");
+        file.deleteOnExit();
+        final ParsedLogWriter writer = new ParsedLogWriter(new FileOutputStream(file), urlDecodedKeys);
+        for (String line : lines) {
+            writer.write(line);
+        }
+        writer.close();
+        assertEquals(lines.size(), writer.getNumRecords());
+        return file;
+    }
+
+    @Test
+    public void testRecords() throws IOException {
+        final ParsedLogReader reader = new ParsedLogReader(write(LINES, ImmutableSet.of("q", "l")));
+        try {
+            assertEquals(5, reader.getNumRecords());
+            assertEquals(0, reader.getKeyId("q"));
+            assertEquals(3, reader.getKeyId("start"));
+            assertEquals(-1, reader.getKeyId("missing"));
+
+            final List<List<String>> records = new ArrayList<List<String>>();
+            assertEquals(5, reader.read(new RecordCollector(reader), records));
+            assertEquals(ImmutableList.of(
+                    ImmutableList.of("decoded q=software engineer", "decoded l=Austin, TX", "long totCnt=123", "long start=-10"),
+                    ImmutableList.of("string uid=1a2b3c4d5e6f7g8h", "long totCnt=0", "string zero=007", "string neg=-0",
+                            "string big=9223372036854775808", "long min=-9223372036854775808"),
+                    ImmutableList.of("string ="),
+                    ImmutableList.of("string flag=", "string =empty", "decoded q=zimmermädchen", "decoded q=", "decoded l=", "string ="),
+                    ImmutableList.of("string lang=én", "decoded q=java")), records);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSmallWindows() throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            lines.add("k" + (i % 7) + "=" + i + "&v=x" + i);
+            expected.add("k" + (i % 7) + "|" + i);
+            expected.add("v|x" + i);
+        }
+        final File file = write(lines, ImmutableSet.<String>of());
+        for (int windowSize : new int[] {16, 100, 1 << 20}) {
+            final ParsedLogReader reader = new ParsedLogReader(file, windowSize);
+            try {
+                final List<String> replayed = new ArrayList<String>();
+                assertEquals(500, reader.read(new PairCollector(reader), replayed));
+                assertEquals(expected, replayed);
+            } finally {
+                reader.close();
+            }
+        }
+
+        final ParsedLogReader reader = new ParsedLogReader(file, 4);
+        try {
+            reader.read(new PairCollector(reader), new ArrayList<String>());
+            fail();
+        } catch (IOException e) {
+            assertEquals("Record at offset 8 in " + file + " is longer than the window size 4", e.getMessage());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testWriteDirectBuffer() throws IOException {
+        // direct buffers are encoded in place, with the same result as arrays
+        final File expected = write(LINES, ImmutableSet.of("q", "l"));
+        final File file = File.createTempFile("TestParsedLog", ".qsp");
+        file.deleteOnExit();
+        final ParsedLogWriter writer = new ParsedLogWriter(new FileOutputStream(file), ImmutableSet.of("q", "l"));
+        for (String line : LINES) {
+            final byte[] bytes = ("&" + line + "\n").getBytes(Charsets.UTF_8);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            writer.write(buffer, 1, bytes.length - 1);
+        }
+        writer.close();
+        assertTrue(Arrays.equals(Files.toByteArray(expected), Files.toByteArray(file)));
+    }
+
+    @Test
+    public void testConvert() throws IOException {
+        final File log = File.createTempFile("TestParsedLog", ".txt");
+        log.deleteOnExit();
+        Files.write("a=1&b=x\r\nb=2\n".getBytes(Charsets.UTF_8), log);
+        final File out = File.createTempFile("TestParsedLog", ".qsp");
+        out.deleteOnExit();
+        assertEquals(4, ParsedLogWriter.convert(ImmutableList.of(log, log), out, ImmutableSet.<String>of()));
+        final ParsedLogReader reader = new ParsedLogReader(out);
+        try {
+            final List<String> replayed = new ArrayList<String>();
+            reader.read(new PairCollector(reader), replayed);
+            assertEquals(ImmutableList.of("a|1", "b|x", "b|2", "a|1", "b|x", "b|2"), replayed);
+        } finally {
+            reader.close();
+        }
+
+        final ParsedLogReader empty = new ParsedLogReader(write(ImmutableList.<String>of(), ImmutableSet.<String>of()));
+        try {
+            assertEquals(0, empty.getKeys().size());
+            assertEquals(0, empty.read(new PairCollector(empty), new ArrayList<String>()));
+        } finally {
+            empty.close();
+        }
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        final File log = File.createTempFile("TestParsedLog", ".txt");
+        log.deleteOnExit();
+        Files.write("a=1&b=2&c=3&d=4&e=5&f=6&g=7\n".getBytes(Charsets.UTF_8), log);
+        try {
+            new ParsedLogReader(log).close();
+            fail();
+        } catch (IOException e) {
+            assertEquals(log + " is not a parsed log", e.getMessage());
+        }
+
+        // cut the end off the last record, and move the dictionary offset in the footer to match
+        final File file = write(LINES, ImmutableSet.<String>of());
+        final byte[] bytes = Files.toByteArray(file);
+        final ByteBuffer footer = ByteBuffer.wrap(bytes, bytes.length - 20, 8);
+        final int dictionaryOffset = (int) footer.getLong();
+        final ByteBuffer truncated = ByteBuffer.allocate(bytes.length - 5);
+        truncated.put(bytes, 0, dictionaryOffset - 5);
+        truncated.put(bytes, dictionaryOffset, bytes.length - 20 - dictionaryOffset);
+        truncated.putLong(dictionaryOffset - 5);
+        truncated.put(bytes, bytes.length - 12, 12);
+        Files.write(truncated.array(), file);
+        final ParsedLogReader reader = new ParsedLogReader(file);
+        try {
+            final List<String> replayed = new ArrayList<String>();
+            reader.read(new PairCollector(reader), replayed);
+            fail();
+        } catch (IOException e) {
+            assertEquals(0, e.getMessage().indexOf("Truncated record at offset "));
+        } finally {
+            reader.close();
+        }
+    }
+}
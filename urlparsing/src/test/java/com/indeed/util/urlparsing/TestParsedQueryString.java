@@ -0,0 +1,117 @@
+package com.indeed.util.urlparsing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class TestParsedQueryString {
+
+    private static final QueryStringParserCallback<List<String>> collector = new QueryStringParserCallback<List<String>>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, List<String> storage) {
+            storage.add(queryString.substring(keyStart, keyEnd) + "|" + queryString.substring(valueStart, valueEnd));
+        }
+    };
+
+    private static String value(ParsedQueryString parsed, int index) {
+        return parsed.getQueryString().substring(parsed.getValueStart(index), parsed.getValueEnd(index));
+    }
+
+    @Test
+    public void testSameAsQueryStringParser() {
+        final ParsedQueryString parsed = new ParsedQueryString();
+        for (String queryString : new String[] {"", "a", "a=1&b=2", "q=java&&l=&flag&=x&q=nurse&", "k=v=w&=&x"}) {
+            final List<String> expected = new ArrayList<String>();
+            QueryStringParser.parseQueryString(queryString, collector, expected);
+            final List<String> replayed = new ArrayList<String>();
+            parsed.parse(queryString).replay(collector, replayed);
+            assertEquals(queryString, expected, replayed);
+            assertEquals(expected.size(), parsed.size());
+            // replaying twice gives the same pairs
+            replayed.clear();
+            parsed.replay(collector, replayed);
+            assertEquals(expected, replayed);
+        }
+    }
+
+    @Test
+    public void testLookup() {
+        final ParsedQueryString parsed = new ParsedQueryString().parse("q=java&l=austin&totCnt=123&flag&q=nurse&Q=x&q=");
+        assertEquals(7, parsed.size());
+        assertEquals(0, parsed.indexOf("q"));
+        assertEquals("austin", value(parsed, parsed.indexOf("l")));
+        assertEquals("123", value(parsed, parsed.indexOf("totCnt")));
+        assertEquals("", value(parsed, parsed.indexOf("flag")));
+        assertEquals("x", value(parsed, parsed.indexOf("Q")));
+        assertEquals(-1, parsed.indexOf("totcnt"));
+        assertEquals(-1, parsed.indexOf(""));
+        assertTrue(parsed.containsKey("flag"));
+        assertFalse(parsed.containsKey("missing"));
+        assertEquals("totCnt".hashCode(), parsed.getKeyHash(2));
+
+        // duplicates in order
+        assertEquals(4, parsed.nextIndexOf(0));
+        assertEquals(6, parsed.nextIndexOf(4));
+        assertEquals(-1, parsed.nextIndexOf(6));
+        assertEquals(-1, parsed.nextIndexOf(1));
+
+        final CharSequenceSlice slice = new CharSequenceSlice();
+        assertSame(slice, parsed.get("l", slice));
+        assertEquals("austin", slice.toString());
+        assertNull(parsed.get("missing", slice));
+
+        try {
+            parsed.getValueStart(7);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReuse() {
+        final ParsedQueryString parsed = new ParsedQueryString();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append("k").append(i).append('=').append(i).append('&');
+        }
+        parsed.parse(sb.toString());
+        assertEquals(101, parsed.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.toString(i), value(parsed, parsed.indexOf("k" + i)));
+        }
+        // the previous pairs are gone, also from the index
+        parsed.parse("k5=x&a=1", 0, 8, "&", "=");
+        assertEquals(2, parsed.size());
+        assertEquals(0, parsed.indexOf("k5"));
+        assertEquals(-1, parsed.indexOf("k6"));
+        assertEquals("1", value(parsed, parsed.indexOf("a")));
+
+        parsed.parse("a:1;;b:2", 0, 8, ";;", ":");
+        assertEquals("2", value(parsed, parsed.indexOf("b")));
+    }
+
+    @Test
+    public void testForCurrentThread() throws Exception {
+        final ParsedQueryString parsed = ParsedQueryString.forCurrentThread();
+        assertSame(parsed, ParsedQueryString.forCurrentThread());
+        final ParsedQueryString[] other = new ParsedQueryString[1];
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other[0] = ParsedQueryString.forCurrentThread();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertTrue(other[0] != null && other[0] != parsed);
+    }
+}
@@ -0,0 +1,95 @@
+package com.indeed.util.urlparsing;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class TestQueryStringBatch {
+
+    @Test
+    public void testColumns() {
+        final QueryStringBatch batch = new QueryStringBatch(4);
+        final QueryStringBatch.IntColumn count = batch.addIntColumn("totCnt");
+        final QueryStringBatch.LongColumn big = batch.addLongColumn("big");
+        final QueryStringBatch.FloatColumn f = batch.addFloatColumn("f");
+        final QueryStringBatch.StringColumn query = batch.addStringColumn("q", true);
+        final QueryStringBatch.StringColumn raw = batch.addStringColumn("q", false);
+
+        final String[] lines = {
+                "totCnt=12&big=12345678901234&f=1.5&q=software+engineer",
+                "other=1",
+                "totCnt=abc&q=nurse&q=rn&f=",
+                "totCnt=-3&big=1",
+                "totCnt=4",
+        };
+        assertEquals(4, batch.parse(lines, 0, lines.length));
+        assertTrue(batch.isFull());
+        assertFalse(batch.add(lines[4]));
+        assertEquals(4, batch.size());
+
+        assertEquals(12, count.get(0));
+        assertTrue(count.isPresent(0));
+        assertFalse(count.isPresent(1));
+        assertEquals(0, count.get(2));
+        assertFalse(count.isPresent(2));
+        assertEquals(-3, count.get(3));
+        assertEquals(0x9L, count.getPresence()[0]);
+
+        assertEquals(12345678901234L, big.get(0));
+        assertEquals(1L, big.get(3));
+        assertFalse(big.isPresent(2));
+
+        assertEquals(1.5f, f.get(0));
+        assertFalse(f.isPresent(2));
+
+        final CharSequenceSlice slice = new CharSequenceSlice();
+        assertEquals("software engineer", query.get(0, slice).toString());
+        assertEquals("software+engineer", raw.get(0, slice).toString());
+        assertEquals("", query.get(1, slice).toString());
+        assertFalse(query.isPresent(1));
+        assertEquals("rn", query.get(2, slice).toString());
+        assertTrue(query.isPresent(2));
+        assertEquals(query.getStart(3), query.getEnd(3));
+        assertEquals("software engineerrn", query.getChars().toString());
+    }
+
+    @Test
+    public void testReuse() {
+        final QueryStringBatch batch = new QueryStringBatch(100);
+        final QueryStringBatch.IntColumn a = batch.addIntColumn("a");
+        final QueryStringBatch.StringColumn s = batch.addStringColumn("s", false);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(batch.add("a=" + i + "&s=x" + i));
+        }
+        batch.clear();
+        assertEquals(0, batch.size());
+        for (int i = 0; i < 70; i++) {
+            batch.add(i % 2 == 0 ? "b=1" : "a=" + i + "&s=y");
+        }
+        int sum = 0;
+        for (int value : a.getValues()) {
+            sum += value;
+        }
+        // rows 70 and above still hold the values of the previous batch
+        for (int i = 70; i < 100; i++) {
+            sum -= i;
+        }
+        assertEquals(35 * 35, sum);
+        for (int i = 0; i < 70; i++) {
+            assertEquals(i % 2 == 1, a.isPresent(i));
+            assertEquals(i % 2 == 1, s.isPresent(i));
+            assertEquals(i % 2 == 1 ? "y" : "", s.get(i, new CharSequenceSlice()).toString());
+        }
+        assertEquals(35, s.getChars().length());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddColumnAfterParse() {
+        final QueryStringBatch batch = new QueryStringBatch(1);
+        batch.addIntColumn("a");
+        batch.add("a=1");
+        batch.addIntColumn("b");
+    }
+}
@@ -0,0 +1,192 @@
+package com.indeed.util.urlparsing;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class TestQueryStringBinder {
+
+    public static class Record {
+        @QueryStringKey(value = "uid", type = QueryStringKey.Type.UID_TIMESTAMP)
+        public long timestamp;
+
+        @QueryStringKey("uid")
+        public String uid;
+
+        @QueryStringKey(value = "q", type = QueryStringKey.Type.URL_DECODED)
+        public final StringBuilder query = new StringBuilder();
+
+        @QueryStringKey(value = "l", type = QueryStringKey.Type.URL_DECODED)
+        public String location;
+
+        @QueryStringKey("totCnt")
+        public int numResults;
+
+        @QueryStringKey("big")
+        public long big;
+
+        @QueryStringKey("f")
+        public float f;
+
+        @QueryStringKey("d")
+        public double d;
+
+        @QueryStringKey("raw")
+        public final StringBuilder raw = new StringBuilder();
+
+        @QueryStringKey("slice")
+        public final CharSequenceSlice slice = new CharSequenceSlice();
+
+        public int notBound;
+    }
+
+    public static class SubRecord extends Record {
+        @QueryStringKey("sub")
+        public int sub;
+    }
+
+    public static class FinalInt {
+        @QueryStringKey("a")
+        public final int a = 0;
+    }
+
+    public static class DecodedInt {
+        @QueryStringKey(value = "a", type = QueryStringKey.Type.URL_DECODED)
+        public int a;
+    }
+
+    public static class UnsupportedType {
+        @QueryStringKey("a")
+        public Integer a;
+    }
+
+    static class NotPublic {
+        @QueryStringKey("a")
+        public int a;
+    }
+
+    @Test
+    public void testParse() {
+        final QueryStringBinder<Record> binder = QueryStringBinder.create(Record.class);
+        final Record record = new Record();
+        binder.parse("uid=16ee6pk6b0k4a5jn&q=software+engineer&l=san%20francisco&totCnt=-123&big=12345678901234&f=1.5&d=2.25e-3&raw=a+b&slice=xyz&notBound=5", record);
+        assertEquals(ParseUtils.parseTimestampFromUIDString("16ee6pk6b0k4a5jn", 0, 16), record.timestamp);
+        assertEquals("16ee6pk6b0k4a5jn", record.uid);
+        assertEquals("software engineer", record.query.toString());
+        assertEquals("san francisco", record.location);
+        assertEquals(-123, record.numResults);
+        assertEquals(12345678901234L, record.big);
+        assertEquals(1.5f, record.f);
+        assertEquals(2.25e-3, record.d);
+        assertEquals("a+b", record.raw.toString());
+        assertEquals("xyz", record.slice.toString());
+        assertEquals(0, record.notBound);
+
+        // fields are reset before every parse, and the last of repeated keys wins
+        binder.parse("q=first&q=second&totCnt=", record);
+        assertEquals(0, record.timestamp);
+        assertNull(record.uid);
+        assertEquals("second", record.query.toString());
+        assertNull(record.location);
+        assertEquals(0, record.numResults);
+        assertEquals(0.0f, record.f);
+        assertEquals(0.0, record.d);
+        assertEquals("", record.raw.toString());
+        assertEquals("", record.slice.toString());
+    }
+
+    @Test
+    public void testMalformedNumbers() {
+        final QueryStringBinder<Record> binder = QueryStringBinder.create(Record.class);
+        final Record record = new Record();
+        binder.parse("totCnt=12x&big=99999999999999999999&f=abc&uid=!!!&q=ok", record);
+        assertEquals(0, record.numResults);
+        assertEquals(0.0f, record.f);
+        assertEquals(0, record.timestamp);
+        assertEquals(0, record.big);
+        assertEquals("ok", record.query.toString());
+
+        // malformed values leave fields that were set before as they are
+        binder.parse("totCnt=5&big=6&d=1.5&uid=16ee6pk6b0k4a5jn", record);
+        QueryStringParser.parseQueryString("totCnt=-&big=1-2&d=1.5.5&sub=&uid=16ee!", binder.getCallback(), record);
+        assertEquals(5, record.numResults);
+        assertEquals(6, record.big);
+        assertEquals(1.5, record.d);
+        assertEquals(ParseUtils.parseTimestampFromUIDString("16ee6pk6b0k4a5jn", 0, 16), record.timestamp);
+
+        // each binder has its own scratch state, so binders of the same class can be used side by side
+        final QueryStringBinder<Record> other = QueryStringBinder.create(Record.class);
+        final Record otherRecord = new Record();
+        QueryStringParser.parseQueryString("totCnt=7", other.getCallback(), otherRecord);
+        QueryStringParser.parseQueryString("totCnt=x", binder.getCallback(), record);
+        assertEquals(7, otherRecord.numResults);
+        assertEquals(5, record.numResults);
+    }
+
+    @Test
+    public void testOverflowingNumbers() {
+        final QueryStringBinder<Record> binder = QueryStringBinder.create(Record.class);
+        final Record record = new Record();
+        binder.parse("totCnt=99999999999&big=99999999999999999999", record);
+        assertEquals(0, record.numResults);
+        assertEquals(0, record.big);
+
+        binder.parse("totCnt=2147483648&big=-9223372036854775809", record);
+        assertEquals(0, record.numResults);
+        assertEquals(0, record.big);
+
+        binder.parse("totCnt=-2147483648&big=9223372036854775807", record);
+        assertEquals(Integer.MIN_VALUE, record.numResults);
+        assertEquals(Long.MAX_VALUE, record.big);
+    }
+
+    @Test
+    public void testCallbackAndDelimiters() {
+        final QueryStringBinder<Record> binder = QueryStringBinder.create(Record.class);
+        final Record record = new Record();
+        binder.parse("xxtotCnt:7;l:austin;q:nurseyy", 2, 27, ";", ":", record);
+        assertEquals(7, record.numResults);
+        assertEquals("austin", record.location);
+        assertEquals("nurse", record.query.toString());
+
+        // the callback alone doesn't reset the record
+        QueryStringParser.parseQueryString("l=boston", binder.getCallback(), record);
+        assertEquals(7, record.numResults);
+        assertEquals("boston", record.location);
+    }
+
+    @Test
+    public void testInheritedFields() {
+        final QueryStringBinder<SubRecord> binder = QueryStringBinder.create(SubRecord.class);
+        final SubRecord record = new SubRecord();
+        binder.parse("sub=3&totCnt=4", record);
+        assertEquals(3, record.sub);
+        assertEquals(4, record.numResults);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFinalField() {
+        QueryStringBinder.create(FinalInt.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodedInt() {
+        QueryStringBinder.create(DecodedInt.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedType() {
+        QueryStringBinder.create(UnsupportedType.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotPublic() {
+        QueryStringBinder.create(NotPublic.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoAnnotatedFields() {
+        QueryStringBinder.create(TestQueryStringBinder.class);
+    }
+}
@@ -2,7 +2,11 @@ package com.indeed.util.urlparsing;
 
 import org.junit.Test;
 
+import java.util.Random;
+
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
 
 /**
  * @author ahudson
@@ -59,6 +63,48 @@ public class TestQueryStringParser {
         runTest("a=b&x7x&x&x35lk=sadjlkj&blah=blah=blah&x=y");
     }
 
+    @Test
+    public void testRandomInput() {
+        // compares the single pass scan for single char delimiters to the straightforward indexOf() implementation
+        final Random random = new Random(31);
+        final char[] alphabet = {'a', 'b', '&', '=', '&', '='};
+        for (int trial = 0; trial < 5000; trial++) {
+            final char[] chars = new char[random.nextInt(20)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            final String input = new String(chars);
+            final int start = input.isEmpty() ? 0 : random.nextInt(input.length());
+            final int end = start + random.nextInt(input.length() - start + 1);
+
+            final StringBuilder expected = new StringBuilder();
+            int kvPairStart = start;
+            while (kvPairStart <= end) {
+                int kvPairEnd = input.indexOf('&', kvPairStart);
+                if (kvPairEnd < 0 || kvPairEnd > end) {
+                    kvPairEnd = end;
+                }
+                final int equalPos = input.indexOf('=', kvPairStart);
+                // an '=' just past qsEnd is not part of the pair
+                if (equalPos < 0 || equalPos >= kvPairEnd) {
+                    expected.append(kvPairStart).append(',').append(kvPairEnd).append(',').append(kvPairEnd).append(',').append(kvPairEnd).append(';');
+                } else {
+                    expected.append(kvPairStart).append(',').append(equalPos).append(',').append(equalPos + 1).append(',').append(kvPairEnd).append(';');
+                }
+                kvPairStart = kvPairEnd + 1;
+            }
+
+            final StringBuilder actual = new StringBuilder();
+            QueryStringParser.parseQueryString(input, new QueryStringParserCallback<StringBuilder>() {
+                @Override
+                public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, StringBuilder storage) {
+                    storage.append(keyStart).append(',').append(keyEnd).append(',').append(valueStart).append(',').append(valueEnd).append(';');
+                }
+            }, actual, start, end, "&", "=");
+            assertEquals(input + " [" + start + ", " + end + ")", expected.toString(), actual.toString());
+        }
+    }
+
     @Test
     public void testSomeKeysParsing() {
         QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
@@ -69,6 +115,313 @@ public class TestQueryStringParser {
         assertEquals("x&x35lk=sadjlkj&x=y", paramsBuilder.toString());
     }
 
+    @Test
+    public void testManyKeys() {
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        final StringBuilder input = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        final StringBuilder longKey = new StringBuilder();
+        for (int i = 0; i < 70; i++) {
+            longKey.append('k');
+        }
+        // "Aa" and "BB" have the same String.hashCode()
+        final String[] keys = {"Aa", "BB", "", longKey.toString(), longKey.substring(1)};
+        for (String key : keys) {
+            callbackBuilder.addCallback(key, new URLBuilderCallback());
+        }
+        for (int i = 0; i < 300; i++) {
+            callbackBuilder.addCallback("key" + i, new URLBuilderCallback());
+            input.append("key").append(i).append('=').append(i).append("&miss").append(i).append("=x&");
+            expected.append("key").append(i).append('=').append(i).append('&');
+        }
+        for (String key : keys) {
+            input.append(key).append("=v&");
+            expected.append(key).append("=v&");
+        }
+        input.append("AaBB=x&Ab=x&kk=x");
+
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        QueryStringParser.parseQueryString(input.toString(), callbackBuilder.buildCallback(), paramsBuilder);
+        assertEquals(expected.substring(0, expected.length() - 1), paramsBuilder.toString());
+
+        paramsBuilder.reset();
+        QueryStringParser.parseQueryString(input.toString(), callbackBuilder.buildCompiledCallback(), paramsBuilder);
+        assertEquals(expected.substring(0, expected.length() - 1), paramsBuilder.toString());
+    }
+
+    @Test
+    public void testCompiledCallback() {
+        QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        callbackBuilder.addCallback("x35lk", new URLBuilderCallback());
+        callbackBuilder.addCallback("x", new URLBuilderCallback());
+        callbackBuilder.addCallback("x3", new URLBuilderCallback());
+        callbackBuilder.addCallback("x", new URLBuilderCallback());
+        callbackBuilder.addCallback("\u00e4\u00f6", new URLBuilderCallback());
+        final QueryStringParserCallback<URLParamsBuilder> compiled = callbackBuilder.buildCompiledCallback();
+        assertTrue(compiled.getClass().getName().contains("CompiledCallback"));
+        QueryStringParser.parseQueryString("a=b&x7x&x&x35lk=sadjlkj&blah=blah=blah&x=y&x4=z&\u00e4\u00f6=1&\u00e4\u00e4=2", compiled, paramsBuilder);
+        assertEquals("x&x&x35lk=sadjlkj&x=y&x=y&\u00e4\u00f6=1", paramsBuilder.toString());
+
+        paramsBuilder.reset();
+        QueryStringParser.parseQueryString("a=b&c=d", new QueryStringParserCallbackBuilder<URLParamsBuilder>().buildCompiledCallback(), paramsBuilder);
+        assertEquals("", paramsBuilder.toString());
+    }
+
+    @Test
+    public void testNoKeys() {
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        QueryStringParser.parseQueryString("a=b&c=d", new QueryStringParserCallbackBuilder<URLParamsBuilder>().buildCallback(), paramsBuilder);
+        assertEquals("", paramsBuilder.toString());
+    }
+
+    @Test
+    public void testMultipleCallbacksPerKey() {
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        callbackBuilder.addCallback("uid", new URLBuilderCallback());
+        callbackBuilder.addCallback("q", new URLBuilderCallback());
+        callbackBuilder.addCallback("uid", new URLBuilderCallback());
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        QueryStringParser.parseQueryString("uid=1&q=2&x=3", callbackBuilder.buildCallback(), paramsBuilder);
+        assertEquals("uid=1&uid=1&q=2", paramsBuilder.toString());
+    }
+
+    @Test
+    public void testStoppableCallback() {
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        callbackBuilder.addCallback("uid", new URLBuilderCallback());
+        callbackBuilder.addCallback("q", new URLBuilderCallback());
+        callbackBuilder.addCallback("uid", new URLBuilderCallback());
+        final StoppableQueryStringParserCallback<URLParamsBuilder> callback = callbackBuilder.buildStoppableCallback();
+
+        final String input = "a=1&uid=2&b=3&q=4&c=5&uid=6";
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        QueryStringParser.parseQueryString(input, callback, paramsBuilder);
+        assertEquals("uid=2&uid=2&q=4", paramsBuilder.toString());
+
+        // keys that are not all present
+        paramsBuilder.reset();
+        QueryStringParser.parseQueryString("uid=1&x=2&uid=3", callback, paramsBuilder);
+        assertEquals("uid=1&uid=1&uid=3&uid=3", paramsBuilder.toString());
+
+        // custom delimiters
+        paramsBuilder.reset();
+        final String custom = "q%3D1%26uid%3D2%26uid%3D3";
+        QueryStringParser.parseQueryString(custom, callback, paramsBuilder, 0, custom.length(), "%26", "%3D");
+        assertEquals("q%3D1&uid%3D2&uid%3D2", paramsBuilder.toString());
+
+        // from 64 keys on the seen keys aren't tracked, and parsing must not stop at the first untracked key
+        for (int numKeys = 62; numKeys <= 66; numKeys++) {
+            final QueryStringParserCallbackBuilder<URLParamsBuilder> manyKeysBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+            for (int i = 0; i < numKeys; i++) {
+                manyKeysBuilder.addCallback("k" + i, new URLBuilderCallback());
+            }
+            paramsBuilder.reset();
+            final String last = "k" + (numKeys - 1);
+            QueryStringParser.parseQueryString(last + "=a&x=b&k0=c&k1=d", manyKeysBuilder.buildStoppableCallback(), paramsBuilder);
+            assertEquals(last + "=a&k0=c&k1=d", paramsBuilder.toString());
+        }
+    }
+
+    private static final class PrefixBuilderCallback implements PrefixQueryStringParserCallback<URLParamsBuilder> {
+        @Override
+        public void parseKeyValuePair(
+                String urlParams, int keyStart, int keyEnd, int prefixLength, int valueStart, int valueEnd, URLParamsBuilder paramsBuilder
+        ) {
+            // the part of the key after the prefix, and the value
+            paramsBuilder.append(urlParams, keyStart + prefixLength, keyEnd);
+            paramsBuilder.append(urlParams, valueStart, valueEnd);
+        }
+    }
+
+    @Test
+    public void testPrefixCallbacks() {
+        for (boolean compiled : new boolean[] {false, true}) {
+            final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+            callbackBuilder.addCallback("utm_source", new URLBuilderCallback());
+            callbackBuilder.addPrefixCallback("utm_", new PrefixBuilderCallback());
+            callbackBuilder.addPrefixCallback("jk", new PrefixBuilderCallback());
+            callbackBuilder.addPrefixCallback("jk1", new PrefixBuilderCallback());
+            callbackBuilder.addPrefixCallback("f_", new PrefixBuilderCallback());
+            final QueryStringParserCallback<URLParamsBuilder> callback = compiled ? callbackBuilder.buildCompiledCallback() : callbackBuilder.buildCallback();
+
+            final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+            QueryStringParser.parseQueryString("utm_source=a&utm_=b&utm=c&jk0=d&jk12=e&j=f&jk=g&x_f_=h&f_=&q=i", callback, paramsBuilder);
+            assertEquals("utm_source=a&source&a&&b&0&d&12&e&2&e&&g&&", paramsBuilder.toString());
+        }
+
+        // an empty prefix matches every key
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        callbackBuilder.addPrefixCallback("", new PrefixBuilderCallback());
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        QueryStringParser.parseQueryString("a=1&bc=2", callbackBuilder.buildCallback(), paramsBuilder);
+        assertEquals("a&1&bc&2", paramsBuilder.toString());
+    }
+
+    @Test
+    public void testManyPrefixes() {
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        for (int i = 0; i < 500; i++) {
+            callbackBuilder.addPrefixCallback("p" + i + "_", new PrefixBuilderCallback());
+        }
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        QueryStringParser.parseQueryString("p1_a=1&p499_b=2&p500_c=3&p49=4&p0_=5", callbackBuilder.buildCallback(), paramsBuilder);
+        assertEquals("a&1&b&2&&5", paramsBuilder.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAliasCycle() {
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        callbackBuilder.addCallback("q", new URLBuilderCallback());
+        callbackBuilder.addAlias("a", "b");
+        callbackBuilder.addAlias("b", "a");
+        callbackBuilder.buildCallback();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStoppableWithPrefixes() {
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        callbackBuilder.addPrefixCallback("a", new PrefixBuilderCallback());
+        callbackBuilder.buildStoppableCallback();
+    }
+
+    @Test
+    public void testIgnoreCaseAndAliases() {
+        for (boolean compiled : new boolean[] {false, true}) {
+            final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+            callbackBuilder.setIgnoreCase(true);
+            callbackBuilder.addCallback("q", new URLBuilderCallback());
+            callbackBuilder.addCallback("totCnt", new URLBuilderCallback());
+            callbackBuilder.addCallback("x@", new URLBuilderCallback());
+            callbackBuilder.addAlias("query", "q");
+            callbackBuilder.addAlias("QRY", "Query");
+            callbackBuilder.addAlias("Q", "q");
+            callbackBuilder.addPrefixCallback("Utm_", new PrefixBuilderCallback());
+            final QueryStringParserCallback<URLParamsBuilder> callback = compiled ? callbackBuilder.buildCompiledCallback() : callbackBuilder.buildCallback();
+
+            final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+            QueryStringParser.parseQueryString("Q=1&q=2&QUERY=3&qry=4&quer=5&TOTCNT=6&totcnt=7&x`=8&X@=9&UTM_Source=a&qq=b", callback, paramsBuilder);
+            assertEquals("Q=1&q=2&QUERY=3&qry=4&TOTCNT=6&totcnt=7&X@=9&Source&a", paramsBuilder.toString());
+        }
+
+        // case sensitive by default
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        callbackBuilder.addCallback("q", new URLBuilderCallback());
+        callbackBuilder.addCallback("query", new URLBuilderCallback());
+        callbackBuilder.addAlias("query", "q");
+        callbackBuilder.addCallback("l", new URLBuilderCallback());
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        QueryStringParser.parseQueryString("Q=1&q=2&query=3", callbackBuilder.buildCallback(), paramsBuilder);
+        // query calls its own callback and the one of q
+        assertEquals("q=2&query=3&query=3", paramsBuilder.toString());
+
+        // an alias counts as its key for stopping early
+        paramsBuilder.reset();
+        QueryStringParser.parseQueryString("query=1&x=2&l=3&q=4", callbackBuilder.buildStoppableCallback(), paramsBuilder);
+        assertEquals("query=1&query=1&l=3", paramsBuilder.toString());
+    }
+
+    @Test
+    public void testFilteredCallback() {
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> callbackBuilder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        callbackBuilder.addCallback("q", new URLBuilderCallback());
+        callbackBuilder.addFilter("totCnt", ValuePredicates.atLeast(1));
+        callbackBuilder.addFilter("l", ValuePredicates.startsWith("new+"));
+        callbackBuilder.addFilter("l", ValuePredicates.longRange(0, 0));
+        callbackBuilder.addFilter("x", ValuePredicates.equalTo("1"));
+        final FilteredQueryStringParserCallback<URLParamsBuilder> callback = callbackBuilder.buildFilteredCallback();
+
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        // the l filters can never all pass
+        assertFalse(QueryStringParser.parseQueryString("q=a&totCnt=5&l=new+york&x=1", callback, paramsBuilder));
+        assertEquals("", paramsBuilder.toString());
+
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> builder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        builder.addCallback("q", new URLBuilderCallback());
+        builder.addCallback("l", new URLBuilderCallback());
+        builder.addFilter("totCnt", ValuePredicates.longRange(1, 100));
+        builder.addFilter("l", ValuePredicates.startsWith("new+"));
+        final FilteredQueryStringParserCallback<URLParamsBuilder> filtered = builder.buildFilteredCallback();
+
+        // filtered keys after the callback keys still apply
+        assertTrue(QueryStringParser.parseQueryString("q=a&l=new+york&totCnt=5", filtered, paramsBuilder));
+        assertEquals("q=a&l=new+york", paramsBuilder.toString());
+        paramsBuilder.reset();
+        assertFalse(QueryStringParser.parseQueryString("q=a&l=new+york&totCnt=0", filtered, paramsBuilder));
+        assertFalse(QueryStringParser.parseQueryString("q=a&l=new+york&totCnt=101", filtered, paramsBuilder));
+        assertFalse(QueryStringParser.parseQueryString("q=a&l=new+york&totCnt=5x", filtered, paramsBuilder));
+        assertFalse(QueryStringParser.parseQueryString("q=a&l=new+york&totCnt=", filtered, paramsBuilder));
+        assertFalse(QueryStringParser.parseQueryString("q=a&l=new+york&totCnt=99999999999999999999", filtered, paramsBuilder));
+        assertFalse(QueryStringParser.parseQueryString("q=a&l=boston&totCnt=5", filtered, paramsBuilder));
+        // missing filtered key
+        assertFalse(QueryStringParser.parseQueryString("q=a&l=new+york", filtered, paramsBuilder));
+        assertEquals("", paramsBuilder.toString());
+        // only the first occurrence of a filtered key is tested
+        assertTrue(QueryStringParser.parseQueryString("totCnt=2&totCnt=0&l=new+haven", filtered, paramsBuilder));
+        assertEquals("l=new+haven", paramsBuilder.toString());
+
+        paramsBuilder.reset();
+        final String custom = "xxl:new+york;totCnt:7;q:byy";
+        assertTrue(QueryStringParser.parseQueryString(custom, filtered, paramsBuilder, 2, custom.length() - 2, ";", ":"));
+        assertEquals("l:new+york&q:b", paramsBuilder.toString());
+
+        // no filters
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> unfiltered = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        unfiltered.addCallback("q", new URLBuilderCallback());
+        paramsBuilder.reset();
+        assertTrue(QueryStringParser.parseQueryString("a=1&q=2", unfiltered.buildFilteredCallback(), paramsBuilder));
+        assertEquals("q=2", paramsBuilder.toString());
+    }
+
+    @Test
+    public void testFilteredCallbackIgnoreCaseAndAliases() {
+        final QueryStringParserCallbackBuilder<URLParamsBuilder> builder = new QueryStringParserCallbackBuilder<URLParamsBuilder>();
+        builder.setIgnoreCase(true);
+        builder.addCallback("q", new URLBuilderCallback());
+        builder.addAlias("query", "q");
+        builder.addAlias("count", "totCnt");
+        builder.addFilter("TOTCNT", ValuePredicates.longRange(1, 100));
+        builder.addFilter("Query", ValuePredicates.startsWith("java"));
+        final FilteredQueryStringParserCallback<URLParamsBuilder> filtered = builder.buildFilteredCallback();
+
+        final URLParamsBuilder paramsBuilder = new URLParamsBuilder();
+        assertTrue(QueryStringParser.parseQueryString("Q=java&totcnt=5", filtered, paramsBuilder));
+        assertEquals("Q=java", paramsBuilder.toString());
+        paramsBuilder.reset();
+        // an alias counts as its key, for the predicates and for the first occurrence
+        assertTrue(QueryStringParser.parseQueryString("QUERY=javascript&Count=7&q=nurse", filtered, paramsBuilder));
+        assertEquals("QUERY=javascript&q=nurse", paramsBuilder.toString());
+        paramsBuilder.reset();
+        assertFalse(QueryStringParser.parseQueryString("query=nurse&q=java&totCnt=5", filtered, paramsBuilder));
+        assertFalse(QueryStringParser.parseQueryString("q=java&COUNT=0", filtered, paramsBuilder));
+        assertFalse(QueryStringParser.parseQueryString("q=java", filtered, paramsBuilder));
+        assertEquals("", paramsBuilder.toString());
+    }
+
+    @Test
+    public void testValuePredicates() {
+        final String s = "-42&9223372036854775807&new+york";
+        assertTrue(ValuePredicates.longRange(-50, -42).matches(s, 0, 3));
+        assertFalse(ValuePredicates.longRange(-41, 0).matches(s, 0, 3));
+        assertFalse(ValuePredicates.longRange(-50, 0).matches(s, 0, 1));
+        assertTrue(ValuePredicates.atLeast(Long.MAX_VALUE).matches(s, 4, 23));
+        assertFalse(ValuePredicates.atLeast(0).matches(s, 4, 24));
+
+        final ValuePredicate anyLong = ValuePredicates.longRange(Long.MIN_VALUE, Long.MAX_VALUE);
+        final String limits = "-9223372036854775808&-9223372036854775809&9223372036854775808&00000000000000000000001&-&1-";
+        assertTrue(anyLong.matches(limits, 0, 20));
+        assertFalse(anyLong.matches(limits, 21, 41));
+        assertFalse(anyLong.matches(limits, 42, 61));
+        assertTrue(ValuePredicates.longRange(1, 1).matches(limits, 62, 85));
+        assertFalse(anyLong.matches(limits, 86, 87));
+        assertFalse(anyLong.matches(limits, 88, 90));
+        assertTrue(ValuePredicates.equalTo("new+york").matches(s, 24, 32));
+        assertFalse(ValuePredicates.equalTo("new+york").matches(s, 24, 31));
+        assertTrue(ValuePredicates.startsWith("new+").matches(s, 24, 32));
+        assertTrue(ValuePredicates.startsWith("").matches(s, 24, 24));
+        assertFalse(ValuePredicates.startsWith("new+york+").matches(s, 24, 32));
+    }
+
     private static final class MutableInt {
         int value = 0;
     }
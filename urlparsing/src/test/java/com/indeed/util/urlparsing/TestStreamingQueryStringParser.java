@@ -0,0 +1,160 @@
+package com.indeed.util.urlparsing;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+public class TestStreamingQueryStringParser {
+
+    private static final String QUERY_STRING = "q=software+engineer&l=Austin%2C+TX&flag&=empty&totCnt=123&uid=1a2b3c4d5e6f7g8h&lang=én";
+
+    private static final QueryStringParserCallback<List<String>> stringCollector = new QueryStringParserCallback<List<String>>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, List<String> storage) {
+            storage.add(queryString.substring(keyStart, keyEnd) + "|" + queryString.substring(valueStart, valueEnd));
+        }
+    };
+
+    private static final ByteQueryStringParserCallback<List<String>> byteCollector = new ByteQueryStringParserCallback<List<String>>() {
+        @Override
+        public void parseKeyValuePair(byte[] queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, List<String> storage) {
+            try {
+                storage.add(new String(queryString, keyStart, keyEnd - keyStart, "UTF-8") + "|" + new String(queryString, valueStart, valueEnd - valueStart, "UTF-8"));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+    };
+
+    private static final SliceQueryStringParserCallback<List<String>> sliceCollector = new SliceQueryStringParserCallback<List<String>>() {
+        @Override
+        public void parseKeyValuePair(CharSequenceSlice key, CharSequenceSlice value, List<String> storage) {
+            storage.add(key + "|" + value);
+        }
+    };
+
+    private static List<String> expected(String queryString) {
+        final List<String> expected = new ArrayList<String>();
+        QueryStringParser.parseQueryString(queryString, stringCollector, expected);
+        return expected;
+    }
+
+    /**
+     * Returns at most 3 bytes per read, so that pairs straddle reads as well as buffers
+     */
+    private static InputStream trickle(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+    }
+
+    private static Reader trickle(Reader reader) {
+        return new FilterReader(reader) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 3));
+            }
+        };
+    }
+
+    @Test
+    public void testSameAsQueryStringParser() throws IOException {
+        final byte[] bytes = QUERY_STRING.getBytes("UTF-8");
+        final List<String> expected = expected(QUERY_STRING);
+        // the longest pair is 26 bytes, so every buffer size from 27 carries pairs over at different offsets
+        for (int bufferSize = 27; bufferSize <= bytes.length + 1; bufferSize++) {
+            final StreamingQueryStringParser parser = new StreamingQueryStringParser(bufferSize);
+            for (int i = 0; i < 2; i++) {
+                final List<String> parsed = new ArrayList<String>();
+                assertEquals(expected.size(), parser.parse(new ByteArrayInputStream(bytes), byteCollector, parsed));
+                assertEquals("buffer size " + bufferSize, expected, parsed);
+
+                parsed.clear();
+                assertEquals(expected.size(), parser.parse(trickle(new ByteArrayInputStream(bytes)), byteCollector, parsed));
+                assertEquals("buffer size " + bufferSize, expected, parsed);
+
+                parsed.clear();
+                assertEquals(expected.size(), parser.parse(Channels.newChannel(trickle(new ByteArrayInputStream(bytes))), byteCollector, parsed));
+                assertEquals("buffer size " + bufferSize, expected, parsed);
+
+                parsed.clear();
+                assertEquals(expected.size(), parser.parse(trickle(new StringReader(QUERY_STRING)), sliceCollector, parsed));
+                assertEquals("buffer size " + bufferSize, expected, parsed);
+            }
+        }
+    }
+
+    @Test
+    public void testLongStream() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("k").append(i % 7).append('=').append(i).append('&');
+            expected.add("k" + (i % 7) + "|" + i);
+        }
+        final StreamingQueryStringParser parser = new StreamingQueryStringParser(64);
+        final List<String> parsed = new ArrayList<String>();
+        // the trailing '&' doesn't add an empty pair
+        assertEquals(10000, parser.parse(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")), byteCollector, parsed));
+        assertEquals(expected, parsed);
+    }
+
+    @Test
+    public void testCustomDelimiters() throws IOException {
+        final StreamingQueryStringParser parser = new StreamingQueryStringParser(16, '\n', '\t');
+        final List<String> parsed = new ArrayList<String>();
+        assertEquals(3, parser.parse(new StringReader("a\t1\nb\t2\nc"), sliceCollector, parsed));
+        assertEquals(3, parsed.size());
+        assertEquals("a|1", parsed.get(0));
+        assertEquals("b|2", parsed.get(1));
+        assertEquals("c|", parsed.get(2));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final StreamingQueryStringParser parser = new StreamingQueryStringParser(8);
+        final List<String> parsed = new ArrayList<String>();
+        assertEquals(0, parser.parse(new ByteArrayInputStream(new byte[0]), byteCollector, parsed));
+        assertEquals(0, parser.parse(new StringReader(""), sliceCollector, parsed));
+        assertEquals(0, parsed.size());
+    }
+
+    @Test
+    public void testPairLongerThanBuffer() throws IOException {
+        final StreamingQueryStringParser parser = new StreamingQueryStringParser(8);
+        final List<String> parsed = new ArrayList<String>();
+        try {
+            parser.parse(new ByteArrayInputStream("a=1&b=123456789&c=2".getBytes("UTF-8")), byteCollector, parsed);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Pair at offset 4 doesn't fit into the buffer size 8", e.getMessage());
+        }
+        assertEquals(1, parsed.size());
+
+        // a pair fits if its delimiter does, too
+        parsed.clear();
+        assertEquals(2, parser.parse(new StringReader("a=12345&b"), sliceCollector, parsed));
+        assertEquals("a|12345", parsed.get(0));
+        try {
+            parser.parse(new StringReader("a=123456&b"), sliceCollector, parsed);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Pair at offset 0 doesn't fit into the buffer size 8", e.getMessage());
+        }
+    }
+}
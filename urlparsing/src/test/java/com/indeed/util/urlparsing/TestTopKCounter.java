@@ -0,0 +1,104 @@
+package com.indeed.util.urlparsing;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class TestTopKCounter {
+
+    /**
+     * Value heavy i of 1 to 10 occurs 500 * i times, the remaining values occur once
+     */
+    private static void addValues(TopKCounter topK, HashCounter exact, long seed) {
+        final Random random = new Random(seed);
+        final String[] values = new String[110000];
+        int n = 0;
+        for (int i = 1; i <= 10; i++) {
+            for (int j = 0; j < 500 * i; j++) {
+                values[n++] = "heavy" + i;
+            }
+        }
+        while (n < values.length) {
+            values[n] = "rare" + seed + "-" + n;
+            n++;
+        }
+        for (int i = values.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final String value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        for (String value : values) {
+            final String line = "a=1&q=" + value + "&b=2";
+            topK.add(line, 6, 6 + value.length());
+            exact.add(line, 6, 6 + value.length());
+        }
+    }
+
+    @Test
+    public void testTopK() {
+        final TopKCounter topK = new TopKCounter(5);
+        final HashCounter exact = new HashCounter();
+        addValues(topK, exact, 1);
+        final List<TopKCounter.Entry> top = topK.getTopK();
+        assertEquals(5, top.size());
+        for (int i = 0; i < 5; i++) {
+            final String value = "heavy" + (10 - i);
+            assertEquals(value, top.get(i).getValue());
+            final long count = exact.get(value, 0, value.length());
+            assertEquals(500 * (10 - i), count);
+            assertTrue(top.get(i).getCount() >= count);
+            assertTrue(top.get(i).getCount() <= count + 2 * topK.getSketch().getTotal() / topK.getSketch().getWidth());
+        }
+        assertEquals(110000, exact.getTotal());
+        assertEquals(110000 - 27500 + 10, exact.size());
+    }
+
+    @Test
+    public void testMerge() {
+        final TopKCounter a = new TopKCounter(3);
+        final TopKCounter b = new TopKCounter(3);
+        final HashCounter exactA = new HashCounter();
+        final HashCounter exactB = new HashCounter();
+        addValues(a, exactA, 1);
+        addValues(b, exactB, 2);
+        // make heavy1 the most frequent value in b only
+        for (int i = 0; i < 20000; i++) {
+            b.add("heavy1", 0, 6);
+            exactB.add("heavy1", 0, 6);
+        }
+        a.merge(b);
+        exactA.merge(exactB);
+        final List<TopKCounter.Entry> top = a.getTopK();
+        assertEquals("heavy1", top.get(0).getValue());
+        assertEquals("heavy10", top.get(1).getValue());
+        assertEquals("heavy9", top.get(2).getValue());
+        assertEquals(21000, exactA.get("heavy1", 0, 6));
+        assertTrue(top.get(0).getCount() >= 21000);
+        assertEquals(2 * 110000 + 20000, a.getSketch().getTotal());
+        assertEquals(exactA.getTotal(), a.getSketch().getTotal());
+    }
+
+    @Test
+    public void testCountMinSketch() {
+        final CountMinSketch sketch = new CountMinSketch(4, 1000);
+        assertEquals(1024, sketch.getWidth());
+        assertEquals(3, sketch.add("abc", 0, 3, 3));
+        assertEquals(3, sketch.estimate(new StringBuilder("xabc"), 1, 4));
+        assertEquals(0, sketch.estimate("abd", 0, 3));
+        final CountMinSketch other = new CountMinSketch(4, 1024);
+        other.add("abc", 0, 3, 2);
+        sketch.merge(other);
+        assertEquals(5, sketch.estimate("abc", 0, 3));
+        assertEquals(5, sketch.getTotal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentSketches() {
+        new CountMinSketch(4, 1024).merge(new CountMinSketch(4, 2048));
+    }
+}
@@ -0,0 +1,210 @@
+package com.indeed.util.urlparsing;
+
+import com.indeed.util.urlparsing.UrlComponents.Component;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class TestUrlParser {
+
+    private static final QueryStringParserCallback<Map<String, String>> collector = new QueryStringParserCallback<Map<String, String>>() {
+        @Override
+        public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Map<String, String> storage) {
+            storage.put(queryString.substring(keyStart, keyEnd), queryString.substring(valueStart, valueEnd));
+        }
+    };
+
+    private static final PathSegmentCallback<List<String>> segmentCollector = new PathSegmentCallback<List<String>>() {
+        @Override
+        public void parsePathSegment(String url, int segmentStart, int segmentEnd, List<String> storage) {
+            storage.add(url.substring(segmentStart, segmentEnd));
+        }
+    };
+
+    private static void assertComponents(String url, String scheme, String userInfo, String host, String port, String path, String query, String fragment) {
+        final UrlComponents components = new UrlComponents();
+        UrlParser.parse(url, components);
+        assertEquals(scheme, components.toString(Component.SCHEME));
+        assertEquals(userInfo, components.toString(Component.USER_INFO));
+        assertEquals(host, components.toString(Component.HOST));
+        assertEquals(port, components.toString(Component.PORT));
+        assertEquals(path, components.toString(Component.PATH));
+        assertEquals(query, components.toString(Component.QUERY));
+        assertEquals(fragment, components.toString(Component.FRAGMENT));
+    }
+
+    @Test
+    public void testComponents() {
+        assertComponents("http://user:pw@www.example.com:8080/a/b?q=1&l=2#top", "http", "user:pw", "www.example.com", "8080", "/a/b", "q=1&l=2", "top");
+        assertComponents("https://www.indeed.com", "https", null, "www.indeed.com", null, "", null, null);
+        assertComponents("https://www.indeed.com/?", "https", null, "www.indeed.com", null, "/", "", null);
+        assertComponents("//cdn.example.com/x.js", null, null, "cdn.example.com", null, "/x.js", null, null);
+        assertComponents("/jobs?q=java", null, null, null, null, "/jobs", "q=java", null);
+        assertComponents("mailto:jobs@example.com", "mailto", null, null, null, "jobs@example.com", null, null);
+        assertComponents("http://[::1]:80/", "http", null, "[::1]", "80", "/", null, null);
+        assertComponents("file:///tmp/x", "file", null, "", null, "/tmp/x", null, null);
+        assertComponents("", null, null, null, null, "", null, null);
+    }
+
+    @Test
+    public void testLenient() {
+        // no scheme
+        assertComponents("www.example.com/a?b", null, null, null, null, "www.example.com/a", "b", null);
+        // '?' and '/' in the fragment, '#' can't be in the query
+        assertComponents("http://h/p#f?/x", "http", null, "h", null, "/p", null, "f?/x");
+        assertComponents("http://h?a=b/c", "http", null, "h", null, "", "a=b/c", null);
+        // last '@' ends the user info
+        assertComponents("http://a@b@host/", "http", "a@b", "host", null, "/", null, null);
+        // spaces, unescaped chars and unclosed IPv6 literal
+        assertComponents(" \thttp://h/a b|c \n", "http", null, "h", null, "/a b|c", null, null);
+        assertComponents("http://[::1/", "http", null, "[::1", null, "/", null, null);
+        assertComponents("1http://h/", null, null, null, null, "1http://h/", null, null);
+
+        final UrlComponents components = new UrlComponents();
+        UrlParser.parse("http://h:http/", components);
+        assertEquals("http", components.toString(Component.PORT));
+        assertEquals(-1, components.getPort());
+        UrlParser.parse("http://h:65536/", components);
+        assertEquals(-1, components.getPort());
+        UrlParser.parse("http://h:/", components);
+        assertEquals(-1, components.getPort());
+        UrlParser.parse("http://h:443/", components);
+        assertEquals(443, components.getPort());
+        // reusing the components clears missing ones
+        UrlParser.parse("/p", components);
+        assertFalse(components.has(Component.PORT));
+        assertEquals(-1, components.getPort());
+        assertEquals(-1, components.getStart(Component.HOST));
+        assertNull(components.get(Component.HOST, new CharSequenceSlice()));
+    }
+
+    @Test
+    public void testRange() {
+        final String line = "ref=http://h/p?q=1 ua=x";
+        final UrlComponents components = new UrlComponents();
+        UrlParser.parse(line, 4, 18, components);
+        assertEquals("h", components.toString(Component.HOST));
+        assertEquals("/p", components.toString(Component.PATH));
+        assertEquals("q=1", components.toString(Component.QUERY));
+        assertEquals(15, components.getStart(Component.QUERY));
+        assertEquals("q=1", components.get(Component.QUERY, new CharSequenceSlice()).toString());
+    }
+
+    @Test
+    public void testRangeInLongerLine() {
+        // delimiters after the end of the range must not be found
+        final String url = "http://h/a/b";
+        final String line = "ref=" + url + " next=http://u@x:1/c/d?e=f#g";
+        final int end = 4 + url.length();
+        final UrlComponents components = new UrlComponents();
+        UrlParser.parse(line, 4, end, components);
+        assertEquals("h", components.toString(Component.HOST));
+        assertEquals("/a/b", components.toString(Component.PATH));
+        assertEquals(end, components.getEnd(Component.PATH));
+        assertFalse(components.has(Component.USER_INFO));
+        assertFalse(components.has(Component.PORT));
+        assertFalse(components.has(Component.QUERY));
+        assertFalse(components.has(Component.FRAGMENT));
+
+        final List<String> segments = new ArrayList<String>();
+        UrlParser.parsePathSegments(components, segmentCollector, segments);
+        assertEquals(2, segments.size());
+        assertEquals("a", segments.get(0));
+        assertEquals("b", segments.get(1));
+
+        // no path, and no query or fragment in range
+        UrlParser.parse(line, 4, 4 + "http://h".length(), components);
+        assertEquals("h", components.toString(Component.HOST));
+        assertFalse(components.has(Component.QUERY));
+        assertFalse(UrlParser.parseQueryString(components, new QueryStringParserCallback<Object>() {
+            @Override
+            public void parseKeyValuePair(String queryString, int keyStart, int keyEnd, int valueStart, int valueEnd, Object storage) {
+                throw new AssertionError();
+            }
+        }, null));
+    }
+
+    @Test
+    public void testSameAsUri() throws Exception {
+        final String[] urls = {
+                "http://www.indeed.com/jobs?q=java+developer&l=Austin%2C+TX&start=10",
+                "https://user@www.indeed.co.uk:8443/viewjob?jk=abc123#apply",
+                "http://localhost/",
+                "ftp://ftp.example.com/pub/file.txt",
+                "https://www.google.com/url?sa=t&rct=j&q=&esrc=s&url=http%3A%2F%2Fwww.indeed.com%2F",
+                "/m/jobs?q=nurse",
+                "jobs?q=nurse#x",
+        };
+        final UrlComponents components = new UrlComponents();
+        for (String url : urls) {
+            final URI uri = new URI(url);
+            UrlParser.parse(url, components);
+            assertEquals(url, uri.getScheme(), components.toString(Component.SCHEME));
+            assertEquals(url, uri.getRawUserInfo(), components.toString(Component.USER_INFO));
+            assertEquals(url, uri.getHost(), components.toString(Component.HOST));
+            assertEquals(url, uri.getPort(), components.getPort());
+            assertEquals(url, uri.getRawPath(), components.toString(Component.PATH));
+            assertEquals(url, uri.getRawQuery(), components.toString(Component.QUERY));
+            assertEquals(url, uri.getRawFragment(), components.toString(Component.FRAGMENT));
+        }
+    }
+
+    @Test
+    public void testParseQueryString() {
+        final String url = "http://www.indeed.com/jobs?q=java&l=Austin#q=fragment";
+        final Map<String, String> expected = new HashMap<String, String>();
+        expected.put("q", "java");
+        expected.put("l", "Austin");
+
+        final Map<String, String> parsed = new HashMap<String, String>();
+        assertTrue(UrlParser.parseQueryString(url, collector, parsed));
+        assertEquals(expected, parsed);
+
+        parsed.clear();
+        final UrlComponents components = new UrlComponents();
+        UrlParser.parse(url, components);
+        assertTrue(UrlParser.parseQueryString(components, collector, parsed));
+        assertEquals(expected, parsed);
+
+        parsed.clear();
+        assertFalse(UrlParser.parseQueryString("http://h/p#q=1", collector, parsed));
+        UrlParser.parse("http://h/p#q=1", components);
+        assertFalse(UrlParser.parseQueryString(components, collector, parsed));
+        assertTrue(parsed.isEmpty());
+    }
+
+    @Test
+    public void testPathSegments() {
+        final UrlComponents components = new UrlComponents();
+        final List<String> segments = new ArrayList<String>();
+        UrlParser.parse("http://h/a//b/?x", components);
+        UrlParser.parsePathSegments(components, segmentCollector, segments);
+        assertEquals(4, segments.size());
+        assertEquals("a", segments.get(0));
+        assertEquals("", segments.get(1));
+        assertEquals("b", segments.get(2));
+        assertEquals("", segments.get(3));
+
+        segments.clear();
+        UrlParser.parse("http://h", components);
+        UrlParser.parsePathSegments(components, segmentCollector, segments);
+        assertEquals(1, segments.size());
+        assertEquals("", segments.get(0));
+
+        segments.clear();
+        UrlParser.parse("jobs/java", components);
+        UrlParser.parsePathSegments(components, segmentCollector, segments);
+        assertEquals(2, segments.size());
+        assertEquals("jobs", segments.get(0));
+        assertEquals("java", segments.get(1));
+    }
+}
@@ -0,0 +1,139 @@
+package com.indeed.util.urlparsing;
+
+import com.google.common.base.Charsets;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class TestValueInterner {
+
+    @Test
+    public void testIntern() {
+        final ValueInterner interner = new ValueInterner(16);
+        final String first = "q=nurse&l=New+York%2C+NY";
+        final String second = "l=New+York%2C+NY&q=driver";
+        final String location = interner.intern(first, 10, first.length());
+        assertEquals("New York, NY", location);
+        assertSame(location, interner.intern(second, 2, 16));
+        assertSame(location, interner.intern(new StringBuilder(second), 2, 16));
+        assertNotSame(location, interner.intern(second, 2, 10));
+        assertEquals("New York", interner.intern(second, 2, 10));
+        assertEquals("", interner.intern(first, 0, 0));
+
+        final ValueInterner raw = new ValueInterner(16, false);
+        assertEquals("New+York%2C+NY", raw.intern(first, 10, first.length()));
+    }
+
+    @Test
+    public void testInternBytes() {
+        final ValueInterner interner = new ValueInterner(16);
+        final byte[] line = "l=M%C3%BCnchen&q=münchen".getBytes(Charsets.UTF_8);
+        final String decoded = interner.intern(line, 2, 14);
+        assertEquals("München", decoded);
+        assertSame(decoded, interner.intern(line.clone(), 2, 14));
+        assertEquals("münchen", interner.intern(line, 17, line.length));
+        // bytes and chars are interned separately
+        assertNotSame(decoded, interner.intern("l=M%C3%BCnchen", 2, 14));
+
+        final ValueInterner raw = new ValueInterner(16, false);
+        assertEquals("M%C3%BCnchen", raw.intern(line, 2, 14));
+        assertEquals("münchen", raw.intern(line, 17, line.length));
+    }
+
+    @Test
+    public void testIds() {
+        final ValueInterner interner = new ValueInterner(100);
+        assertEquals(128, interner.getMaxSize());
+        final String line = "l=Austin&co=us&l2=Austin";
+        final int austin = interner.internId(line, 2, 8);
+        final int us = interner.internId(line, 12, 14);
+        assertEquals(austin, interner.internId(line, 18, 24));
+        final int austinBytes = interner.internId(line.getBytes(Charsets.UTF_8), 2, 8);
+        assertTrue(austinBytes != austin);
+        assertEquals("Austin", interner.getValue(austinBytes));
+        assertEquals("Austin", interner.getValue(austin));
+        assertEquals("us", interner.getValue(us));
+        for (int id = 0; id < interner.getMaxSize(); id++) {
+            if (id != austin && id != us && interner.getValue(id) != null) {
+                assertEquals("Austin", interner.getValue(id));
+            }
+        }
+        assertEquals(0, interner.getEvictions());
+        assertNull(new ValueInterner(8).getValue(3));
+    }
+
+    @Test
+    public void testClockEviction() {
+        // a single bucket, so every value competes for the same slots
+        final ValueInterner interner = new ValueInterner(1);
+        assertEquals(ValueInterner.WAYS, interner.getMaxSize());
+        final int[] ids = new int[ValueInterner.WAYS];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = interner.internId("v" + i, 0, 2);
+        }
+        assertEquals(0, interner.getEvictions());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(ids[i], interner.internId("v" + i, 0, 2));
+        }
+
+        // the hand passes over the recently used values and replaces v4
+        final int newId = interner.internId("new", 0, 3);
+        assertEquals(ids[4], newId);
+        assertEquals("new", interner.getValue(newId));
+        assertEquals(1, interner.getEvictions());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("v" + i, interner.getValue(ids[i]));
+        }
+        for (int i = 5; i < ids.length; i++) {
+            assertEquals("v" + i, interner.getValue(ids[i]));
+        }
+
+        // more values than slots still intern correctly
+        for (int i = 0; i < 100; i++) {
+            assertEquals("w" + i, interner.intern("w" + i + "&", 0, ("w" + i).length()));
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final ValueInterner interner = new ValueInterner(64);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 4; t++) {
+                final int seed = t;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int checked = 0;
+                        for (int i = 0; i < 20000; i++) {
+                            final int value = (i * 31 + seed) % 200;
+                            final String raw = "city+" + value;
+                            assertEquals("city " + value, interner.intern(raw, 0, raw.length()));
+                            final byte[] bytes = raw.getBytes(Charsets.UTF_8);
+                            assertEquals("city " + value, interner.intern(bytes, 0, bytes.length));
+                            checked++;
+                        }
+                        return checked;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(20000, (int) future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
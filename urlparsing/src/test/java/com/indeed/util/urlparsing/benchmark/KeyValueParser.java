@@ -1,9 +0,0 @@
-package com.indeed.util.urlparsing.benchmark;
-
-/**
- * @author: preetha
- */
-public interface KeyValueParser {
-
-    public void parse(String line);
-}